@@ -5,12 +5,21 @@ import app.aiservice.dto.ChatResponse;
 import app.aiservice.dto.SummarizeRequest;
 import app.aiservice.dto.SummarizeResponse;
 import app.aiservice.service.AIOperationsService;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * REST Controller for AI operations
@@ -23,6 +32,16 @@ public class AIController {
     @Autowired
     private AIOperationsService aiOperationsService;
     
+    // Streamed generations can outlast the default async request timeout
+    private static final long STREAM_TIMEOUT_MS = 10 * 60 * 1000;
+    
+    private final ExecutorService streamExecutor = Executors.newCachedThreadPool();
+    
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+    
     /**
      * Health check endpoint
      */
@@ -61,6 +80,38 @@ public class AIController {
         }
     }
     
+    /**
+     * Summarize document content, streaming the summary as server-sent events: {"token": "..."} as text is
+     * generated, then [DONE]
+     */
+    @PostMapping(value = "/summarize/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter summarizeStream(@Valid @RequestBody SummarizeRequest request) {
+        logger.info("Streaming summarize request for file: {}", request.getFilename());
+        long startTime = System.currentTimeMillis();
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        
+        streamExecutor.execute(() -> {
+            try {
+                aiOperationsService.summarize(request.getContent(), request.getFilename(), request.getMaxLength(),
+                    text -> {
+                        try {
+                            emitter.send(SseEmitter.event().data(Map.of("token", text)));
+                        } catch (IOException e) {
+                            // The client went away; generation finishes but nothing more is sent
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                emitter.send(SseEmitter.event().data("[DONE]"));
+                emitter.complete();
+                logger.info("Summary streamed in {}ms", System.currentTimeMillis() - startTime);
+            } catch (Exception e) {
+                logger.error("Failed to stream summary: {}", e.getMessage(), e);
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+    
     /**
      * Interactive chat with context
      */
@@ -14,6 +14,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Core AI Service for GGUF model inference
@@ -93,22 +94,34 @@ public class AIModelService {
      * Generate text using the GGUF model
      */
     public String generateText(String prompt, int maxTokens) {
+        return generateText(prompt, maxTokens, text -> { });
+    }
+    
+    /**
+     * Generate text using the GGUF model, passing each line of output to onText as llama.cpp prints it.
+     * Stub responses are passed on in one piece.
+     * @return the complete text
+     */
+    public String generateText(String prompt, int maxTokens, Consumer<String> onText) {
+        String result;
         try {
             if (llamaCppExecutable != null) {
-                return generateViaLlamaCpp(prompt, maxTokens);
+                return generateViaLlamaCpp(prompt, maxTokens, onText);
             } else {
-                return generateStubResponse("llama.cpp not found. Please download and install it.");
+                result = generateStubResponse("llama.cpp not found. Please download and install it.");
             }
         } catch (Exception e) {
             logger.error("Failed to generate text: {}", e.getMessage(), e);
-            return generateStubResponse("Error: " + e.getMessage());
+            result = generateStubResponse("Error: " + e.getMessage());
         }
+        onText.accept(result);
+        return result;
     }
     
     /**
      * Generate text via llama.cpp CLI
      */
-    private String generateViaLlamaCpp(String prompt, int maxTokens) throws Exception {
+    private String generateViaLlamaCpp(String prompt, int maxTokens, Consumer<String> onText) throws Exception {
         logger.debug("Calling llama.cpp with prompt length: {}", prompt.length());
         
         List<String> command = new ArrayList<>();
@@ -155,6 +168,7 @@ public class AIModelService {
                 
                 if (collectingOutput) {
                     output.append(line).append(" ");
+                    onText.accept(line + " ");
                 }
             }
         }
@@ -167,7 +181,11 @@ public class AIModelService {
         String result = output.toString().trim();
         logger.debug("Generated {} characters", result.length());
         
-        return result.isEmpty() ? generateStubResponse("No output from llama.cpp") : result;
+        if (result.isEmpty()) {
+            result = generateStubResponse("No output from llama.cpp");
+            onText.accept(result);
+        }
+        return result;
     }
     
     /**
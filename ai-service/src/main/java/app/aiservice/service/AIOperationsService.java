@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import jakarta.annotation.PostConstruct;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * AI Operations Service
@@ -51,24 +52,35 @@ public class AIOperationsService {
     public SummarizeResponse summarize(String content, String filename, int maxLength) {
         logger.info("Generating summary for: {} ({} chars)", filename, content.length());
         
+        String summary = aiModelService.generateText(summaryPrompt(content, maxLength), maxLength);
+        
+        return SummarizeResponse.builder()
+            .summary(summary)
+            .cached(false)
+            .modelUsed(aiModelService.getModelPath())
+            .build();
+    }
+    
+    /**
+     * Generate document summary, passing text to onText as the model produces it
+     * @return the complete summary
+     */
+    public String summarize(String content, String filename, int maxLength, Consumer<String> onText) {
+        logger.info("Streaming summary for: {} ({} chars)", filename, content.length());
+        return aiModelService.generateText(summaryPrompt(content, maxLength), maxLength, onText);
+    }
+    
+    private String summaryPrompt(String content, int maxLength) {
         // Truncate content if too long (keep first part)
         String truncatedContent = content.length() > 4000 
             ? content.substring(0, 4000) + "..." 
             : content;
         
-        String prompt = String.format(
+        return String.format(
             "Summarize the following document in %d words or less:\n\n%s\n\nSummary:",
             maxLength / 5, // rough words estimate
             truncatedContent
         );
-        
-        String summary = aiModelService.generateText(prompt, maxLength);
-        
-        return SummarizeResponse.builder()
-            .summary(summary)
-            .cached(false)
-            .modelUsed(aiModelService.getModelPath())
-            .build();
     }
     
     /**
@@ -0,0 +1,60 @@
+package app.services.ai;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation per generated token for picking it from a LLaMA-sized row of logits.
+ * Run with the GC profiler to check that picking a token allocates nothing once the sampler is warm:
+ * mvn verify -Pbenchmark -DskipTests -Djmh.args="LogitsSamplerBenchmark -prof gc"
+ * gc.alloc.rate.norm should be about 0 B/op for every mode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LogitsSamplerBenchmark {
+    private static final int VOCABULARY = 32_000;
+    // Rows in the output, as for the last prompt chunk of a short prompt
+    private static final int ROWS = 4;
+
+    @Param({"greedy", "topK", "topP"})
+    public String mode;
+
+    private FloatBuffer logits;
+    private LogitsSampler sampler;
+
+    @Setup(Level.Trial)
+    public void createLogits() {
+        // Direct and in native order, like the buffers ONNX Runtime returns
+        logits = ByteBuffer.allocateDirect(VOCABULARY * ROWS * Float.BYTES)
+                           .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < logits.capacity(); i++) {
+            logits.put(i, (float) (random.nextGaussian() * 3));
+        }
+
+        switch (mode) {
+            case "topK":
+                sampler = new LogitsSampler(0.7f, 40, 0.9f, 1L);
+                break;
+            case "topP":
+                sampler = new LogitsSampler(0.7f, 0, 0.9f, 1L);
+                break;
+            default:
+                sampler = LogitsSampler.greedy();
+                break;
+        }
+    }
+
+    @Benchmark
+    public int sampleToken() {
+        return sampler.sample(logits, logits.limit() - VOCABULARY, VOCABULARY);
+    }
+}
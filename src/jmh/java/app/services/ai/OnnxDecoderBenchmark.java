@@ -0,0 +1,61 @@
+package app.services.ai;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation for a whole generation through OnnxDecoder: prompt, cache and logits handling included,
+ * with a tiny model whose logits are LLaMA-sized so the cost outside the model dominates.
+ * Run with the GC profiler to see how much of the logits output is copied to the heap:
+ * mvn verify -Pbenchmark -DskipTests -Djmh.args="OnnxDecoderBenchmark -prof gc"
+ * gc.alloc.rate.norm should grow with the number of new tokens, not with the prompt length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OnnxDecoderBenchmark {
+    private static final int VOCABULARY = 32_000;
+    private static final int NEW_TOKENS = 8;
+
+    @Param({"16", "1000"})
+    public int promptTokens;
+
+    private Path dir;
+    private OrtSession session;
+    private OnnxDecoder decoder;
+    private long[] prompt;
+
+    @Setup(Level.Trial)
+    public void createModel() throws IOException, OrtException {
+        dir = Files.createTempDirectory("onnx-decoder-benchmark");
+        OrtEnvironment environment = OrtEnvironment.getEnvironment();
+        session = environment.createSession(TinyDecoderModel.write(dir, VOCABULARY).toString(),
+                                            new OrtSession.SessionOptions());
+        decoder = new OnnxDecoder(environment, session);
+        prompt = new long[promptTokens];
+        Arrays.fill(prompt, 9);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeModel() throws IOException, OrtException {
+        session.close();
+        Files.deleteIfExists(dir.resolve("model.onnx"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long[] generate() throws OrtException {
+        return decoder.generate(prompt, NEW_TOKENS, Set.of(), null);
+    }
+}
@@ -1,6 +1,7 @@
 package app;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -9,8 +10,10 @@ import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import app.controllers.MainController;
 import app.utils.ThemeManager;
 import app.utils.ConfigManager;
+import app.utils.StartupProfiler;
 
 import java.io.IOException;
 
@@ -27,26 +30,33 @@ public class App extends Application {
     private static Stage primaryStage;
     private static ThemeManager themeManager;
     private static ConfigManager configManager;
+    private MainController mainController;
 
     @Override
     public void start(Stage stage) throws IOException {
         primaryStage = stage;
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        profiler.mark("toolkit");
         
         logger.info("Starting PDF Super Studio Pro AI...");
         
         // Initialize managers
         configManager = ConfigManager.getInstance();
         themeManager = ThemeManager.getInstance();
+        profiler.mark("config");
         
         // Load main window
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/fxml/MainWindow.fxml"));
         Parent root = loader.load();
+        mainController = loader.getController();
+        profiler.mark("fxml");
         
         // Create scene
         Scene scene = new Scene(root, WINDOW_WIDTH, WINDOW_HEIGHT);
         
         // Apply theme
         themeManager.applyTheme(scene, configManager.isDarkMode());
+        profiler.mark("theme");
         
         // Set window properties
         stage.setTitle(APP_TITLE);
@@ -64,9 +74,23 @@ public class App extends Application {
         } catch (Exception e) {
             logger.warn("Could not load application icons", e);
         }
+        profiler.mark("icons");
         
         // Show window
         stage.show();
+        profiler.mark("show");
+        
+        // Report once the first frame has been laid out
+        Platform.runLater(() -> {
+            profiler.mark("firstPulse");
+            profiler.report();
+            
+            // Used by the CDS training run (-Pcds): exit as soon as the UI is up
+            if (Boolean.getBoolean("pdfstudio.exitAfterStartup")) {
+                logger.info("Exiting after startup as requested");
+                Platform.exit();
+            }
+        });
         
         logger.info("Application started successfully");
     }
@@ -75,6 +99,11 @@ public class App extends Application {
     public void stop() throws Exception {
         logger.info("Shutting down PDF Super Studio Pro AI...");
         
+        // Let queued saves finish writing
+        if (mainController != null) {
+            mainController.shutdown();
+        }
+        
         // Save configuration
         configManager.save();
         
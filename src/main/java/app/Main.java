@@ -1,5 +1,6 @@
 package app;
 
+import app.utils.StartupProfiler;
 import javafx.application.Application;
 
 /**
@@ -8,6 +9,8 @@ import javafx.application.Application;
  */
 public class Main {
     public static void main(String[] args) {
+        StartupProfiler.getInstance().begin();
+        
         // Set system properties for better rendering
         System.setProperty("prism.lcdtext", "false");
         System.setProperty("prism.text", "t2k");
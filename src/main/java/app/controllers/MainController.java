@@ -1,6 +1,7 @@
 package app.controllers;
 
 import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
@@ -13,16 +14,34 @@ import org.slf4j.LoggerFactory;
 import org.apache.pdfbox.rendering.PDFRenderer;
 
 import app.App;
+import app.model.OCRPageResult;
 import app.model.PDFDocument;
+import app.model.PageTextIndex;
+import app.services.LazyService;
+import app.utils.PerformanceMonitor;
+import app.services.pdf.DocumentSaveWriter;
 import app.services.pdf.PDFService;
 import app.services.pdf.PDFServiceImpl;
 import app.services.ai.AIService;
 import app.services.ai.AIServiceImpl;
+import app.services.ai.SummaryProgressListener;
+import app.services.ai.TokenListener;
+import app.services.ocr.OCRPageListener;
 import app.services.ocr.OCRService;
 import app.services.ocr.OCRServiceImpl;
+import app.services.ocr.PreprocessOptions;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.awt.image.BufferedImage;
 
 /**
@@ -32,13 +51,37 @@ import java.awt.image.BufferedImage;
 public class MainController {
     private static final Logger logger = LoggerFactory.getLogger(MainController.class);
 
-    // Services
+    // Services - AI and OCR probe models/native libraries, so they are built in the background
     private PDFService pdfService;
-    private AIService aiService;
-    private OCRService ocrService;
-
-    // Current document
-    private PDFDocument currentDocument;
+    private DocumentSaveWriter saveWriter;
+    private LazyService<AIService> aiService;
+    private LazyService<OCRService> ocrService;
+
+    // Current document (also read by the auto-save thread)
+    private volatile PDFDocument currentDocument;
+
+    // Right sidebar tab content is loaded from separate FXML files (see buildTabContent)
+    private final Map<Tab, String> sidebarTabContent = new LinkedHashMap<>();
+    private boolean initialized;
+
+    // PDFBox documents are not thread-safe, so loading, rendering and indexing share one worker
+    private final ExecutorService documentExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "document-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Incremented on every open/close so work for a superseded document stops early
+    private volatile int openGeneration;
+    // OCR requests wait here for recognition and send only short page reads and writes to the document worker
+    private final ExecutorService ocrJobExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ocr-job");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // The current OCR request, cancelled when another document is opened or this one is closed. FX thread only.
+    private Future<?> ocrJob;
+    // Incremented when an OCR request is cancelled, so its late page updates are ignored. FX thread only.
+    private int ocrRequest;
 
     // FXML Components - Top Bar
     @FXML private MenuItem menuItemOpen;
@@ -57,6 +100,10 @@ public class MainController {
     @FXML private VBox leftSidebar;
     @FXML private VBox rightSidebar;
     @FXML private TabPane rightSidebarTabs;
+    @FXML private Tab aiSummaryTab;
+    @FXML private Tab aiChatTab;
+    @FXML private Tab ocrTab;
+    @FXML private Tab insightsTab;
 
     // FXML Components - PDF Viewer
     @FXML private StackPane pdfViewerPanel;
@@ -69,6 +116,7 @@ public class MainController {
     @FXML private VBox chatMessagesContainer;
     @FXML private TextField chatInput;
     @FXML private ComboBox<String> ocrLanguageCombo;
+    @FXML private CheckBox ocrSearchableCheck;
     @FXML private TextArea ocrResultsText;
     @FXML private Label ocrConfidenceLabel;
     @FXML private TextArea insightsText;
@@ -78,23 +126,33 @@ public class MainController {
     @FXML private Label statusLabel;
     @FXML private Label pageInfoLabel;
     @FXML private Label zoomLabel;
+    @FXML private Label aiStatusLabel;
+    @FXML private Label ocrStatusLabel;
     @FXML private ProgressBar progressBar;
 
     @FXML
     public void initialize() {
+        // FXMLLoader calls initialize() again for every sidebar tab loaded with this controller
+        if (initialized) {
+            return;
+        }
+        initialized = true;
         logger.info("Initializing Main Controller...");
 
         // Initialize services
         pdfService = new PDFServiceImpl();
-        aiService = new AIServiceImpl();
-        ocrService = new OCRServiceImpl();
+        // Saves write on the document worker, after any page rendering or OCR page work already queued and before a close
+        saveWriter = new DocumentSaveWriter(pdfService, documentExecutor);
+        aiService = new LazyService<>("AI", AIServiceImpl::new);
+        ocrService = new LazyService<>("OCR", OCRServiceImpl::new);
 
-        // Initialize OCR language options
-        ocrLanguageCombo.getItems().addAll(
-            "English", "Spanish", "French", "German", "Italian",
-            "Portuguese", "Russian", "Chinese", "Japanese", "Arabic"
-        );
-        ocrLanguageCombo.getSelectionModel().selectFirst();
+        // Right sidebar tabs
+        initializeSidebarTabs();
+
+        // Auto-save queues its writes on the document worker like manual saves
+        if (App.getConfigManager().isAutoSave()) {
+            saveWriter.startAutoSave(() -> currentDocument, App.getConfigManager().getAutoSaveIntervalMinutes());
+        }
 
         // Set initial theme
         menuItemDarkMode.setSelected(App.getConfigManager().isDarkMode());
@@ -102,9 +160,86 @@ public class MainController {
         // Set status
         updateStatus("Ready");
 
+        // Probe AI and OCR once the window is up so the first frame is not delayed
+        aiStatusLabel.setText("AI: starting...");
+        ocrStatusLabel.setText("OCR: starting...");
+        javafx.application.Platform.runLater(this::startBackgroundServices);
+
         logger.info("Main Controller initialized successfully");
     }
 
+    private void initializeSidebarTabs() {
+        sidebarTabContent.put(aiSummaryTab, "/fxml/tabs/AISummaryTab.fxml");
+        sidebarTabContent.put(aiChatTab, "/fxml/tabs/AIChatTab.fxml");
+        sidebarTabContent.put(ocrTab, "/fxml/tabs/OCRTab.fxml");
+        sidebarTabContent.put(insightsTab, "/fxml/tabs/InsightsTab.fxml");
+
+        if (!App.getConfigManager().isFastLaunch()) {
+            sidebarTabContent.keySet().forEach(this::buildTabContent);
+            return;
+        }
+
+        // Fast launch: build a tab the first time it is shown; the initially selected
+        // tab is built right after the first frame
+        logger.info("Fast launch enabled - deferring sidebar tabs until first use");
+        rightSidebarTabs.getSelectionModel().selectedItemProperty().addListener(
+            (observable, oldTab, newTab) -> buildTabContent(newTab));
+        javafx.application.Platform.runLater(() ->
+            buildTabContent(rightSidebarTabs.getSelectionModel().getSelectedItem()));
+    }
+
+    /**
+     * Load the content of a right sidebar tab, injecting its controls into this controller
+     */
+    private void buildTabContent(Tab tab) {
+        String fxmlPath = sidebarTabContent.get(tab);
+        if (tab == null || fxmlPath == null || tab.getContent() != null) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxmlPath));
+            loader.setController(this);
+            tab.setContent(loader.load());
+        } catch (IOException e) {
+            logger.error("Failed to load sidebar tab: {}", fxmlPath, e);
+            return;
+        }
+
+        if (tab == ocrTab) {
+            // Initialize OCR language options
+            ocrLanguageCombo.getItems().addAll(
+                "English", "Spanish", "French", "German", "Italian",
+                "Portuguese", "Russian", "Chinese", "Japanese", "Arabic"
+            );
+            ocrLanguageCombo.getSelectionModel().selectFirst();
+        }
+
+        PerformanceMonitor.getInstance().recordSince("ui.tab." + tab.getText(), startTime);
+    }
+
+    private void startBackgroundServices() {
+        aiService.whenReady(service -> javafx.application.Platform.runLater(() -> {
+            if (service == null) {
+                aiStatusLabel.setText("AI: unavailable");
+            } else if (service.isModelLoaded()) {
+                aiStatusLabel.setText("AI: " + service.getModelType());
+            } else {
+                aiStatusLabel.setText("AI: stub mode");
+            }
+        }));
+        ocrService.whenReady(service -> javafx.application.Platform.runLater(() -> {
+            if (service == null) {
+                ocrStatusLabel.setText("OCR: unavailable");
+            } else if (service.isTesseractAvailable()) {
+                ocrStatusLabel.setText("OCR: ready");
+            } else {
+                ocrStatusLabel.setText("OCR: stub mode");
+            }
+        }));
+    }
+
     // File Menu Actions
     @FXML
     private void handleOpen() {
@@ -123,13 +258,7 @@ public class MainController {
     @FXML
     private void handleSave() {
         if (currentDocument != null) {
-            try {
-                pdfService.save(currentDocument, currentDocument.getFile());
-                updateStatus("PDF saved successfully");
-            } catch (Exception e) {
-                logger.error("Error saving PDF", e);
-                showError("Save Error", "Failed to save PDF: " + e.getMessage());
-            }
+            saveInBackground(currentDocument, currentDocument.getFile());
         }
     }
 
@@ -144,15 +273,45 @@ public class MainController {
 
             File file = fileChooser.showSaveDialog(getStage());
             if (file != null) {
-                try {
-                    pdfService.save(currentDocument, file);
-                    updateStatus("PDF saved to: " + file.getName());
-                } catch (Exception e) {
-                    logger.error("Error saving PDF", e);
-                    showError("Save Error", "Failed to save PDF: " + e.getMessage());
+                saveInBackground(currentDocument, file);
+            }
+        }
+    }
+
+    private void saveInBackground(PDFDocument document, File file) {
+        updateStatus("Saving " + file.getName() + "...");
+        saveWriter.save(document, file).whenComplete((saved, error) ->
+            javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    updateStatus("Save failed");
+                    showError("Save Error", "Failed to save PDF: " + error.getMessage());
+                } else {
+                    updateStatus("PDF saved to: " + saved.getName());
                 }
+            })
+        );
+    }
+
+    /**
+     * Called when the application stops: let queued saves finish before the JVM exits
+     */
+    public void shutdown() {
+        // OCR would otherwise keep queueing page work ahead of the saves
+        cancelOCR();
+        ocrJobExecutor.shutdownNow();
+        if (saveWriter != null) {
+            try {
+                saveWriter.shutdown(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
+        documentExecutor.shutdownNow();
+        // Stops a resident llama-server, which would otherwise outlive the JVM
+        AIService ai = aiService.getIfReady();
+        if (ai instanceof AIServiceImpl) {
+            ((AIServiceImpl) ai).close();
+        }
     }
 
     @FXML
@@ -257,7 +416,37 @@ public class MainController {
 
     @FXML
     private void handleSearch() {
-        updateStatus("Search functionality not yet implemented");
+        if (currentDocument == null) {
+            showWarning("No Document", "Please open a PDF document first.");
+            return;
+        }
+
+        PageTextIndex index = currentDocument.getTextIndex();
+        if (index == null) {
+            updateStatus("Search index is still being built, please try again shortly");
+            return;
+        }
+
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Search");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Find text:");
+        dialog.showAndWait().ifPresent(query -> {
+            List<Integer> pages = index.search(query);
+            if (pages.isEmpty()) {
+                updateStatus("No matches for \"" + query + "\"");
+                return;
+            }
+            scrollToPage(pages.get(0));
+            StringBuilder pageList = new StringBuilder();
+            for (int page : pages) {
+                if (pageList.length() > 0) {
+                    pageList.append(", ");
+                }
+                pageList.append(page + 1);
+            }
+            updateStatus("\"" + query + "\" found on page(s): " + pageList);
+        });
     }
 
     // AI Features
@@ -270,24 +459,32 @@ public class MainController {
 
         updateStatus("Generating AI summary...");
         progressBar.setVisible(true);
-
-        // Run in background thread
-        new Thread(() -> {
+        aiSummaryText.clear();
+        StreamingText streamingSummary = new StreamingText(aiSummaryText::setText);
+        SummaryProgressListener summaryProgress = (completed, total) -> javafx.application.Platform.runLater(() -> {
+            progressBar.setProgress((double) completed / total);
+            updateStatus(String.format("Generating AI summary: %d of %d parts done", completed, total));
+        });
+
+        PDFDocument document = currentDocument;
+        runWithTextIndex(document, () -> {
             try {
-                String summary = aiService.summarize(currentDocument);
+                String summary = aiService.get().summarize(document, streamingSummary, summaryProgress);
                 javafx.application.Platform.runLater(() -> {
                     aiSummaryText.setText(summary);
                     updateStatus("Summary generated successfully");
+                    progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
                     progressBar.setVisible(false);
                 });
             } catch (Exception e) {
                 logger.error("Error generating summary", e);
                 javafx.application.Platform.runLater(() -> {
                     showError("AI Error", "Failed to generate summary: " + e.getMessage());
+                    progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
                     progressBar.setVisible(false);
                 });
             }
-        }).start();
+        });
     }
 
     @FXML
@@ -301,20 +498,25 @@ public class MainController {
         addChatMessage("You", message, true);
         chatInput.clear();
 
+        // Show the reply as it is generated
+        Label replyLabel = addChatMessage("AI", "…", false);
+        StreamingText streamingReply = new StreamingText(text -> replyLabel.setText("AI: " + text));
+
         // Get AI response
-        new Thread(() -> {
+        PDFDocument document = currentDocument;
+        runWithTextIndex(document, () -> {
             try {
-                String response = aiService.chat(currentDocument, message);
+                String response = aiService.get().chat(document, message, streamingReply);
                 javafx.application.Platform.runLater(() -> {
-                    addChatMessage("AI", response, false);
+                    replyLabel.setText("AI: " + response);
                 });
             } catch (Exception e) {
                 logger.error("Error in AI chat", e);
                 javafx.application.Platform.runLater(() -> {
-                    addChatMessage("AI", "Error: " + e.getMessage(), false);
+                    replyLabel.setText("AI: Error: " + e.getMessage());
                 });
             }
-        }).start();
+        });
     }
 
     @FXML
@@ -324,28 +526,112 @@ public class MainController {
             return;
         }
 
+        // One OCR request at a time; a new one replaces the one still running
+        cancelOCR();
         String language = ocrLanguageCombo.getSelectionModel().getSelectedItem();
         updateStatus("Running OCR with " + language + "...");
+        PDFDocument document = currentDocument;
+        int generation = openGeneration;
+        int request = ocrRequest;
+        int[] allPages = new int[document.getPageCount()];
+        for (int i = 0; i < allPages.length; i++) {
+            allPages[i] = i;
+        }
+        OCRResultsView resultsView = new OCRResultsView(allPages.length);
+        progressBar.setProgress(0);
         progressBar.setVisible(true);
 
-        new Thread(() -> {
+        boolean searchable = ocrSearchableCheck.isSelected();
+        OCRPageListener listener = (page, completed, total) -> javafx.application.Platform.runLater(() -> {
+            if (request == ocrRequest) {
+                resultsView.add(page);
+                progressBar.setProgress((double) completed / total);
+                updateStatus(String.format("OCR: %d of %d pages done", completed, total));
+            }
+        });
+
+        ocrJob = ocrJobExecutor.submit(() -> {
             try {
-                var ocrResult = ocrService.performOCR(currentDocument, language);
+                var ocrResult = searchable
+                    ? ocrService.get().makeSearchable(document, language, allPages, PreprocessOptions.defaults(),
+                                                      listener, documentExecutor)
+                    : ocrService.get().performOCR(document, language, allPages, PreprocessOptions.defaults(),
+                                                  listener, documentExecutor);
+                boolean textLayerAdded = searchable
+                    && ((Number) ocrResult.getMetadata().getOrDefault("text_layer_pages", 0)).intValue() > 0;
+                if (textLayerAdded) {
+                    // Search the new text layer instead of the old (empty) one
+                    documentExecutor.submit(() -> buildSearchIndex(document, generation));
+                }
                 javafx.application.Platform.runLater(() -> {
-                    ocrResultsText.setText(ocrResult.getText());
-                    ocrConfidenceLabel.setText(String.format("Confidence: %.1f%%", 
-                        ocrResult.getConfidence() * 100));
-                    updateStatus("OCR completed successfully");
+                    if (request != ocrRequest) {
+                        return;
+                    }
+                    if (generation == openGeneration) {
+                        ocrConfidenceLabel.setText(String.format("Confidence: %.1f%%", ocrResult.getConfidence()));
+                        updateStatus("OCR completed successfully");
+                        if (textLayerAdded) {
+                            // The text layer is written once, through the save writer like any other save
+                            saveInBackground(document, document.getFile());
+                        }
+                    }
+                    progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
                     progressBar.setVisible(false);
                 });
+            } catch (InterruptedException e) {
+                // Cancelled by a newer request, an open or a close, which also cleared the progress bar
+                logger.info("OCR of {} cancelled", document.getFile().getName());
             } catch (Exception e) {
                 logger.error("Error running OCR", e);
                 javafx.application.Platform.runLater(() -> {
+                    if (request != ocrRequest) {
+                        return;
+                    }
                     showError("OCR Error", "Failed to run OCR: " + e.getMessage());
+                    progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
                     progressBar.setVisible(false);
                 });
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Stop the running OCR request, if any. Pages already queued on the document worker still finish.
+     */
+    private void cancelOCR() {
+        if (ocrJob != null && !ocrJob.isDone()) {
+            ocrJob.cancel(true);
+            progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+            progressBar.setVisible(false);
+        }
+        ocrJob = null;
+        ocrRequest++;
+    }
+
+    /**
+     * Run an AI request on its own thread once the document's text index is built. The index is built on the
+     * document worker, and AI requests read the index instead of the PDDocument, so they neither race
+     * rendering nor fail if the document is closed while the model is generating.
+     */
+    private void runWithTextIndex(PDFDocument document, Runnable request) {
+        documentExecutor.submit(() -> {
+            if (document.getTextIndex() == null) {
+                try {
+                    pdfService.buildTextIndex(document);
+                } catch (Exception e) {
+                    logger.error("Error reading document text", e);
+                    javafx.application.Platform.runLater(() -> {
+                        showError("AI Error", "Failed to read document text: " + e.getMessage());
+                        progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+                        progressBar.setVisible(false);
+                    });
+                    return;
+                }
+            }
+            Thread thread = new Thread(request, "ai-request");
+            thread.setDaemon(true);
+            thread.start();
+        });
     }
 
     @FXML
@@ -356,9 +642,10 @@ public class MainController {
         }
 
         updateStatus("Extracting entities...");
-        new Thread(() -> {
+        PDFDocument document = currentDocument;
+        runWithTextIndex(document, () -> {
             try {
-                List<String> entities = aiService.extractEntities(currentDocument);
+                List<String> entities = aiService.get().extractEntities(document);
                 javafx.application.Platform.runLater(() -> {
                     insightsText.setText("Entities:\n" + String.join("\n", entities));
                     updateStatus("Entities extracted successfully");
@@ -369,7 +656,7 @@ public class MainController {
                     showError("AI Error", "Failed to extract entities: " + e.getMessage());
                 });
             }
-        }).start();
+        });
     }
 
     @FXML
@@ -384,111 +671,271 @@ public class MainController {
 
     // Helper Methods
     private void openPDF(File file) {
+        long openStartNanos = System.nanoTime();
+        int generation = ++openGeneration;
+        cancelOCR();
+
+        updateStatus("Loading PDF: " + file.getName());
+        progressBar.setVisible(true);
+        pdfPagesContainer.getChildren().clear();
+
+        // Parsing and rendering run on the document worker; only the results touch the UI
+        documentExecutor.submit(() -> {
+            PDFDocument document;
+            try {
+                document = pdfService.load(file);
+            } catch (Exception e) {
+                logger.error("Error opening PDF", e);
+                javafx.application.Platform.runLater(() -> {
+                    showError("Open Error", "Failed to open PDF: " + e.getMessage());
+                    progressBar.setVisible(false);
+                    // The view was cleared for the new document, so leave nothing open behind it
+                    if (generation == openGeneration) {
+                        closePDF();
+                    }
+                });
+                return;
+            }
+
+            javafx.application.Platform.runLater(() -> {
+                if (generation != openGeneration) {
+                    // A newer open or a close replaced this document before it was shown
+                    documentExecutor.submit(document::close);
+                    return;
+                }
+                // The document being replaced is closed only now that the new one has loaded
+                PDFDocument previousDocument = currentDocument;
+                if (previousDocument != null) {
+                    documentExecutor.submit(previousDocument::close);
+                }
+                currentDocument = document;
+                welcomeLabel.setVisible(false);
+                pdfScrollPane.setVisible(true);
+                zoomLabel.setText("100%");
+            });
+
+            renderPDFPages(document, generation, openStartNanos);
+            buildSearchIndex(document, generation);
+        });
+    }
+
+    /**
+     * Render pages in order on the document worker. The first page is shown as soon as it is
+     * ready; page count and the remaining pages follow.
+     */
+    private void renderPDFPages(PDFDocument document, int generation, long openStartNanos) {
+        logger.info("Rendering PDF pages...");
+
         try {
-            updateStatus("Loading PDF: " + file.getName());
-            progressBar.setVisible(true);
+            PDFRenderer renderer = new PDFRenderer(document.getPdDocument());
+            int pageCount = document.getPageCount();
 
-            currentDocument = pdfService.load(file);
-            
-            welcomeLabel.setVisible(false);
-            pdfScrollPane.setVisible(true);
+            for (int i = 0; i < pageCount; i++) {
+                if (generation != openGeneration) {
+                    logger.debug("Stopping render of {} - another document was opened", document.getFile().getName());
+                    return;
+                }
+                final int pageIndex = i;
 
-            // Render PDF pages
-            renderPDFPages();
-            
-            pageInfoLabel.setText("Pages: " + currentDocument.getPageCount());
-            zoomLabel.setText("100%");
+                // Render page at 150 DPI for good quality
+                BufferedImage bufferedImage = renderer.renderImageWithDPI(pageIndex, 150);
+                Image fxImage = SwingFXUtils.toFXImage(bufferedImage, null);
 
-            updateStatus("PDF loaded successfully: " + file.getName());
-            progressBar.setVisible(false);
+                javafx.application.Platform.runLater(() -> {
+                    if (generation != openGeneration) {
+                        return;
+                    }
+                    pdfPagesContainer.getChildren().add(createPageView(fxImage, pageIndex));
+
+                    if (pageIndex == 0) {
+                        PerformanceMonitor.getInstance().recordSince("open.timeToFirstPage", openStartNanos);
+                        pageInfoLabel.setText("Pages: " + pageCount);
+                        progressBar.setVisible(false);
+                    }
+                    updateStatus("Rendered page " + (pageIndex + 1) + " of " + pageCount);
+                });
+            }
+
+            javafx.application.Platform.runLater(() -> {
+                if (generation != openGeneration) {
+                    return;
+                }
+                if (pageCount == 0) {
+                    progressBar.setVisible(false);
+                }
+                PerformanceMonitor.getInstance().recordSince("open.allPagesRendered", openStartNanos);
+                updateStatus("PDF loaded successfully: " + document.getFile().getName());
+                logger.info("All {} pages rendered successfully", pageCount);
+            });
 
         } catch (Exception e) {
-            logger.error("Error opening PDF", e);
-            showError("Open Error", "Failed to open PDF: " + e.getMessage());
-            progressBar.setVisible(false);
+            logger.error("Error rendering PDF pages", e);
+            javafx.application.Platform.runLater(() -> {
+                progressBar.setVisible(false);
+                showError("Rendering Error", "Failed to render PDF pages: " + e.getMessage());
+            });
         }
     }
-    
-    private void renderPDFPages() {
-        if (currentDocument == null) {
+
+    private VBox createPageView(Image fxImage, int pageIndex) {
+        // Create ImageView for the page
+        ImageView imageView = new ImageView(fxImage);
+        imageView.setPreserveRatio(true);
+        imageView.setFitWidth(750); // Default width
+
+        // Create container for page with border and spacing
+        VBox pageBox = new VBox();
+        pageBox.getStyleClass().add("pdf-page");
+        pageBox.setStyle(
+            "-fx-background-color: white;" +
+            "-fx-border-color: #cccccc;" +
+            "-fx-border-width: 1;" +
+            "-fx-padding: 10;" +
+            "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.2), 5, 0, 0, 2);"
+        );
+
+        // Add page number label
+        Label pageLabel = new Label("Page " + (pageIndex + 1));
+        pageLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #666666;");
+
+        pageBox.getChildren().addAll(pageLabel, imageView);
+
+        // Add spacing between pages
+        VBox.setMargin(pageBox, new javafx.geometry.Insets(10, 10, 10, 10));
+        return pageBox;
+    }
+
+    private void buildSearchIndex(PDFDocument document, int generation) {
+        if (generation != openGeneration) {
             return;
         }
-        
-        logger.info("Rendering PDF pages...");
-        pdfPagesContainer.getChildren().clear();
-        
-        new Thread(() -> {
-            try {
-                PDFRenderer renderer = new PDFRenderer(currentDocument.getPdDocument());
-                int pageCount = currentDocument.getPageCount();
-                
-                for (int i = 0; i < pageCount; i++) {
-                    final int pageIndex = i;
-                    
-                    // Render page at 150 DPI for good quality
-                    BufferedImage bufferedImage = renderer.renderImageWithDPI(pageIndex, 150);
-                    Image fxImage = SwingFXUtils.toFXImage(bufferedImage, null);
-                    
-                    javafx.application.Platform.runLater(() -> {
-                        // Create ImageView for the page
-                        ImageView imageView = new ImageView(fxImage);
-                        imageView.setPreserveRatio(true);
-                        imageView.setFitWidth(750); // Default width
-                        
-                        // Create container for page with border and spacing
-                        VBox pageBox = new VBox();
-                        pageBox.getStyleClass().add("pdf-page");
-                        pageBox.setStyle(
-                            "-fx-background-color: white;" +
-                            "-fx-border-color: #cccccc;" +
-                            "-fx-border-width: 1;" +
-                            "-fx-padding: 10;" +
-                            "-fx-effect: dropshadow(gaussian, rgba(0,0,0,0.2), 5, 0, 0, 2);"
-                        );
-                        
-                        // Add page number label
-                        Label pageLabel = new Label("Page " + (pageIndex + 1));
-                        pageLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: #666666;");
-                        
-                        pageBox.getChildren().addAll(pageLabel, imageView);
-                        
-                        // Add spacing between pages
-                        VBox.setMargin(pageBox, new javafx.geometry.Insets(10, 10, 10, 10));
-                        
-                        pdfPagesContainer.getChildren().add(pageBox);
-                        
-                        updateStatus("Rendered page " + (pageIndex + 1) + " of " + pageCount);
-                    });
-                }
-                
-                javafx.application.Platform.runLater(() -> {
-                    updateStatus("PDF loaded successfully: " + currentDocument.getFile().getName());
-                    logger.info("All {} pages rendered successfully", pageCount);
-                });
-                
-            } catch (Exception e) {
-                logger.error("Error rendering PDF pages", e);
-                javafx.application.Platform.runLater(() -> {
-                    showError("Rendering Error", "Failed to render PDF pages: " + e.getMessage());
-                });
-            }
-        }).start();
+        try {
+            pdfService.buildTextIndex(document);
+        } catch (Exception e) {
+            // Search is unavailable for this document, viewing is unaffected
+            logger.warn("Could not build search index for {}: {}", document.getFile().getName(), e.getMessage());
+        }
+    }
+
+    private void scrollToPage(int pageIndex) {
+        if (pageIndex >= pdfPagesContainer.getChildren().size()) {
+            return;
+        }
+        double contentHeight = pdfPagesContainer.getHeight() - pdfScrollPane.getViewportBounds().getHeight();
+        if (contentHeight > 0) {
+            double pageTop = pdfPagesContainer.getChildren().get(pageIndex).getBoundsInParent().getMinY();
+            pdfScrollPane.setVvalue(Math.min(1.0, pageTop / contentHeight));
+        }
     }
 
     private void closePDF() {
+        PDFDocument closingDocument = currentDocument;
+        openGeneration++;
+        cancelOCR();
         currentDocument = null;
+        if (closingDocument != null) {
+            documentExecutor.submit(closingDocument::close);
+        }
         pdfScrollPane.setVisible(false);
         welcomeLabel.setVisible(true);
         pdfPagesContainer.getChildren().clear();
         pageInfoLabel.setText("");
-        aiSummaryText.clear();
-        ocrResultsText.clear();
-        insightsText.clear();
-        chatMessagesContainer.getChildren().clear();
+        // Sidebar tabs may not have been built yet in fast launch mode
+        if (aiSummaryText != null) {
+            aiSummaryText.clear();
+        }
+        if (ocrResultsText != null) {
+            ocrResultsText.clear();
+        }
+        if (insightsText != null) {
+            insightsText.clear();
+        }
+        if (chatMessagesContainer != null) {
+            chatMessagesContainer.getChildren().clear();
+        }
         updateStatus("Ready");
     }
 
-    private void addChatMessage(String sender, String message, boolean isUser) {
+    /**
+     * Fills the OCR tab as pages finish. Parallel OCR completes pages out of order,
+     * so pages are held back until all earlier ones have been shown. FX thread only.
+     */
+    private class OCRResultsView {
+        private final Map<Integer, OCRPageResult> pending = new TreeMap<>();
+        private final int totalPages;
+        private int nextPage;
+        private double confidenceSum;
+        private int successfulPages;
+
+        OCRResultsView(int totalPages) {
+            this.totalPages = totalPages;
+            ocrResultsText.clear();
+            ocrConfidenceLabel.setText("Confidence: N/A");
+        }
+
+        void add(OCRPageResult page) {
+            pending.put(page.getPageNumber(), page);
+            if (page.isSuccessful()) {
+                confidenceSum += page.getConfidence();
+                successfulPages++;
+                ocrConfidenceLabel.setText(String.format("Confidence: %.1f%% (%d of %d pages)",
+                    confidenceSum / successfulPages, successfulPages, totalPages));
+            }
+
+            StringBuilder text = new StringBuilder();
+            OCRPageResult next;
+            while ((next = pending.remove(nextPage)) != null) {
+                text.append("=== Page ").append(nextPage + 1).append(" ===\n");
+                if (next.isSuccessful()) {
+                    text.append(next.getText()).append("\n\n");
+                } else {
+                    text.append("[OCR Error: ").append(next.getError()).append("]\n\n");
+                }
+                nextPage++;
+            }
+            if (text.length() > 0) {
+                ocrResultsText.appendText(text.toString());
+            }
+        }
+    }
+
+    /**
+     * Shows generated text as it streams in. Tokens arrive on the generating thread, often dozens per second;
+     * they are buffered, and at most one update is queued on the JavaFX thread at a time.
+     */
+    private static class StreamingText implements TokenListener {
+        private final StringBuilder buffer = new StringBuilder();
+        private final Consumer<String> display;
+        // Guarded by buffer
+        private boolean updatePending;
+
+        StreamingText(Consumer<String> display) {
+            this.display = display;
+        }
+
+        @Override
+        public void onToken(String text) {
+            synchronized (buffer) {
+                buffer.append(text);
+                if (updatePending) {
+                    return;
+                }
+                updatePending = true;
+            }
+            javafx.application.Platform.runLater(this::update);
+        }
+
+        private void update() {
+            String text;
+            synchronized (buffer) {
+                updatePending = false;
+                text = buffer.toString();
+            }
+            display.accept(text);
+        }
+    }
+
+    private Label addChatMessage(String sender, String message, boolean isUser) {
         Label messageLabel = new Label(sender + ": " + message);
         messageLabel.setWrapText(true);
         messageLabel.setMaxWidth(Double.MAX_VALUE);
@@ -497,6 +944,7 @@ public class MainController {
             "-fx-background-color: -fx-background-hover; -fx-padding: 8; -fx-background-radius: 3;"
         );
         chatMessagesContainer.getChildren().add(messageLabel);
+        return messageLabel;
     }
 
     private void updateRibbonContent(String tabName) {
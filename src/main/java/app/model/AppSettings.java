@@ -13,6 +13,13 @@ public class AppSettings {
     private boolean showLeftSidebar;
     private boolean showRightSidebar;
     private boolean showStatusBar;
+    private boolean fastLaunch;
+    private int aiInferenceSlots;
+    private int onnxIntraOpThreads;
+    private int onnxInterOpThreads;
+    private String onnxExecutionMode;
+    private String onnxOptimizationLevel;
+    private boolean onnxCacheOptimizedModel;
 
     public AppSettings() {
         // Default values
@@ -25,6 +32,13 @@ public class AppSettings {
         this.showLeftSidebar = true;
         this.showRightSidebar = true;
         this.showStatusBar = true;
+        this.fastLaunch = true;
+        this.aiInferenceSlots = 0;
+        this.onnxIntraOpThreads = 0;
+        this.onnxInterOpThreads = 0;
+        this.onnxExecutionMode = "sequential";
+        this.onnxOptimizationLevel = "all";
+        this.onnxCacheOptimizedModel = true;
     }
 
     public boolean isDarkMode() {
@@ -98,4 +112,78 @@ public class AppSettings {
     public void setShowStatusBar(boolean showStatusBar) {
         this.showStatusBar = showStatusBar;
     }
+
+    public boolean isFastLaunch() {
+        return fastLaunch;
+    }
+
+    public void setFastLaunch(boolean fastLaunch) {
+        this.fastLaunch = fastLaunch;
+    }
+
+    /**
+     * Model requests run at the same time; 0 picks a default for the backend
+     */
+    public int getAiInferenceSlots() {
+        return aiInferenceSlots;
+    }
+
+    public void setAiInferenceSlots(int aiInferenceSlots) {
+        this.aiInferenceSlots = aiInferenceSlots;
+    }
+
+    /**
+     * ONNX Runtime threads within one operator; 0 picks one per physical core
+     */
+    public int getOnnxIntraOpThreads() {
+        return onnxIntraOpThreads;
+    }
+
+    public void setOnnxIntraOpThreads(int onnxIntraOpThreads) {
+        this.onnxIntraOpThreads = onnxIntraOpThreads;
+    }
+
+    /**
+     * ONNX Runtime threads running operators side by side in parallel mode; 0 picks a default
+     */
+    public int getOnnxInterOpThreads() {
+        return onnxInterOpThreads;
+    }
+
+    public void setOnnxInterOpThreads(int onnxInterOpThreads) {
+        this.onnxInterOpThreads = onnxInterOpThreads;
+    }
+
+    /**
+     * sequential or parallel
+     */
+    public String getOnnxExecutionMode() {
+        return onnxExecutionMode;
+    }
+
+    public void setOnnxExecutionMode(String onnxExecutionMode) {
+        this.onnxExecutionMode = onnxExecutionMode;
+    }
+
+    /**
+     * Graph optimization: none, basic, extended or all
+     */
+    public String getOnnxOptimizationLevel() {
+        return onnxOptimizationLevel;
+    }
+
+    public void setOnnxOptimizationLevel(String onnxOptimizationLevel) {
+        this.onnxOptimizationLevel = onnxOptimizationLevel;
+    }
+
+    /**
+     * Save each model's optimized graph and load it on later launches
+     */
+    public boolean isOnnxCacheOptimizedModel() {
+        return onnxCacheOptimizedModel;
+    }
+
+    public void setOnnxCacheOptimizedModel(boolean onnxCacheOptimizedModel) {
+        this.onnxCacheOptimizedModel = onnxCacheOptimizedModel;
+    }
 }
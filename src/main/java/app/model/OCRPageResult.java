@@ -0,0 +1,72 @@
+package app.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * OCR result for a single page
+ */
+public class OCRPageResult {
+    private final int pageNumber;
+    private final String text;
+    private final double confidence;
+    private final List<OCRWord> words;
+    private final String error;
+
+    public OCRPageResult(int pageNumber, String text, double confidence) {
+        this(pageNumber, text, confidence, Collections.emptyList());
+    }
+
+    public OCRPageResult(int pageNumber, String text, double confidence, List<OCRWord> words) {
+        this(pageNumber, text, confidence, words, null);
+    }
+
+    private OCRPageResult(int pageNumber, String text, double confidence, List<OCRWord> words, String error) {
+        this.pageNumber = pageNumber;
+        this.text = text;
+        this.confidence = confidence;
+        this.words = words != null ? List.copyOf(words) : Collections.emptyList();
+        this.error = error;
+    }
+
+    /**
+     * Create a result for a page that could not be processed
+     */
+    public static OCRPageResult failed(int pageNumber, String error) {
+        return new OCRPageResult(pageNumber, "", 0, Collections.emptyList(), error);
+    }
+
+    /**
+     * Get the page number (0-based)
+     */
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the mean word confidence (0-100)
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Get the recognized words with boxes in PDF user space.
+     * Empty for pages taken from the text layer and in stub mode.
+     */
+    public List<OCRWord> getWords() {
+        return words;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
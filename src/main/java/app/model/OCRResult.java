@@ -1,5 +1,7 @@
 package app.model;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -9,6 +11,7 @@ public class OCRResult {
     private String text;
     private double confidence;
     private String language;
+    private List<OCRPageResult> pages = Collections.emptyList();
     private Map<String, Object> metadata;
 
     public OCRResult(String text, double confidence, String language) {
@@ -25,6 +28,9 @@ public class OCRResult {
         this.text = text;
     }
 
+    /**
+     * Get the average confidence of the successful pages (0-100)
+     */
     public double getConfidence() {
         return confidence;
     }
@@ -41,6 +47,17 @@ public class OCRResult {
         this.language = language;
     }
 
+    /**
+     * Get the per-page results, in the order the pages were requested
+     */
+    public List<OCRPageResult> getPages() {
+        return pages;
+    }
+
+    public void setPages(List<OCRPageResult> pages) {
+        this.pages = pages;
+    }
+
     public Map<String, Object> getMetadata() {
         return metadata;
     }
@@ -0,0 +1,57 @@
+package app.model;
+
+/**
+ * A word recognized by OCR with its bounding box.
+ * Boxes on an {@link OCRPageResult} are in PDF user space (points, origin at the lower left of the page),
+ * so they can be used to place text directly on the page.
+ */
+public class OCRWord {
+    private final String text;
+    private final double confidence;
+    private final double x;
+    private final double y;
+    private final double width;
+    private final double height;
+
+    public OCRWord(String text, double confidence, double x, double y, double width, double height) {
+        this.text = text;
+        this.confidence = confidence;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the word confidence (0-100)
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Get the left edge of the box
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Get the bottom edge of the box
+     */
+    public double getY() {
+        return y;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+}
@@ -13,7 +13,8 @@ public class PDFDocument {
     private int pageCount;
     private String title;
     private String author;
-    private boolean modified;
+    private volatile boolean modified;
+    private volatile PageTextIndex textIndex;
 
     public PDFDocument(File file, PDDocument pdDocument) {
         this.file = file;
@@ -69,6 +70,24 @@ public class PDFDocument {
         this.modified = modified;
     }
 
+    /**
+     * Get the per-page text index, or null while it is still being built
+     */
+    public PageTextIndex getTextIndex() {
+        return textIndex;
+    }
+
+    public void setTextIndex(PageTextIndex textIndex) {
+        this.textIndex = textIndex;
+    }
+
+    /**
+     * Check if the underlying PDDocument has been closed
+     */
+    public boolean isClosed() {
+        return pdDocument == null || pdDocument.getDocument().isClosed();
+    }
+
     public void close() {
         try {
             if (pdDocument != null) {
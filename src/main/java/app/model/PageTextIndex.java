@@ -0,0 +1,61 @@
+package app.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-page extracted text of a document, used for search and for features
+ * that need to know which page a piece of text came from
+ */
+public class PageTextIndex {
+    private final List<String> pageTexts;
+    private final List<String> normalizedTexts;
+
+    public PageTextIndex(List<String> pageTexts) {
+        this.pageTexts = Collections.unmodifiableList(new ArrayList<>(pageTexts));
+        this.normalizedTexts = new ArrayList<>(pageTexts.size());
+        for (String text : pageTexts) {
+            normalizedTexts.add(normalize(text));
+        }
+    }
+
+    public int getPageCount() {
+        return pageTexts.size();
+    }
+
+    /**
+     * Get the text of a page (0-based index)
+     */
+    public String getPageText(int pageIndex) {
+        return pageTexts.get(pageIndex);
+    }
+
+    public List<String> getPageTexts() {
+        return pageTexts;
+    }
+
+    /**
+     * Find pages containing the query (case-insensitive, whitespace-insensitive)
+     * @return 0-based page indices in document order
+     */
+    public List<Integer> search(String query) {
+        List<Integer> matches = new ArrayList<>();
+        if (query == null || query.isBlank()) {
+            return matches;
+        }
+
+        String needle = normalize(query);
+        for (int i = 0; i < normalizedTexts.size(); i++) {
+            if (normalizedTexts.get(i).contains(needle)) {
+                matches.add(i);
+            }
+        }
+        return matches;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,103 @@
+package app.services;
+
+import app.utils.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Holder for a service whose construction is expensive (model probes, native library checks).
+ * The service is built on a background thread the first time it is started or requested,
+ * so callers on the JavaFX thread never wait for it.
+ */
+public class LazyService<T> {
+    private static final Logger logger = LoggerFactory.getLogger(LazyService.class);
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static final ExecutorService INIT_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "service-init-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final Supplier<T> factory;
+    private volatile CompletableFuture<T> future;
+
+    public LazyService(String name, Supplier<T> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    /**
+     * Start building the service in the background if that has not happened yet
+     */
+    public synchronized CompletableFuture<T> start() {
+        if (future == null) {
+            logger.info("Starting {} service in background", name);
+            future = CompletableFuture.supplyAsync(() -> {
+                long startTime = System.currentTimeMillis();
+                T service = factory.get();
+                long duration = System.currentTimeMillis() - startTime;
+                logger.info("{} service ready in {}ms", name, duration);
+                PerformanceMonitor.getInstance().record("service.init." + name, duration);
+                return service;
+            }, INIT_EXECUTOR);
+        }
+        return future;
+    }
+
+    /**
+     * Get the service, waiting for initialization to finish.
+     * Must not be called on the JavaFX application thread.
+     */
+    public T get() throws Exception {
+        try {
+            return start().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get the service if it has finished initializing, otherwise null
+     */
+    public T getIfReady() {
+        CompletableFuture<T> current = future;
+        if (current != null && current.isDone() && !current.isCompletedExceptionally()) {
+            return current.join();
+        }
+        return null;
+    }
+
+    public boolean isReady() {
+        return getIfReady() != null;
+    }
+
+    /**
+     * Run a callback once the service is ready, or with null if initialization failed
+     */
+    public void whenReady(Consumer<T> callback) {
+        start().whenComplete((service, error) -> {
+            if (error != null) {
+                logger.error("{} service failed to initialize", name, error);
+            }
+            callback.accept(service);
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -16,11 +16,31 @@ public interface AIService {
      */
     String summarize(PDFDocument document) throws Exception;
     
+    /**
+     * Generate a summary, passing text to the listener as it is generated
+     * @return the complete summary, which may differ from the streamed text if generation fell back to a stub
+     */
+    String summarize(PDFDocument document, TokenListener listener) throws Exception;
+    
+    /**
+     * Generate a summary covering the whole document. Long documents are summarized in parts,
+     * in parallel, and the parts combined; progress is reported as parts finish.
+     * @param listener receives the final summary as it is generated, or null
+     * @param progress receives progress as parts finish, or null
+     */
+    String summarize(PDFDocument document, TokenListener listener, SummaryProgressListener progress) throws Exception;
+    
     /**
      * Chat with AI about the PDF content
      */
     String chat(PDFDocument document, String message) throws Exception;
     
+    /**
+     * Chat with AI about the PDF content, passing the reply to the listener as it is generated
+     * @return the complete reply, which may differ from the streamed text if generation fell back to a stub
+     */
+    String chat(PDFDocument document, String message, TokenListener listener) throws Exception;
+    
     /**
      * Extract structured data from PDF
      */
@@ -50,4 +70,14 @@ public interface AIService {
      * Detect document structure (headings, paragraphs, etc.)
      */
     List<String> detectStructure(PDFDocument document) throws Exception;
+    
+    /**
+     * Describe the active inference backend (microservice, model name or stub)
+     */
+    String getModelType();
+    
+    /**
+     * Check if a real model backend is available
+     */
+    boolean isModelLoaded();
 }
@@ -78,6 +78,82 @@ public class AIServiceClient {
         }
     }
     
+    /**
+     * Generate a summary via the microservice's streaming endpoint, passing tokens to the listener as they arrive.
+     * The endpoint sends server-sent events with {"token": "..."} data and ends with [DONE]; services
+     * without it are asked for the whole summary, which is passed on in one piece.
+     * @return the complete summary
+     */
+    public String summarize(String content, String filename, int maxLength, TokenListener listener) throws Exception {
+        logger.debug("Calling AI microservice for streaming summary: {}", filename);
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            String requestBody = gson.toJson(new SummarizeRequest(content, filename, maxLength));
+            HttpRequest httpRequest = HttpRequest.newBuilder()
+                    .uri(URI.create(serviceUrl + "/summarize/stream"))
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .timeout(Duration.ofSeconds(60))
+                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                    .build();
+            
+            HttpResponse<java.util.stream.Stream<String>> response =
+                    httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofLines());
+            
+            if (response.statusCode() == 404) {
+                response.body().close();
+                logger.debug("Microservice has no streaming endpoint, requesting the whole summary");
+                String summary = summarize(content, filename, maxLength).getSummary();
+                if (summary != null && !summary.isEmpty()) {
+                    listener.onToken(summary);
+                }
+                return summary;
+            }
+            if (response.statusCode() != 200) {
+                response.body().close();
+                throw new Exception("AI microservice returned error: " + response.statusCode());
+            }
+            
+            StringBuilder summary = new StringBuilder();
+            long firstTokenMillis = -1;
+            try (java.util.stream.Stream<String> lines = response.body()) {
+                java.util.Iterator<String> iterator = lines.iterator();
+                while (iterator.hasNext()) {
+                    String line = iterator.next();
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    if (data.equals("[DONE]")) {
+                        break;
+                    }
+                    TokenEvent event = gson.fromJson(data, TokenEvent.class);
+                    if (event != null && event.token != null && !event.token.isEmpty()) {
+                        if (firstTokenMillis < 0) {
+                            firstTokenMillis = System.currentTimeMillis() - startTime;
+                            app.utils.PerformanceMonitor.getInstance().record("ai.microservice.ttft", firstTokenMillis);
+                        }
+                        summary.append(event.token);
+                        listener.onToken(event.token);
+                    }
+                }
+            }
+            logger.info("Streamed summary from microservice in {}ms (first token after {}ms)",
+                    System.currentTimeMillis() - startTime, firstTokenMillis);
+            return summary.toString();
+        } catch (java.net.http.HttpTimeoutException e) {
+            logger.error("Timeout calling AI microservice for {}: {}", filename, e.getMessage());
+            throw new Exception("AI microservice timeout: " + e.getMessage(), e);
+        } catch (java.net.ConnectException e) {
+            logger.error("Connection failed to AI microservice: {}", e.getMessage());
+            throw new Exception("Cannot connect to AI microservice at " + serviceUrl + ": " + e.getMessage(), e);
+        } catch (Exception e) {
+            logger.error("Error calling AI microservice: {}", e.getMessage(), e);
+            throw new Exception("AI microservice call failed: " + e.getMessage(), e);
+        }
+    }
+    
     /**
      * Check if the AI microservice is available
      * Retries multiple times with delays to handle startup timing
@@ -139,6 +215,13 @@ public class AIServiceClient {
         }
     }
     
+    /**
+     * Server-sent event from the streaming endpoint
+     */
+    private static class TokenEvent {
+        public String token;
+    }
+    
     /**
      * Response DTO from microservice
      */
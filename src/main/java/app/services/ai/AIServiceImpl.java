@@ -2,14 +2,18 @@ package app.services.ai;
 
 import app.model.AIResponse;
 import app.model.PDFDocument;
+import app.model.PageTextIndex;
 import app.services.pdf.PDFService;
 import app.services.pdf.PDFServiceImpl;
+import app.utils.ConfigManager;
+import app.utils.PerformanceMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of AI features using AI Microservice (primary) with local fallback
@@ -30,7 +34,30 @@ public class AIServiceImpl implements AIService {
     private volatile boolean useGGUF = false;
     private volatile boolean useMicroservice = false;
     private volatile String modelType = "stub";
-    private final Object inferenceLock = new Object(); // Lock for synchronized inference
+    // Created on first use, once the backend and its capacity are known
+    private InferenceScheduler scheduler;
+    // Created on the first chat message
+    private DocumentRetriever retriever;
+    // Created on first use, with the tokenizer and context size of the backend
+    private PromptPacker promptPacker;
+    // Context of each document's chat, kept while the document's text index is in use
+    private final java.util.Map<PageTextIndex, ChatContext> chatContexts = new java.util.WeakHashMap<>();
+
+    // Tokens generated per request
+    private static final int GENERATION_TOKENS = 512;
+    // Room for instructions around the document text
+    private static final int PROMPT_OVERHEAD_TOKENS = 64;
+    // Context assumed when no model is loaded
+    private static final int DEFAULT_CONTEXT_TOKENS = 2048;
+    // The microservice summarizes up to 4,000 characters per call
+    private static final int MICROSERVICE_CHUNK_TOKENS = 1000;
+    private static final int MICROSERVICE_PARALLELISM = 4;
+    // Chunks of about 200 tokens put into a chat prompt
+    private static final int CHAT_CONTEXT_CHUNKS = 4;
+
+    // Limits on queueing plus generation
+    private static final long INTERACTIVE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(3);
+    private static final long BACKGROUND_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
 
     public AIServiceImpl() {
         this.pdfService = new PDFServiceImpl();
@@ -72,29 +99,57 @@ public class AIServiceImpl implements AIService {
         }
     }
 
+    /**
+     * Generate with the given GGUF model instead of looking for a microservice or model; used in tests
+     */
+    AIServiceImpl(LlamaModelManager llamaModelManager) {
+        this.pdfService = new PDFServiceImpl();
+        this.aiServiceClient = new AIServiceClient();
+        this.llamaModelManager = llamaModelManager;
+        this.modelLoaded = true;
+        this.useGGUF = true;
+        this.modelType = llamaModelManager.getModelType();
+    }
+
     @Override
     public String summarize(PDFDocument document) throws Exception {
+        return summarize(document, null);
+    }
+
+    @Override
+    public String summarize(PDFDocument document, TokenListener listener) throws Exception {
+        return summarize(document, listener, null);
+    }
+
+    @Override
+    public String summarize(PDFDocument document, TokenListener listener,
+                            SummaryProgressListener progress) throws Exception {
         logger.info("Generating summary for document: {}", document.getTitle());
         
         long startTime = System.currentTimeMillis();
+        TokenListener tokens = timedListener(listener, "ai.summarize.ttft");
         
-        // Extract text from PDF
-        String fullText = pdfService.extractText(document);
+        // Per-page text, so every page is covered and parts know their pages
+        PageTextIndex textIndex = document.getTextIndex();
+        if (textIndex == null) {
+            textIndex = pdfService.buildTextIndex(document);
+        }
+        List<String> pageTexts = textIndex.getPageTexts();
         
         // Use microservice if available
         if (useMicroservice) {
             try {
-                AIServiceClient.SummaryResponse response = aiServiceClient.summarize(
-                    truncateText(fullText, 4000), 
-                    document.getTitle(), 
-                    500
-                );
+                DocumentSummarizer summarizer = new DocumentSummarizer(
+                    (text, combine, finalStep, stepListener) -> stepListener != null
+                        ? aiServiceClient.summarize(text, document.getTitle(), finalStep ? 500 : 150, stepListener)
+                        : aiServiceClient.summarize(text, document.getTitle(), finalStep ? 500 : 150).getSummary(),
+                    MICROSERVICE_PARALLELISM, MICROSERVICE_CHUNK_TOKENS);
+                String summary = summarizer.summarize(pageTexts, tokens, progress);
                 
                 long duration = System.currentTimeMillis() - startTime;
-                logger.info("Summary received from microservice in {} ms (cached: {})", 
-                    duration, response.isCached());
+                logger.info("Summary received from microservice in {} ms", duration);
                 
-                return response.getSummary();
+                return summary;
             } catch (Exception e) {
                 logger.error("Microservice failed, falling back to local model: {}", e.getMessage());
                 // Fall through to local model
@@ -102,18 +157,23 @@ public class AIServiceImpl implements AIService {
         }
         
         // Use local AI model
-        String summary;
+        String summary = null;
         if (modelLoaded && !useMicroservice) {
-            summary = runInference("Summarize the following document:\n\n" + 
-                truncateText(fullText, 4000));
-            
-            // If inference failed, use stub
-            if (summary.startsWith("[")) {
-                summary = generateStubSummary(fullText);
+            try {
+                DocumentSummarizer summarizer = new DocumentSummarizer(this::summarizeLocally,
+                    getScheduler().getSlots(), localChunkTokens(), getPromptPacker().getCounter());
+                summary = summarizer.summarize(pageTexts, tokens, progress);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (Exception e) {
+                // If inference failed, use stub
+                logger.warn("Model summary failed, using text analysis instead: {}", e.getMessage());
             }
-        } else {
+        }
+        if (summary == null || summary.isBlank()) {
             // Stub implementation
-            summary = generateStubSummary(fullText);
+            summary = generateStubSummary(String.join("\n", pageTexts));
         }
         
         long duration = System.currentTimeMillis() - startTime;
@@ -122,23 +182,79 @@ public class AIServiceImpl implements AIService {
         return summary;
     }
 
+    /**
+     * One step of a local summary. Parts run as background work so chat stays responsive;
+     * the final step is interactive.
+     */
+    private String summarizeLocally(String text, boolean combine, boolean finalStep,
+                                    TokenListener listener) throws Exception {
+        String instruction;
+        if (combine) {
+            instruction = "Combine these summaries of consecutive parts of a document into one summary:\n\n";
+        } else if (finalStep) {
+            instruction = "Summarize the following document:\n\n";
+        } else {
+            instruction = "Summarize this part of a document:\n\n";
+        }
+        String result = runInference(getPromptPacker().pack(instruction, text, ""), listener,
+            finalStep ? InferenceScheduler.Priority.INTERACTIVE : InferenceScheduler.Priority.BACKGROUND);
+        if (result.startsWith("[")) {
+            throw new IllegalStateException(result);
+        }
+        return result;
+    }
+
+    /**
+     * Text per local summary step: the model's context less the generated summary and the instruction
+     */
+    private int localChunkTokens() {
+        return Math.max(PROMPT_OVERHEAD_TOKENS, getPromptPacker().getPromptTokens() - PROMPT_OVERHEAD_TOKENS);
+    }
+
+    /**
+     * Create the prompt packer on first use. Local models are measured with their own tokenizer against
+     * their context window; the microservice prompts are estimated at its per-call limit.
+     */
+    private synchronized PromptPacker getPromptPacker() {
+        if (promptPacker == null) {
+            TokenCounter counter = TokenCounter.estimate();
+            int contextTokens = DEFAULT_CONTEXT_TOKENS;
+            if (useMicroservice) {
+                contextTokens = MICROSERVICE_CHUNK_TOKENS + PROMPT_OVERHEAD_TOKENS + GENERATION_TOKENS;
+            } else if (useGGUF) {
+                counter = llamaModelManager.getTokenCounter();
+                contextTokens = llamaModelManager.getMaxTokens();
+            } else if (onnxModelManager != null && onnxModelManager.isModelLoaded()) {
+                counter = onnxModelManager.getTokenCounter();
+                contextTokens = onnxModelManager.getMaxTokens();
+            }
+            // Small models keep at least half their context for the prompt, as LLMModelManager does
+            promptPacker = new PromptPacker(counter, contextTokens, Math.min(GENERATION_TOKENS, contextTokens / 2));
+            logger.info("Prompts packed to {} tokens", promptPacker.getPromptTokens());
+        }
+        return promptPacker;
+    }
+
     @Override
     public String chat(PDFDocument document, String message) throws Exception {
+        return chat(document, message, null);
+    }
+
+    @Override
+    public String chat(PDFDocument document, String message, TokenListener listener) throws Exception {
         logger.info("Processing chat message: {}", message);
-        
-        // Extract text from PDF for context
-        String context = pdfService.extractText(document);
-        
-        // Create prompt with context
-        String prompt = String.format(
-            "Context: %s\n\nUser question: %s\n\nAnswer:",
-            truncateText(context, 3000),
-            message
-        );
+        TokenListener tokens = timedListener(listener, "ai.chat.ttft");
         
         String response;
         if (modelLoaded) {
-            response = runInference(prompt);
+            // Create prompt with the parts of the document relevant to the question; the context
+            // comes first and extends the previous turn's, so the model only evaluates what is new
+            PromptPacker packer = getPromptPacker();
+            String question = String.format("\n\nUser question: %s\n\nAnswer:", message);
+            int contextTokens = packer.getPromptTokens() - packer.getCounter().count("Context: " + question);
+            String prompt = packer.pack("Context: ", retrieveContext(document, message, contextTokens), question);
+            response = runInference(prompt, tokens, InferenceScheduler.Priority.INTERACTIVE,
+                                    cacheKey("chat", document));
             
             // If inference failed, use stub
             if (response.startsWith("[")) {
@@ -152,17 +268,65 @@ public class AIServiceImpl implements AIService {
         return response;
     }
 
+    /**
+     * Add the chunks of the document most relevant to the question to the document's chat context
+     * @param maxTokens room for the context in the prompt
+     * @return the chat context, labelled with pages
+     */
+    private String retrieveContext(PDFDocument document, String question, int maxTokens) throws Exception {
+        PageTextIndex textIndex = document.getTextIndex();
+        if (textIndex == null) {
+            textIndex = pdfService.buildTextIndex(document);
+        }
+        List<TextChunker.Chunk> retrieved = new ArrayList<>();
+        for (EmbeddingIndex.Match match : getRetriever().retrieve(textIndex, question, CHAT_CONTEXT_CHUNKS)) {
+            retrieved.add(match.getChunk());
+        }
+        
+        ChatContext context;
+        synchronized (chatContexts) {
+            context = chatContexts.computeIfAbsent(textIndex,
+                index -> new ChatContext(getPromptPacker().getCounter()));
+        }
+        return context.update(retrieved, maxTokens);
+    }
+
+    /**
+     * Identify the start of a kind of prompt about a document, for reusing the model's evaluation of it.
+     * Chat prompts start with the chat context and feature prompts with the document text, so they differ.
+     */
+    private static String cacheKey(String promptKind, PDFDocument document) {
+        String path = document.getFile() != null ? document.getFile().getAbsolutePath() : document.getTitle();
+        return promptKind + ":" + path;
+    }
+
+    /**
+     * Create the retriever on first use: the local embedding model if one is installed, otherwise hashed words
+     */
+    private synchronized DocumentRetriever getRetriever() {
+        if (retriever == null) {
+            TextEmbedder embedder = OnnxTextEmbedder.find();
+            if (embedder == null) {
+                logger.info("No embedding model found, chat retrieval will match words");
+                embedder = new HashingTextEmbedder();
+            }
+            retriever = new DocumentRetriever(embedder);
+        }
+        return retriever;
+    }
+
     @Override
     public List<String> extractEntities(PDFDocument document) throws Exception {
         logger.info("Extracting entities from document");
         
-        String text = pdfService.extractText(document);
+        String text = documentText(document);
         
         List<String> entities;
         if (modelLoaded) {
-            String prompt = "Extract all named entities (people, organizations, locations, dates) from:\n\n" + 
-                truncateText(text, 3000);
-            String result = runInference(prompt);
+            String prompt = documentPrompt(text) +
+                "Extract all named entities (people, organizations, locations, dates) from the document above.";
+            String result = runInference(prompt, null, InferenceScheduler.Priority.BACKGROUND,
+                                         cacheKey("document", document));
             entities = Arrays.asList(result.split("\n"));
         } else {
             // Stub implementation
@@ -178,12 +342,11 @@ public class AIServiceImpl implements AIService {
         
         String translated;
         if (modelLoaded) {
-            String prompt = String.format(
-                "Translate the following text to %s:\n\n%s",
-                targetLanguage,
-                truncateText(text, 2000)
-            );
-            translated = runInference(prompt);
+            // The translation is about as long as the text, so the text gets the generation budget
+            PromptPacker packer = getPromptPacker();
+            String prompt = packer.pack(String.format("Translate the following text to %s:\n\n", targetLanguage),
+                                        packer.truncate(text, GENERATION_TOKENS), "");
+            translated = runInference(prompt, InferenceScheduler.Priority.INTERACTIVE);
         } else {
             // Stub implementation
             translated = "[Translated to " + targetLanguage + "]: " + text;
@@ -196,13 +359,13 @@ public class AIServiceImpl implements AIService {
     public AIResponse generateInsights(PDFDocument document) throws Exception {
         logger.info("Generating insights for document");
         
-        String text = pdfService.extractText(document);
+        String text = documentText(document);
         
         String insights;
         if (modelLoaded) {
-            String prompt = "Analyze the following document and provide key insights:\n\n" + 
-                truncateText(text, 3000);
-            insights = runInference(prompt);
+            String prompt = documentPrompt(text) + "Analyze the document above and provide key insights.";
+            insights = runInference(prompt, null, InferenceScheduler.Priority.BACKGROUND,
+                                    cacheKey("document", document));
         } else {
             // Stub implementation
             insights = generateStubInsights();
@@ -215,13 +378,14 @@ public class AIServiceImpl implements AIService {
     public List<String> detectSensitiveContent(PDFDocument document) throws Exception {
         logger.info("Detecting sensitive content");
         
-        String text = pdfService.extractText(document);
+        String text = documentText(document);
         
         List<String> sensitiveItems;
         if (modelLoaded) {
-            String prompt = "Identify any sensitive information (PII, financial data, confidential info) in:\n\n" + 
-                truncateText(text, 3000);
-            String result = runInference(prompt);
+            String prompt = documentPrompt(text) +
+                "Identify any sensitive information (PII, financial data, confidential info) in the document above.";
+            String result = runInference(prompt, null, InferenceScheduler.Priority.BACKGROUND,
+                                         cacheKey("document", document));
             sensitiveItems = Arrays.asList(result.split("\n"));
         } else {
             // Stub implementation
@@ -248,7 +412,7 @@ public class AIServiceImpl implements AIService {
     public List<String> detectStructure(PDFDocument document) throws Exception {
         logger.info("Detecting document structure");
         
-        String text = pdfService.extractText(document);
+        String text = documentText(document);
         
         // Stub implementation - detect headings based on patterns
         List<String> structure = new ArrayList<>();
@@ -266,110 +430,125 @@ public class AIServiceImpl implements AIService {
     }
 
     /**
-     * Run inference using ONNX Runtime
-     * Thread-safe with synchronized block to prevent concurrent model access
+     * Wrap a caller's listener so time to first token is recorded and listener errors cannot stop generation
+     * @return null if there is no listener
      */
-    private String runInference(String prompt) throws Exception {
-        if (!modelLoaded) {
-            return "[AI Model not loaded - stub response]";
+    private TokenListener timedListener(TokenListener listener, String metric) {
+        if (listener == null) {
+            return null;
         }
-        
-        // Synchronize access to model managers to prevent concurrent inference
-        synchronized (inferenceLock) {
+        long startNanos = System.nanoTime();
+        java.util.concurrent.atomic.AtomicBoolean first = new java.util.concurrent.atomic.AtomicBoolean(true);
+        return text -> {
+            if (first.compareAndSet(true, false)) {
+                PerformanceMonitor.getInstance().recordSince(metric, startNanos);
+            }
             try {
-                logger.debug("Running inference with prompt length: {}", prompt.length());
-                
-                // Use appropriate model manager
-                String response;
-                if (useGGUF) {
-                    // GGUF model (LLaMA, Phi-3) - supports real text generation
-                    response = llamaModelManager.generateText(prompt, 512);
-                } else {
-                    // ONNX model (might be BERT) - may produce gibberish
-                    response = onnxModelManager.generateText(prompt, 512);
-                
-                // Log first 200 characters of response for debugging
-                String preview = response.length() > 200 ? response.substring(0, 200) + "..." : response;
-                logger.debug("Model output preview: {}", preview);
-                
-                // Check if response is just token placeholders (tokenizer not working properly)
-                if (response.contains("[TOKEN_") || response.trim().isEmpty()) {
-                    logger.warn("Model output contains token placeholders or is empty, using stub mode");
-                    return "[AI Model tokenizer not configured - stub response]";
-                }
-                
-                // Check if response contains mostly special characters or gibberish
-                if (isGibberish(response)) {
-                    logger.warn("Model output appears to be gibberish (BERT is not a generation model), using stub mode");
-                    return "[AI Model output not readable - stub response]";
-                }
-                }
-                
-                return response;
-                
-            } catch (Exception e) {
-                logger.error("Inference failed: {}", e.getMessage(), e);
-                // Fallback to stub if inference fails
-                return "[Inference error: " + e.getMessage() + "]";
+                listener.onToken(text);
+            } catch (RuntimeException e) {
+                logger.warn("Token listener failed: {}", e.getMessage());
             }
-        } // End of synchronized block
+        };
     }
-    
+
     /**
-     * Check if the text is gibberish (mostly non-alphanumeric or repetitive)
-     * BERT models produce gibberish for generation tasks since they're not designed for it
+     * Get the text of a document from its text index, which callers build on the thread that owns the
+     * PDDocument; the document is only read here if there is no index yet
      */
-    private boolean isGibberish(String text) {
-        if (text == null || text.isEmpty()) {
-            return true;
-        }
-        
-        // Count alphanumeric characters
-        int alphanumeric = 0;
-        int total = 0;
-        int spaces = 0;
-        
-        for (char c : text.toCharArray()) {
-            total++;
-            if (Character.isLetterOrDigit(c)) {
-                alphanumeric++;
-            } else if (Character.isWhitespace(c)) {
-                spaces++;
-            }
+    private String documentText(PDFDocument document) throws Exception {
+        PageTextIndex textIndex = document.getTextIndex();
+        if (textIndex == null) {
+            return pdfService.extractText(document);
         }
-        
-        // If less than 30% is alphanumeric (excluding spaces), it's likely gibberish
-        if (total - spaces > 0) {
-            double alphanumericRatio = (double) alphanumeric / (total - spaces);
-            if (alphanumericRatio < 0.3) {
-                logger.debug("Gibberish detected: alphanumeric ratio = {:.2f}", alphanumericRatio);
-                return true;
-            }
+        return String.join("\n", textIndex.getPageTexts());
+    }
+
+    /**
+     * Start of the prompts that ask about a whole document. The document comes before the instruction,
+     * so the model's evaluation of it is reused by the next feature run on the same document; it is cut
+     * to the same number of tokens for every feature, leaving room for the instruction.
+     */
+    private String documentPrompt(String text) {
+        PromptPacker packer = getPromptPacker();
+        String prefix = "Document:\n\n";
+        int textTokens = packer.getPromptTokens() - PROMPT_OVERHEAD_TOKENS - packer.getCounter().count(prefix);
+        return prefix + packer.truncate(text, textTokens) + "\n\n";
+    }
+
+    private String runInference(String prompt, InferenceScheduler.Priority priority) throws Exception {
+        return runInference(prompt, null, priority);
+    }
+
+    private String runInference(String prompt, TokenListener listener,
+                                InferenceScheduler.Priority priority) throws Exception {
+        return runInference(prompt, listener, priority, null);
+    }
+
+    /**
+     * Run inference on a scheduler slot. Interactive requests are served before queued background ones,
+     * and each request is bounded by the timeout for its priority.
+     * @param listener receives text as it is generated, or null
+     * @param cacheKey identifies the start of the prompt so its evaluation can be reused, or null
+     */
+    private String runInference(String prompt, TokenListener listener,
+                                InferenceScheduler.Priority priority, String cacheKey) throws Exception {
+        if (!modelLoaded) {
+            return "[AI Model not loaded - stub response]";
         }
         
-        // Check for repetitive patterns (same character repeated many times)
-        int maxRepeat = 0;
-        int currentRepeat = 1;
-        char lastChar = 0;
-        for (char c : text.toCharArray()) {
-            if (c == lastChar && !Character.isWhitespace(c)) {
-                currentRepeat++;
-                maxRepeat = Math.max(maxRepeat, currentRepeat);
-            } else {
-                currentRepeat = 1;
-            }
-            lastChar = c;
+        long timeoutMillis = priority == InferenceScheduler.Priority.INTERACTIVE
+            ? INTERACTIVE_TIMEOUT_MS : BACKGROUND_TIMEOUT_MS;
+        try {
+            return getScheduler().submit(priority, timeoutMillis, () -> generate(prompt, listener, cacheKey));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (Exception e) {
+            logger.error("Inference failed: {}", e.getMessage(), e);
+            // Fallback to stub if inference fails
+            return "[Inference error: " + e.getMessage() + "]";
         }
+    }
+
+    private String generate(String prompt, TokenListener listener, String cacheKey) throws Exception {
+        logger.debug("Running inference with prompt length: {}", prompt.length());
         
-        // If any character repeats more than 10 times, it's likely gibberish
-        if (maxRepeat > 10) {
-            logger.debug("Gibberish detected: max character repeat = {}", maxRepeat);
-            return true;
+        // Use appropriate model manager
+        String response;
+        if (useGGUF) {
+            // GGUF model (LLaMA, Phi-3) - supports real text generation
+            response = llamaModelManager.generateText(prompt, GENERATION_TOKENS, listener, cacheKey);
+        } else if (onnxModelManager.isDecoderModel()) {
+            // ONNX decoder with next-token logits - streams as it generates
+            response = onnxModelManager.generateText(prompt, GENERATION_TOKENS, listener);
+        } else {
+            // An encoder such as BERT has no next-token logits, so generating would only waste time on gibberish
+            logger.warn("ONNX model is not a text decoder, using stub mode");
+            return "[AI Model cannot generate text - stub response]";
         }
         
-        return false;
+        return response;
+    }
+
+    /**
+     * Create the scheduler on first use, with as many slots as the backend serves at once
+     */
+    private synchronized InferenceScheduler getScheduler() {
+        if (scheduler == null) {
+            int configured = ConfigManager.getInstance().getAiInferenceSlots();
+            int slots = useGGUF ? llamaModelManager.getParallelSlots() : Math.max(1, configured);
+            scheduler = new InferenceScheduler(slots);
+        }
+        return scheduler;
     }
 
+    /**
+     * Get the scheduler's queue and slot state, or null before the first model request
+     */
+    public InferenceScheduler getInferenceScheduler() {
+        return scheduler;
+    }
+    
     // Stub implementations for offline demo
     private String generateStubSummary(String text) {
         if (text == null || text.trim().isEmpty()) {
@@ -537,15 +716,26 @@ public class AIServiceImpl implements AIService {
                "   Current analysis is based on basic text processing.";
     }
 
-    private String truncateText(String text, int maxLength) {
-        if (text.length() <= maxLength) {
-            return text;
-        }
-        return text.substring(0, maxLength) + "...";
+    @Override
+    public String getModelType() {
+        return modelType;
+    }
+
+    @Override
+    public boolean isModelLoaded() {
+        return modelLoaded;
     }
 
     public void close() {
         try {
+            synchronized (this) {
+                if (scheduler != null) {
+                    scheduler.close();
+                }
+                if (retriever != null) {
+                    retriever.close();
+                }
+            }
             if (llamaModelManager != null) {
                 llamaModelManager.close();
             }
@@ -0,0 +1,67 @@
+package app.services.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Document text carried across the chat turns about one document. Chunks retrieved for a new question are
+ * appended after those already in the context, so each prompt starts with the previous prompt's context and
+ * the model's cached evaluation of it can be reused. The context starts over when it would grow past its limit.
+ */
+class ChatContext {
+    private final TokenCounter counter;
+    private final List<TextChunker.Chunk> chunks = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+    private int tokens;
+
+    /**
+     * @param counter measures text in the model's tokens
+     */
+    ChatContext(TokenCounter counter) {
+        this.counter = counter;
+    }
+
+    /**
+     * Add the chunks retrieved for a question
+     * @param maxTokens room for the context in the question's prompt
+     * @return the context for the question's prompt, each chunk labelled with its pages
+     */
+    synchronized String update(List<TextChunker.Chunk> retrieved, int maxTokens) {
+        List<TextChunker.Chunk> added = new ArrayList<>();
+        for (TextChunker.Chunk chunk : retrieved) {
+            if (!chunks.contains(chunk)) {
+                added.add(chunk);
+            }
+        }
+        // Reading order helps the model follow text that spans chunks
+        added.sort(Comparator.comparingInt(TextChunker.Chunk::getFirstPage));
+        List<String> entries = new ArrayList<>();
+        int addedTokens = 0;
+        for (TextChunker.Chunk chunk : added) {
+            String entry = "[" + chunk.getPageLabel() + "]\n" + chunk.getText();
+            entries.add(entry);
+            addedTokens += counter.count(entry);
+        }
+
+        if (!chunks.isEmpty() && tokens + addedTokens > maxTokens) {
+            chunks.clear();
+            text.setLength(0);
+            tokens = 0;
+            return update(retrieved, maxTokens);
+        }
+        for (int i = 0; i < added.size(); i++) {
+            if (text.length() > 0) {
+                text.append("\n\n");
+            }
+            text.append(entries.get(i));
+            chunks.add(added.get(i));
+        }
+        tokens += addedTokens;
+        return text.toString();
+    }
+
+    synchronized int getChunkCount() {
+        return chunks.size();
+    }
+}
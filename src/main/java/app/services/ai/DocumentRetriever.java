@@ -0,0 +1,84 @@
+package app.services.ai;
+
+import app.model.PageTextIndex;
+import app.utils.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Finds the parts of a document that are relevant to a question, so prompts carry those
+ * instead of the start of the document. Each document's chunks are embedded once; the index
+ * is kept for as long as the document's text index is in use.
+ */
+public class DocumentRetriever implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentRetriever.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
+
+    // Small enough that each chunk is about one topic
+    public static final int DEFAULT_CHUNK_TOKENS = 200;
+
+    private final TextEmbedder embedder;
+    private final TextChunker chunker;
+    // Keyed by the text index, which is replaced when the text changes (e.g. after OCR)
+    private final Map<PageTextIndex, EmbeddingIndex> indexes = new WeakHashMap<>();
+
+    public DocumentRetriever(TextEmbedder embedder) {
+        this(embedder, DEFAULT_CHUNK_TOKENS);
+    }
+
+    public DocumentRetriever(TextEmbedder embedder, int chunkTokens) {
+        this.embedder = embedder;
+        this.chunker = new TextChunker(chunkTokens);
+    }
+
+    /**
+     * Get the embedding index of a document's text, building it on first use
+     */
+    public synchronized EmbeddingIndex getIndex(PageTextIndex textIndex) throws Exception {
+        EmbeddingIndex index = indexes.get(textIndex);
+        if (index == null) {
+            long startTime = System.currentTimeMillis();
+            List<TextChunker.Chunk> chunks = chunker.chunk(textIndex.getPageTexts());
+            index = EmbeddingIndex.build(chunks, embedder);
+            indexes.put(textIndex, index);
+
+            long duration = System.currentTimeMillis() - startTime;
+            PerformanceMonitor.getInstance().record("ai.embedding.index", duration);
+            logger.info("Embedded {} chunks of {} pages with {} in {}ms", chunks.size(), textIndex.getPageCount(),
+                       embedder.getName(), duration);
+            perfLogger.info("AI Embedding Index: {} chunks, {} floats - {}ms", chunks.size(),
+                           (long) chunks.size() * index.getDimension(), duration);
+        }
+        return index;
+    }
+
+    /**
+     * Find the chunks of the document most relevant to a question
+     * @return up to k matches, best first
+     */
+    public List<EmbeddingIndex.Match> retrieve(PageTextIndex textIndex, String question, int k) throws Exception {
+        EmbeddingIndex index = getIndex(textIndex);
+        if (index.size() == 0) {
+            return Collections.emptyList();
+        }
+        long startNanos = System.nanoTime();
+        float[] query = embedder.embed(List.of(question))[0];
+        List<EmbeddingIndex.Match> matches = index.search(query, k);
+        PerformanceMonitor.getInstance().recordSince("ai.embedding.search", startNanos);
+        return matches;
+    }
+
+    public TextEmbedder getEmbedder() {
+        return embedder;
+    }
+
+    @Override
+    public void close() {
+        embedder.close();
+    }
+}
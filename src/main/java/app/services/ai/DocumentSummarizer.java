@@ -0,0 +1,207 @@
+package app.services.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Summarizes documents of any length by map-reduce. Page text is packed into chunks that fit the model's
+ * context, the chunks are summarized in parallel, and the partial summaries are combined in rounds until
+ * one summary is left. Only the final step is streamed to the caller.
+ */
+public class DocumentSummarizer {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentSummarizer.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
+
+    // Expected length of a partial summary; sets how many are combined in one step
+    static final int PARTIAL_SUMMARY_TOKENS = 250;
+
+    /**
+     * One model call of the summary
+     */
+    @FunctionalInterface
+    public interface Generator {
+        /**
+         * @param text document text (chunk step) or partial summaries (combine step)
+         * @param combine true if the text is partial summaries to be merged
+         * @param finalStep true for the call whose output is the summary of the whole document
+         * @param listener receives the output as it is generated; null except for the final step
+         */
+        String summarize(String text, boolean combine, boolean finalStep, TokenListener listener) throws Exception;
+    }
+
+    private final Generator generator;
+    private final int parallelism;
+    private final TokenCounter counter;
+    private final TextChunker chunker;
+    private final int chunkTokens;
+    private final int fanIn;
+
+    /**
+     * @param parallelism model calls made at once, normally the inference slots
+     * @param chunkTokens text per model call, the context left after the prompt and the generated summary
+     */
+    public DocumentSummarizer(Generator generator, int parallelism, int chunkTokens) {
+        this(generator, parallelism, chunkTokens, TokenCounter.estimate());
+    }
+
+    /**
+     * @param counter measures text in the model's tokens
+     */
+    public DocumentSummarizer(Generator generator, int parallelism, int chunkTokens, TokenCounter counter) {
+        this.generator = generator;
+        this.parallelism = Math.max(1, parallelism);
+        this.counter = counter;
+        this.chunker = new TextChunker(chunkTokens, counter);
+        this.chunkTokens = chunker.getChunkTokens();
+        this.fanIn = Math.max(2, chunkTokens / PARTIAL_SUMMARY_TOKENS);
+    }
+
+    /**
+     * Summarize the pages of a document
+     * @param pageTexts text of each page in order
+     * @param listener receives the final summary as it is generated, or null
+     * @param progress receives progress as parts are done, or null
+     * @return the summary, or an empty string if the pages have no text
+     */
+    public String summarize(List<String> pageTexts, TokenListener listener,
+                            SummaryProgressListener progress) throws Exception {
+        long startTime = System.currentTimeMillis();
+        List<TextChunker.Chunk> chunks = chunker.chunk(pageTexts);
+        if (chunks.isEmpty()) {
+            return "";
+        }
+        int totalSteps = countSteps(chunks.size());
+        AtomicInteger completedSteps = new AtomicInteger();
+        logger.info("Summarizing {} pages as {} chunk(s) in {} step(s)", pageTexts.size(), chunks.size(), totalSteps);
+
+        String summary;
+        if (chunks.size() == 1) {
+            summary = generator.summarize(chunks.get(0).getText(), false, true, listener);
+            report(progress, completedSteps, totalSteps);
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread thread = new Thread(r, "summary-part");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                // Map: each chunk on its own, labelled with its pages so the combined summary can refer to them
+                List<String> partials = runAll(executor, chunks.size(), i -> {
+                    TextChunker.Chunk chunk = chunks.get(i);
+                    String partial = generator.summarize(chunk.getText(), false, false, null);
+                    report(progress, completedSteps, totalSteps);
+                    return chunk.getPageLabel() + ": " + partial.strip();
+                });
+
+                // Reduce: combine groups of partial summaries until one group is left, which gives the result
+                while (true) {
+                    List<String> groups = group(partials);
+                    if (groups.size() == 1) {
+                        summary = generator.summarize(groups.get(0), true, true, listener);
+                        report(progress, completedSteps, totalSteps);
+                        break;
+                    }
+                    partials = runAll(executor, groups.size(), i -> {
+                        String combined = generator.summarize(groups.get(i), true, false, null);
+                        report(progress, completedSteps, totalSteps);
+                        return combined.strip();
+                    });
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        perfLogger.info("Document Summary: {} pages, {} chunks, {} steps - {}ms", pageTexts.size(), chunks.size(),
+                       totalSteps, System.currentTimeMillis() - startTime);
+        return summary;
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        String run(int index) throws Exception;
+    }
+
+    private static List<String> runAll(ExecutorService executor, int count, Step step) throws Exception {
+        List<Future<String>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            futures.add(executor.submit(() -> step.run(index)));
+        }
+        List<String> results = new ArrayList<>(count);
+        try {
+            for (Future<String> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            // One failed part fails the summary; stop the others
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return results;
+    }
+
+    private static void report(SummaryProgressListener progress, AtomicInteger completedSteps, int totalSteps) {
+        int completed = completedSteps.incrementAndGet();
+        if (progress != null) {
+            try {
+                progress.onProgress(completed, totalSteps);
+            } catch (RuntimeException e) {
+                logger.warn("Summary progress listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Join partial summaries into groups of at most fanIn, each cut to fit one model call
+     */
+    List<String> group(List<String> partials) {
+        int groupCount = (partials.size() + fanIn - 1) / fanIn;
+        // Spread evenly, so the last group is not a lone leftover
+        int maxPartTokens = chunkTokens / ((partials.size() + groupCount - 1) / groupCount);
+
+        List<String> groups = new ArrayList<>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            int start = partials.size() * i / groupCount;
+            int end = partials.size() * (i + 1) / groupCount;
+            StringBuilder group = new StringBuilder();
+            for (String partial : partials.subList(start, end)) {
+                if (group.length() > 0) {
+                    group.append("\n\n");
+                }
+                group.append(counter.truncate(partial, maxPartTokens));
+            }
+            groups.add(group.toString());
+        }
+        return groups;
+    }
+
+    /**
+     * Number of model calls for a document of the given number of chunks
+     */
+    int countSteps(int chunkCount) {
+        if (chunkCount <= 1) {
+            return chunkCount;
+        }
+        int steps = chunkCount;
+        int remaining = chunkCount;
+        while (remaining > 1) {
+            int groupCount = (remaining + fanIn - 1) / fanIn;
+            steps += groupCount;
+            remaining = groupCount;
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,111 @@
+package app.services.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chunks of a document with their embedding vectors, searched by dot product.
+ * Vectors are kept in one flat float array, one row per chunk, so a document of thousands of chunks
+ * costs a few megabytes and a search is one pass over contiguous memory.
+ */
+public class EmbeddingIndex {
+    private final List<TextChunker.Chunk> chunks;
+    private final int dimension;
+    // Row-major: chunk i occupies [i * dimension, (i + 1) * dimension)
+    private final float[] vectors;
+
+    private EmbeddingIndex(List<TextChunker.Chunk> chunks, int dimension, float[] vectors) {
+        this.chunks = Collections.unmodifiableList(new ArrayList<>(chunks));
+        this.dimension = dimension;
+        this.vectors = vectors;
+    }
+
+    /**
+     * Embed the chunks and index them
+     */
+    public static EmbeddingIndex build(List<TextChunker.Chunk> chunks, TextEmbedder embedder) throws Exception {
+        int dimension = embedder.getDimension();
+        float[] vectors = new float[chunks.size() * dimension];
+        List<String> texts = new ArrayList<>(chunks.size());
+        for (TextChunker.Chunk chunk : chunks) {
+            texts.add(chunk.getText());
+        }
+        float[][] embedded = embedder.embed(texts);
+        for (int i = 0; i < embedded.length; i++) {
+            System.arraycopy(embedded[i], 0, vectors, i * dimension, dimension);
+        }
+        return new EmbeddingIndex(chunks, dimension, vectors);
+    }
+
+    /**
+     * Find the chunks most similar to a query vector
+     * @return up to k matches, best first
+     */
+    public List<Match> search(float[] query, int k) {
+        int count = Math.min(k, chunks.size());
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Best k so far, sorted by descending score
+        int[] best = new int[count];
+        float[] bestScores = new float[count];
+        Arrays.fill(bestScores, Float.NEGATIVE_INFINITY);
+
+        for (int row = 0; row < chunks.size(); row++) {
+            int offset = row * dimension;
+            float score = 0;
+            for (int d = 0; d < dimension; d++) {
+                score += vectors[offset + d] * query[d];
+            }
+            if (score <= bestScores[count - 1]) {
+                continue;
+            }
+            int position = count - 1;
+            while (position > 0 && bestScores[position - 1] < score) {
+                bestScores[position] = bestScores[position - 1];
+                best[position] = best[position - 1];
+                position--;
+            }
+            bestScores[position] = score;
+            best[position] = row;
+        }
+
+        List<Match> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            matches.add(new Match(chunks.get(best[i]), bestScores[i]));
+        }
+        return matches;
+    }
+
+    public int size() {
+        return chunks.size();
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * A chunk and its similarity to the query
+     */
+    public static class Match {
+        private final TextChunker.Chunk chunk;
+        private final float score;
+
+        Match(TextChunker.Chunk chunk, float score) {
+            this.chunk = chunk;
+            this.score = score;
+        }
+
+        public TextChunker.Chunk getChunk() {
+            return chunk;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package app.services.ai;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Bag-of-words embedder using feature hashing: each word adds a signed count to one of a fixed number
+ * of dimensions. Needs no model, so retrieval works when no embedding model is installed;
+ * it matches shared words only, not meaning.
+ */
+public class HashingTextEmbedder implements TextEmbedder {
+    public static final int DEFAULT_DIMENSION = 1024;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "or", "but", "in", "on", "at", "to", "for", "of", "with", "by", "from", "as",
+        "is", "was", "are", "were", "be", "been", "have", "has", "had", "do", "does", "did", "will",
+        "would", "could", "should", "may", "might", "can", "this", "that", "these", "those", "it",
+        "its", "an", "what", "which", "who", "how", "why", "when", "where", "about", "into", "than"
+    );
+
+    private final int dimension;
+
+    public HashingTextEmbedder() {
+        this(DEFAULT_DIMENSION);
+    }
+
+    public HashingTextEmbedder(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[][] embed(List<String> texts) {
+        float[][] vectors = new float[texts.size()][];
+        for (int i = 0; i < texts.size(); i++) {
+            vectors[i] = embed(texts.get(i));
+        }
+        return vectors;
+    }
+
+    private float[] embed(String text) {
+        float[] vector = new float[dimension];
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() < 2 || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            int hash = mix(word.hashCode());
+            // The sign bit keeps colliding words from always adding up
+            vector[Math.floorMod(hash, dimension)] += (hash & 0x40000000) == 0 ? 1f : -1f;
+        }
+
+        // Damp repeated words, then scale to unit length
+        double norm = 0;
+        for (int i = 0; i < dimension; i++) {
+            float value = vector[i];
+            value = (float) (Math.signum(value) * Math.log1p(Math.abs(value)));
+            vector[i] = value;
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimension; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Spread String.hashCode bits, which are poor in the low bits for short words
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    @Override
+    public String getName() {
+        return "hashed bag-of-words (" + dimension + ")";
+    }
+}
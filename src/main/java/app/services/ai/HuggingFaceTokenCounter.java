@@ -0,0 +1,87 @@
+package app.services.ai;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.huggingface.tokenizers.jni.CharSpan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Counts tokens with the Hugging Face tokenizer exported with a model (tokenizer.json in the model's directory).
+ * The file is read from disk; nothing is downloaded. The native tokenizer is not changed after loading,
+ * so one instance is shared by all threads.
+ */
+public class HuggingFaceTokenCounter implements TokenCounter {
+    private static final Logger logger = LoggerFactory.getLogger(HuggingFaceTokenCounter.class);
+
+    public static final String TOKENIZER_FILE = "tokenizer.json";
+
+    private final HuggingFaceTokenizer tokenizer;
+
+    public HuggingFaceTokenCounter(HuggingFaceTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Load the tokenizer in a model directory, without padding or truncation
+     * @return the tokenizer, or null if the directory has none
+     */
+    public static HuggingFaceTokenizer loadTokenizer(Path modelDir) throws IOException {
+        Path file = modelDir.resolve(TOKENIZER_FILE);
+        if (!Files.exists(file)) {
+            logger.warn("No {} in {}", TOKENIZER_FILE, modelDir);
+            return null;
+        }
+        HuggingFaceTokenizer tokenizer = HuggingFaceTokenizer.newInstance(file, Map.of(
+            "padding", "false",
+            "truncation", "false"
+        ));
+        logger.info("Loaded tokenizer from {}", file);
+        return tokenizer;
+    }
+
+    @Override
+    public int count(String text) {
+        return tokenizer.encode(text, true, false).getIds().length;
+    }
+
+    /**
+     * Encode once and cut after the last token that fits, using the text offsets the tokenizer keeps for each token.
+     * Special tokens such as a start token have no offsets and use up the budget first, as they do in count.
+     */
+    @Override
+    public String truncate(String text, int maxTokens) {
+        // No need to encode more text than the longest tokens could cover
+        int longest = (int) Math.min(text.length(), (long) Math.max(0, maxTokens) * MAX_CHARS_PER_TOKEN);
+        if (longest < text.length() && longest > 0 && Character.isHighSurrogate(text.charAt(longest - 1))) {
+            longest--;
+        }
+        String candidate = text.substring(0, longest);
+        Encoding encoding = tokenizer.encode(candidate, true, false);
+        CharSpan[] spans = encoding.getCharTokenSpans();
+        if (spans.length <= maxTokens) {
+            return candidate;
+        }
+
+        int textTokens = maxTokens;
+        for (CharSpan span : spans) {
+            if (span == null) {
+                textTokens--;
+            }
+        }
+        // Offsets count code points, not Java chars
+        int end = 0;
+        for (int i = 0, kept = 0; i < spans.length && kept < textTokens; i++) {
+            if (spans[i] != null) {
+                end = Math.max(end, spans[i].getEnd());
+                kept++;
+            }
+        }
+        return candidate.substring(0, candidate.offsetByCodePoints(0, end));
+    }
+}
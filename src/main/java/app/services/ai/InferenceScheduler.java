@@ -0,0 +1,168 @@
+package app.services.ai;
+
+import app.utils.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs model requests on a fixed number of slots, matching how many requests the backend can serve at once.
+ * Waiting requests are served by priority, interactive ones (chat, summary) before background ones
+ * (entity extraction, insights), and in arrival order within a priority. A running request is not preempted.
+ * <p>
+ * Metrics per priority: ai.queue.wait.* (time queued) and ai.inference.* (time running).
+ */
+public class InferenceScheduler implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InferenceScheduler.class);
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final PriorityBlockingQueue<Job<?>> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final List<Thread> workers = new ArrayList<>();
+    private final int slots;
+    private volatile boolean closed;
+
+    public InferenceScheduler(int slots) {
+        this.slots = Math.max(1, slots);
+        for (int i = 0; i < this.slots; i++) {
+            Thread worker = new Thread(this::work, "inference-slot-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info("Inference scheduler started with {} slot(s)", this.slots);
+    }
+
+    /**
+     * Run a request on the next free slot and wait for its result
+     * @param timeoutMillis limit on queueing plus running; on timeout the request is dropped from the queue,
+     *                      or interrupted if it is already running
+     * @throws TimeoutException if the request did not finish in time
+     */
+    public <T> T submit(Priority priority, long timeoutMillis, Callable<T> task) throws Exception {
+        if (closed) {
+            throw new IllegalStateException("Inference scheduler is closed");
+        }
+        Job<T> job = new Job<>(task, priority, sequence.incrementAndGet());
+        queue.add(job);
+        try {
+            return job.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancel(job);
+            logger.warn("{} inference request timed out after {}ms ({})", priority, timeoutMillis,
+                       job.startedAt == 0 ? "still queued" : "while running");
+            throw new TimeoutException("Inference request timed out after " + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            cancel(job);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void cancel(Job<?> job) {
+        queue.remove(job);
+        job.cancel(true);
+    }
+
+    private void work() {
+        while (!closed) {
+            Job<?> job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job.isCancelled()) {
+                continue;
+            }
+            job.startedAt = System.nanoTime();
+            String metric = job.priority.name().toLowerCase(Locale.ROOT);
+            PerformanceMonitor.getInstance().record("ai.queue.wait." + metric,
+                TimeUnit.NANOSECONDS.toMillis(job.startedAt - job.queuedAt));
+            activeCount.incrementAndGet();
+            try {
+                job.run();
+            } finally {
+                activeCount.decrementAndGet();
+                PerformanceMonitor.getInstance().recordSince("ai.inference." + metric, job.startedAt);
+                // A request cancelled while running leaves the interrupt set; it must not end this worker
+                if (!closed) {
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * Get the number of requests waiting for a slot
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Get the number of requests running
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Stop the slots; queued requests are cancelled and running ones interrupted
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Job<?> job;
+        while ((job = queue.poll()) != null) {
+            job.cancel(false);
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private static class Job<T> extends FutureTask<T> implements Comparable<Job<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final long queuedAt = System.nanoTime();
+        private volatile long startedAt;
+
+        Job(Callable<T> task, Priority priority, long sequence) {
+            super(task);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
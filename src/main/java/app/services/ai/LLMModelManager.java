@@ -3,10 +3,13 @@ package app.services.ai;
 import ai.onnxruntime.*;
 import ai.djl.huggingface.tokenizers.Encoding;
 import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import app.utils.PerformanceMonitor;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.nio.LongBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -15,16 +18,29 @@ import java.util.*;
 /**
  * Manages LLM model loading and inference using ONNX Runtime
  * Supports: LLaMA, Phi-3, GPT-style models in ONNX format
+ * Text is generated one token at a time by {@link OnnxDecoder}, reusing the model's key/value cache between steps.
  */
 public class LLMModelManager {
     private static final Logger logger = LoggerFactory.getLogger(LLMModelManager.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
     
     private OrtEnvironment ortEnvironment;
     private OrtSession ortSession;
     private HuggingFaceTokenizer tokenizer;
+    private TokenCounter tokenCounter = TokenCounter.estimate();
     private boolean modelLoaded = false;
     private String modelType = "unknown";
     private int maxTokens = 512;
+    private OnnxDecoder decoder;
+    private Set<Long> stopTokens;
+    
+    // Sampling settings, the same as sent to llama-server
+    private static final float TEMPERATURE = 0.7f;
+    private static final int TOP_K = 40;
+    private static final float TOP_P = 0.9f;
+    
+    // Common end-of-sequence ids (BERT [SEP], LLaMA </s>, GPT-2 <|endoftext|>) for models without a config
+    private static final Set<Long> DEFAULT_STOP_TOKENS = Set.of(102L, 2L, 50256L);
     
     // Model paths to check
     private static final String[] MODEL_PATHS = {
@@ -87,23 +103,21 @@ public class LLMModelManager {
         try {
             logger.info("Loading ONNX model from: {}", modelPath);
             
-            OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions();
-            
-            // Optimize for CPU inference
-            sessionOptions.setIntraOpNumThreads(4);
-            sessionOptions.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.BASIC_OPT);
-            
-            // Enable memory pattern optimization
-            sessionOptions.setMemoryPatternOptimization(true);
+            // Threads, optimization level and the optimized graph cache come from the settings
+            ortSession = OnnxSessionFactory.fromSettings().create(ortEnvironment, Paths.get(modelPath), "llm");
             
-            ortSession = ortEnvironment.createSession(modelPath, sessionOptions);
-            
-            // Initialize Hugging Face tokenizer with BERT vocabulary
-            initializeTokenizer();
+            // The tokenizer exported with the model sits next to it
+            Path modelDir = Paths.get(modelPath).toAbsolutePath().getParent();
+            initializeTokenizer(modelDir);
             
             // Detect model type from metadata or filename
             detectModelType(modelPath);
             
+            decoder = new OnnxDecoder(ortEnvironment, ortSession);
+            stopTokens = loadStopTokens(modelDir);
+            logger.info("Decoder {} key/value cache, stop tokens {}", decoder.usesCache() ? "with" : "without",
+                       stopTokens);
+            
             modelLoaded = true;
             logger.info("✅ Model loaded successfully! Type: {}", modelType);
             
@@ -116,6 +130,37 @@ public class LLMModelManager {
         }
     }
     
+    /**
+     * Read the end-of-sequence tokens from the generation_config.json or config.json exported with the model
+     */
+    private Set<Long> loadStopTokens(Path modelDir) {
+        for (String name : new String[]{"generation_config.json", "config.json"}) {
+            Path file = modelDir.resolve(name);
+            if (!Files.exists(file)) {
+                continue;
+            }
+            try {
+                JsonObject config = JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+                JsonElement eos = config.get("eos_token_id");
+                if (eos == null || eos.isJsonNull()) {
+                    continue;
+                }
+                Set<Long> tokens = new HashSet<>();
+                if (eos.isJsonArray()) {
+                    for (JsonElement id : eos.getAsJsonArray()) {
+                        tokens.add(id.getAsLong());
+                    }
+                } else {
+                    tokens.add(eos.getAsLong());
+                }
+                return tokens;
+            } catch (Exception e) {
+                logger.warn("Could not read stop tokens from {}: {}", file, e.getMessage());
+            }
+        }
+        return DEFAULT_STOP_TOKENS;
+    }
+    
     /**
      * Detect model type from path or metadata
      */
@@ -140,23 +185,16 @@ public class LLMModelManager {
     }
     
     /**
-     * Initialize the Hugging Face tokenizer
-     * Uses bert-base-uncased tokenizer by default
+     * Load the tokenizer exported with the model from its directory; nothing is downloaded
      */
-    private void initializeTokenizer() {
+    private void initializeTokenizer(Path modelDir) {
         try {
-            logger.info("Initializing BERT tokenizer...");
-            
-            // Try to load from bert-base-uncased pretrained model
-            // This will download the tokenizer files if not already cached
-            tokenizer = HuggingFaceTokenizer.newInstance("bert-base-uncased", Map.of(
-                "padding", "true",
-                "truncation", "true",
-                "maxLength", String.valueOf(maxTokens)
-            ));
-            
-            logger.info("✅ BERT tokenizer initialized successfully");
-            
+            tokenizer = HuggingFaceTokenCounter.loadTokenizer(modelDir);
+            if (tokenizer == null) {
+                logger.warn("Model has no tokenizer, AI features will use fallback stub responses");
+                return;
+            }
+            tokenCounter = new HuggingFaceTokenCounter(tokenizer);
         } catch (Exception e) {
             logger.error("Failed to initialize tokenizer: {}", e.getMessage(), e);
             logger.warn("AI features will use fallback stub responses");
@@ -166,9 +204,16 @@ public class LLMModelManager {
     }
     
     /**
-     * Run inference on the model
+     * Generate text token by token from the prompt
      */
     public String generateText(String prompt, int maxNewTokens) throws OrtException {
+        return generateText(prompt, maxNewTokens, null);
+    }
+    
+    /**
+     * Generate text, passing each piece to the listener as soon as its token is generated
+     */
+    public String generateText(String prompt, int maxNewTokens, TokenListener listener) throws OrtException {
         if (!modelLoaded || ortSession == null) {
             throw new IllegalStateException("Model not loaded");
         }
@@ -180,6 +225,12 @@ public class LLMModelManager {
             if (tokenizer == null) {
                 throw new IllegalStateException("Tokenizer not initialized");
             }
+            // An encoder would run a full pass per token only to produce gibberish
+            if (!decoder.isGenerative()) {
+                throw new IllegalStateException("Model is not a text decoder");
+            }
+            
+            long startTime = System.currentTimeMillis();
             
             // Tokenize input
             Encoding encoding = tokenizer.encode(prompt);
@@ -205,45 +256,17 @@ public class LLMModelManager {
             
             logger.debug("Using {} input tokens", inputIds.length);
             
-            // Create input tensors
-            long[] shape = {1, inputIds.length};
-            
-            // Input IDs tensor
-            LongBuffer inputIdsBuffer = LongBuffer.wrap(inputIds);
-            OnnxTensor inputIdsTensor = OnnxTensor.createTensor(ortEnvironment, inputIdsBuffer, shape);
-            
-            // Attention mask (all 1s for valid tokens)
-            long[] attentionMask = new long[inputIds.length];
-            Arrays.fill(attentionMask, 1L);
-            LongBuffer attentionBuffer = LongBuffer.wrap(attentionMask);
-            OnnxTensor attentionMaskTensor = OnnxTensor.createTensor(ortEnvironment, attentionBuffer, shape);
-            
-            // Token type IDs (all 0s for single sequence)
-            long[] tokenTypeIds = new long[inputIds.length];
-            Arrays.fill(tokenTypeIds, 0L);
-            LongBuffer tokenTypeBuffer = LongBuffer.wrap(tokenTypeIds);
-            OnnxTensor tokenTypeIdsTensor = OnnxTensor.createTensor(ortEnvironment, tokenTypeBuffer, shape);
-            
-            // Run inference with all required inputs
-            Map<String, OnnxTensor> inputs = new HashMap<>();
-            inputs.put("input_ids", inputIdsTensor);
-            inputs.put("attention_mask", attentionMaskTensor);
-            inputs.put("token_type_ids", tokenTypeIdsTensor);
+            // Text is decoded from the last few tokens, so pieces that span tokens come out whole
+            TextStream stream = new TextStream(maxNewTokens, listener);
+            LogitsSampler sampler = new LogitsSampler(TEMPERATURE, TOP_K, TOP_P, System.nanoTime());
+            long[] outputIds = decoder.generate(inputIds, maxNewTokens, stopTokens, sampler, stream);
+            String generatedText = decode(outputIds);
             
-            OrtSession.Result results = ortSession.run(inputs);
-            
-            // Get output logits
-            OnnxValue outputValue = results.get(0);
-            float[][][] logits = (float[][][]) outputValue.getValue();
-            
-            // Decode output tokens
-            String generatedText = decodeOutput(logits, maxNewTokens);
-            
-            // Cleanup all tensors
-            inputIdsTensor.close();
-            attentionMaskTensor.close();
-            tokenTypeIdsTensor.close();
-            results.close();
+            long duration = System.currentTimeMillis() - startTime;
+            PerformanceMonitor.getInstance().record("llm.onnx.generate", duration);
+            perfLogger.info("ONNX Generation: {} prompt tokens, {} tokens - first token {}ms - {}ms ({} cache)",
+                           inputIds.length, outputIds.length, stream.firstTokenMillis(startTime), duration,
+                           decoder.usesCache() ? "with" : "no");
             
             logger.debug("Generated text length: {}", generatedText.length());
             return generatedText;
@@ -265,47 +288,57 @@ public class LLMModelManager {
     }
     
     /**
-     * Decode output logits to text (greedy decoding)
+     * Decode token ids to text
+     */
+    private String decode(long[] tokenIds) {
+        try {
+            return tokenizer.decode(tokenIds);
+        } catch (Exception e) {
+            logger.error("Error decoding tokens: {}", e.getMessage());
+            return "[Error decoding output]";
+        }
+    }
+    
+    /**
+     * Collects generated token ids and passes the text they add to a listener.
+     * Each token is decoded together with the few tokens before it and compared with the text of those alone,
+     * so spacing and characters that span tokens come out right without decoding everything generated so far.
      */
-    private String decodeOutput(float[][][] logits, int maxTokens) {
-        List<Long> outputTokens = new ArrayList<>();
+    private class TextStream implements java.util.function.LongConsumer {
+        private final long[] tokenIds;
+        private final TokenListener listener;
+        private int count;
+        // Tokens from prefixStart to readStart have been passed on and give context for the next ones
+        private int prefixStart;
+        private int readStart;
+        private long firstTokenAt = -1;
         
-        // Simple greedy decoding
-        for (int i = 0; i < Math.min(maxTokens, logits[0].length); i++) {
-            float[] tokenLogits = logits[0][i];
-            
-            // Find token with highest probability
-            int maxIdx = 0;
-            float maxProb = tokenLogits[0];
-            
-            for (int j = 1; j < tokenLogits.length; j++) {
-                if (tokenLogits[j] > maxProb) {
-                    maxProb = tokenLogits[j];
-                    maxIdx = j;
-                }
+        TextStream(int maxTokens, TokenListener listener) {
+            this.tokenIds = new long[maxTokens];
+            this.listener = listener;
+        }
+        
+        @Override
+        public void accept(long tokenId) {
+            if (firstTokenAt < 0) {
+                firstTokenAt = System.currentTimeMillis();
             }
-            
-            outputTokens.add((long) maxIdx);
-            
-            // Stop if end-of-sequence token (BERT [SEP] or common EOS tokens)
-            if (maxIdx == 102 || maxIdx == 2 || maxIdx == 50256) {
-                break;
+            tokenIds[count++] = tokenId;
+            if (listener == null) {
+                return;
+            }
+            String prefix = decode(Arrays.copyOfRange(tokenIds, prefixStart, readStart));
+            String text = decode(Arrays.copyOfRange(tokenIds, prefixStart, count));
+            // Hold back a partial character until the tokens that complete it arrive
+            if (text.length() > prefix.length() && !text.endsWith("\uFFFD")) {
+                listener.onToken(text.substring(prefix.length()));
+                prefixStart = readStart;
+                readStart = count;
             }
         }
         
-        // Convert list to array
-        long[] tokenArray = outputTokens.stream().mapToLong(Long::longValue).toArray();
-        
-        // Decode using tokenizer
-        if (tokenizer != null) {
-            try {
-                return tokenizer.decode(tokenArray);
-            } catch (Exception e) {
-                logger.error("Error decoding tokens: {}", e.getMessage());
-                return "[Error decoding output]";
-            }
-        } else {
-            return "[Tokenizer not available]";
+        long firstTokenMillis(long startTime) {
+            return firstTokenAt < 0 ? -1 : firstTokenAt - startTime;
         }
     }
     
@@ -316,6 +349,13 @@ public class LLMModelManager {
         return modelLoaded;
     }
     
+    /**
+     * Check if the model is a decoder with next-token logits, and so generates readable text
+     */
+    public boolean isDecoderModel() {
+        return decoder != null && decoder.isGenerative();
+    }
+    
     /**
      * Get model type
      */
@@ -323,6 +363,13 @@ public class LLMModelManager {
         return modelType;
     }
     
+    /**
+     * Get the counter for the model's tokens, or the length estimate if the model has no tokenizer
+     */
+    public TokenCounter getTokenCounter() {
+        return tokenCounter;
+    }
+    
     /**
      * Get maximum context length
      */
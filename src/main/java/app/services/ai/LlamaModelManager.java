@@ -1,5 +1,6 @@
 package app.services.ai;
 
+import app.utils.ConfigManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,7 +15,8 @@ import java.util.List;
 
 /**
  * Manages GGUF model loading and inference using llama.cpp
- * Supports LLaMA, Phi-3, and other GGUF format models
+ * Supports LLaMA, Phi-3, and other GGUF format models.
+ * Prefers a resident llama-server process that keeps the model loaded; falls back to one llama-cli run per request.
  */
 public class LlamaModelManager {
     private static final Logger logger = LoggerFactory.getLogger(LlamaModelManager.class);
@@ -24,6 +26,15 @@ public class LlamaModelManager {
     private String modelType = "unknown";
     private int maxTokens = 2048;
     private String llamaCppPath = null;
+    private LlamaServerBackend serverBackend = null;
+    private int parallelSlots = 1;
+    
+    // Requests llama-server decodes at once by default, so a chat reply need not wait for a background task
+    private static final int DEFAULT_SERVER_SLOTS = 2;
+    
+    // llama-cli prompt state saved per document, for the documents used most recently
+    private static final Path PROMPT_CACHE_DIR = Paths.get(System.getProperty("user.home"), ".pdfstudio", "prompt-cache");
+    private static final int MAX_PROMPT_CACHE_FILES = 4;
     
     // Paths to check for GGUF models
     private static final String[] MODEL_PATHS = {
@@ -35,9 +46,44 @@ public class LlamaModelManager {
         "F:/PDF Studio/Models/Llama-3.2-3B-Instruct-Q6_K_L_2.gguf"
     };
     
+    private static final String[] CLI_EXECUTABLE_PATHS = {
+        "llama.cpp/build/bin/Release/llama-cli.exe",
+        "llama.cpp/build/bin/llama-cli.exe",
+        "llama.cpp/llama-cli.exe",
+        "llama-cli.exe",
+        "llama.exe",
+        "C:/llama.cpp/build/bin/Release/llama-cli.exe",
+        "C:/llama.cpp/llama-cli.exe",
+        "llama.cpp/build/bin/Release/main.exe",
+        "llama.cpp/build/bin/main.exe",
+        "C:/llama.cpp/build/bin/Release/main.exe"
+    };
+    
+    private static final String[] SERVER_EXECUTABLE_PATHS = {
+        "llama.cpp/build/bin/Release/llama-server.exe",
+        "llama.cpp/build/bin/llama-server.exe",
+        "llama.cpp/llama-server.exe",
+        "llama-server.exe",
+        "C:/llama.cpp/build/bin/Release/llama-server.exe",
+        "C:/llama.cpp/llama-server.exe",
+        "llama.cpp/build/bin/llama-server",
+        "llama-server"
+    };
+    
     public LlamaModelManager() {
         initializeModel();
     }
+
+    /**
+     * Use a server backend that was already created for the model, instead of looking for one; used in tests
+     */
+    LlamaModelManager(LlamaServerBackend serverBackend, String modelPath, int parallelSlots) {
+        this.serverBackend = serverBackend;
+        this.modelPath = modelPath;
+        this.parallelSlots = parallelSlots;
+        detectModelType(modelPath);
+        this.modelLoaded = true;
+    }
     
     private void initializeModel() {
         try {
@@ -50,6 +96,7 @@ public class LlamaModelManager {
                 detectModelType(modelPath);
                 modelLoaded = true;
                 logger.info("✅ GGUF model found and ready: {} (type: {})", modelPath, modelType);
+                startServerBackend();
             } else {
                 logger.warn("No GGUF model found. Checked locations:");
                 for (String path : MODEL_PATHS) {
@@ -63,6 +110,31 @@ public class LlamaModelManager {
         }
     }
     
+    /**
+     * Start loading the model into a llama-server process in the background, if the executable is present
+     */
+    private void startServerBackend() {
+        String serverExe = findExecutable(SERVER_EXECUTABLE_PATHS);
+        if (serverExe == null) {
+            logger.info("llama-server not found, each request will start llama-cli");
+            return;
+        }
+        try {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            int configuredSlots = ConfigManager.getInstance().getAiInferenceSlots();
+            parallelSlots = configuredSlots > 0 ? configuredSlots : DEFAULT_SERVER_SLOTS;
+            serverBackend = new LlamaServerBackend(serverExe, modelPath, maxTokens, threads, parallelSlots);
+            serverBackend.start();
+        } catch (Exception e) {
+            logger.warn("Could not start llama-server, falling back to llama-cli: {}", e.getMessage());
+            if (serverBackend != null) {
+                serverBackend.close();
+                serverBackend = null;
+            }
+            parallelSlots = 1;
+        }
+    }
+    
     private String findGGUFModel() {
         for (String pathStr : MODEL_PATHS) {
             Path path = Paths.get(pathStr);
@@ -98,15 +170,52 @@ public class LlamaModelManager {
      * Generate text using the GGUF model via llama.cpp CLI
      */
     public String generateText(String prompt, int maxNewTokens) throws Exception {
+        return generateText(prompt, maxNewTokens, null);
+    }
+    
+    /**
+     * Generate text, passing it to the listener as it is produced (token by token from llama-server,
+     * line by line from llama-cli). Stub responses are returned without being streamed.
+     */
+    public String generateText(String prompt, int maxNewTokens, TokenListener listener) throws Exception {
+        return generateText(prompt, maxNewTokens, listener, null);
+    }
+    
+    /**
+     * Generate text, reusing the model state of an earlier prompt with the same cache key.
+     * Prompts that start with the same text (such as a document) should share a key so only the rest is evaluated.
+     * @param cacheKey identifies the prompt's prefix, or null to not reuse it
+     */
+    public String generateText(String prompt, int maxNewTokens, TokenListener listener,
+                               String cacheKey) throws Exception {
         if (!modelLoaded || modelPath == null) {
             throw new IllegalStateException("GGUF model not loaded");
         }
         
         logger.debug("Generating text with GGUF model for prompt length: {}", prompt.length());
         
+        // Once text has reached the listener, a retry or stub would be appended to it, so failures are passed on
+        java.util.concurrent.atomic.AtomicBoolean streamed = new java.util.concurrent.atomic.AtomicBoolean();
+        TokenListener tokens = listener == null ? null : text -> {
+            streamed.set(true);
+            listener.onToken(text);
+        };
         try {
             // Use llama-server if available, otherwise use llama-cli
-            String response = generateViaLlamaCpp(prompt, maxNewTokens);
+            String response = null;
+            if (serverBackend != null) {
+                try {
+                    response = serverBackend.complete(prompt, maxNewTokens, tokens, cacheKey);
+                } catch (java.io.IOException e) {
+                    if (streamed.get()) {
+                        throw e;
+                    }
+                    logger.warn("llama-server request failed, falling back to llama-cli: {}", e.getMessage());
+                }
+            }
+            if (response == null) {
+                response = generateViaLlamaCpp(prompt, maxNewTokens, tokens, cacheKey);
+            }
             
             if (response != null && !response.trim().isEmpty()) {
                 logger.debug("Generated response length: {}", response.length());
@@ -118,6 +227,9 @@ public class LlamaModelManager {
             
         } catch (Exception e) {
             logger.error("Error during GGUF inference: {}", e.getMessage(), e);
+            if (streamed.get()) {
+                throw e;
+            }
             return generateStubResponse(prompt);
         }
     }
@@ -125,7 +237,8 @@ public class LlamaModelManager {
     /**
      * Generate text via llama.cpp CLI
      */
-    private String generateViaLlamaCpp(String prompt, int maxNewTokens) throws Exception {
+    private String generateViaLlamaCpp(String prompt, int maxNewTokens, TokenListener listener,
+                                       String cacheKey) throws Exception {
         // Look for llama.cpp executables
         String llamaExe = findLlamaCppExecutable();
         
@@ -171,6 +284,12 @@ public class LlamaModelManager {
         command.add("1.1");
         command.add("-ngl");
         command.add("0"); // CPU only, change to 33 for GPU
+        // Save the evaluated prompt and load it on the next run, so a shared prefix is not evaluated again
+        Path promptCache = cacheKey == null ? null : promptCacheFile(cacheKey);
+        if (promptCache != null) {
+            command.add("--prompt-cache");
+            command.add(promptCache.toString());
+        }
         
         logger.debug("Running command: {}", String.join(" ", command));
         
@@ -188,6 +307,7 @@ public class LlamaModelManager {
                     new InputStreamReader(process.getInputStream(), java.nio.charset.StandardCharsets.UTF_8))) {
                 String line;
                 boolean captureOutput = false;
+                int streamed = 0;
                 
                 while ((line = reader.readLine()) != null) {
                     // Skip llama.cpp startup messages
@@ -201,6 +321,9 @@ public class LlamaModelManager {
                     if (captureOutput || (!line.trim().isEmpty() && !line.startsWith(">"))) {
                         captureOutput = true;
                         output.append(line).append("\n");
+                        if (listener != null) {
+                            streamed = streamCliOutput(output, prompt, streamed, listener);
+                        }
                     }
                 }
             }
@@ -233,23 +356,66 @@ public class LlamaModelManager {
         return result;
     }
     
+    /**
+     * Get the llama-cli prompt cache file for a cache key and model, removing the oldest files beyond the limit.
+     * Each file holds the model state for a whole prompt, which can be hundreds of MB.
+     * @return the file, or null if the cache directory cannot be created
+     */
+    private Path promptCacheFile(String cacheKey) {
+        try {
+            Files.createDirectories(PROMPT_CACHE_DIR);
+            java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((modelPath + "\n" + cacheKey).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            Path file = PROMPT_CACHE_DIR.resolve(name + ".bin");
+            
+            List<Path> others = new ArrayList<>();
+            try (java.util.stream.Stream<Path> files = Files.list(PROMPT_CACHE_DIR)) {
+                files.filter(path -> path.toString().endsWith(".bin") && !path.equals(file)).forEach(others::add);
+            }
+            if (others.size() >= MAX_PROMPT_CACHE_FILES) {
+                others.sort(java.util.Comparator.comparingLong(path -> path.toFile().lastModified()));
+                for (Path old : others.subList(0, others.size() - MAX_PROMPT_CACHE_FILES + 1)) {
+                    Files.deleteIfExists(old);
+                }
+            }
+            return file;
+        } catch (Exception e) {
+            logger.warn("Prompt cache not available: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Pass new llama-cli output to the listener, holding it back while it may still be the echoed prompt
+     * @return length of the output streamed so far
+     */
+    private int streamCliOutput(StringBuilder output, String prompt, int streamed, TokenListener listener) {
+        String soFar = output.toString();
+        int start = streamed;
+        if (streamed == 0) {
+            if (soFar.length() <= prompt.length() + 1 && prompt.startsWith(soFar.strip())) {
+                return 0;
+            }
+            start = soFar.startsWith(prompt) ? prompt.length() : 0;
+        }
+        if (soFar.length() > start) {
+            listener.onToken(soFar.substring(start));
+        }
+        return soFar.length();
+    }
+    
     /**
      * Find llama.cpp executable
      */
     private String findLlamaCppExecutable() {
-        String[] searchPaths = {
-            "llama.cpp/build/bin/Release/llama-cli.exe",
-            "llama.cpp/build/bin/llama-cli.exe",
-            "llama.cpp/llama-cli.exe",
-            "llama-cli.exe",
-            "llama.exe",
-            "C:/llama.cpp/build/bin/Release/llama-cli.exe",
-            "C:/llama.cpp/llama-cli.exe",
-            "llama.cpp/build/bin/Release/main.exe",
-            "llama.cpp/build/bin/main.exe",
-            "C:/llama.cpp/build/bin/Release/main.exe"
-        };
-        
+        return findExecutable(CLI_EXECUTABLE_PATHS);
+    }
+    
+    private String findExecutable(String[] searchPaths) {
         for (String path : searchPaths) {
             File exe = new File(path);
             if (exe.exists() && exe.canExecute()) {
@@ -303,7 +469,38 @@ public class LlamaModelManager {
         return modelPath;
     }
     
+    /**
+     * Get the number of requests that can be generated at once: the server's slots, or one for llama-cli
+     * unless more are configured
+     */
+    public int getParallelSlots() {
+        if (serverBackend == null) {
+            return Math.max(1, ConfigManager.getInstance().getAiInferenceSlots());
+        }
+        return parallelSlots;
+    }
+    
+    /**
+     * Get the counter for the model's tokens: the server's tokenizer, or the length estimate with llama-cli
+     */
+    public TokenCounter getTokenCounter() {
+        if (serverBackend == null) {
+            return TokenCounter.estimate();
+        }
+        return new LlamaServerTokenCounter(serverBackend);
+    }
+
+    /**
+     * Check if a resident llama-server has the model loaded
+     */
+    public boolean isServerReady() {
+        return serverBackend != null && serverBackend.isReady();
+    }
+    
     public void close() {
+        if (serverBackend != null) {
+            serverBackend.close();
+        }
         logger.info("LlamaModelManager closed");
     }
 }
@@ -0,0 +1,553 @@
+package app.services.ai;
+
+import app.utils.PerformanceMonitor;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps one llama.cpp server process running with the GGUF model loaded and sends completions to it over localhost.
+ * Loading a multi-GB model takes seconds, so it is done once instead of on every request as with llama-cli;
+ * the server mmaps the model, so it stays in the page cache across restarts.
+ * A background check polls /health and restarts the server if the process dies or stops answering.
+ * Requests ask the server to keep each slot's evaluated prompt, and requests about the same document go to
+ * the same slot, so a prompt that extends an earlier one only costs its new tokens.
+ */
+public class LlamaServerBackend implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LlamaServerBackend.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
+
+    // Loading a large model from a cold disk can take a while
+    public static final long DEFAULT_STARTUP_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+    public static final long DEFAULT_HEALTH_INTERVAL_MS = TimeUnit.SECONDS.toMillis(5);
+    private static final long STARTUP_POLL_MS = 250;
+    private static final Duration COMPLETION_TIMEOUT = Duration.ofMinutes(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    // Consecutive failed health checks before a running server is restarted
+    private static final int MAX_HEALTH_FAILURES = 3;
+    // Consecutive starts that never became healthy before giving up
+    private static final int MAX_FAILED_STARTS = 3;
+
+    /**
+     * Starts a server listening on the given port; replaced in tests
+     */
+    @FunctionalInterface
+    interface ServerLauncher {
+        ServerProcess launch(int port) throws IOException;
+    }
+
+    /**
+     * A launched server
+     */
+    interface ServerProcess {
+        boolean isAlive();
+
+        void stop();
+    }
+
+    private enum State { STOPPED, STARTING, READY, FAILED }
+
+    private final ServerLauncher launcher;
+    private final long startupTimeoutMillis;
+    private final long healthIntervalMillis;
+    private final HttpClient httpClient;
+    private final Gson gson = new Gson();
+    private final ScheduledExecutorService monitor;
+    private final PromptSlots slots;
+
+    // All state below is guarded by this
+    private State state = State.STOPPED;
+    private ServerProcess process;
+    private int port;
+    private long launchedAt;
+    private long lastHealthCheck;
+    private int healthFailures;
+    private int failedStarts;
+    private int restarts;
+    private boolean closed;
+
+    /**
+     * @param contextSize context window per request, in tokens
+     * @param threads CPU threads used for generation
+     * @param parallelSlots requests the server decodes at once
+     */
+    public LlamaServerBackend(String serverExecutable, String modelPath, int contextSize, int threads,
+                              int parallelSlots) {
+        this(port -> launchProcess(serverExecutable, modelPath, contextSize, threads, parallelSlots, port),
+             parallelSlots, DEFAULT_STARTUP_TIMEOUT_MS, DEFAULT_HEALTH_INTERVAL_MS);
+    }
+
+    LlamaServerBackend(ServerLauncher launcher, int parallelSlots, long startupTimeoutMillis,
+                       long healthIntervalMillis) {
+        this.launcher = launcher;
+        this.slots = new PromptSlots(parallelSlots);
+        this.startupTimeoutMillis = startupTimeoutMillis;
+        this.healthIntervalMillis = healthIntervalMillis;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        this.monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "llama-server-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long pollMillis = Math.min(STARTUP_POLL_MS, healthIntervalMillis);
+        monitor.scheduleWithFixedDelay(this::checkHealth, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Launch the server in the background if it is not running. Does not wait for the model to load.
+     */
+    public synchronized void start() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("llama-server backend is closed");
+        }
+        if (state == State.STOPPED || state == State.FAILED) {
+            failedStarts = 0;
+            launch();
+        }
+    }
+
+    /**
+     * Generate a completion for the prompt, starting the server and waiting for the model to load if needed
+     */
+    public String complete(String prompt, int maxTokens) throws IOException, InterruptedException {
+        return complete(prompt, maxTokens, null);
+    }
+
+    /**
+     * Generate a completion, streaming tokens to the listener as the server produces them
+     * @param listener receives tokens as they arrive; null to wait for the whole completion
+     * @return the complete text
+     */
+    public String complete(String prompt, int maxTokens, TokenListener listener) throws IOException, InterruptedException {
+        return complete(prompt, maxTokens, listener, null);
+    }
+
+    /**
+     * Generate a completion on the slot that last evaluated a prompt with the same cache key
+     * @param cacheKey identifies the start of the prompt, such as the document it is about; null if not reused
+     */
+    public String complete(String prompt, int maxTokens, TokenListener listener, String cacheKey)
+            throws IOException, InterruptedException {
+        URI baseUri = awaitReady();
+        int slot = slots.acquire(cacheKey);
+        try {
+            return complete(baseUri, prompt, maxTokens, listener, slot);
+        } finally {
+            slots.release(slot);
+        }
+    }
+
+    private String complete(URI baseUri, String prompt, int maxTokens, TokenListener listener, int slot)
+            throws IOException, InterruptedException {
+        long startTime = System.currentTimeMillis();
+
+        JsonObject request = new JsonObject();
+        request.addProperty("prompt", prompt);
+        request.addProperty("n_predict", maxTokens);
+        request.addProperty("temperature", 0.7);
+        request.addProperty("top_k", 40);
+        request.addProperty("top_p", 0.9);
+        request.addProperty("repeat_penalty", 1.1);
+        request.addProperty("stream", listener != null);
+        // Keep the evaluated prompt in the slot; only the part after the common prefix is evaluated next time
+        request.addProperty("cache_prompt", true);
+        request.addProperty("id_slot", slot);
+
+        HttpRequest httpRequest = HttpRequest.newBuilder()
+                .uri(baseUri.resolve("/completion"))
+                .header("Content-Type", "application/json")
+                .timeout(COMPLETION_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(request), StandardCharsets.UTF_8))
+                .build();
+
+        String content;
+        int tokens;
+        long firstTokenMillis = -1;
+        JsonObject timings = null;
+        if (listener == null) {
+            HttpResponse<String> response = httpClient.send(httpRequest,
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() != 200) {
+                throw new IOException("llama-server returned " + response.statusCode() + ": " + response.body());
+            }
+            JsonObject body = gson.fromJson(response.body(), JsonObject.class);
+            content = body.has("content") ? body.get("content").getAsString() : "";
+            tokens = body.has("tokens_predicted") ? body.get("tokens_predicted").getAsInt() : -1;
+            timings = body.has("timings") ? body.getAsJsonObject("timings") : null;
+        } else {
+            HttpResponse<Stream<String>> response = httpClient.send(httpRequest,
+                HttpResponse.BodyHandlers.ofLines());
+            if (response.statusCode() != 200) {
+                String error;
+                try (Stream<String> lines = response.body()) {
+                    error = lines.collect(Collectors.joining("\n"));
+                }
+                throw new IOException("llama-server returned " + response.statusCode() + ": " + error);
+            }
+
+            // Server-sent events: one "data: {json}" line per token, the last one with "stop": true
+            StringBuilder text = new StringBuilder();
+            tokens = 0;
+            boolean stopped = false;
+            try (Stream<String> lines = response.body()) {
+                Iterator<String> iterator = lines.iterator();
+                while (iterator.hasNext()) {
+                    String line = iterator.next();
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    JsonObject event = gson.fromJson(line.substring(5).trim(), JsonObject.class);
+                    String token = event.has("content") ? event.get("content").getAsString() : "";
+                    if (!token.isEmpty()) {
+                        if (firstTokenMillis < 0) {
+                            firstTokenMillis = System.currentTimeMillis() - startTime;
+                            PerformanceMonitor.getInstance().record("llm.server.ttft", firstTokenMillis);
+                        }
+                        text.append(token);
+                        tokens++;
+                        listener.onToken(token);
+                    }
+                    if (event.has("stop") && event.get("stop").getAsBoolean()) {
+                        timings = event.has("timings") ? event.getAsJsonObject("timings") : null;
+                        stopped = true;
+                        break;
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (!stopped) {
+                throw new IOException("llama-server closed the stream after " + tokens + " tokens");
+            }
+            content = text.toString();
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        PerformanceMonitor.getInstance().record("llm.server.completion", duration);
+        // prompt_n counts only the prompt tokens evaluated, not those reused from the slot's cache
+        int promptTokens = -1;
+        if (timings != null && timings.has("prompt_n")) {
+            promptTokens = timings.get("prompt_n").getAsInt();
+            if (timings.has("prompt_ms")) {
+                PerformanceMonitor.getInstance().record("llm.server.prompt",
+                                                      Math.round(timings.get("prompt_ms").getAsDouble()));
+            }
+        }
+        perfLogger.info("LLM Completion: {} prompt chars, {} prompt tokens evaluated on slot {}, {} tokens - " +
+                       "first token {}ms - {}ms", prompt.length(), promptTokens, slot, tokens, firstTokenMillis,
+                       duration);
+        return content;
+    }
+
+    /**
+     * Tokenize text with the loaded model's tokenizer
+     * @param addSpecial whether to add the tokens the model puts before a prompt, such as BOS
+     */
+    public long[] tokenize(String text, boolean addSpecial) throws IOException, InterruptedException {
+        JsonObject request = new JsonObject();
+        request.addProperty("content", text);
+        request.addProperty("add_special", addSpecial);
+        JsonArray tokens = post("/tokenize", request).getAsJsonArray("tokens");
+        long[] ids = new long[tokens == null ? 0 : tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tokens.get(i).getAsLong();
+        }
+        return ids;
+    }
+
+    /**
+     * Turn token ids back into text
+     */
+    public String detokenize(long[] tokens) throws IOException, InterruptedException {
+        JsonObject request = new JsonObject();
+        JsonArray ids = new JsonArray(tokens.length);
+        for (long token : tokens) {
+            ids.add(token);
+        }
+        request.add("tokens", ids);
+        JsonObject body = post("/detokenize", request);
+        return body.has("content") ? body.get("content").getAsString() : "";
+    }
+
+    private JsonObject post(String path, JsonObject request) throws IOException, InterruptedException {
+        URI baseUri = awaitReady();
+        HttpRequest httpRequest = HttpRequest.newBuilder()
+                .uri(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(request), StandardCharsets.UTF_8))
+                .build();
+        HttpResponse<String> response = httpClient.send(httpRequest,
+            HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() != 200) {
+            throw new IOException("llama-server returned " + response.statusCode() + ": " + response.body());
+        }
+        return gson.fromJson(response.body(), JsonObject.class);
+    }
+
+    /**
+     * Wait until the server answers health checks
+     * @return base URI of the server
+     */
+    private synchronized URI awaitReady() throws IOException, InterruptedException {
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("llama-server backend is closed");
+            }
+            switch (state) {
+                case READY:
+                    return URI.create("http://127.0.0.1:" + port);
+                case FAILED:
+                    throw new IOException("llama-server failed to start " + MAX_FAILED_STARTS + " times");
+                case STOPPED:
+                    launch();
+                    break;
+                default:
+                    wait(STARTUP_POLL_MS);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Poll /health: promote a starting server once it answers, restart one that died or stopped answering
+     */
+    void checkHealth() {
+        ServerProcess current;
+        int currentPort;
+        synchronized (this) {
+            if (closed || process == null || (state != State.STARTING && state != State.READY)) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (state == State.READY && now - lastHealthCheck < healthIntervalMillis) {
+                return;
+            }
+            lastHealthCheck = now;
+            current = process;
+            currentPort = port;
+        }
+
+        boolean alive = current.isAlive();
+        boolean healthy = alive && isHealthy(currentPort);
+
+        boolean restart = false;
+        boolean failedStart = false;
+        synchronized (this) {
+            if (closed || process != current) {
+                return;
+            }
+            if (!alive) {
+                logger.warn("llama-server process exited unexpectedly");
+                restart = true;
+                failedStart = state == State.STARTING;
+            } else if (state == State.STARTING) {
+                long elapsed = System.currentTimeMillis() - launchedAt;
+                if (healthy) {
+                    state = State.READY;
+                    healthFailures = 0;
+                    failedStarts = 0;
+                    PerformanceMonitor.getInstance().record("llm.server.start", elapsed);
+                    logger.info("llama-server ready on port {} in {}ms", port, elapsed);
+                    notifyAll();
+                } else if (elapsed > startupTimeoutMillis) {
+                    logger.warn("llama-server did not become ready within {}ms", startupTimeoutMillis);
+                    restart = true;
+                    failedStart = true;
+                }
+            } else if (healthy) {
+                healthFailures = 0;
+            } else if (++healthFailures >= MAX_HEALTH_FAILURES) {
+                logger.warn("llama-server failed {} health checks in a row", healthFailures);
+                restart = true;
+            }
+            if (restart) {
+                // Requests keep waiting, without a process to send to, until the new one is ready
+                process = null;
+                state = State.STARTING;
+            }
+        }
+
+        if (restart) {
+            // Stopping can take seconds, so it is done without holding the lock
+            current.stop();
+            relaunch(failedStart);
+        }
+    }
+
+    private boolean isHealthy(int serverPort) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://127.0.0.1:" + serverPort + "/health"))
+                    .timeout(Duration.ofSeconds(2))
+                    .GET()
+                    .build();
+            // The server answers 503 while the model is still loading
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Launch a new process after the old one was stopped, unless starting keeps failing
+     */
+    private synchronized void relaunch(boolean failedStart) {
+        if (closed || state != State.STARTING || process != null) {
+            return;
+        }
+        restarts++;
+        if (failedStart && ++failedStarts >= MAX_FAILED_STARTS) {
+            logger.error("Giving up on llama-server after {} failed starts", failedStarts);
+            state = State.FAILED;
+            notifyAll();
+            return;
+        }
+        logger.info("Restarting llama-server (restart {})", restarts);
+        try {
+            launch();
+        } catch (IOException e) {
+            logger.error("Could not restart llama-server: {}", e.getMessage());
+            state = State.FAILED;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Caller holds the lock
+     */
+    private void launch() throws IOException {
+        port = findFreePort();
+        process = launcher.launch(port);
+        state = State.STARTING;
+        launchedAt = System.currentTimeMillis();
+        healthFailures = 0;
+        logger.info("Launched llama-server on port {}", port);
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    public synchronized boolean isReady() {
+        return state == State.READY;
+    }
+
+    /**
+     * Get the number of times the server was restarted after a crash, hang or failed start
+     */
+    public synchronized int getRestartCount() {
+        return restarts;
+    }
+
+    /**
+     * Stop the server process
+     */
+    @Override
+    public void close() {
+        monitor.shutdownNow();
+        ServerProcess current;
+        synchronized (this) {
+            closed = true;
+            state = State.STOPPED;
+            current = process;
+            process = null;
+            notifyAll();
+        }
+        if (current != null) {
+            current.stop();
+            logger.info("llama-server stopped");
+        }
+    }
+
+    private static ServerProcess launchProcess(String executable, String modelPath, int contextSize, int threads,
+                                               int parallelSlots, int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(executable);
+        command.add("-m");
+        command.add(modelPath);
+        command.add("--host");
+        command.add("127.0.0.1");
+        command.add("--port");
+        command.add(String.valueOf(port));
+        // The server splits its context between the slots
+        command.add("-c");
+        command.add(String.valueOf(contextSize * parallelSlots));
+        command.add("-np");
+        command.add(String.valueOf(parallelSlots));
+        command.add("-t");
+        command.add(String.valueOf(threads));
+        command.add("-ngl");
+        command.add("0"); // CPU only, change to 33 for GPU
+        logger.debug("Running command: {}", String.join(" ", command));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+
+        // Drain the server log so the process never blocks on a full pipe
+        Thread drainer = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.trace("llama-server: {}", line);
+                }
+            } catch (IOException e) {
+                // Process ended
+            }
+        }, "llama-server-output");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        return new ServerProcess() {
+            @Override
+            public boolean isAlive() {
+                return process.isAlive();
+            }
+
+            @Override
+            public void stop() {
+                process.destroy();
+                try {
+                    if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package app.services.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts tokens with the GGUF model's own tokenizer through llama-server's /tokenize endpoint.
+ * Falls back to the length estimate if the server cannot be reached. Counts of recent texts are kept, so a chunk
+ * measured while chunking, again for the chat context and again while packing costs one request.
+ */
+class LlamaServerTokenCounter implements TokenCounter {
+    private static final Logger logger = LoggerFactory.getLogger(LlamaServerTokenCounter.class);
+
+    // Chunks of a few documents, whose counts are asked for at every step of building a prompt
+    private static final int CACHED_COUNTS = 256;
+
+    private final LlamaServerBackend backend;
+    // Least recently used first
+    private final Map<String, Integer> counts = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > CACHED_COUNTS;
+            }
+        });
+
+    LlamaServerTokenCounter(LlamaServerBackend backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public int count(String text) {
+        Integer cached = counts.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            int tokens = backend.tokenize(text, true).length;
+            counts.put(text, tokens);
+            return tokens;
+        } catch (IOException e) {
+            logger.warn("Tokenizing with llama-server failed, estimating instead: {}", e.getMessage());
+            return TokenCounter.estimate().count(text);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TokenCounter.estimate().count(text);
+        }
+    }
+
+    @Override
+    public String truncate(String text, int maxTokens) {
+        // No need to send more text than the longest tokens could cover
+        long longest = (long) Math.max(0, maxTokens) * MAX_CHARS_PER_TOKEN;
+        String candidate = text.length() <= longest ? text : text.substring(0, (int) longest);
+        try {
+            long[] tokens = backend.tokenize(candidate, false);
+            if (tokens.length <= maxTokens) {
+                return candidate;
+            }
+            return backend.detokenize(Arrays.copyOf(tokens, Math.max(0, maxTokens)));
+        } catch (IOException e) {
+            logger.warn("Tokenizing with llama-server failed, estimating instead: {}", e.getMessage());
+            return TokenCounter.estimate().truncate(text, maxTokens);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TokenCounter.estimate().truncate(text, maxTokens);
+        }
+    }
+}
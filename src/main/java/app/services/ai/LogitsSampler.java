@@ -0,0 +1,173 @@
+package app.services.ai;
+
+import java.nio.FloatBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * Picks the next token from a row of logits: greedily, or by sampling with temperature, top-k and top-p.
+ * The logits are read from the output's buffer where they are, and candidates are kept in primitive arrays
+ * allocated on the first token, so picking each later token allocates nothing. Not thread-safe; use one
+ * sampler per generation.
+ */
+public class LogitsSampler {
+    private final float temperature;
+    private final int topK;
+    private final float topP;
+    private final SplittableRandom random;
+
+    // Candidate token ids and their logits, kept as a heap on the logits
+    private int[] ids = new int[0];
+    private float[] values = new float[0];
+    private double[] weights = new double[0];
+
+    /**
+     * @param temperature divides the logits before softmax; 0 or less picks the most likely token
+     * @param topK candidates kept, or 0 for the whole vocabulary
+     * @param topP smallest share of the probability the candidates must cover, 1 for all of them
+     */
+    public LogitsSampler(float temperature, int topK, float topP, long seed) {
+        this.temperature = temperature;
+        this.topK = Math.max(0, topK);
+        this.topP = topP;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Always pick the most likely token
+     */
+    public static LogitsSampler greedy() {
+        return new LogitsSampler(0f, 1, 1f, 0L);
+    }
+
+    public boolean isGreedy() {
+        return temperature <= 0f || topK == 1;
+    }
+
+    /**
+     * Pick a token from the logits at offset .. offset + vocabulary of the buffer
+     */
+    public int sample(FloatBuffer logits, int offset, int vocabulary) {
+        if (isGreedy()) {
+            return argmax(logits, offset, vocabulary);
+        }
+        int count = selectTopK(logits, offset, vocabulary);
+
+        // Softmax weights relative to the most likely candidate
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, values[i]);
+        }
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += Math.exp((values[i] - max) / temperature);
+        }
+
+        // Take candidates most likely first from a max-heap, moving each to the end, until top-p is covered;
+        // with a peaked distribution only a few of a whole vocabulary are taken
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i, count, true);
+        }
+        double covered = 0;
+        int end = count;
+        while (end > 0 && (end == count || covered < topP * total)) {
+            end--;
+            swap(0, end);
+            siftDown(0, end, true);
+            weights[end] = Math.exp((values[end] - max) / temperature);
+            covered += weights[end];
+        }
+
+        double target = random.nextDouble() * covered;
+        for (int i = count - 1; i > end; i--) {
+            target -= weights[i];
+            if (target < 0) {
+                return ids[i];
+            }
+        }
+        return ids[end];
+    }
+
+    /**
+     * Find the most likely token
+     */
+    static int argmax(FloatBuffer logits, int offset, int vocabulary) {
+        int best = 0;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < vocabulary; i++) {
+            float value = logits.get(offset + i);
+            if (value > bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Keep the k largest logits in a min-heap, so each of the rest is compared with the smallest kept
+     * @return the number of candidates
+     */
+    private int selectTopK(FloatBuffer logits, int offset, int vocabulary) {
+        int count = topK == 0 ? vocabulary : Math.min(topK, vocabulary);
+        if (ids.length < count) {
+            ids = new int[count];
+            values = new float[count];
+            weights = new double[count];
+        }
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+            values[i] = logits.get(offset + i);
+        }
+        if (count == vocabulary) {
+            return count;
+        }
+        for (int i = count / 2 - 1; i >= 0; i--) {
+            siftDown(i, count, false);
+        }
+        for (int i = count; i < vocabulary; i++) {
+            float value = logits.get(offset + i);
+            if (value > values[0]) {
+                ids[0] = i;
+                values[0] = value;
+                siftDown(0, count, false);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Restore the heap below an entry
+     * @param largestFirst true for a max-heap, false for a min-heap
+     */
+    private void siftDown(int index, int size, boolean largestFirst) {
+        while (true) {
+            int top = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && before(left, top, largestFirst)) {
+                top = left;
+            }
+            if (right < size && before(right, top, largestFirst)) {
+                top = right;
+            }
+            if (top == index) {
+                return;
+            }
+            swap(index, top);
+            index = top;
+        }
+    }
+
+    private boolean before(int a, int b, boolean largestFirst) {
+        return largestFirst ? values[a] > values[b] : values[a] < values[b];
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+}
@@ -0,0 +1,277 @@
+package app.services.ai;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import app.utils.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Token-by-token generation with a decoder-only ONNX model, such as a LLaMA or Phi-3 export with past_key_values.
+ * The prompt is fed through the key/value cache {@link #PREFILL_CHUNK} tokens at a time, and each later step feeds
+ * only the new token together with the cache the previous step returned, which goes straight back into the model
+ * without being copied. Token ids, positions and the attention mask live in direct buffers allocated once per
+ * generation, so a step only wraps slices of them.
+ * <p>
+ * ONNX Runtime copies the whole logits output to the Java heap when it is read, so logits are only read after the
+ * last prompt chunk and after each generated token, and the copy is at most a chunk of rows rather than one row
+ * per prompt token. The next token is picked from the last row by a {@link LogitsSampler}.
+ * Models exported without a cache are run on the whole sequence at every step, and their logits copy grows with it.
+ */
+public class OnnxDecoder {
+    private static final Logger logger = LoggerFactory.getLogger(OnnxDecoder.class);
+
+    private static final String LOGITS = "logits";
+    private static final String PAST_PREFIX = "past_key_values.";
+    private static final String PRESENT_PREFIX = "present.";
+    // Prompt tokens per run; bounds the logits copy to 32 rows, 4 MB for a 32k vocabulary
+    static final int PREFILL_CHUNK = 32;
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final Set<String> inputNames;
+    private final boolean generative;
+    // Cache inputs in model order, with the output that holds their next value and their shape
+    private final List<String> pastNames = new ArrayList<>();
+    private final Map<String, String> presentNames = new HashMap<>();
+    private final Map<String, long[]> pastShapes = new HashMap<>();
+    private final boolean usesCache;
+    private OnnxJavaType pastType = OnnxJavaType.FLOAT;
+
+    public OnnxDecoder(OrtEnvironment environment, OrtSession session) throws OrtException {
+        this.environment = environment;
+        this.session = session;
+        this.inputNames = session.getInputNames();
+        Set<String> outputNames = session.getOutputNames();
+        this.generative = hasNextTokenLogits(session);
+
+        boolean cacheComplete = true;
+        for (Map.Entry<String, NodeInfo> input : session.getInputInfo().entrySet()) {
+            String name = input.getKey();
+            if (!name.startsWith(PAST_PREFIX)) {
+                continue;
+            }
+            TensorInfo info = (TensorInfo) input.getValue().getInfo();
+            long[] shape = info.getShape();
+            String present = PRESENT_PREFIX + name.substring(PAST_PREFIX.length());
+            // Empty caches for the prompt step need the head count and size; only the lengths may be dynamic
+            if (!outputNames.contains(present) || shape.length != 4 || shape[1] < 0 || shape[3] < 0) {
+                cacheComplete = false;
+                break;
+            }
+            pastNames.add(name);
+            presentNames.put(name, present);
+            pastShapes.put(name, new long[]{1, shape[1], 0, shape[3]});
+            pastType = info.type;
+        }
+        this.usesCache = cacheComplete && !pastNames.isEmpty()
+            && (pastType == OnnxJavaType.FLOAT || pastType == OnnxJavaType.FLOAT16);
+        if (!usesCache && !pastNames.isEmpty()) {
+            logger.warn("Model key/value cache is not supported, each step will evaluate the whole sequence");
+        }
+    }
+
+    /**
+     * A decoder returns logits of shape [batch, tokens, vocabulary]. Encoders such as BERT return hidden states
+     * instead, and take token types, which decoder-only exports do not.
+     */
+    private static boolean hasNextTokenLogits(OrtSession session) throws OrtException {
+        NodeInfo logits = session.getOutputInfo().get(LOGITS);
+        if (logits == null || !(logits.getInfo() instanceof TensorInfo)
+                || session.getInputNames().contains("token_type_ids")) {
+            return false;
+        }
+        long[] shape = ((TensorInfo) logits.getInfo()).getShape();
+        return shape.length == 3 && shape[2] > 1;
+    }
+
+    /**
+     * @return true if the model is a decoder with next-token logits, so generating produces text
+     */
+    public boolean isGenerative() {
+        return generative;
+    }
+
+    /**
+     * @return true if the model returns a key/value cache that is fed back, so steps after the first cost one token
+     */
+    public boolean usesCache() {
+        return usesCache;
+    }
+
+    /**
+     * Generate tokens greedily until a stop token or the token limit
+     * @param promptIds the tokenized prompt
+     * @param stopTokens ids that end generation; not included in the result
+     * @param listener receives each token id as it is generated, or null
+     * @return the generated token ids
+     */
+    public long[] generate(long[] promptIds, int maxNewTokens, Set<Long> stopTokens,
+                           LongConsumer listener) throws OrtException {
+        return generate(promptIds, maxNewTokens, stopTokens, LogitsSampler.greedy(), listener);
+    }
+
+    /**
+     * Generate tokens until a stop token or the token limit, picking each with the sampler
+     */
+    public long[] generate(long[] promptIds, int maxNewTokens, Set<Long> stopTokens, LogitsSampler sampler,
+                           LongConsumer listener) throws OrtException {
+        if (!generative) {
+            throw new IllegalStateException("Model has no next-token logits output");
+        }
+        if (promptIds.length == 0) {
+            throw new IllegalArgumentException("Prompt has no tokens");
+        }
+        int maxLength = promptIds.length + maxNewTokens;
+
+        // The whole sequence, positions 0..n and an all-ones mask; each step uses a slice
+        LongBuffer ids = directLongs(maxLength);
+        LongBuffer positions = directLongs(maxLength);
+        LongBuffer mask = directLongs(maxLength);
+        for (int i = 0; i < maxLength; i++) {
+            positions.put(i, i);
+            mask.put(i, 1);
+        }
+        ids.put(promptIds);
+
+        // Checked for every token, so kept unboxed
+        long[] stops = stopTokens.stream().mapToLong(Long::longValue).toArray();
+        long[] generated = new long[maxNewTokens];
+        int count = 0;
+        int length = promptIds.length;
+        // Tokens already in the cache
+        int cached = 0;
+        List<OnnxTensor> stepTensors = new ArrayList<>();
+        List<OnnxTensor> emptyPast = new ArrayList<>();
+        OrtSession.Result previous = null;
+        try {
+            while (count < maxNewTokens) {
+                // With a cache only the tokens the model has not seen are fed, the prompt a chunk at a time
+                int start = usesCache ? cached : 0;
+                int end = usesCache ? Math.min(length, cached + PREFILL_CHUNK) : length;
+                Map<String, OnnxTensor> inputs = new HashMap<>();
+                inputs.put("input_ids", slice(ids, start, end, stepTensors));
+                if (inputNames.contains("attention_mask")) {
+                    inputs.put("attention_mask", slice(mask, 0, end, stepTensors));
+                }
+                if (inputNames.contains("position_ids")) {
+                    inputs.put("position_ids", slice(positions, start, end, stepTensors));
+                }
+                if (inputNames.contains("use_cache_branch")) {
+                    OnnxTensor branch = OnnxTensor.createTensor(environment, new boolean[]{previous != null});
+                    stepTensors.add(branch);
+                    inputs.put("use_cache_branch", branch);
+                }
+                if (usesCache) {
+                    for (String pastName : pastNames) {
+                        OnnxTensor past;
+                        if (previous == null) {
+                            past = emptyCache(pastShapes.get(pastName));
+                            emptyPast.add(past);
+                        } else {
+                            past = (OnnxTensor) previous.get(presentNames.get(pastName)).orElseThrow();
+                        }
+                        inputs.put(pastName, past);
+                    }
+                }
+
+                long startNanos = System.nanoTime();
+                OrtSession.Result result = session.run(inputs);
+                PerformanceMonitor.getInstance().recordSince(
+                    start < promptIds.length ? "onnx.run.prompt" : "onnx.run.step", startNanos);
+                // The previous step's cache has been consumed
+                closeAll(stepTensors);
+                if (previous != null) {
+                    previous.close();
+                }
+                previous = result;
+                cached = end;
+                if (end < length) {
+                    // More of the prompt to feed; these logits are never read, so never copied
+                    continue;
+                }
+
+                long token = sampleLastRow((OnnxTensor) result.get(LOGITS).orElseThrow(), sampler);
+                if (contains(stops, token)) {
+                    break;
+                }
+                generated[count++] = token;
+                ids.put(length++, token);
+                if (listener != null) {
+                    listener.accept(token);
+                }
+            }
+        } finally {
+            closeAll(stepTensors);
+            closeAll(emptyPast);
+            if (previous != null) {
+                previous.close();
+            }
+        }
+        return Arrays.copyOf(generated, count);
+    }
+
+    /**
+     * Pick the next token from the logits of the last position. getFloatBuffer copies the whole output to the heap,
+     * which is why the prompt is fed in chunks.
+     */
+    private static long sampleLastRow(OnnxTensor logits, LogitsSampler sampler) {
+        long[] shape = logits.getInfo().getShape();
+        int vocabulary = (int) shape[shape.length - 1];
+        FloatBuffer values = logits.getFloatBuffer();
+        return sampler.sample(values, values.limit() - vocabulary, vocabulary);
+    }
+
+    private static boolean contains(long[] tokens, long token) {
+        for (long candidate : tokens) {
+            if (candidate == token) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wrap part of a direct buffer as a [1, end - start] tensor without copying it
+     */
+    private OnnxTensor slice(LongBuffer buffer, int start, int end, List<OnnxTensor> created) throws OrtException {
+        LongBuffer view = buffer.duplicate();
+        view.limit(end).position(start);
+        OnnxTensor tensor = OnnxTensor.createTensor(environment, view, new long[]{1, end - start});
+        created.add(tensor);
+        return tensor;
+    }
+
+    private OnnxTensor emptyCache(long[] shape) throws OrtException {
+        return OnnxTensor.createTensor(environment, ByteBuffer.allocateDirect(0).order(ByteOrder.nativeOrder()),
+                                       shape, pastType);
+    }
+
+    private static LongBuffer directLongs(int count) {
+        return ByteBuffer.allocateDirect(count * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    private static void closeAll(List<OnnxTensor> tensors) {
+        for (OnnxTensor tensor : tensors) {
+            tensor.close();
+        }
+        tensors.clear();
+    }
+}
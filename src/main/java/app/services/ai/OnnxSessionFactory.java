@@ -0,0 +1,257 @@
+package app.services.ai;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import app.utils.ConfigManager;
+import app.utils.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Creates ONNX Runtime sessions with the configured threads, execution mode and graph optimization level.
+ * The graph optimized on first load is saved to a cache file, and later launches load that file with
+ * optimization turned off, skipping the work. The cache is keyed by the model file, its size and date,
+ * the optimization level, the runtime version and the CPU architecture.
+ */
+public class OnnxSessionFactory {
+    private static final Logger logger = LoggerFactory.getLogger(OnnxSessionFactory.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
+
+    public static final Path DEFAULT_CACHE_DIR = Paths.get(System.getProperty("user.home"), ".pdfstudio", "onnx-cache");
+    // Models larger than protobuf's 2 GB limit keep their weights in a separate file
+    private static final long EXTERNAL_DATA_THRESHOLD = 1L << 30;
+
+    private final int intraOpThreads;
+    private final int interOpThreads;
+    private final OrtSession.SessionOptions.ExecutionMode executionMode;
+    private final OrtSession.SessionOptions.OptLevel optimizationLevel;
+    private final Path cacheDir;
+
+    /**
+     * @param intraOpThreads threads inside one operator, 0 for the default
+     * @param interOpThreads threads running independent operators in parallel mode, 0 for the default
+     * @param cacheDir directory for optimized models, or null to optimize on every load
+     */
+    public OnnxSessionFactory(int intraOpThreads, int interOpThreads,
+                              OrtSession.SessionOptions.ExecutionMode executionMode,
+                              OrtSession.SessionOptions.OptLevel optimizationLevel, Path cacheDir) {
+        this.executionMode = executionMode;
+        this.optimizationLevel = optimizationLevel;
+        this.intraOpThreads = intraOpThreads > 0 ? intraOpThreads : defaultIntraOpThreads();
+        this.interOpThreads = interOpThreads > 0 ? interOpThreads : defaultInterOpThreads(executionMode,
+                                                                                           this.intraOpThreads);
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Create a factory with the settings in the configuration
+     */
+    public static OnnxSessionFactory fromSettings() {
+        ConfigManager config = ConfigManager.getInstance();
+        return new OnnxSessionFactory(
+            config.getOnnxIntraOpThreads(),
+            config.getOnnxInterOpThreads(),
+            parseExecutionMode(config.getOnnxExecutionMode()),
+            parseOptimizationLevel(config.getOnnxOptimizationLevel()),
+            config.isOnnxCacheOptimizedModel() ? DEFAULT_CACHE_DIR : null
+        );
+    }
+
+    /**
+     * One thread per physical core, assuming two hardware threads per core on machines with more than four,
+     * which leaves the other hardware threads to the UI and OCR
+     */
+    static int defaultIntraOpThreads() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return processors > 4 ? processors / 2 : processors;
+    }
+
+    /**
+     * Sequential mode runs one operator at a time. Transformer graphs have little to run side by side,
+     * so parallel mode gets a few threads, sharing the cores with the intra-op threads.
+     */
+    static int defaultInterOpThreads(OrtSession.SessionOptions.ExecutionMode mode, int intraOpThreads) {
+        if (mode != OrtSession.SessionOptions.ExecutionMode.PARALLEL) {
+            return 1;
+        }
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / intraOpThreads));
+    }
+
+    static OrtSession.SessionOptions.ExecutionMode parseExecutionMode(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("parallel")) {
+            return OrtSession.SessionOptions.ExecutionMode.PARALLEL;
+        }
+        return OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL;
+    }
+
+    /**
+     * @param value none, basic, extended or all; anything else gives all
+     */
+    static OrtSession.SessionOptions.OptLevel parseOptimizationLevel(String value) {
+        String level = value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+        switch (level) {
+            case "none":
+                return OrtSession.SessionOptions.OptLevel.NO_OPT;
+            case "basic":
+                return OrtSession.SessionOptions.OptLevel.BASIC_OPT;
+            case "extended":
+                return OrtSession.SessionOptions.OptLevel.EXTENDED_OPT;
+            default:
+                return OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        }
+    }
+
+    /**
+     * Create a session for a model, from the cached optimized graph if there is one
+     * @param name short name for logs and the onnx.session.&lt;name&gt; metric
+     */
+    public OrtSession create(OrtEnvironment environment, Path modelPath, String name) throws OrtException {
+        long startTime = System.currentTimeMillis();
+        Path cached = cacheDir == null || optimizationLevel == OrtSession.SessionOptions.OptLevel.NO_OPT
+            ? null : cacheFile(environment, modelPath);
+
+        OrtSession session = null;
+        boolean fromCache = false;
+        if (cached != null && Files.exists(cached)) {
+            try (OrtSession.SessionOptions options = createOptions(OrtSession.SessionOptions.OptLevel.NO_OPT)) {
+                session = environment.createSession(cached.toString(), options);
+                fromCache = true;
+            } catch (OrtException e) {
+                logger.warn("Discarding unreadable optimized model {}: {}", cached, e.getMessage());
+                deleteCached(cached);
+            }
+        }
+        if (session == null) {
+            try (OrtSession.SessionOptions options = createOptions(optimizationLevel)) {
+                if (cached != null && prepareCache(modelPath)) {
+                    options.setOptimizedModelFilePath(cached.toString());
+                    if (modelBytes(modelPath) > EXTERNAL_DATA_THRESHOLD) {
+                        options.addConfigEntry("session.optimized_model_external_initializers_file_name",
+                                               cached.getFileName() + ".data");
+                        options.addConfigEntry("session.optimized_model_external_initializers_min_size_in_bytes",
+                                               "1024");
+                    }
+                }
+                session = environment.createSession(modelPath.toString(), options);
+            } catch (OrtException e) {
+                if (cached != null) {
+                    deleteCached(cached);
+                }
+                throw e;
+            }
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        PerformanceMonitor.getInstance().record("onnx.session." + name, duration);
+        logger.info("Created {} session {} in {}ms ({} intra-op threads, {} inter-op, {}, {})", name,
+                   fromCache ? "from optimized cache" : "from " + modelPath.getFileName(), duration,
+                   intraOpThreads, interOpThreads, executionMode, optimizationLevel);
+        perfLogger.info("ONNX Session: {} {} - {}ms", name, fromCache ? "cached" : "optimized", duration);
+        return session;
+    }
+
+    private OrtSession.SessionOptions createOptions(OrtSession.SessionOptions.OptLevel level) throws OrtException {
+        OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+        options.setIntraOpNumThreads(intraOpThreads);
+        options.setInterOpNumThreads(interOpThreads);
+        options.setExecutionMode(executionMode);
+        options.setOptimizationLevel(level);
+        options.setMemoryPatternOptimization(true);
+        return options;
+    }
+
+    /**
+     * Get the cache file for a model's optimized graph with these settings
+     */
+    Path cacheFile(OrtEnvironment environment, Path modelPath) {
+        try {
+            Path model = modelPath.toAbsolutePath();
+            String key = model + "|" + Files.size(model) + "|" + Files.getLastModifiedTime(model).toMillis() + "|"
+                + optimizationLevel + "|" + environment.getVersion() + "|" + System.getProperty("os.arch");
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(cachePrefix(model));
+            for (int i = 0; i < 8; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            return cacheDir.resolve(name + ".onnx");
+        } catch (Exception e) {
+            logger.warn("Optimized model cache not available for {}: {}", modelPath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Name shared by all cache files of one model, so older versions can be removed
+     */
+    private static String cachePrefix(Path model) {
+        Path parent = model.getParent();
+        String dir = parent == null || parent.getFileName() == null ? "" : parent.getFileName() + "-";
+        return (dir + model.getFileName()).replaceAll("[^A-Za-z0-9._-]", "_") + "-";
+    }
+
+    /**
+     * Create the cache directory and remove files left from older versions of the model
+     * @return false if the cache cannot be written
+     */
+    private boolean prepareCache(Path modelPath) {
+        String prefix = cachePrefix(modelPath.toAbsolutePath());
+        try {
+            Files.createDirectories(cacheDir);
+            try (Stream<Path> files = Files.list(cacheDir)) {
+                files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                     .forEach(OnnxSessionFactory::deleteQuietly);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Cannot write optimized model cache {}: {}", cacheDir, e.getMessage());
+            return false;
+        }
+    }
+
+    private static void deleteCached(Path cached) {
+        deleteQuietly(cached);
+        deleteQuietly(cached.resolveSibling(cached.getFileName() + ".data"));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Size of the model with its external weight files
+     */
+    private static long modelBytes(Path modelPath) {
+        Path dir = modelPath.toAbsolutePath().getParent();
+        try (Stream<Path> files = Files.list(dir)) {
+            String base = modelPath.getFileName().toString();
+            return files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.equals(base) || (name.startsWith(base) && name.endsWith("data"));
+            }).mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException e) {
+            return modelPath.toFile().length();
+        }
+    }
+
+    public int getIntraOpThreads() {
+        return intraOpThreads;
+    }
+
+    public int getInterOpThreads() {
+        return interOpThreads;
+    }
+}
@@ -0,0 +1,210 @@
+package app.services.ai;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import app.utils.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sentence embedding model (such as all-MiniLM-L6-v2) run with ONNX Runtime.
+ * Expects model.onnx and tokenizer.json in one directory, both read from disk.
+ * Token vectors are mean-pooled over the attention mask and scaled to unit length.
+ */
+public class OnnxTextEmbedder implements TextEmbedder {
+    private static final Logger logger = LoggerFactory.getLogger(OnnxTextEmbedder.class);
+
+    // Directories checked for an embedding model
+    private static final String[] MODEL_DIRS = {
+        "models/embedding",
+        "Models/embedding",
+        System.getProperty("user.home") + "/.pdfstudio/models/embedding"
+    };
+
+    // Longer chunks are truncated; sentence models are trained on short passages
+    private static final int MAX_SEQUENCE_TOKENS = 256;
+    private static final int BATCH_SIZE = 16;
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final Set<String> inputNames;
+    private final int dimension;
+    private final String name;
+
+    public OnnxTextEmbedder(Path modelDir) throws OrtException, IOException {
+        environment = OrtEnvironment.getEnvironment();
+        session = OnnxSessionFactory.fromSettings().create(environment, modelDir.resolve("model.onnx"), "embedding");
+        tokenizer = HuggingFaceTokenizer.newInstance(modelDir.resolve("tokenizer.json"), Map.of(
+            "truncation", "true",
+            "maxLength", String.valueOf(MAX_SEQUENCE_TOKENS)
+        ));
+        inputNames = session.getInputNames();
+
+        NodeInfo output = session.getOutputInfo().values().iterator().next();
+        long[] shape = ((TensorInfo) output.getInfo()).getShape();
+        dimension = (int) shape[shape.length - 1];
+        name = modelDir.getFileName() + " (" + dimension + ")";
+    }
+
+    /**
+     * Load the first embedding model found in the model directories
+     * @return the embedder, or null if there is none or it cannot be loaded
+     */
+    public static OnnxTextEmbedder find() {
+        for (String dir : MODEL_DIRS) {
+            Path path = Paths.get(dir);
+            if (Files.exists(path.resolve("model.onnx")) && Files.exists(path.resolve("tokenizer.json"))) {
+                try {
+                    OnnxTextEmbedder embedder = new OnnxTextEmbedder(path);
+                    logger.info("Loaded embedding model from {} (dimension {})", path, embedder.getDimension());
+                    return embedder;
+                } catch (Exception | LinkageError e) {
+                    logger.warn("Could not load embedding model from {}: {}", path, e.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getDimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[][] embed(List<String> texts) throws OrtException {
+        float[][] vectors = new float[texts.size()][];
+        for (int start = 0; start < texts.size(); start += BATCH_SIZE) {
+            List<String> batch = texts.subList(start, Math.min(texts.size(), start + BATCH_SIZE));
+            float[][] batchVectors = embedBatch(batch);
+            System.arraycopy(batchVectors, 0, vectors, start, batchVectors.length);
+        }
+        return vectors;
+    }
+
+    private float[][] embedBatch(List<String> texts) throws OrtException {
+        Encoding[] encodings = new Encoding[texts.size()];
+        int length = 1;
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = tokenizer.encode(texts.get(i));
+            length = Math.max(length, encodings[i].getIds().length);
+        }
+
+        // Pad to the longest text in the batch; padding is masked out
+        int batchSize = encodings.length;
+        long[] ids = new long[batchSize * length];
+        long[] mask = new long[batchSize * length];
+        long[] types = new long[batchSize * length];
+        for (int i = 0; i < batchSize; i++) {
+            long[] tokenIds = encodings[i].getIds();
+            System.arraycopy(tokenIds, 0, ids, i * length, tokenIds.length);
+            System.arraycopy(encodings[i].getAttentionMask(), 0, mask, i * length, tokenIds.length);
+            System.arraycopy(encodings[i].getTypeIds(), 0, types, i * length, tokenIds.length);
+        }
+
+        long[] shape = {batchSize, length};
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, LongBuffer.wrap(ids), shape));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, LongBuffer.wrap(mask), shape));
+            if (inputNames.contains("token_type_ids")) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, LongBuffer.wrap(types), shape));
+            }
+            long startNanos = System.nanoTime();
+            try (OrtSession.Result result = session.run(inputs)) {
+                PerformanceMonitor.getInstance().recordSince("onnx.run.embedding", startNanos);
+                OnnxTensor output = (OnnxTensor) result.get(0);
+                long[] outputShape = output.getInfo().getShape();
+                FloatBuffer values = output.getFloatBuffer();
+                float[][] vectors = new float[batchSize][dimension];
+                if (outputShape.length == 2) {
+                    // Already pooled
+                    for (int i = 0; i < batchSize; i++) {
+                        values.get(i * dimension, vectors[i]);
+                    }
+                } else {
+                    meanPool(values, mask, length, vectors);
+                }
+                for (float[] vector : vectors) {
+                    normalize(vector);
+                }
+                return vectors;
+            }
+        } finally {
+            for (OnnxTensor tensor : inputs.values()) {
+                tensor.close();
+            }
+        }
+    }
+
+    /**
+     * Average the token vectors of each text, skipping padding
+     */
+    private void meanPool(FloatBuffer tokenVectors, long[] mask, int length, float[][] vectors) {
+        for (int i = 0; i < vectors.length; i++) {
+            float[] vector = vectors[i];
+            int tokens = 0;
+            for (int t = 0; t < length; t++) {
+                if (mask[i * length + t] == 0) {
+                    continue;
+                }
+                int offset = (i * length + t) * dimension;
+                for (int d = 0; d < dimension; d++) {
+                    vector[d] += tokenVectors.get(offset + d);
+                }
+                tokens++;
+            }
+            if (tokens > 0) {
+                for (int d = 0; d < dimension; d++) {
+                    vector[d] /= tokens;
+                }
+            }
+        }
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        try {
+            session.close();
+        } catch (OrtException e) {
+            logger.warn("Error closing embedding model: {}", e.getMessage());
+        }
+        tokenizer.close();
+    }
+}
@@ -0,0 +1,76 @@
+package app.services.ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fits document text into a prompt so the whole prompt uses the model's context less the tokens it will generate.
+ * Tokens do not always add up across a join, so the packed prompt is measured and trimmed until it fits.
+ */
+public class PromptPacker {
+    private static final Logger logger = LoggerFactory.getLogger(PromptPacker.class);
+
+    // Attempts at trimming before giving up on a prompt that stays too long
+    private static final int MAX_TRIMS = 4;
+
+    private final TokenCounter counter;
+    private final int promptTokens;
+
+    /**
+     * @param contextTokens the model's context window
+     * @param generationTokens tokens reserved for the output
+     */
+    public PromptPacker(TokenCounter counter, int contextTokens, int generationTokens) {
+        this.counter = counter;
+        this.promptTokens = Math.max(1, contextTokens - generationTokens);
+    }
+
+    /**
+     * Get the tokens available to the prompt
+     */
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    public TokenCounter getCounter() {
+        return counter;
+    }
+
+    /**
+     * Build prefix + text + suffix with as much of the text as fits
+     */
+    public String pack(String prefix, String text, String suffix) {
+        return pack(prefix, text, suffix, promptTokens);
+    }
+
+    /**
+     * Build prefix + text + suffix with as much of the text as fits in the given number of tokens
+     */
+    public String pack(String prefix, String text, String suffix, int maxTokens) {
+        int limit = Math.min(maxTokens, promptTokens);
+        String prompt = prefix + text + suffix;
+        int tokens = counter.count(prompt);
+        if (tokens <= limit) {
+            return prompt;
+        }
+
+        int textTokens = limit - counter.count(prefix + suffix);
+        for (int attempt = 0; attempt < MAX_TRIMS && textTokens > 0; attempt++) {
+            prompt = prefix + counter.truncate(text, textTokens) + suffix;
+            tokens = counter.count(prompt);
+            if (tokens <= limit) {
+                return prompt;
+            }
+            textTokens -= tokens - limit;
+        }
+        logger.warn("Prompt of {} tokens does not fit {} tokens", tokens, limit);
+        return prefix + suffix;
+    }
+
+    /**
+     * Cut text to a number of tokens, for parts that must be the same in every prompt that uses them
+     */
+    public String truncate(String text, int maxTokens) {
+        return counter.truncate(text, maxTokens);
+    }
+}
@@ -0,0 +1,82 @@
+package app.services.ai;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chooses the llama-server slot for each request so requests about the same document land on the slot
+ * whose KV cache already holds that document's prompt. A document keeps its slot until another request
+ * overwrites the slot's cache; a busy slot is never chosen, so affinity does not serialize requests.
+ */
+class PromptSlots {
+    private final String[] owners;
+    private final long[] lastUsed;
+    private final boolean[] busy;
+    private final Map<String, Integer> slotByKey = new HashMap<>();
+    private long clock;
+
+    PromptSlots(int slots) {
+        owners = new String[Math.max(1, slots)];
+        lastUsed = new long[owners.length];
+        busy = new boolean[owners.length];
+    }
+
+    /**
+     * Take a slot for a request
+     * @param cacheKey identifies the prompt prefix, such as the document; null if it will not be reused
+     * @return the slot, or -1 if all are busy and the server should choose
+     */
+    synchronized int acquire(String cacheKey) {
+        Integer owned = cacheKey == null ? null : slotByKey.get(cacheKey);
+        if (owned != null && !busy[owned]) {
+            busy[owned] = true;
+            lastUsed[owned] = ++clock;
+            return owned;
+        }
+        int slot = leastRecentlyUsedFreeSlot();
+        if (slot < 0) {
+            return -1;
+        }
+        // The request replaces the prompt cached in the slot
+        if (owners[slot] != null) {
+            slotByKey.remove(owners[slot]);
+            owners[slot] = null;
+        }
+        // A document whose own slot is busy keeps it and borrows this one
+        if (cacheKey != null && owned == null) {
+            slotByKey.put(cacheKey, slot);
+            owners[slot] = cacheKey;
+        }
+        busy[slot] = true;
+        lastUsed[slot] = ++clock;
+        return slot;
+    }
+
+    synchronized void release(int slot) {
+        if (slot >= 0) {
+            busy[slot] = false;
+        }
+    }
+
+    /**
+     * Prefer slots no document owns, then the one used longest ago
+     */
+    private int leastRecentlyUsedFreeSlot() {
+        int best = -1;
+        for (int slot = 0; slot < owners.length; slot++) {
+            if (busy[slot]) {
+                continue;
+            }
+            if (best < 0) {
+                best = slot;
+            } else if ((owners[slot] == null) != (owners[best] == null)) {
+                if (owners[slot] == null) {
+                    best = slot;
+                }
+            } else if (lastUsed[slot] < lastUsed[best]) {
+                best = slot;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,16 @@
+package app.services.ai;
+
+/**
+ * Receives progress while a long document is summarized in parts.
+ * Called from the threads summarizing the parts; implementations must be thread-safe and should return quickly.
+ */
+@FunctionalInterface
+public interface SummaryProgressListener {
+
+    /**
+     * A part of the summary is done
+     * @param completedSteps chunk and combine steps done so far
+     * @param totalSteps steps needed for the whole document
+     */
+    void onProgress(int completedSteps, int totalSteps);
+}
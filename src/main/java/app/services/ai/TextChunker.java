@@ -0,0 +1,138 @@
+package app.services.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs the text of a document's pages into chunks of bounded size that remember their page range.
+ * Used to split documents into model-sized parts for summaries and retrieval.
+ * Sizes are in the tokens of the model the chunks are for, or estimated from their length.
+ */
+public class TextChunker {
+    private final int chunkTokens;
+    private final TokenCounter counter;
+
+    /**
+     * @param chunkTokens largest chunk, in estimated tokens
+     */
+    public TextChunker(int chunkTokens) {
+        this(chunkTokens, TokenCounter.estimate());
+    }
+
+    /**
+     * @param chunkTokens largest chunk, in tokens of the counter
+     */
+    public TextChunker(int chunkTokens, TokenCounter counter) {
+        this.chunkTokens = Math.max(1, chunkTokens);
+        this.counter = counter;
+    }
+
+    public int getChunkTokens() {
+        return chunkTokens;
+    }
+
+    /**
+     * Pack page text into chunks of at most the chunk size, in page order.
+     * Pages that do not fit a chunk on their own are split at paragraph, sentence or word breaks.
+     */
+    public List<Chunk> chunk(List<String> pageTexts) {
+        List<Chunk> chunks = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int tokens = 0;
+        int firstPage = -1;
+        int lastPage = -1;
+
+        for (int page = 0; page < pageTexts.size(); page++) {
+            String pageText = pageTexts.get(page) == null ? "" : pageTexts.get(page).strip();
+            for (String part : splitToFit(pageText)) {
+                // Parts are measured on their own; the separator between them is about one token
+                int partTokens = counter.count(part);
+                if (text.length() > 0 && tokens + 1 + partTokens > chunkTokens) {
+                    chunks.add(new Chunk(firstPage, lastPage, text.toString()));
+                    text.setLength(0);
+                    tokens = 0;
+                }
+                if (text.length() == 0) {
+                    firstPage = page;
+                } else {
+                    text.append("\n\n");
+                    tokens++;
+                }
+                text.append(part);
+                tokens += partTokens;
+                lastPage = page;
+            }
+        }
+        if (text.length() > 0) {
+            chunks.add(new Chunk(firstPage, lastPage, text.toString()));
+        }
+        return chunks;
+    }
+
+    private List<String> splitToFit(String text) {
+        List<String> parts = new ArrayList<>();
+        String rest = text;
+        while (!rest.isEmpty()) {
+            // The most text that fits, measuring only as much of the rest as a chunk could hold
+            int fits = counter.truncate(rest, chunkTokens).length();
+            if (fits == rest.length()) {
+                break;
+            }
+            // Cut back to a break in its second half
+            int limit = Math.max(1, fits);
+            int cut = rest.lastIndexOf("\n\n", limit);
+            if (cut < limit / 2) {
+                cut = rest.lastIndexOf(". ", limit) + 1;
+            }
+            if (cut < limit / 2) {
+                cut = rest.lastIndexOf(' ', limit);
+            }
+            if (cut < limit / 2) {
+                cut = limit;
+            }
+            parts.add(rest.substring(0, cut).strip());
+            rest = rest.substring(cut).strip();
+        }
+        if (!rest.isEmpty()) {
+            parts.add(rest);
+        }
+        return parts;
+    }
+
+    /**
+     * Text of consecutive pages
+     */
+    public static class Chunk {
+        private final int firstPage;
+        private final int lastPage;
+        private final String text;
+
+        public Chunk(int firstPage, int lastPage, String text) {
+            this.firstPage = firstPage;
+            this.lastPage = lastPage;
+            this.text = text;
+        }
+
+        /**
+         * @return 0-based index of the first page
+         */
+        public int getFirstPage() {
+            return firstPage;
+        }
+
+        /**
+         * @return 0-based index of the last page
+         */
+        public int getLastPage() {
+            return lastPage;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getPageLabel() {
+            return firstPage == lastPage ? "Page " + (firstPage + 1) : "Pages " + (firstPage + 1) + "-" + (lastPage + 1);
+        }
+    }
+}
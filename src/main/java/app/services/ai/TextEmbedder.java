@@ -0,0 +1,29 @@
+package app.services.ai;
+
+import java.util.List;
+
+/**
+ * Turns text into vectors whose dot product measures how related two texts are
+ */
+public interface TextEmbedder extends AutoCloseable {
+
+    /**
+     * Get the length of the vectors
+     */
+    int getDimension();
+
+    /**
+     * Embed texts
+     * @return one unit-length vector per text, in order
+     */
+    float[][] embed(List<String> texts) throws Exception;
+
+    /**
+     * Describe the embedder for logs
+     */
+    String getName();
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,76 @@
+package app.services.ai;
+
+/**
+ * Measures text in the tokens of the model it will be sent to, so prompts can be sized to the context window
+ */
+public interface TokenCounter {
+    // Far more than tokens average in any text, bounding how much text is measured when truncating
+    int MAX_CHARS_PER_TOKEN = 16;
+
+    /**
+     * Count the tokens of a whole prompt, including any the model adds itself (such as a start token)
+     */
+    int count(String text);
+
+    /**
+     * Get the longest start of the text that is at most the given number of tokens
+     */
+    String truncate(String text, int maxTokens);
+
+    /**
+     * Find the longest start of the text within the token limit by binary search over its length,
+     * for tokenizers that cannot map tokens back to the text
+     */
+    static String truncateByCount(TokenCounter counter, String text, int maxTokens) {
+        // No need to measure more text than the longest tokens could cover
+        int longest = (int) Math.min(text.length(), (long) Math.max(0, maxTokens) * MAX_CHARS_PER_TOKEN);
+        if (counter.count(text.substring(0, longest)) <= maxTokens) {
+            return text.substring(0, longest);
+        }
+        // The start of length low fits, the start of length high does not
+        int low = 0;
+        int high = longest;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (counter.count(text.substring(0, middle)) <= maxTokens) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        if (low > 0 && Character.isHighSurrogate(text.charAt(low - 1))) {
+            low--;
+        }
+        return text.substring(0, low);
+    }
+
+    /**
+     * Estimate from the length of the text, for backends whose tokenizer is not available
+     */
+    static TokenCounter estimate() {
+        return Estimate.INSTANCE;
+    }
+
+    /**
+     * Four characters per token, about right for English text
+     */
+    final class Estimate implements TokenCounter {
+        public static final int CHARS_PER_TOKEN = 4;
+
+        private static final Estimate INSTANCE = new Estimate();
+
+        private Estimate() {
+        }
+
+        @Override
+        public int count(String text) {
+            return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        }
+
+        @Override
+        public String truncate(String text, int maxTokens) {
+            long maxChars = (long) Math.max(0, maxTokens) * CHARS_PER_TOKEN;
+            return text.length() <= maxChars ? text : text.substring(0, (int) maxChars);
+        }
+    }
+}
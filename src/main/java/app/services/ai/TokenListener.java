@@ -0,0 +1,16 @@
+package app.services.ai;
+
+/**
+ * Receives generated text as the model produces it.
+ * Called on the generating thread, once per token or small group of tokens;
+ * implementations should return quickly and hand UI updates to the JavaFX thread.
+ */
+@FunctionalInterface
+public interface TokenListener {
+
+    /**
+     * More text was generated
+     * @param text the new text only, to be appended to what came before
+     */
+    void onToken(String text);
+}
@@ -0,0 +1,268 @@
+package app.services.ocr;
+
+import app.model.OCRWord;
+import net.sourceforge.tess4j.TesseractException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OCRs oversized pages (posters, maps, large drawings) on several cores.
+ * Tesseract recognizes one image on one thread, so a page above the size limit is cut into
+ * full-width horizontal strips that overlap by more than a text line. The worker that owns the page
+ * recognizes strips itself and helper threads join in while idle engines are available. Each word
+ * is kept only from the strip whose core (the strip minus half of each overlap) contains its center,
+ * which drops the duplicates and truncated copies found in the overlaps.
+ */
+public class LargePageRecognizer {
+    private static final Logger logger = LoggerFactory.getLogger(LargePageRecognizer.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
+
+    // Pages with more pixels than this are split (an A3 page at 300 DPI is about 17 megapixels)
+    public static final long DEFAULT_MAX_PAGE_PIXELS = 24_000_000L;
+    // Strip size aimed for, about a letter page at 300 DPI
+    public static final long DEFAULT_STRIP_PIXELS = 8_000_000L;
+    // Must exceed the tallest text line; 300 pixels is one inch at 300 DPI
+    public static final int DEFAULT_OVERLAP_PX = 300;
+
+    /**
+     * Recognizes one strip with a borrowed engine; replaced in tests
+     */
+    @FunctionalInterface
+    interface StripRecognizer {
+        TesseractEngine.Recognition recognize(TesseractEngine engine, BufferedImage strip) throws TesseractException;
+    }
+
+    private final TesseractPool enginePool;
+    private final ExecutorService helperExecutor;
+    private final int maxHelpers;
+    private final long maxPagePixels;
+    private final long stripPixels;
+    private final int overlapPx;
+    private final StripRecognizer stripRecognizer;
+
+    /**
+     * @param helperExecutor runs helpers; must not be the executor of the OCR workers, whose threads may all be waiting here
+     * @param maxHelpers helper threads per page, in addition to the calling worker
+     */
+    public LargePageRecognizer(TesseractPool enginePool, ExecutorService helperExecutor, int maxHelpers) {
+        this(enginePool, helperExecutor, maxHelpers, DEFAULT_MAX_PAGE_PIXELS, DEFAULT_STRIP_PIXELS, DEFAULT_OVERLAP_PX,
+             TesseractEngine::recognize);
+    }
+
+    LargePageRecognizer(TesseractPool enginePool, ExecutorService helperExecutor, int maxHelpers, long maxPagePixels,
+                        long stripPixels, int overlapPx, StripRecognizer stripRecognizer) {
+        this.enginePool = enginePool;
+        this.helperExecutor = helperExecutor;
+        this.maxHelpers = Math.max(0, maxHelpers);
+        this.maxPagePixels = maxPagePixels;
+        this.stripPixels = stripPixels;
+        this.overlapPx = overlapPx;
+        this.stripRecognizer = stripRecognizer;
+    }
+
+    /**
+     * True if the image is large enough to be split
+     */
+    public boolean isOversized(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() > maxPagePixels;
+    }
+
+    /**
+     * Split an image of the given size into overlapping full-width strips, top to bottom
+     */
+    List<Strip> split(int width, int height) {
+        int count = (int) Math.max(2, Math.ceil((double) width * height / stripPixels));
+        // Every strip must still be taller than the overlap, or the cores would vanish
+        count = Math.max(1, Math.min(count, height / (2 * overlapPx)));
+
+        List<Strip> strips = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int coreTop = (int) ((long) height * i / count);
+            int coreBottom = (int) ((long) height * (i + 1) / count);
+            int top = Math.max(0, coreTop - overlapPx / 2);
+            int bottom = Math.min(height, coreBottom + overlapPx / 2);
+            strips.add(new Strip(top, bottom, coreTop, coreBottom));
+        }
+        return strips;
+    }
+
+    /**
+     * Recognize an oversized image strip by strip, in parallel where engines allow
+     * @return text, mean word confidence and words in the pixel coordinates of the whole image
+     */
+    public TesseractEngine.Recognition recognize(BufferedImage image, String language) throws Exception {
+        long startTime = System.currentTimeMillis();
+        List<Strip> strips = split(image.getWidth(), image.getHeight());
+        TesseractEngine.Recognition[] results = new TesseractEngine.Recognition[strips.size()];
+        AtomicInteger nextStrip = new AtomicInteger();
+        AtomicInteger helpersJoined = new AtomicInteger();
+
+        // Helpers only use engines that are free right now, so they never wait on a busy pool
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 0; i < Math.min(maxHelpers, strips.size() - 1); i++) {
+            try {
+                helpers.add(helperExecutor.submit(() -> {
+                    TesseractEngine engine = enginePool.tryBorrow(language);
+                    if (engine == null) {
+                        return null;
+                    }
+                    helpersJoined.incrementAndGet();
+                    try {
+                        recognizeStrips(engine, image, strips, nextStrip, results);
+                    } finally {
+                        enginePool.release(engine);
+                    }
+                    return null;
+                }));
+            } catch (RejectedExecutionException e) {
+                // All helper threads are busy with other pages; this worker covers the strips alone
+                break;
+            }
+        }
+
+        Exception failure = null;
+        try {
+            TesseractEngine engine = enginePool.borrow(language);
+            try {
+                recognizeStrips(engine, image, strips, nextStrip, results);
+            } finally {
+                enginePool.release(engine);
+            }
+        } catch (Exception e) {
+            // Stop the helpers from starting new strips
+            nextStrip.set(strips.size());
+            failure = e;
+        }
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        TesseractEngine.Recognition merged = merge(strips, results);
+        long duration = System.currentTimeMillis() - startTime;
+        logger.debug("Recognized {}x{} page as {} strips with {} helper(s) in {}ms", image.getWidth(),
+                    image.getHeight(), strips.size(), helpersJoined.get(), duration);
+        perfLogger.info("OCR Large Page: {}x{} px - {} strips, {} threads - {}ms", image.getWidth(), image.getHeight(),
+                       strips.size(), helpersJoined.get() + 1, duration);
+        return merged;
+    }
+
+    private void recognizeStrips(TesseractEngine engine, BufferedImage image, List<Strip> strips,
+                                 AtomicInteger nextStrip, TesseractEngine.Recognition[] results) throws TesseractException {
+        int index;
+        while ((index = nextStrip.getAndIncrement()) < strips.size()) {
+            Strip strip = strips.get(index);
+            results[index] = stripRecognizer.recognize(engine, copyRows(image, strip.top, strip.bottom));
+        }
+    }
+
+    /**
+     * Keep each word from the strip whose core holds its center, in strip order, and rebuild the text
+     */
+    TesseractEngine.Recognition merge(List<Strip> strips, TesseractEngine.Recognition[] results) {
+        List<OCRWord> words = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        double confidenceSum = 0;
+
+        for (int i = 0; i < strips.size(); i++) {
+            Strip strip = strips.get(i);
+            OCRWord previous = null;
+            for (OCRWord word : results[i].getWords()) {
+                double centerY = strip.top + word.getY() + word.getHeight() / 2;
+                if (centerY < strip.coreTop || centerY >= strip.coreBottom) {
+                    continue;
+                }
+                OCRWord placed = new OCRWord(word.getText(), word.getConfidence(), word.getX(),
+                                             strip.top + word.getY(), word.getWidth(), word.getHeight());
+                if (isDuplicate(placed, words)) {
+                    continue;
+                }
+
+                // Tesseract lists words in reading order; a word starting left of the last one begins a new line
+                if (previous != null) {
+                    text.append(placed.getX() < previous.getX() + previous.getWidth() ? '\n' : ' ');
+                }
+                text.append(placed.getText());
+                words.add(placed);
+                confidenceSum += placed.getConfidence();
+                previous = placed;
+            }
+            if (previous != null) {
+                text.append('\n');
+            }
+        }
+
+        double confidence = words.isEmpty() ? 0 : confidenceSum / words.size();
+        return new TesseractEngine.Recognition(text.toString(), confidence, words);
+    }
+
+    /**
+     * Safety net for lines taller than the overlap: the same word found whole in two strips
+     */
+    private static boolean isDuplicate(OCRWord word, List<OCRWord> kept) {
+        // Only words near the end can come from the previous strip
+        for (int i = kept.size() - 1; i >= 0 && i >= kept.size() - 200; i--) {
+            OCRWord other = kept.get(i);
+            if (!other.getText().equals(word.getText())) {
+                continue;
+            }
+            double overlapWidth = Math.min(word.getX() + word.getWidth(), other.getX() + other.getWidth())
+                - Math.max(word.getX(), other.getX());
+            double overlapHeight = Math.min(word.getY() + word.getHeight(), other.getY() + other.getHeight())
+                - Math.max(word.getY(), other.getY());
+            if (overlapWidth > 0 && overlapHeight > 0
+                    && overlapWidth * overlapHeight > 0.5 * word.getWidth() * word.getHeight()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy rows into an image of their own; Tesseract reads the whole data buffer, so a sub-image will not do
+     */
+    private static BufferedImage copyRows(BufferedImage image, int top, int bottom) {
+        int height = bottom - top;
+        BufferedImage copy = new BufferedImage(image.getColorModel(),
+            image.getRaster().createCompatibleWritableRaster(image.getWidth(), height),
+            image.isAlphaPremultiplied(), null);
+        WritableRaster target = copy.getRaster();
+        target.setDataElements(0, 0, image.getRaster().createChild(0, top, image.getWidth(), height, 0, 0, null));
+        return copy;
+    }
+
+    /**
+     * Rows [top, bottom) of the image, of which [coreTop, coreBottom) belong to this strip alone
+     */
+    static class Strip {
+        final int top;
+        final int bottom;
+        final int coreTop;
+        final int coreBottom;
+
+        Strip(int top, int bottom, int coreTop, int coreBottom) {
+            this.top = top;
+            this.bottom = bottom;
+            this.coreTop = coreTop;
+            this.coreBottom = coreBottom;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package app.services.ocr;
+
+import app.model.OCRPageResult;
+import app.model.OCRWord;
+import com.google.gson.Gson;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of per-page OCR results.
+ * Entries are keyed by a SHA-256 of the page's content streams, resources and geometry plus the
+ * OCR language, render settings (DPI and pixel format) and preprocessing, so the same page is recognized once even across reopened or merged documents.
+ * The least recently used entries are evicted when the cache grows past its size limit.
+ */
+public class OCRCache {
+    private static final Logger logger = LoggerFactory.getLogger(OCRCache.class);
+
+    private static final String ENTRY_SUFFIX = ".json";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Gson gson = new Gson();
+    // Total size of all entries, computed on first use
+    private long totalBytes = -1;
+
+    public OCRCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Compute the cache key of a page rendered with the given settings.
+     * Must be called on the thread that owns the document.
+     */
+    public String keyFor(PDPage page, String language, OCRRenderProfile.RenderSettings settings,
+                         PreprocessOptions preprocessOptions) throws IOException {
+        MessageDigest digest = sha256();
+        updateString(digest, "lang=" + language + ";dpi=" + settings.getDpi() + ";type=" + settings.getImageType()
+                             + (settings.isEmbeddedImage() ? ";source=image" : "")
+                             + ";" + preprocessOptions.getCacheKey() + ";rotate=" + page.getRotation());
+        PDRectangle cropBox = page.getCropBox();
+        updateString(digest, ";box=" + cropBox.getLowerLeftX() + "," + cropBox.getLowerLeftY() + ","
+                             + cropBox.getUpperRightX() + "," + cropBox.getUpperRightY() + ";");
+
+        try (InputStream contents = page.getContents()) {
+            if (contents != null) {
+                updateStream(digest, contents);
+            }
+        }
+        // Some files keep their scanned images in resources the page inherits from the page tree
+        PDResources resources = page.getResources();
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        updateCOS(digest, resources == null ? null : resources.getCOSObject(), visited);
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Look up a cached result
+     * @return the result for the page, or null if the key is not cached
+     */
+    public synchronized OCRPageResult get(String key, int pageNumber) {
+        Path file = entryPath(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            CacheEntry entry = gson.fromJson(reader, CacheEntry.class);
+            // Touch the entry so eviction treats it as recently used
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new OCRPageResult(pageNumber, entry.text, entry.confidence, entry.words);
+        } catch (Exception e) {
+            logger.warn("Discarding unreadable OCR cache entry {}: {}", key, e.getMessage());
+            delete(file);
+            return null;
+        }
+    }
+
+    /**
+     * Store a result, evicting the least recently used entries if the cache is over its limit
+     */
+    public synchronized void put(String key, OCRPageResult result) {
+        try {
+            Files.createDirectories(directory);
+            ensureSizeKnown();
+
+            Path file = entryPath(key);
+            long previousSize = Files.exists(file) ? Files.size(file) : 0;
+            Path tempFile = Files.createTempFile(directory, key, ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                    gson.toJson(new CacheEntry(result.getText(), result.getConfidence(), result.getWords()), writer);
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            totalBytes += Files.size(file) - previousSize;
+
+            if (totalBytes > maxBytes) {
+                evict();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not write OCR cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        try {
+            ensureSizeKnown();
+        } catch (IOException e) {
+            return 0;
+        }
+        return totalBytes;
+    }
+
+    /**
+     * Delete least recently used entries until the cache is at 90% of its limit
+     */
+    private void evict() throws IOException {
+        List<Path> entries = listEntries();
+        entries.sort(Comparator.comparing(this::lastModified));
+
+        long target = maxBytes * 9 / 10;
+        int evicted = 0;
+        for (Path entry : entries) {
+            if (totalBytes <= target) {
+                break;
+            }
+            long size = Files.size(entry);
+            if (delete(entry)) {
+                totalBytes -= size;
+                evicted++;
+            }
+        }
+        logger.info("Evicted {} OCR cache entries, cache size now {} bytes", evicted, totalBytes);
+    }
+
+    private void ensureSizeKnown() throws IOException {
+        if (totalBytes >= 0) {
+            return;
+        }
+        long size = 0;
+        if (Files.isDirectory(directory)) {
+            for (Path entry : listEntries()) {
+                size += Files.size(entry);
+            }
+        }
+        totalBytes = size;
+    }
+
+    private List<Path> listEntries() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files.filter(file -> file.getFileName().toString().endsWith(ENTRY_SUFFIX)).toList());
+        }
+    }
+
+    private FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete OCR cache entry {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private Path entryPath(String key) {
+        return directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Hash a COS object graph deterministically: dictionary keys are sorted and streams
+     * are hashed by their raw (still encoded) bytes
+     */
+    private void updateCOS(MessageDigest digest, COSBase base, Set<COSBase> visited) throws IOException {
+        if (base instanceof COSObject) {
+            base = ((COSObject) base).getObject();
+        }
+        if (base == null) {
+            updateString(digest, "null;");
+            return;
+        }
+        if (base instanceof COSDictionary && !visited.add(base)) {
+            updateString(digest, "seen;");
+            return;
+        }
+
+        if (base instanceof COSDictionary) {
+            COSDictionary dictionary = (COSDictionary) base;
+            List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            keys.sort(Comparator.comparing(COSName::getName));
+            updateString(digest, "<<");
+            for (COSName key : keys) {
+                // Parent links lead out of the resources into the page tree
+                if (COSName.PARENT.equals(key) || COSName.P.equals(key)) {
+                    continue;
+                }
+                updateString(digest, "/" + key.getName() + " ");
+                updateCOS(digest, dictionary.getItem(key), visited);
+            }
+            updateString(digest, ">>");
+            if (base instanceof COSStream) {
+                try (InputStream raw = ((COSStream) base).createRawInputStream()) {
+                    updateStream(digest, raw);
+                }
+            }
+        } else if (base instanceof COSArray) {
+            updateString(digest, "[");
+            for (COSBase item : (COSArray) base) {
+                updateCOS(digest, item, visited);
+            }
+            updateString(digest, "]");
+        } else if (base instanceof COSName) {
+            updateString(digest, "/" + ((COSName) base).getName() + ";");
+        } else if (base instanceof COSString) {
+            updateString(digest, "(");
+            digest.update(((COSString) base).getBytes());
+            updateString(digest, ")");
+        } else if (base instanceof COSNumber) {
+            updateString(digest, ((COSNumber) base).floatValue() + ";");
+        } else if (base instanceof COSBoolean) {
+            updateString(digest, ((COSBoolean) base).getValue() + ";");
+        } else {
+            updateString(digest, base.getClass().getSimpleName() + ";");
+        }
+    }
+
+    private static void updateStream(MessageDigest digest, InputStream input) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static void updateString(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Stored form of a cached page result
+     */
+    private static class CacheEntry {
+        private String text;
+        private double confidence;
+        // Missing in entries written before word boxes were recorded
+        private List<OCRWord> words;
+
+        CacheEntry(String text, double confidence, List<OCRWord> words) {
+            this.text = text;
+            this.confidence = confidence;
+            this.words = words;
+        }
+    }
+}
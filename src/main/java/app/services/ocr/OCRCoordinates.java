@@ -0,0 +1,70 @@
+package app.services.ocr;
+
+import app.model.OCRWord;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps OCR word boxes from image pixels back to PDF user space
+ */
+public final class OCRCoordinates {
+
+    private OCRCoordinates() {
+    }
+
+    /**
+     * Transform from the pixels of a page rendered by PDFRenderer at the given DPI to user space.
+     * Mirrors the renderer's setup: scale, page rotation, then the y-flip to the crop box.
+     */
+    public static AffineTransform renderedPageToUserSpace(PDPage page, float dpi) {
+        PDRectangle cropBox = page.getCropBox();
+        double scale = dpi / 72.0;
+        int rotation = ((page.getRotation() % 360) + 360) % 360;
+
+        AffineTransform userToImage = AffineTransform.getScaleInstance(scale, scale);
+        switch (rotation) {
+            case 90:
+                userToImage.translate(cropBox.getHeight(), 0);
+                break;
+            case 180:
+                userToImage.translate(cropBox.getWidth(), cropBox.getHeight());
+                break;
+            case 270:
+                userToImage.translate(0, cropBox.getWidth());
+                break;
+            default:
+                break;
+        }
+        userToImage.rotate(Math.toRadians(rotation));
+        userToImage.translate(0, cropBox.getHeight());
+        userToImage.scale(1, -1);
+        userToImage.translate(-cropBox.getLowerLeftX(), -cropBox.getLowerLeftY());
+
+        try {
+            return userToImage.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            // Only possible for an empty crop box
+            throw new IllegalArgumentException("Page has an empty crop box", e);
+        }
+    }
+
+    /**
+     * Map words with pixel boxes (x, y = left, top) to user space boxes (x, y = left, bottom)
+     */
+    public static List<OCRWord> toUserSpace(List<OCRWord> pixelWords, AffineTransform imageToUser) {
+        List<OCRWord> mapped = new ArrayList<>(pixelWords.size());
+        for (OCRWord word : pixelWords) {
+            Rectangle2D box = imageToUser.createTransformedShape(
+                new Rectangle2D.Double(word.getX(), word.getY(), word.getWidth(), word.getHeight())).getBounds2D();
+            mapped.add(new OCRWord(word.getText(), word.getConfidence(),
+                                   box.getX(), box.getY(), box.getWidth(), box.getHeight()));
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,20 @@
+package app.services.ocr;
+
+import app.model.OCRPageResult;
+
+/**
+ * Receives OCR results page by page while a document is being processed.
+ * Called from OCR worker threads as pages finish, so pages can arrive out of order;
+ * implementations must be thread-safe and should return quickly.
+ */
+@FunctionalInterface
+public interface OCRPageListener {
+
+    /**
+     * A page is done
+     * @param page result of the page (check isSuccessful())
+     * @param completedPages pages done so far, including this one
+     * @param totalPages pages in the request
+     */
+    void onPageCompleted(OCRPageResult page, int completedPages, int totalPages);
+}
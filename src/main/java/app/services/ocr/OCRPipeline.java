@@ -0,0 +1,168 @@
+package app.services.ocr;
+
+import app.model.OCRPageResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Two-stage OCR pipeline: pages are rendered on the calling thread and handed to OCR workers
+ * through a bounded queue, so rasterizing the next page overlaps with recognizing the previous ones.
+ * A semaphore caps the number of page bitmaps alive at once (queued or being recognized),
+ * which keeps peak memory predictable regardless of document size.
+ */
+public class OCRPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(OCRPipeline.class);
+
+    /**
+     * Renders a page to an image. Only ever called from the rendering thread.
+     */
+    @FunctionalInterface
+    public interface PageRenderer {
+        BufferedImage render(int pageNum) throws Exception;
+    }
+
+    /**
+     * Recognizes a rendered page. Called concurrently from the OCR workers.
+     */
+    @FunctionalInterface
+    public interface PageRecognizer {
+        OCRPageResult recognize(int pageNum, BufferedImage image) throws Exception;
+    }
+
+    private static final RenderedPage END_OF_PAGES = new RenderedPage(-1, -1, null, null);
+
+    private final ExecutorService ocrExecutor;
+    private final int workers;
+    private final int maxBitmaps;
+
+    /**
+     * @param ocrExecutor executor running the OCR workers
+     * @param workers number of concurrent OCR workers
+     * @param maxBitmaps maximum number of rendered pages alive at once (at least workers + 1 to keep all busy)
+     */
+    public OCRPipeline(ExecutorService ocrExecutor, int workers, int maxBitmaps) {
+        this.ocrExecutor = ocrExecutor;
+        this.workers = Math.max(1, workers);
+        this.maxBitmaps = Math.max(1, maxBitmaps);
+    }
+
+    /**
+     * Render and recognize the pages, blocking until all are done
+     * @return one result per requested page, in request order
+     */
+    public List<OCRPageResult> run(int[] pageNumbers, PageRenderer renderer, PageRecognizer recognizer)
+            throws InterruptedException {
+        return run(pageNumbers, renderer, recognizer, result -> { });
+    }
+
+    /**
+     * Render and recognize the pages, blocking until all are done
+     * @param onResult called with each page result as soon as it is available, from the worker that produced it
+     * @return one result per requested page, in request order
+     */
+    public List<OCRPageResult> run(int[] pageNumbers, PageRenderer renderer, PageRecognizer recognizer,
+                                   Consumer<OCRPageResult> onResult) throws InterruptedException {
+        OCRPageResult[] results = new OCRPageResult[pageNumbers.length];
+        BlockingQueue<RenderedPage> queue = new ArrayBlockingQueue<>(maxBitmaps);
+        Semaphore bitmapPermits = new Semaphore(maxBitmaps);
+        int workerCount = Math.min(workers, Math.max(1, pageNumbers.length));
+
+        List<Future<?>> workerFutures = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workerFutures.add(ocrExecutor.submit(() -> consume(queue, bitmapPermits, recognizer, results, onResult)));
+        }
+
+        try {
+            // PDFBox documents are not thread-safe, so there is a single rendering stage
+            for (int i = 0; i < pageNumbers.length; i++) {
+                int pageNum = pageNumbers[i];
+                bitmapPermits.acquire();
+                try {
+                    queue.put(new RenderedPage(i, pageNum, renderer.render(pageNum), null));
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    bitmapPermits.release();
+                    logger.error("Error rendering page {} for OCR", pageNum, e);
+                    queue.put(new RenderedPage(i, pageNum, null, e.getMessage()));
+                }
+            }
+            for (int i = 0; i < workerCount; i++) {
+                queue.put(END_OF_PAGES);
+            }
+
+            for (Future<?> future : workerFutures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            workerFutures.forEach(future -> future.cancel(true));
+            throw e;
+        } catch (ExecutionException e) {
+            // Workers handle their own errors; this only happens on unexpected failures
+            logger.error("OCR worker failed", e.getCause());
+        }
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = OCRPageResult.failed(pageNumbers[i], "Page was not processed");
+                onResult.accept(results[i]);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void consume(BlockingQueue<RenderedPage> queue, Semaphore bitmapPermits,
+                         PageRecognizer recognizer, OCRPageResult[] results, Consumer<OCRPageResult> onResult) {
+        try {
+            while (true) {
+                RenderedPage page = queue.take();
+                if (page == END_OF_PAGES) {
+                    return;
+                }
+                if (page.image == null) {
+                    results[page.index] = OCRPageResult.failed(page.pageNum, page.error);
+                    onResult.accept(results[page.index]);
+                    continue;
+                }
+
+                try {
+                    results[page.index] = recognizer.recognize(page.pageNum, page.image);
+                } catch (Exception e) {
+                    logger.error("Error performing OCR on page {}", page.pageNum, e);
+                    results[page.index] = OCRPageResult.failed(page.pageNum, e.getMessage());
+                } finally {
+                    bitmapPermits.release();
+                }
+                onResult.accept(results[page.index]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RenderedPage {
+        private final int index;
+        private final int pageNum;
+        private final BufferedImage image;
+        private final String error;
+
+        RenderedPage(int index, int pageNum, BufferedImage image, String error) {
+            this.index = index;
+            this.pageNum = pageNum;
+            this.image = image;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,557 @@
+package app.services.ocr;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * Cleans up page images before OCR: deskew, adaptive thresholding and speckle removal.
+ * Works in place on the 8-bit gray pixel array of the image, or on the packed bits of a 1-bit image,
+ * which is already bilevel and so is deskewed and despeckled without being expanded to gray.
+ * Scratch space comes from per-thread buffers that are reused across pages, so processing a page
+ * allocates nothing once the buffers have grown to the page size.
+ */
+public class OCRPreprocessor {
+    // Gray values below this count as ink when estimating skew
+    private static final int INK_THRESHOLD = 128;
+    // Upper bound on sampled ink pixels used for skew estimation
+    private static final int MAX_SKEW_SAMPLES = 200_000;
+    // Skew below this is left alone
+    private static final double MIN_SKEW_CORRECTION_DEGREES = 0.1;
+    private static final byte BLACK = 0;
+    private static final byte WHITE = (byte) 255;
+    // Temporary value for ink pixels already visited by the speckle flood fill
+    private static final byte VISITED = 1;
+
+    // Packed byte of eight white pixels in a 1-bit image, where a clear bit is ink
+    private static final byte WHITE_BITS = (byte) 0xFF;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Preprocess an image for OCR. The input is changed in place, so callers pass an image of their own.
+     * @return a grayscale or 1-bit image; the input itself when it already is one
+     */
+    public BufferedImage process(BufferedImage image, PreprocessOptions options) {
+        return prepare(image, options).getImage();
+    }
+
+    /**
+     * Preprocess an image for OCR, keeping track of how its pixels moved
+     */
+    public PreparedImage prepare(BufferedImage image, PreprocessOptions options) {
+        if (!options.isEnabled()) {
+            return new PreparedImage(image, new AffineTransform());
+        }
+        if (isPackedBinary(image)) {
+            return preparePacked(image, options);
+        }
+
+        BufferedImage gray = toGray(image);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        AffineTransform toOriginal = new AffineTransform();
+
+        if (options.isDeskew()) {
+            double skew = estimateSkew(pixels, width, height, options.getMaxSkewDegrees());
+            if (Math.abs(skew) >= MIN_SKEW_CORRECTION_DEGREES) {
+                deskew(pixels, width, height, skew);
+                // deskew samples the source at the destination rotated by the skew about the center
+                toOriginal = AffineTransform.getRotateInstance(Math.toRadians(skew), width / 2.0, height / 2.0);
+            }
+        }
+        if (options.isBinarize()) {
+            binarize(pixels, width, height, options.getThresholdRadius(), options.getThresholdSensitivity());
+            if (options.isDespeckle()) {
+                removeSpeckles(pixels, width, height, options.getMaxSpeckleSize());
+            }
+        }
+        return new PreparedImage(gray, toOriginal);
+    }
+
+    /**
+     * Deskew and despeckle a 1-bit image on its packed bits; thresholding is skipped since it is already bilevel
+     */
+    private PreparedImage preparePacked(BufferedImage image, PreprocessOptions options) {
+        byte[] packed = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        AffineTransform toOriginal = new AffineTransform();
+
+        if (options.isDeskew()) {
+            double skew = estimateSkewPacked(packed, width, height, options.getMaxSkewDegrees());
+            if (Math.abs(skew) >= MIN_SKEW_CORRECTION_DEGREES) {
+                deskewPacked(packed, width, height, skew);
+                toOriginal = AffineTransform.getRotateInstance(Math.toRadians(skew), width / 2.0, height / 2.0);
+            }
+        }
+        if (options.isBinarize() && options.isDespeckle()) {
+            removeSpecklesPacked(packed, width, height, options.getMaxSpeckleSize());
+        }
+        return new PreparedImage(image, toOriginal);
+    }
+
+    /**
+     * Estimate the angle of the text lines with a projection profile: the angle whose row
+     * histogram of ink pixels is most sharply peaked
+     * @return the slope of the text lines in degrees (positive when lines descend to the right)
+     */
+    public double estimateSkew(byte[] pixels, int width, int height, double maxDegrees) {
+        Buffers buffers = BUFFERS.get();
+
+        // Sample ink pixels on a grid coarse enough to bound the work per angle
+        int step = sampleStep(width, height);
+        int[] xs = buffers.sampleX = ensure(buffers.sampleX, MAX_SKEW_SAMPLES);
+        int[] ys = buffers.sampleY = ensure(buffers.sampleY, MAX_SKEW_SAMPLES);
+        int count = 0;
+        for (int y = 0; y < height && count < MAX_SKEW_SAMPLES; y += step) {
+            int row = y * width;
+            for (int x = 0; x < width && count < MAX_SKEW_SAMPLES; x += step) {
+                if ((pixels[row + x] & 0xFF) < INK_THRESHOLD) {
+                    xs[count] = x / step;
+                    ys[count] = y / step;
+                    count++;
+                }
+            }
+        }
+        return bestSkew(xs, ys, count, width, height, step, maxDegrees);
+    }
+
+    /**
+     * Estimate the skew of a 1-bit image from its packed rows, as estimateSkew does for gray pixels
+     */
+    public double estimateSkewPacked(byte[] packed, int width, int height, double maxDegrees) {
+        Buffers buffers = BUFFERS.get();
+        int stride = (width + 7) / 8;
+
+        int step = sampleStep(width, height);
+        int[] xs = buffers.sampleX = ensure(buffers.sampleX, MAX_SKEW_SAMPLES);
+        int[] ys = buffers.sampleY = ensure(buffers.sampleY, MAX_SKEW_SAMPLES);
+        int count = 0;
+        for (int y = 0; y < height && count < MAX_SKEW_SAMPLES; y += step) {
+            int row = y * stride;
+            for (int x = 0; x < width && count < MAX_SKEW_SAMPLES; x += step) {
+                if (isInk(packed, row, x)) {
+                    xs[count] = x / step;
+                    ys[count] = y / step;
+                    count++;
+                }
+            }
+        }
+        return bestSkew(xs, ys, count, width, height, step, maxDegrees);
+    }
+
+    /**
+     * Grid step for sampling ink pixels, coarse enough to bound the work per angle
+     */
+    private static int sampleStep(int width, int height) {
+        int step = 1;
+        while ((long) (width / step) * (height / step) / 4 > MAX_SKEW_SAMPLES) {
+            step++;
+        }
+        return step;
+    }
+
+    /**
+     * Find the angle whose profile of the sampled ink pixels is most sharply peaked
+     */
+    private double bestSkew(int[] xs, int[] ys, int count, int width, int height, int step, double maxDegrees) {
+        if (count < 100) {
+            return 0;
+        }
+        // Samples are stored in grid units so every histogram bin can be hit at any angle
+        int gridWidth = (width + step - 1) / step;
+        int gridHeight = (height + step - 1) / step;
+
+        // Coarse search, then refine around the best angle
+        double best = 0;
+        long bestScore = profileScore(xs, ys, count, gridWidth, gridHeight, 0);
+        for (double angle = -maxDegrees; angle <= maxDegrees; angle += 0.5) {
+            long score = profileScore(xs, ys, count, gridWidth, gridHeight, angle);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        double coarse = best;
+        for (double angle = coarse - 0.5; angle <= coarse + 0.5; angle += 0.1) {
+            long score = profileScore(xs, ys, count, gridWidth, gridHeight, angle);
+            if (score > bestScore) {
+                bestScore = score;
+                best = angle;
+            }
+        }
+        return Math.round(best * 10) / 10.0;
+    }
+
+    private long profileScore(int[] xs, int[] ys, int count, int width, int height, double degrees) {
+        double slope = Math.tan(Math.toRadians(degrees));
+        int offset = (int) Math.ceil(width * Math.abs(slope)) + 1;
+        int bins = height + 2 * offset;
+        Buffers buffers = BUFFERS.get();
+        int[] histogram = buffers.histogram = ensure(buffers.histogram, bins);
+        Arrays.fill(histogram, 0, bins, 0);
+
+        for (int i = 0; i < count; i++) {
+            histogram[(int) (ys[i] - xs[i] * slope) + offset]++;
+        }
+        long score = 0;
+        for (int i = 0; i < bins; i++) {
+            score += (long) histogram[i] * histogram[i];
+        }
+        return score;
+    }
+
+    /**
+     * Rotate the image about its center so text lines with the given slope become horizontal.
+     * Uses nearest-neighbour sampling; uncovered corners become white.
+     */
+    public void deskew(byte[] pixels, int width, int height, double skewDegrees) {
+        Buffers buffers = BUFFERS.get();
+        byte[] rotated = buffers.scratch = ensure(buffers.scratch, width * height);
+
+        double radians = Math.toRadians(skewDegrees);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        double cx = width / 2.0;
+        double cy = height / 2.0;
+
+        for (int y = 0; y < height; y++) {
+            double dy = y - cy;
+            // Source position of (0, y), stepped by (cos, sin) along the row
+            double sx = -cx * cos - dy * sin + cx;
+            double sy = -cx * sin + dy * cos + cy;
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int ix = (int) Math.round(sx);
+                int iy = (int) Math.round(sy);
+                rotated[row + x] = (ix >= 0 && ix < width && iy >= 0 && iy < height)
+                    ? pixels[iy * width + ix] : WHITE;
+                sx += cos;
+                sy += sin;
+            }
+        }
+        System.arraycopy(rotated, 0, pixels, 0, width * height);
+    }
+
+    /**
+     * Rotate a 1-bit image about its center, as deskew does for gray pixels, reading and writing packed bits
+     */
+    public void deskewPacked(byte[] packed, int width, int height, double skewDegrees) {
+        int stride = (width + 7) / 8;
+        Buffers buffers = BUFFERS.get();
+        byte[] rotated = buffers.scratch = ensure(buffers.scratch, stride * height);
+        Arrays.fill(rotated, 0, stride * height, WHITE_BITS);
+
+        double radians = Math.toRadians(skewDegrees);
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+        double cx = width / 2.0;
+        double cy = height / 2.0;
+
+        for (int y = 0; y < height; y++) {
+            double dy = y - cy;
+            double sx = -cx * cos - dy * sin + cx;
+            double sy = -cx * sin + dy * cos + cy;
+            int row = y * stride;
+            for (int x = 0; x < width; x++) {
+                int ix = (int) Math.round(sx);
+                int iy = (int) Math.round(sy);
+                if (ix >= 0 && ix < width && iy >= 0 && iy < height && isInk(packed, iy * stride, ix)) {
+                    rotated[row + (x >> 3)] &= (byte) ~(0x80 >> (x & 7));
+                }
+                sx += cos;
+                sy += sin;
+            }
+        }
+        System.arraycopy(rotated, 0, packed, 0, stride * height);
+    }
+
+    /**
+     * Adaptive (Bradley) thresholding: a pixel becomes ink when it is darker than the mean of its
+     * square neighbourhood by more than the sensitivity. Window sums are kept as running column
+     * sums, so only a ring of original rows is buffered instead of a full integral image.
+     * @param radius half the window size, or 0 to derive it from the image size
+     */
+    public void binarize(byte[] pixels, int width, int height, int radius, double sensitivity) {
+        int r = radius > 0 ? radius : Math.max(7, Math.min(width, height) / 40);
+        int ringRows = 2 * r + 2;
+        Buffers buffers = BUFFERS.get();
+        byte[] ring = buffers.ring = ensure(buffers.ring, ringRows * width);
+        int[] columnSums = buffers.columnSums = ensure(buffers.columnSums, width);
+        Arrays.fill(columnSums, 0, width, 0);
+        long scale = Math.round((1.0 - sensitivity) * 1024);
+
+        for (int y = 0; y < Math.min(r, height); y++) {
+            addRow(pixels, ring, columnSums, width, y, ringRows, 1);
+        }
+
+        for (int y = 0; y < height; y++) {
+            if (y + r < height) {
+                addRow(pixels, ring, columnSums, width, y + r, ringRows, 1);
+            }
+            if (y - r - 1 >= 0) {
+                addRow(pixels, ring, columnSums, width, y - r - 1, ringRows, -1);
+            }
+            int rows = Math.min(height - 1, y + r) - Math.max(0, y - r) + 1;
+
+            int row = y * width;
+            int windowSum = 0;
+            for (int x = 0; x < Math.min(r, width); x++) {
+                windowSum += columnSums[x];
+            }
+            for (int x = 0; x < width; x++) {
+                if (x + r < width) {
+                    windowSum += columnSums[x + r];
+                }
+                if (x - r - 1 >= 0) {
+                    windowSum -= columnSums[x - r - 1];
+                }
+                int columns = Math.min(width - 1, x + r) - Math.max(0, x - r) + 1;
+                long value = pixels[row + x] & 0xFF;
+                pixels[row + x] = value * rows * columns * 1024 < windowSum * scale ? BLACK : WHITE;
+            }
+        }
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) a row from the running column sums. Rows are copied to the
+     * ring when added, since the row itself is thresholded before it leaves the window.
+     */
+    private static void addRow(byte[] pixels, byte[] ring, int[] columnSums, int width, int y, int ringRows, int sign) {
+        int ringOffset = (y % ringRows) * width;
+        if (sign > 0) {
+            System.arraycopy(pixels, y * width, ring, ringOffset, width);
+        }
+        for (int x = 0; x < width; x++) {
+            columnSums[x] += sign * (ring[ringOffset + x] & 0xFF);
+        }
+    }
+
+    /**
+     * Remove ink components (8-connected) of at most maxSize pixels from a binarized image
+     * @return number of components removed
+     */
+    public int removeSpeckles(byte[] pixels, int width, int height, int maxSize) {
+        Buffers buffers = BUFFERS.get();
+        int[] stack = buffers.stack = ensure(buffers.stack, 1024);
+        int[] component = buffers.component = ensure(buffers.component, maxSize + 1);
+        int removed = 0;
+
+        int total = width * height;
+        for (int start = 0; start < total; start++) {
+            if (pixels[start] != BLACK) {
+                continue;
+            }
+
+            // Flood fill the whole component, remembering its first maxSize + 1 pixels
+            int size = 0;
+            int top = 0;
+            stack[top++] = start;
+            pixels[start] = VISITED;
+            while (top > 0) {
+                int p = stack[--top];
+                if (size <= maxSize) {
+                    component[size] = p;
+                }
+                size++;
+
+                int px = p % width;
+                int py = p / width;
+                for (int ny = Math.max(0, py - 1); ny <= Math.min(height - 1, py + 1); ny++) {
+                    for (int nx = Math.max(0, px - 1); nx <= Math.min(width - 1, px + 1); nx++) {
+                        int q = ny * width + nx;
+                        if (pixels[q] == BLACK) {
+                            pixels[q] = VISITED;
+                            if (top == stack.length) {
+                                stack = buffers.stack = Arrays.copyOf(stack, stack.length * 2);
+                            }
+                            stack[top++] = q;
+                        }
+                    }
+                }
+            }
+
+            if (size <= maxSize) {
+                for (int i = 0; i < size; i++) {
+                    pixels[component[i]] = WHITE;
+                }
+                removed++;
+            }
+        }
+
+        for (int i = 0; i < total; i++) {
+            if (pixels[i] == VISITED) {
+                pixels[i] = BLACK;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove ink components (8-connected) of at most maxSize pixels from a 1-bit image's packed rows.
+     * Visited ink is tracked in a bitmap of the same layout, and runs of white bytes are skipped whole.
+     * @return number of components removed
+     */
+    public int removeSpecklesPacked(byte[] packed, int width, int height, int maxSize) {
+        int stride = (width + 7) / 8;
+        Buffers buffers = BUFFERS.get();
+        byte[] visited = buffers.visited = ensure(buffers.visited, stride * height);
+        Arrays.fill(visited, 0, stride * height, (byte) 0);
+        int[] stack = buffers.stack = ensure(buffers.stack, 1024);
+        int[] component = buffers.component = ensure(buffers.component, maxSize + 1);
+        int removed = 0;
+
+        for (int y = 0; y < height; y++) {
+            int row = y * stride;
+            for (int bx = 0; bx < stride; bx++) {
+                if (packed[row + bx] == WHITE_BITS) {
+                    continue;
+                }
+                for (int x = bx * 8; x < Math.min(width, bx * 8 + 8); x++) {
+                    if (!isInk(packed, row, x) || isSet(visited, row, x)) {
+                        continue;
+                    }
+
+                    // Flood fill the whole component, remembering its first maxSize + 1 pixels
+                    int size = 0;
+                    int top = 0;
+                    stack[top++] = y * width + x;
+                    set(visited, row, x);
+                    while (top > 0) {
+                        int p = stack[--top];
+                        if (size <= maxSize) {
+                            component[size] = p;
+                        }
+                        size++;
+
+                        int px = p % width;
+                        int py = p / width;
+                        for (int ny = Math.max(0, py - 1); ny <= Math.min(height - 1, py + 1); ny++) {
+                            int neighbourRow = ny * stride;
+                            for (int nx = Math.max(0, px - 1); nx <= Math.min(width - 1, px + 1); nx++) {
+                                if (isInk(packed, neighbourRow, nx) && !isSet(visited, neighbourRow, nx)) {
+                                    set(visited, neighbourRow, nx);
+                                    if (top == stack.length) {
+                                        stack = buffers.stack = Arrays.copyOf(stack, stack.length * 2);
+                                    }
+                                    stack[top++] = ny * width + nx;
+                                }
+                            }
+                        }
+                    }
+
+                    if (size <= maxSize) {
+                        for (int i = 0; i < size; i++) {
+                            int p = component[i];
+                            // Setting the bit makes the pixel white
+                            set(packed, (p / width) * stride, p % width);
+                        }
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static boolean isSet(byte[] bits, int row, int x) {
+        return (bits[row + (x >> 3)] & (0x80 >> (x & 7))) != 0;
+    }
+
+    private static void set(byte[] bits, int row, int x) {
+        bits[row + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+    }
+
+    private static boolean isInk(byte[] packed, int row, int x) {
+        return !isSet(packed, row, x);
+    }
+
+    /**
+     * True for a 1-bit image with black at index 0 whose rows are packed one after another
+     */
+    private static boolean isPackedBinary(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_BYTE_BINARY
+                || !(image.getRaster().getSampleModel() instanceof MultiPixelPackedSampleModel)
+                || !(image.getColorModel() instanceof IndexColorModel)) {
+            return false;
+        }
+        MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) image.getRaster().getSampleModel();
+        IndexColorModel colors = (IndexColorModel) image.getColorModel();
+        return model.getPixelBitStride() == 1
+            && model.getDataBitOffset() == 0
+            && model.getScanlineStride() == (image.getWidth() + 7) / 8
+            && image.getRaster().getSampleModelTranslateX() == 0
+            && image.getRaster().getSampleModelTranslateY() == 0
+            && colors.getMapSize() == 2
+            && (colors.getRGB(0) & 0xFFFFFF) == 0;
+    }
+
+    /**
+     * Get an 8-bit gray image whose pixel array is one contiguous row-major block
+     */
+    private static BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && image.getRaster().getSampleModel() instanceof ComponentSampleModel
+                && ((ComponentSampleModel) image.getRaster().getSampleModel()).getScanlineStride() == image.getWidth()
+                && image.getRaster().getSampleModelTranslateX() == 0
+                && image.getRaster().getSampleModelTranslateY() == 0) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = gray.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return gray;
+    }
+
+    private static int[] ensure(int[] buffer, int size) {
+        return buffer != null && buffer.length >= size ? buffer : new int[size];
+    }
+
+    private static byte[] ensure(byte[] buffer, int size) {
+        return buffer != null && buffer.length >= size ? buffer : new byte[size];
+    }
+
+    /**
+     * A preprocessed image and the transform from its pixels to the pixels of the input image
+     */
+    public static class PreparedImage {
+        private final BufferedImage image;
+        private final AffineTransform toOriginal;
+
+        PreparedImage(BufferedImage image, AffineTransform toOriginal) {
+            this.image = image;
+            this.toOriginal = toOriginal;
+        }
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        public AffineTransform getToOriginal() {
+            return toOriginal;
+        }
+    }
+
+    /**
+     * Scratch arrays owned by one thread
+     */
+    private static class Buffers {
+        private byte[] scratch;
+        private byte[] ring;
+        private int[] columnSums;
+        private int[] sampleX;
+        private int[] sampleY;
+        private int[] histogram;
+        private int[] stack;
+        private int[] component;
+        private byte[] visited;
+    }
+}
@@ -0,0 +1,110 @@
+package app.services.ocr;
+
+import org.apache.pdfbox.rendering.ImageType;
+
+/**
+ * How pages are rasterized for OCR.
+ * Pages are rendered to 8-bit grayscale (bilevel scans to 1-bit), a quarter or less of the memory
+ * of RGB. The DPI is chosen per page: scans are rendered at their native resolution and text pages
+ * at the resolution that gives Tesseract glyphs of its preferred size, within fixed bounds.
+ * Pages that are a single scan within those bounds are not rendered at all: the embedded image
+ * is decoded and OCRed at its native resolution.
+ */
+public class OCRRenderProfile {
+    public static final OCRRenderProfile DEFAULT = new OCRRenderProfile(300, 150, 400, 40);
+
+    private final int defaultDpi;
+    private final int minDpi;
+    private final int maxDpi;
+    private final int targetFontSizePx;
+
+    /**
+     * @param defaultDpi DPI used when nothing is known about the page
+     * @param minDpi lowest DPI chosen for any page
+     * @param maxDpi highest DPI chosen for any page
+     * @param targetFontSizePx rendered font size (in pixels) aimed for when the text size is known
+     */
+    public OCRRenderProfile(int defaultDpi, int minDpi, int maxDpi, int targetFontSizePx) {
+        this.defaultDpi = defaultDpi;
+        this.minDpi = minDpi;
+        this.maxDpi = maxDpi;
+        this.targetFontSizePx = targetFontSizePx;
+    }
+
+    /**
+     * Choose the render settings for an analyzed page, or the defaults if analysis is null
+     */
+    public RenderSettings settingsFor(PageAnalyzer.PageAnalysis analysis) {
+        if (analysis == null) {
+            return new RenderSettings(defaultDpi, ImageType.GRAY);
+        }
+
+        // Bilevel scans lose nothing when rendered to 1 bit per pixel
+        ImageType imageType = analysis.getLargestImageBits() == 1 && analysis.getImageFraction() >= 0.5
+            ? ImageType.BINARY : ImageType.GRAY;
+
+        PageAnalyzer.ScanImage scanImage = analysis.getScanImage();
+        double scanDpi = analysis.getLargestImageDpi();
+        if (scanImage != null && scanDpi >= minDpi && scanDpi <= maxDpi) {
+            return new RenderSettings((int) Math.round(scanDpi), imageType, scanImage);
+        }
+
+        int dpi = defaultDpi;
+        if (analysis.getLargestImageDpi() > 0 && analysis.getImageFraction() >= 0.5) {
+            // Scanned page: rendering above the scan resolution adds pixels but no detail
+            dpi = (int) Math.round(analysis.getLargestImageDpi());
+        } else if (analysis.getMedianFontSize() > 0) {
+            dpi = Math.round(targetFontSizePx * 72f / analysis.getMedianFontSize());
+        }
+        dpi = Math.max(minDpi, Math.min(maxDpi, dpi));
+
+        return new RenderSettings(dpi, imageType);
+    }
+
+    public int getDefaultDpi() {
+        return defaultDpi;
+    }
+
+    /**
+     * Resolution and pixel format for rendering one page, or the embedded scan to use instead
+     */
+    public static class RenderSettings {
+        private final int dpi;
+        private final ImageType imageType;
+        private final PageAnalyzer.ScanImage scanImage;
+
+        public RenderSettings(int dpi, ImageType imageType) {
+            this(dpi, imageType, null);
+        }
+
+        RenderSettings(int dpi, ImageType imageType, PageAnalyzer.ScanImage scanImage) {
+            this.dpi = dpi;
+            this.imageType = imageType;
+            this.scanImage = scanImage;
+        }
+
+        public int getDpi() {
+            return dpi;
+        }
+
+        public ImageType getImageType() {
+            return imageType;
+        }
+
+        /**
+         * The scan to OCR instead of rendering the page, or null to render
+         */
+        public PageAnalyzer.ScanImage getScanImage() {
+            return scanImage;
+        }
+
+        public boolean isEmbeddedImage() {
+            return scanImage != null;
+        }
+
+        @Override
+        public String toString() {
+            return isEmbeddedImage() ? "embedded image at " + dpi + "dpi" : dpi + "dpi " + imageType;
+        }
+    }
+}
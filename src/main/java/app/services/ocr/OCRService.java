@@ -3,6 +3,8 @@ package app.services.ocr;
 import app.model.OCRResult;
 import app.model.PDFDocument;
 
+import java.util.concurrent.Executor;
+
 /**
  * Service interface for OCR operations
  */
@@ -18,6 +20,44 @@ public interface OCRService {
      */
     OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers) throws Exception;
     
+    /**
+     * Perform OCR on specific pages with custom image preprocessing
+     */
+    OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers,
+                         PreprocessOptions preprocessOptions) throws Exception;
+    
+    /**
+     * Perform OCR on specific pages, handing each page to the listener as soon as it is done.
+     * Must be called on the thread that owns the document.
+     */
+    OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers,
+                         PreprocessOptions preprocessOptions, OCRPageListener listener) throws Exception;
+    
+    /**
+     * Perform OCR on specific pages from any thread. Each read of the document is a short task run on the
+     * executor that owns it, one page at a time, so other work on the document is not held up while pages
+     * are recognized. Interrupting the calling thread cancels the request.
+     */
+    OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers,
+                         PreprocessOptions preprocessOptions, OCRPageListener listener,
+                         Executor documentExecutor) throws Exception;
+    
+    /**
+     * Perform OCR on specific pages and write the recognized words back into the document as an
+     * invisible text layer, page by page as they finish. The document is marked modified and is not
+     * saved; the caller saves it once the layer is complete. Must be called on the thread that owns the document.
+     */
+    OCRResult makeSearchable(PDFDocument document, String language, int[] pageNumbers,
+                             PreprocessOptions preprocessOptions, OCRPageListener listener) throws Exception;
+    
+    /**
+     * Make pages searchable from any thread, reading and writing the document on the executor that owns it
+     * one page at a time, as performOCR does
+     */
+    OCRResult makeSearchable(PDFDocument document, String language, int[] pageNumbers,
+                             PreprocessOptions preprocessOptions, OCRPageListener listener,
+                             Executor documentExecutor) throws Exception;
+    
     /**
      * Get list of supported languages
      */
@@ -1,16 +1,38 @@
 package app.services.ocr;
 
+import app.model.OCRPageResult;
 import app.model.OCRResult;
 import app.model.PDFDocument;
-import net.sourceforge.tess4j.Tesseract;
+import app.utils.ConfigManager;
 import net.sourceforge.tess4j.TesseractException;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.rendering.PDFRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of OCR using Tesseract
@@ -19,22 +41,64 @@ import java.util.Map;
  */
 public class OCRServiceImpl implements OCRService {
     private static final Logger logger = LoggerFactory.getLogger(OCRServiceImpl.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
     
-    private final Tesseract tesseract;
+    // Requests with more pages than this are OCRed in parallel
+    private static final int PARALLEL_PAGE_THRESHOLD = 4;
+    
+    private static final Path OCR_CACHE_DIR = Paths.get(System.getProperty("user.home"), ".pdfstudio", "cache", "ocr");
+    private static final long OCR_CACHE_MAX_BYTES = 256L * 1024 * 1024;
+    
+    // Engines kept across languages: a full set for the language in use and one for the previous
+    private static final int ENGINE_SETS = 2;
+    private static final long ENGINE_IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    
+    private final int workerCount;
+    // Rendered pages alive at once: one per worker plus one rendered ahead
+    private final int maxBitmaps;
+    private final String dataPath;
+    private final TesseractPool enginePool;
+    private final ExecutorService ocrExecutor;
+    private final LargePageRecognizer largePageRecognizer;
+    private final OCRCache ocrCache;
+    private final OCRRenderProfile renderProfile = OCRRenderProfile.DEFAULT;
+    private final OCRPreprocessor preprocessor = new OCRPreprocessor();
     private final Map<String, String> languageMap;
     private boolean tesseractAvailable;
 
     public OCRServiceImpl() {
-        this.tesseract = new Tesseract();
+        this.workerCount = Runtime.getRuntime().availableProcessors();
+        this.maxBitmaps = workerCount + 1;
         this.languageMap = initializeLanguageMap();
         
         // Configure Tesseract data path
-        configureTesseractDataPath();
+        this.dataPath = findTesseractDataPath();
+        this.enginePool = new TesseractPool(dataPath, workerCount, workerCount * ENGINE_SETS, ENGINE_IDLE_TIMEOUT_MS);
+        this.ocrCache = new OCRCache(OCR_CACHE_DIR, OCR_CACHE_MAX_BYTES);
+        
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.ocrExecutor = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "ocr-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // Helpers for splitting oversized pages run on their own threads and never queue:
+        // when all are busy, the worker that owns the page recognizes its strips alone
+        AtomicInteger helperCounter = new AtomicInteger();
+        ThreadPoolExecutor regionExecutor = new ThreadPoolExecutor(0, Math.max(1, workerCount - 1), 30, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), r -> {
+                Thread thread = new Thread(r, "ocr-region-" + helperCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.largePageRecognizer = new LargePageRecognizer(enginePool, regionExecutor, workerCount - 1);
         
         this.tesseractAvailable = checkTesseractAvailability();
         
         if (tesseractAvailable) {
-            logger.info("Tesseract OCR initialized successfully");
+            logger.info("Tesseract OCR initialized successfully ({} workers)", workerCount);
+            warmDefaultLanguage();
         } else {
             logger.warn("Tesseract OCR not available - stub implementation will be used");
             logger.warn("To enable OCR:");
@@ -45,9 +109,10 @@ public class OCRServiceImpl implements OCRService {
     }
     
     /**
-     * Configure Tesseract data path from multiple possible locations
+     * Find the Tesseract data path from multiple possible locations
+     * @return the data path, or null to let Tesseract use its built-in default
      */
-    private void configureTesseractDataPath() {
+    private String findTesseractDataPath() {
         // Priority order:
         // 1. TESSDATA_PREFIX environment variable
         // 2. Common installation paths
@@ -56,9 +121,8 @@ public class OCRServiceImpl implements OCRService {
         String tessDataPath = System.getenv("TESSDATA_PREFIX");
         
         if (tessDataPath != null && !tessDataPath.isEmpty()) {
-            tesseract.setDatapath(tessDataPath);
             logger.debug("Using Tesseract data path from TESSDATA_PREFIX: {}", tessDataPath);
-            return;
+            return tessDataPath;
         }
         
         // Try common installation paths
@@ -77,9 +141,8 @@ public class OCRServiceImpl implements OCRService {
         for (String path : possiblePaths) {
             java.io.File dir = new java.io.File(path);
             if (dir.exists() && dir.isDirectory()) {
-                tesseract.setDatapath(path);
                 logger.debug("Found Tesseract data at: {}", path);
-                return;
+                return path;
             }
         }
         
@@ -87,6 +150,7 @@ public class OCRServiceImpl implements OCRService {
         for (String path : possiblePaths) {
             logger.warn("  - {}", path);
         }
+        return null;
     }
 
     @Override
@@ -103,50 +167,191 @@ public class OCRServiceImpl implements OCRService {
 
     @Override
     public OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers) throws Exception {
-        logger.info("Performing OCR on {} pages with language: {}", pageNumbers.length, language);
+        return performOCR(document, language, pageNumbers, PreprocessOptions.defaults());
+    }
+
+    @Override
+    public OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers,
+                                PreprocessOptions preprocessOptions) throws Exception {
+        return performOCR(document, language, pageNumbers, preprocessOptions, (page, completed, total) -> { });
+    }
+
+    @Override
+    public OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers,
+                                PreprocessOptions preprocessOptions, OCRPageListener listener) throws Exception {
+        return performOCR(document, language, pageNumbers, preprocessOptions, listener, Runnable::run);
+    }
+
+    @Override
+    public OCRResult performOCR(PDFDocument document, String language, int[] pageNumbers,
+                                PreprocessOptions preprocessOptions, OCRPageListener listener,
+                                Executor documentExecutor) throws Exception {
+        return runOCR(document, language, pageNumbers, preprocessOptions, listener,
+                      new DocumentAccess(documentExecutor), () -> { });
+    }
+
+    @Override
+    public OCRResult makeSearchable(PDFDocument document, String language, int[] pageNumbers,
+                                    PreprocessOptions preprocessOptions, OCRPageListener listener) throws Exception {
+        return makeSearchable(document, language, pageNumbers, preprocessOptions, listener, Runnable::run);
+    }
+
+    @Override
+    public OCRResult makeSearchable(PDFDocument document, String language, int[] pageNumbers,
+                                    PreprocessOptions preprocessOptions, OCRPageListener listener,
+                                    Executor documentExecutor) throws Exception {
+        long startTime = System.currentTimeMillis();
+        String name = document.getFile() != null ? document.getFile().getName() : document.getTitle();
+        logger.debug("makeSearchable() - START - File: {}, Pages: {}", name, pageNumbers.length);
+        
+        DocumentAccess access = new DocumentAccess(documentExecutor);
+        OCRTextLayerWriter writer = new OCRTextLayerWriter(document.getPdDocument());
+        // Pages finish on OCR workers, but the document may only be changed by its owner,
+        // so finished pages wait here until the rendering loop comes back for the next page
+        Queue<OCRPageResult> finishedPages = new ConcurrentLinkedQueue<>();
+        TextLayerProgress progress = new TextLayerProgress();
         
+        try {
+            OCRResult result = runOCR(document, language, pageNumbers, preprocessOptions,
+                (page, completed, total) -> {
+                    finishedPages.add(page);
+                    listener.onPageCompleted(page, completed, total);
+                },
+                access, () -> writeTextLayers(document, writer, finishedPages, access, progress));
+            writeTextLayers(document, writer, finishedPages, access, progress);
+            
+            long duration = System.currentTimeMillis() - startTime;
+            logger.info("makeSearchable() - SUCCESS - File: {}, Pages with text layer: {}, Duration: {}ms",
+                       name, progress.pagesWritten, duration);
+            perfLogger.info("OCR Text Layer: {} pages ({} words) in {}ms", progress.pagesWritten,
+                           progress.wordsWritten, duration);
+            result.getMetadata().put("text_layer_pages", progress.pagesWritten);
+            return result;
+        } catch (Exception e) {
+            long duration = System.currentTimeMillis() - startTime;
+            logger.error("makeSearchable() - FAILED - File: {}, Duration: {}ms, Error: {}",
+                        name, duration, e.getMessage(), e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Add text layers for the finished pages, each page as its own short task on the document's owner.
+     * Nothing is saved here: the document is marked modified and the caller saves it once, at the end.
+     */
+    private void writeTextLayers(PDFDocument document, OCRTextLayerWriter writer, Queue<OCRPageResult> finishedPages,
+                                 DocumentAccess access, TextLayerProgress progress) throws Exception {
+        OCRPageResult page;
+        while ((page = finishedPages.poll()) != null) {
+            OCRPageResult finished = page;
+            try {
+                int words = access.call(() -> writer.addPage(finished));
+                if (words > 0) {
+                    progress.wordsWritten += words;
+                    progress.pagesWritten++;
+                    document.setModified(true);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not add text layer to page {}: {}", page.getPageNumber() + 1, e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Run OCR, calling betweenPages on the calling thread before each page is rendered.
+     * The document is only read through the access, one page at a time.
+     */
+    private OCRResult runOCR(PDFDocument document, String language, int[] pageNumbers,
+                             PreprocessOptions preprocessOptions, OCRPageListener listener,
+                             DocumentAccess access, DocumentTask betweenPages) throws Exception {
         long startTime = System.currentTimeMillis();
+        String tessLang = resolveLanguage(language);
         
-        // Set language for Tesseract
-        String tessLang = languageMap.getOrDefault(language, "eng");
-        tesseract.setLanguage(tessLang);
+        // Pages with a usable text layer are taken from text extraction; the rest go to OCR
+        OCRPageResult[] pageResults = new OCRPageResult[pageNumbers.length];
+        Map<Integer, OCRRenderProfile.RenderSettings> renderSettings = new HashMap<>();
+        List<Integer> ocrIndices = classifyPages(document, pageNumbers, pageResults, renderSettings, access);
+        int textLayerPages = pageNumbers.length - ocrIndices.size();
         
-        StringBuilder ocrText = new StringBuilder();
-        double totalConfidence = 0;
+        // Pages recognized before (in this or any other document) come from the cache
+        Map<Integer, String> cacheKeys = new HashMap<>();
+        if (tesseractAvailable) {
+            ocrIndices = lookupCachedPages(document, pageNumbers, ocrIndices, tessLang, renderSettings,
+                                           preprocessOptions, cacheKeys, pageResults, access);
+        }
+        int cachedPages = pageNumbers.length - textLayerPages - ocrIndices.size();
+        
+        // Text layer and cached pages are ready now; recognized pages follow as they finish
+        AtomicInteger completedPages = new AtomicInteger();
+        for (OCRPageResult pageResult : pageResults) {
+            if (pageResult != null) {
+                notifyListener(listener, pageResult, completedPages.incrementAndGet(), pageNumbers.length);
+            }
+        }
+        int[] ocrPages = ocrIndices.stream().mapToInt(i -> pageNumbers[i]).toArray();
+        int embeddedImagePages = (int) Arrays.stream(ocrPages)
+            .filter(pageNum -> renderSettings.get(pageNum).isEmbeddedImage()).count();
         
-        PDFRenderer renderer = new PDFRenderer(document.getPdDocument());
+        boolean parallel = ocrPages.length > PARALLEL_PAGE_THRESHOLD && workerCount > 1;
+        logger.info("Performing OCR on {} of {} pages with language: {} ({})",
+                   ocrPages.length, pageNumbers.length, language, parallel ? "parallel" : "sequential");
         
-        for (int pageNum : pageNumbers) {
-            try {
-                // Render PDF page to image
-                BufferedImage image = renderer.renderImageWithDPI(pageNum, 300);
-                
-                // Perform OCR
-                String pageText;
-                if (tesseractAvailable) {
-                    pageText = tesseract.doOCR(image);
-                } else {
-                    pageText = performStubOCR(pageNum);
+        if (ocrPages.length > 0) {
+            // Render one page at a time on the document's owner while the OCR workers recognize earlier pages
+            PDFRenderer renderer = new PDFRenderer(document.getPdDocument());
+            // Pixel to page transforms are computed while rendering, since workers must not touch the document
+            Map<Integer, AffineTransform> pageTransforms = new ConcurrentHashMap<>();
+            OCRPipeline pipeline = new OCRPipeline(ocrExecutor, parallel ? workerCount : 1, maxBitmaps);
+            List<OCRPageResult> recognized = pipeline.run(ocrPages,
+                pageNum -> {
+                    betweenPages.run();
+                    OCRRenderProfile.RenderSettings settings = renderSettings.get(pageNum);
+                    return access.call(() -> {
+                        if (settings.isEmbeddedImage()) {
+                            // Scanned page: OCR the original image instead of a resampled rendering of it
+                            pageTransforms.put(pageNum, settings.getScanImage().getImageToUser());
+                            return settings.getScanImage().decode();
+                        }
+                        PDPage page = document.getPdDocument().getPage(pageNum);
+                        pageTransforms.put(pageNum, OCRCoordinates.renderedPageToUserSpace(page, settings.getDpi()));
+                        return renderer.renderImageWithDPI(pageNum, settings.getDpi(), settings.getImageType());
+                    });
+                },
+                (pageNum, image) -> recognizePage(pageNum, image, pageTransforms.get(pageNum), tessLang,
+                                                  preprocessOptions),
+                pageResult -> notifyListener(listener, pageResult, completedPages.incrementAndGet(),
+                                             pageNumbers.length));
+            for (int i = 0; i < recognized.size(); i++) {
+                int index = ocrIndices.get(i);
+                OCRPageResult pageResult = recognized.get(i);
+                pageResults[index] = pageResult;
+                if (pageResult.isSuccessful() && cacheKeys.containsKey(index)) {
+                    ocrCache.put(cacheKeys.get(index), pageResult);
                 }
-                
-                ocrText.append("=== Page ").append(pageNum + 1).append(" ===\n");
-                ocrText.append(pageText).append("\n\n");
-                
-                // Estimate confidence (Tesseract doesn't provide easy page-level confidence)
-                // Using 0-100 scale where 85 = 85%
-                totalConfidence += 85.0; // Stub value in 0-100 range
-                
-            } catch (Exception e) {
-                logger.error("Error performing OCR on page {}", pageNum, e);
-                ocrText.append("=== Page ").append(pageNum + 1).append(" ===\n");
-                ocrText.append("[OCR Error: ").append(e.getMessage()).append("]\n\n");
             }
         }
         
-        double avgConfidence = totalConfidence / pageNumbers.length;
+        StringBuilder ocrText = new StringBuilder();
+        double totalConfidence = 0;
+        int successfulPages = 0;
+        for (OCRPageResult pageResult : pageResults) {
+            ocrText.append("=== Page ").append(pageResult.getPageNumber() + 1).append(" ===\n");
+            if (pageResult.isSuccessful()) {
+                ocrText.append(pageResult.getText()).append("\n\n");
+                totalConfidence += pageResult.getConfidence();
+                successfulPages++;
+            } else {
+                ocrText.append("[OCR Error: ").append(pageResult.getError()).append("]\n\n");
+            }
+        }
+        
+        double avgConfidence = successfulPages > 0 ? totalConfidence / successfulPages : 0;
         long duration = System.currentTimeMillis() - startTime;
         
         logger.info("OCR completed in {} ms with average confidence: {}", duration, avgConfidence);
+        perfLogger.info("OCR: {} pages ({} from text layer, {} cached, {} embedded scans) in {}ms ({}) - {}ms/page",
+                       pageNumbers.length, textLayerPages, cachedPages, embeddedImagePages, duration, parallel ? "parallel" : "sequential",
+                       pageNumbers.length > 0 ? duration / pageNumbers.length : 0);
         
         OCRResult result = new OCRResult(ocrText.toString(), avgConfidence, language);
         
@@ -154,10 +359,167 @@ public class OCRServiceImpl implements OCRService {
         metadata.put("pages_processed", pageNumbers.length);
         metadata.put("processing_time_ms", duration);
         metadata.put("tesseract_available", tesseractAvailable);
+        metadata.put("parallel", parallel);
+        metadata.put("pages_from_text_layer", textLayerPages);
+        metadata.put("pages_from_cache", cachedPages);
+        metadata.put("pages_from_embedded_image", embeddedImagePages);
+        result.setPages(Arrays.asList(pageResults));
         result.setMetadata(metadata);
         
         return result;
     }
+    
+    /**
+     * Fill in results for pages whose text layer is good enough
+     * @return indices into pageNumbers of the pages that still need OCR
+     */
+    private List<Integer> classifyPages(PDFDocument document, int[] pageNumbers, OCRPageResult[] pageResults,
+                                        Map<Integer, OCRRenderProfile.RenderSettings> renderSettings,
+                                        DocumentAccess access) throws InterruptedException {
+        List<Integer> ocrIndices = new ArrayList<>();
+        PageAnalyzer analyzer;
+        try {
+            analyzer = new PageAnalyzer();
+        } catch (IOException e) {
+            logger.warn("Page analysis unavailable, OCRing all pages: {}", e.getMessage());
+            for (int i = 0; i < pageNumbers.length; i++) {
+                ocrIndices.add(i);
+                renderSettings.put(pageNumbers[i], renderProfile.settingsFor(null));
+            }
+            return ocrIndices;
+        }
+        
+        for (int i = 0; i < pageNumbers.length; i++) {
+            int pageNum = pageNumbers[i];
+            try {
+                PageAnalyzer.PageAnalysis analysis =
+                    access.call(() -> analyzer.analyze(document.getPdDocument(), pageNum));
+                logger.debug("Page {}: {} chars, {} valid glyphs, {} image coverage -> {}", pageNum + 1,
+                            analysis.getCharCount(), String.format("%.2f", analysis.getValidGlyphRatio()),
+                            String.format("%.2f", analysis.getImageFraction()),
+                            analysis.needsOCR() ? "OCR at " + renderProfile.settingsFor(analysis) : "text layer");
+                if (analysis.needsOCR()) {
+                    ocrIndices.add(i);
+                    renderSettings.put(pageNum, renderProfile.settingsFor(analysis));
+                } else {
+                    pageResults[i] = new OCRPageResult(pageNum, analysis.getText().trim(), 100.0);
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.warn("Could not analyze page {}, falling back to OCR: {}", pageNum + 1, e.getMessage());
+                ocrIndices.add(i);
+                renderSettings.put(pageNum, renderProfile.settingsFor(null));
+            }
+        }
+        return ocrIndices;
+    }
+    
+    /**
+     * Fill in results for pages found in the OCR cache
+     * @return indices of the pages that still need to be recognized; their cache keys are added to cacheKeys
+     */
+    private List<Integer> lookupCachedPages(PDFDocument document, int[] pageNumbers, List<Integer> ocrIndices,
+                                            String tessLang, Map<Integer, OCRRenderProfile.RenderSettings> renderSettings,
+                                            PreprocessOptions preprocessOptions, Map<Integer, String> cacheKeys,
+                                            OCRPageResult[] pageResults, DocumentAccess access)
+            throws InterruptedException {
+        List<Integer> misses = new ArrayList<>();
+        for (int index : ocrIndices) {
+            int pageNum = pageNumbers[index];
+            try {
+                String key = access.call(() -> ocrCache.keyFor(document.getPdDocument().getPage(pageNum), tessLang,
+                                                               renderSettings.get(pageNum), preprocessOptions));
+                OCRPageResult cached = ocrCache.get(key, pageNum);
+                if (cached != null) {
+                    pageResults[index] = cached;
+                    continue;
+                }
+                cacheKeys.put(index, key);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                logger.warn("Could not compute OCR cache key for page {}: {}", pageNum + 1, e.getMessage());
+            }
+            misses.add(index);
+        }
+        return misses;
+    }
+    
+    /**
+     * Preprocess a rendered page and OCR it with an engine borrowed from the pool
+     * @param imageToPage transform from the rendered image's pixels to PDF user space
+     */
+    private OCRPageResult recognizePage(int pageNum, BufferedImage image, AffineTransform imageToPage, String tessLang,
+                                        PreprocessOptions preprocessOptions) throws Exception {
+        if (!tesseractAvailable) {
+            // Using 0-100 scale where 85 = 85%
+            return new OCRPageResult(pageNum, performStubOCR(pageNum), 85.0);
+        }
+        
+        OCRPreprocessor.PreparedImage prepared = preprocessor.prepare(image, preprocessOptions);
+        TesseractEngine.Recognition recognition;
+        if (largePageRecognizer.isOversized(prepared.getImage())) {
+            // Posters and drawings: recognize strips of the page on several cores
+            recognition = largePageRecognizer.recognize(prepared.getImage(), tessLang);
+        } else {
+            TesseractEngine engine = enginePool.borrow(tessLang);
+            try {
+                recognition = engine.recognize(prepared.getImage());
+            } finally {
+                enginePool.release(engine);
+            }
+        }
+        
+        // Words were found on the deskewed image; map them through the original rendering to the page
+        AffineTransform preparedToPage = new AffineTransform(imageToPage);
+        preparedToPage.concatenate(prepared.getToOriginal());
+        return new OCRPageResult(pageNum, recognition.getText(), recognition.getConfidence(),
+                                 OCRCoordinates.toUserSpace(recognition.getWords(), preparedToPage));
+    }
+    
+    /**
+     * Hand a finished page to the listener; a failing listener must not take down an OCR worker
+     */
+    private void notifyListener(OCRPageListener listener, OCRPageResult pageResult, int completed, int total) {
+        try {
+            listener.onPageCompleted(pageResult, completed, total);
+        } catch (RuntimeException e) {
+            logger.warn("OCR page listener failed on page {}: {}", pageResult.getPageNumber() + 1, e.getMessage());
+        }
+    }
+    
+    /**
+     * Load the configured default language in the background, so the first OCR run does not wait for it
+     */
+    private void warmDefaultLanguage() {
+        String defaultLanguage = resolveLanguage(ConfigManager.getInstance().getDefaultOCRLanguage());
+        if (!"eng".equals(defaultLanguage)) {
+            // English was loaded by the availability check
+            ocrExecutor.submit(() -> enginePool.warm(defaultLanguage));
+        }
+    }
+    
+    /**
+     * Accept display names ("German"), Tesseract codes ("deu") and combinations of either ("eng+German")
+     */
+    String resolveLanguage(String language) {
+        if (language == null || language.isBlank()) {
+            return "eng";
+        }
+        StringBuilder codes = new StringBuilder();
+        for (String part : language.split("\\+")) {
+            String name = part.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (codes.length() > 0) {
+                codes.append('+');
+            }
+            codes.append(languageMap.getOrDefault(name, name));
+        }
+        return codes.length() > 0 ? codes.toString() : "eng";
+    }
 
     @Override
     public String[] getSupportedLanguages() {
@@ -196,20 +558,18 @@ public class OCRServiceImpl implements OCRService {
 
     private boolean checkTesseractAvailability() {
         try {
-            // Try to initialize Tesseract with English
-            tesseract.setLanguage("eng");
-            
-            // Try a simple test to verify it works
-            // Create a small test image and attempt OCR
-            java.awt.image.BufferedImage testImage = new java.awt.image.BufferedImage(100, 100, java.awt.image.BufferedImage.TYPE_INT_RGB);
-            String testResult = tesseract.doOCR(testImage);
+            // Initializing an English engine verifies the native library and language data,
+            // and leaves the engine warm in the pool for the first request
+            TesseractEngine engine = enginePool.borrow("eng");
+            enginePool.release(engine);
             
-            logger.debug("Tesseract test successful, result length: {}", testResult != null ? testResult.length() : 0);
+            logger.debug("Tesseract test successful");
             return true;
         } catch (TesseractException e) {
             logger.warn("Tesseract OCR test failed: {}", e.getMessage());
             return false;
-        } catch (UnsatisfiedLinkError e) {
+        } catch (LinkageError e) {
+            // UnsatisfiedLinkError on first use, NoClassDefFoundError once TessAPI failed to initialize
             logger.warn("Tesseract native library not found: {}", e.getMessage());
             return false;
         } catch (Exception e) {
@@ -218,6 +578,49 @@ public class OCRServiceImpl implements OCRService {
         }
     }
 
+    /**
+     * Work done between pages on the thread running the OCR request
+     */
+    @FunctionalInterface
+    private interface DocumentTask {
+        void run() throws Exception;
+    }
+    
+    /**
+     * Runs short reads and writes of the document on the executor that owns it and waits for them.
+     * Long work, such as recognition, stays off that executor so other work on the document is not held up.
+     */
+    private static class DocumentAccess {
+        private final Executor executor;
+
+        DocumentAccess(Executor executor) {
+            this.executor = executor;
+        }
+
+        <T> T call(Callable<T> task) throws Exception {
+            FutureTask<T> future = new FutureTask<>(task);
+            executor.execute(future);
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                // Cancelled: a task still queued does not run
+                future.cancel(false);
+                throw e;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw (Error) cause;
+            }
+        }
+    }
+    
+    private static class TextLayerProgress {
+        private int pagesWritten;
+        private int wordsWritten;
+    }
+
     private String performStubOCR(int pageNum) {
         return String.format(
             "[Stub OCR Result for Page %d]\n" +
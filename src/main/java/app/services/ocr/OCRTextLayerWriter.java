@@ -0,0 +1,138 @@
+package app.services.ocr;
+
+import app.model.OCRPageResult;
+import app.model.OCRWord;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Writes OCR words onto their pages as invisible text, turning scanned pages into searchable ones.
+ * Each word is drawn with render mode NEITHER at its recognized position, scaled to the width of its box,
+ * so text selection and search highlights line up with the scanned glyphs.
+ * Must be used on the thread that owns the document.
+ */
+public class OCRTextLayerWriter {
+    // Ships with PDFBox; used for words Helvetica cannot encode
+    private static final String UNICODE_FONT_RESOURCE = "/org/apache/pdfbox/resources/ttf/LiberationSans-Regular.ttf";
+
+    private final PDDocument document;
+    private final PDFont latinFont = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+    // Embedded on first use, so Latin-only documents do not carry a font file
+    private PDFont unicodeFont;
+
+    public OCRTextLayerWriter(PDDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Add the words of a recognized page as an invisible text layer
+     * @return number of words written
+     */
+    public int addPage(OCRPageResult result) throws IOException {
+        if (!result.isSuccessful() || result.getWords().isEmpty()) {
+            return 0;
+        }
+
+        PDPage page = document.getPage(result.getPageNumber());
+        int rotation = ((page.getRotation() % 360) + 360) % 360;
+        int written = 0;
+        try (PDPageContentStream content = new PDPageContentStream(document, page,
+                PDPageContentStream.AppendMode.APPEND, true, true)) {
+            content.beginText();
+            content.setRenderingMode(RenderingMode.NEITHER);
+            for (OCRWord word : result.getWords()) {
+                if (writeWord(content, word, rotation)) {
+                    written++;
+                }
+            }
+            content.endText();
+        }
+        return written;
+    }
+
+    private boolean writeWord(PDPageContentStream content, OCRWord word, int rotation) throws IOException {
+        String text = word.getText().strip();
+        if (text.isEmpty()) {
+            return false;
+        }
+        PDFont font = fontFor(text);
+        float textWidth = font.getStringWidth(text) / 1000f;
+        if (textWidth <= 0) {
+            return false;
+        }
+
+        // Words run along the rendered page's x axis, which is rotated in user space for rotated pages
+        boolean sideways = rotation == 90 || rotation == 270;
+        double length = sideways ? word.getHeight() : word.getWidth();
+        double lineHeight = sideways ? word.getWidth() : word.getHeight();
+
+        // Size the font so ascender to descender fills the box, with the baseline above the descent
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        float ascent = descriptor != null && descriptor.getAscent() > 0 ? descriptor.getAscent() : 750;
+        float descent = descriptor != null && descriptor.getDescent() < 0 ? -descriptor.getDescent() : 250;
+        float fontSize = (float) (lineHeight * 1000 / (ascent + descent));
+        float baselineOffset = fontSize * descent / 1000;
+        if (fontSize <= 0) {
+            return false;
+        }
+
+        double x = word.getX();
+        double y = word.getY();
+        double originX;
+        double originY;
+        switch (rotation) {
+            case 90:
+                originX = x + word.getWidth() - baselineOffset;
+                originY = y;
+                break;
+            case 180:
+                originX = x + word.getWidth();
+                originY = y + word.getHeight() - baselineOffset;
+                break;
+            case 270:
+                originX = x + baselineOffset;
+                originY = y + word.getHeight();
+                break;
+            default:
+                originX = x;
+                originY = y + baselineOffset;
+                break;
+        }
+
+        content.setFont(font, fontSize);
+        content.setHorizontalScaling((float) (length / (textWidth * fontSize) * 100));
+        content.setTextMatrix(Matrix.getRotateInstance(Math.toRadians(rotation), (float) originX, (float) originY));
+        // Trailing space keeps words apart when the text is extracted again
+        content.showText(text + " ");
+        return true;
+    }
+
+    private PDFont fontFor(String text) throws IOException {
+        try {
+            latinFont.encode(text + " ");
+            return latinFont;
+        } catch (IllegalArgumentException e) {
+            if (unicodeFont == null) {
+                try (InputStream fontStream = PDFont.class.getResourceAsStream(UNICODE_FONT_RESOURCE)) {
+                    if (fontStream == null) {
+                        throw new IOException("Font resource not found: " + UNICODE_FONT_RESOURCE);
+                    }
+                    // Embedded whole: a subset would be fixed at the first incremental save
+                    unicodeFont = PDType0Font.load(document, fontStream, false);
+                }
+            }
+            return unicodeFont;
+        }
+    }
+}
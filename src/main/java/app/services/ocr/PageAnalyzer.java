@@ -0,0 +1,328 @@
+package app.services.ocr;
+
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decides per page whether OCR is needed by looking at the existing text layer
+ * (character count and share of valid glyphs) and how much of the page is covered by images.
+ * Born-digital pages come back with their extracted text and skip rasterization entirely,
+ * and pages that are nothing but one upright scan expose that image so it can be OCRed as is.
+ */
+public class PageAnalyzer {
+    // A page with at least this many characters of clean text does not need OCR
+    private static final int MIN_TEXT_CHARS = 50;
+    // Share of extracted characters that must be real glyphs (not U+FFFD, control or private-use)
+    private static final double MIN_VALID_GLYPH_RATIO = 0.9;
+    // Short texts are trusted only when images cover less than this share of the page
+    private static final double MAX_IMAGE_FRACTION_FOR_SHORT_TEXT = 0.1;
+
+    private final MeasuringTextStripper textStripper;
+
+    public PageAnalyzer() throws IOException {
+        this.textStripper = new MeasuringTextStripper();
+    }
+
+    /**
+     * Analyze a page (0-based). Not thread-safe; use one analyzer per thread.
+     */
+    public PageAnalysis analyze(PDDocument document, int pageNum) throws IOException {
+        PDPage page = document.getPage(pageNum);
+
+        textStripper.setStartPage(pageNum + 1);
+        textStripper.setEndPage(pageNum + 1);
+        textStripper.fontSizes.clear();
+        String text = textStripper.getText(document);
+
+        int charCount = 0;
+        int validChars = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isWhitespace(codePoint)) {
+                continue;
+            }
+            charCount++;
+            if (isValidGlyph(codePoint)) {
+                validChars++;
+            }
+        }
+        double validGlyphRatio = charCount > 0 ? (double) validChars / charCount : 0;
+
+        ImageCoverage coverage = new ImageCoverage(page);
+        coverage.processPage(page);
+
+        ScanImage scanImage = charCount == 0 && page.getRotation() % 360 == 0 ? coverage.getScanImage() : null;
+        return new PageAnalysis(pageNum, text, charCount, validGlyphRatio, coverage.getImageFraction(),
+                                textStripper.getMedianFontSize(), coverage.largestImageDpi, coverage.largestImageBits,
+                                scanImage);
+    }
+
+    private static boolean isValidGlyph(int codePoint) {
+        if (codePoint == 0xFFFD) {
+            return false;
+        }
+        switch (Character.getType(codePoint)) {
+            case Character.CONTROL:
+            case Character.PRIVATE_USE:
+            case Character.UNASSIGNED:
+            case Character.SURROGATE:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Result of analyzing a single page
+     */
+    public static class PageAnalysis {
+        private final int pageNumber;
+        private final String text;
+        private final int charCount;
+        private final double validGlyphRatio;
+        private final double imageFraction;
+        private final float medianFontSize;
+        private final double largestImageDpi;
+        private final int largestImageBits;
+        private final ScanImage scanImage;
+
+        PageAnalysis(int pageNumber, String text, int charCount, double validGlyphRatio, double imageFraction,
+                     float medianFontSize, double largestImageDpi, int largestImageBits, ScanImage scanImage) {
+            this.pageNumber = pageNumber;
+            this.text = text;
+            this.charCount = charCount;
+            this.validGlyphRatio = validGlyphRatio;
+            this.imageFraction = imageFraction;
+            this.medianFontSize = medianFontSize;
+            this.largestImageDpi = largestImageDpi;
+            this.largestImageBits = largestImageBits;
+            this.scanImage = scanImage;
+        }
+
+        /**
+         * True unless the page has a usable text layer. Blank pages are OCRed too,
+         * since their text may be drawn as vector outlines.
+         */
+        public boolean needsOCR() {
+            if (charCount == 0 || validGlyphRatio < MIN_VALID_GLYPH_RATIO) {
+                return true;
+            }
+            return charCount < MIN_TEXT_CHARS && imageFraction >= MAX_IMAGE_FRACTION_FOR_SHORT_TEXT;
+        }
+
+        public int getPageNumber() { return pageNumber; }
+        public String getText() { return text; }
+        public int getCharCount() { return charCount; }
+        public double getValidGlyphRatio() { return validGlyphRatio; }
+        public double getImageFraction() { return imageFraction; }
+
+        /**
+         * Median font size of the text layer in points, or 0 if the page has no text
+         */
+        public float getMedianFontSize() { return medianFontSize; }
+
+        /**
+         * Resolution at which the largest image is drawn on the page, or 0 if there are no images
+         */
+        public double getLargestImageDpi() { return largestImageDpi; }
+
+        /**
+         * Bits per component of the largest image (1 for bilevel scans), or 0 if there are no images
+         */
+        public int getLargestImageBits() { return largestImageBits; }
+
+        /**
+         * The image, if the page consists of a single upright image and nothing else; otherwise null
+         */
+        public ScanImage getScanImage() { return scanImage; }
+    }
+
+    /**
+     * The only thing drawn on a scanned page, with the transform that places its pixels on the page
+     */
+    public static class ScanImage {
+        private final PDImageXObject image;
+        private final AffineTransform imageToUser;
+
+        ScanImage(PDImageXObject image, AffineTransform ctm) {
+            this.image = image;
+            // Pixel (x, y) of a w x h image sits at (x / w, 1 - y / h) in the unit square the CTM maps onto the page
+            AffineTransform transform = new AffineTransform(ctm);
+            transform.translate(0, 1);
+            transform.scale(1.0 / image.getWidth(), -1.0 / image.getHeight());
+            this.imageToUser = transform;
+        }
+
+        public int getWidth() {
+            return image.getWidth();
+        }
+
+        public int getHeight() {
+            return image.getHeight();
+        }
+
+        /**
+         * Transform from the image's pixels to PDF user space
+         */
+        public AffineTransform getImageToUser() {
+            return new AffineTransform(imageToUser);
+        }
+
+        /**
+         * Decode the image at its native resolution: 8-bit gray, or 1-bit for bilevel images.
+         * The result is a copy the caller may change, such as by preprocessing it in place.
+         * Must be called on the thread that owns the document.
+         */
+        public BufferedImage decode() throws IOException {
+            BufferedImage decoded = image.getImage();
+            int type = decoded.getType();
+            boolean bilevel = image.getBitsPerComponent() == 1;
+            if (type == BufferedImage.TYPE_BYTE_BINARY || (type == BufferedImage.TYPE_BYTE_GRAY && !bilevel)) {
+                // PDFBox caches the decoded image and draws the page with it
+                return new BufferedImage(decoded.getColorModel(), decoded.copyData(null),
+                                         decoded.isAlphaPremultiplied(), null);
+            }
+            // Color scans are OCRed in gray, like rendered pages, at a third of the memory; bilevel scans,
+            // which PDFBox decodes to 8-bit gray, are packed back into 1 bit per pixel
+            BufferedImage converted = new BufferedImage(decoded.getWidth(), decoded.getHeight(),
+                bilevel ? BufferedImage.TYPE_BYTE_BINARY : BufferedImage.TYPE_BYTE_GRAY);
+            Graphics2D g = converted.createGraphics();
+            g.drawImage(decoded, 0, 0, null);
+            g.dispose();
+            return converted;
+        }
+    }
+
+    /**
+     * Text stripper that also records the font size of every extracted glyph
+     */
+    private static class MeasuringTextStripper extends PDFTextStripper {
+        private final List<Float> fontSizes = new ArrayList<>();
+
+        MeasuringTextStripper() throws IOException {
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+            for (TextPosition position : textPositions) {
+                float size = position.getFontSizeInPt();
+                if (size > 0) {
+                    fontSizes.add(size);
+                }
+            }
+            super.writeString(text, textPositions);
+        }
+
+        float getMedianFontSize() {
+            if (fontSizes.isEmpty()) {
+                return 0;
+            }
+            Collections.sort(fontSizes);
+            return fontSizes.get(fontSizes.size() / 2);
+        }
+    }
+
+    /**
+     * Sums the page area covered by drawn images and records the resolution of the largest one,
+     * without rendering anything
+     */
+    private static class ImageCoverage extends PDFGraphicsStreamEngine {
+        private final Rectangle2D pageBounds;
+        private double imageArea;
+        private double largestImageArea;
+        private double largestImageDpi;
+        private int largestImageBits;
+        // Used to recognize pages that are a single image and nothing else
+        private int imageCount;
+        private boolean paintsPaths;
+        private PDImage firstImage;
+        private AffineTransform firstImageCtm;
+
+        ImageCoverage(PDPage page) {
+            super(page);
+            PDRectangle cropBox = page.getCropBox();
+            this.pageBounds = new Rectangle2D.Float(cropBox.getLowerLeftX(), cropBox.getLowerLeftY(),
+                                                    cropBox.getWidth(), cropBox.getHeight());
+        }
+
+        double getImageFraction() {
+            double pageArea = pageBounds.getWidth() * pageBounds.getHeight();
+            return pageArea > 0 ? Math.min(1.0, imageArea / pageArea) : 0;
+        }
+
+        /**
+         * The page's image if it is the only thing drawn: a single upright image XObject without masks
+         */
+        ScanImage getScanImage() {
+            if (imageCount != 1 || paintsPaths || !(firstImage instanceof PDImageXObject) || firstImage.isStencil()) {
+                return null;
+            }
+            PDImageXObject image = (PDImageXObject) firstImage;
+            if (image.getCOSObject().containsKey(COSName.SMASK) || image.getCOSObject().containsKey(COSName.MASK)) {
+                return null;
+            }
+            // Rotated, sheared or mirrored placements are left to the renderer, which shows them the right way up
+            if (firstImageCtm.getShearX() != 0 || firstImageCtm.getShearY() != 0
+                    || firstImageCtm.getScaleX() <= 0 || firstImageCtm.getScaleY() <= 0) {
+                return null;
+            }
+            return new ScanImage(image, firstImageCtm);
+        }
+
+        @Override
+        public void drawImage(PDImage pdImage) {
+            // Images are drawn into the unit square, mapped onto the page by the CTM
+            AffineTransform ctm = getGraphicsState().getCurrentTransformationMatrix().createAffineTransform();
+            Rectangle2D bounds = ctm.createTransformedShape(new Rectangle2D.Float(0, 0, 1, 1)).getBounds2D();
+            Rectangle2D visible = bounds.createIntersection(pageBounds);
+            if (visible.isEmpty()) {
+                return;
+            }
+            double area = visible.getWidth() * visible.getHeight();
+            imageArea += area;
+            if (++imageCount == 1) {
+                firstImage = pdImage;
+                firstImageCtm = ctm;
+            }
+
+            if (area > largestImageArea && bounds.getWidth() > 0 && bounds.getHeight() > 0) {
+                largestImageArea = area;
+                // Pixels per inch along the less dense axis (page space is 72 units per inch)
+                largestImageDpi = Math.min(pdImage.getWidth() * 72.0 / bounds.getWidth(),
+                                           pdImage.getHeight() * 72.0 / bounds.getHeight());
+                largestImageBits = pdImage.isStencil() ? 1 : pdImage.getBitsPerComponent();
+            }
+        }
+
+        @Override public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) { }
+        @Override public void clip(int windingRule) { }
+        @Override public void moveTo(float x, float y) { }
+        @Override public void lineTo(float x, float y) { }
+        @Override public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) { }
+        @Override public Point2D getCurrentPoint() { return new Point2D.Float(0, 0); }
+        @Override public void closePath() { }
+        @Override public void endPath() { }
+        @Override public void strokePath() { paintsPaths = true; }
+        @Override public void fillPath(int windingRule) { paintsPaths = true; }
+        @Override public void fillAndStrokePath(int windingRule) { paintsPaths = true; }
+        @Override public void shadingFill(COSName shadingName) { paintsPaths = true; }
+    }
+}
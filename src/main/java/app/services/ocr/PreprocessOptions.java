@@ -0,0 +1,105 @@
+package app.services.ocr;
+
+/**
+ * Per-job settings for cleaning up page images before OCR
+ */
+public class PreprocessOptions {
+    private boolean deskew = true;
+    private double maxSkewDegrees = 5.0;
+    private boolean binarize = true;
+    // 0 picks a window relative to the image size
+    private int thresholdRadius = 0;
+    private double thresholdSensitivity = 0.15;
+    private boolean despeckle = true;
+    private int maxSpeckleSize = 3;
+
+    /**
+     * Deskew, adaptive thresholding and speckle removal
+     */
+    public static PreprocessOptions defaults() {
+        return new PreprocessOptions();
+    }
+
+    /**
+     * Hand the rendered page to Tesseract unchanged
+     */
+    public static PreprocessOptions none() {
+        PreprocessOptions options = new PreprocessOptions();
+        options.setDeskew(false);
+        options.setBinarize(false);
+        options.setDespeckle(false);
+        return options;
+    }
+
+    public boolean isEnabled() {
+        return deskew || binarize;
+    }
+
+    /**
+     * Identifies settings that change the recognized text, for use in cache keys
+     */
+    public String getCacheKey() {
+        return "deskew=" + (deskew ? maxSkewDegrees : "off")
+            + ";binarize=" + (binarize ? thresholdRadius + "/" + thresholdSensitivity : "off")
+            + ";despeckle=" + (binarize && despeckle ? maxSpeckleSize : "off");
+    }
+
+    public boolean isDeskew() {
+        return deskew;
+    }
+
+    public void setDeskew(boolean deskew) {
+        this.deskew = deskew;
+    }
+
+    public double getMaxSkewDegrees() {
+        return maxSkewDegrees;
+    }
+
+    public void setMaxSkewDegrees(double maxSkewDegrees) {
+        this.maxSkewDegrees = maxSkewDegrees;
+    }
+
+    public boolean isBinarize() {
+        return binarize;
+    }
+
+    public void setBinarize(boolean binarize) {
+        this.binarize = binarize;
+    }
+
+    public int getThresholdRadius() {
+        return thresholdRadius;
+    }
+
+    public void setThresholdRadius(int thresholdRadius) {
+        this.thresholdRadius = thresholdRadius;
+    }
+
+    public double getThresholdSensitivity() {
+        return thresholdSensitivity;
+    }
+
+    public void setThresholdSensitivity(double thresholdSensitivity) {
+        this.thresholdSensitivity = thresholdSensitivity;
+    }
+
+    /**
+     * Speckle removal only runs on binarized images
+     */
+    public boolean isDespeckle() {
+        return despeckle;
+    }
+
+    public void setDespeckle(boolean despeckle) {
+        this.despeckle = despeckle;
+    }
+
+    public int getMaxSpeckleSize() {
+        return maxSpeckleSize;
+    }
+
+    public void setMaxSpeckleSize(int maxSpeckleSize) {
+        this.maxSpeckleSize = maxSpeckleSize;
+    }
+}
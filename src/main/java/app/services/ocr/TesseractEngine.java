@@ -0,0 +1,169 @@
+package app.services.ocr;
+
+import app.model.OCRWord;
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single Tesseract engine that stays initialized for one language.
+ * Unlike tess4j's Tesseract class, which loads the language data on every doOCR() call,
+ * the native handle is created once and reused. An engine must only be used by one thread at a time.
+ */
+public class TesseractEngine implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TesseractEngine.class);
+
+    private final String language;
+    private final TessAPI api;
+    private ITessAPI.TessBaseAPI handle;
+
+    /**
+     * Create and initialize an engine
+     * @throws TesseractException if the language data cannot be loaded
+     */
+    public TesseractEngine(String dataPath, String language) throws TesseractException {
+        this.language = language;
+        this.api = TessAPI.INSTANCE;
+        this.handle = api.TessBaseAPICreate();
+
+        long startTime = System.currentTimeMillis();
+        if (api.TessBaseAPIInit3(handle, dataPath, language) != 0) {
+            api.TessBaseAPIDelete(handle);
+            handle = null;
+            throw new TesseractException("Could not load Tesseract language data: " + language);
+        }
+        api.TessBaseAPISetPageSegMode(handle, ITessAPI.TessPageSegMode.PSM_AUTO);
+        logger.debug("Tesseract engine for '{}' initialized in {}ms", language, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Engine without a native handle, for tests of the code that manages engines
+     */
+    TesseractEngine(String language) {
+        this.language = language;
+        this.api = null;
+        this.handle = null;
+    }
+
+    /**
+     * Recognize the text in an image
+     */
+    public Recognition recognize(BufferedImage image) throws TesseractException {
+        if (handle == null) {
+            throw new TesseractException("Tesseract engine has been closed");
+        }
+
+        ByteBuffer buffer = ImageIOHelper.convertImageData(image);
+        int bitsPerPixel = image.getColorModel().getPixelSize();
+        int bytesPerLine = (int) Math.ceil(image.getWidth() * bitsPerPixel / 8.0);
+        api.TessBaseAPISetImage(handle, buffer, image.getWidth(), image.getHeight(), bitsPerPixel / 8, bytesPerLine);
+
+        try {
+            if (api.TessBaseAPIRecognize(handle, null) != 0) {
+                throw new TesseractException("Tesseract recognition failed");
+            }
+            Pointer textPointer = api.TessBaseAPIGetUTF8Text(handle);
+            if (textPointer == null) {
+                throw new TesseractException("Tesseract recognition failed");
+            }
+            String text = textPointer.getString(0, "UTF-8");
+            api.TessDeleteText(textPointer);
+
+            List<OCRWord> words = readWords();
+            double confidence = words.stream().mapToDouble(OCRWord::getConfidence).average().orElse(0);
+            return new Recognition(text, confidence, words);
+        } finally {
+            // Release the page image and results but keep the language model loaded
+            api.TessBaseAPIClear(handle);
+        }
+    }
+
+    /**
+     * Walk the recognized words of the current image
+     */
+    private List<OCRWord> readWords() {
+        List<OCRWord> words = new ArrayList<>();
+        ITessAPI.TessResultIterator iterator = api.TessBaseAPIGetIterator(handle);
+        if (iterator == null) {
+            return words;
+        }
+        try {
+            ITessAPI.TessPageIterator pageIterator = api.TessResultIteratorGetPageIterator(iterator);
+            IntBuffer left = IntBuffer.allocate(1);
+            IntBuffer top = IntBuffer.allocate(1);
+            IntBuffer right = IntBuffer.allocate(1);
+            IntBuffer bottom = IntBuffer.allocate(1);
+            int level = ITessAPI.TessPageIteratorLevel.RIL_WORD;
+            api.TessPageIteratorBegin(pageIterator);
+            do {
+                Pointer wordPointer = api.TessResultIteratorGetUTF8Text(iterator, level);
+                if (wordPointer == null) {
+                    continue;
+                }
+                String word = wordPointer.getString(0, "UTF-8");
+                api.TessDeleteText(wordPointer);
+                if (word.isBlank()) {
+                    continue;
+                }
+                float confidence = api.TessResultIteratorConfidence(iterator, level);
+                api.TessPageIteratorBoundingBox(pageIterator, level, left, top, right, bottom);
+                words.add(new OCRWord(word, Math.max(0, confidence), left.get(0), top.get(0),
+                                      right.get(0) - left.get(0), bottom.get(0) - top.get(0)));
+            } while (api.TessPageIteratorNext(pageIterator, level) == ITessAPI.TRUE);
+        } finally {
+            api.TessResultIteratorDelete(iterator);
+        }
+        return words;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    @Override
+    public void close() {
+        if (handle != null) {
+            api.TessBaseAPIEnd(handle);
+            api.TessBaseAPIDelete(handle);
+            handle = null;
+        }
+    }
+
+    /**
+     * Text, mean word confidence (0-100) and words of one recognized image.
+     * Word boxes are in image pixels: x and y are the left and top edges.
+     */
+    public static class Recognition {
+        private final String text;
+        private final double confidence;
+        private final List<OCRWord> words;
+
+        public Recognition(String text, double confidence, List<OCRWord> words) {
+            this.text = text;
+            this.confidence = confidence;
+            this.words = words;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+
+        public List<OCRWord> getWords() {
+            return words;
+        }
+    }
+}
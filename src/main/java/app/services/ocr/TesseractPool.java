@@ -0,0 +1,297 @@
+package app.services.ocr;
+
+import app.utils.PerformanceMonitor;
+import net.sourceforge.tess4j.TesseractException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of initialized Tesseract engines, keyed by language (or combination such as "eng+deu").
+ * Loading traineddata is the expensive part of OCR setup, so engines are kept after use:
+ * <ul>
+ *   <li>engines are created on demand up to a limit per language; borrowers wait for a free one beyond that</li>
+ *   <li>the total number of engines is bounded; when a new language needs room, the engine idle
+ *       the longest in another language is closed</li>
+ *   <li>engines idle for longer than the idle timeout are closed in the background</li>
+ * </ul>
+ */
+public class TesseractPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TesseractPool.class);
+
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Creates engines; replaced in tests
+     */
+    @FunctionalInterface
+    interface EngineFactory {
+        TesseractEngine create(String language) throws TesseractException;
+    }
+
+    private final EngineFactory engineFactory;
+    private final int enginesPerLanguage;
+    private final int maxEngines;
+    private final long idleTimeoutMillis;
+    private final ScheduledExecutorService evictor;
+
+    // All state below is guarded by this
+    private final Map<String, LanguagePool> pools = new HashMap<>();
+    // Engines created or being created, idle or borrowed
+    private int totalEngines;
+    private boolean closed;
+
+    public TesseractPool(String dataPath, int enginesPerLanguage) {
+        this(dataPath, enginesPerLanguage, enginesPerLanguage * 2, DEFAULT_IDLE_TIMEOUT_MS);
+    }
+
+    /**
+     * @param enginesPerLanguage engines kept per language, normally the number of OCR workers
+     * @param maxEngines engines kept across all languages
+     * @param idleTimeoutMillis close engines that have not been used for this long
+     */
+    public TesseractPool(String dataPath, int enginesPerLanguage, int maxEngines, long idleTimeoutMillis) {
+        this(language -> new TesseractEngine(dataPath, language), enginesPerLanguage, maxEngines, idleTimeoutMillis);
+    }
+
+    TesseractPool(EngineFactory engineFactory, int enginesPerLanguage, int maxEngines, long idleTimeoutMillis) {
+        this.engineFactory = engineFactory;
+        this.enginesPerLanguage = Math.max(1, enginesPerLanguage);
+        this.maxEngines = Math.max(this.enginesPerLanguage, maxEngines);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "tesseract-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        long sweepMillis = Math.max(1000, idleTimeoutMillis / 2);
+        executor.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+        this.evictor = executor;
+    }
+
+    /**
+     * Borrow an engine for the language, creating one if there is room.
+     * The engine must be returned with {@link #release(TesseractEngine)}.
+     */
+    public TesseractEngine borrow(String language) throws TesseractException, InterruptedException {
+        LanguagePool pool;
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("Tesseract pool is closed");
+                }
+                pool = pools.computeIfAbsent(language, key -> new LanguagePool());
+                // Most recently released first, so rarely used engines age out
+                IdleEngine idle = pool.idle.pollLast();
+                if (idle != null) {
+                    return idle.engine;
+                }
+                if (reserve(pool)) {
+                    break;
+                }
+                wait();
+            }
+        }
+        return create(pool, language);
+    }
+
+    /**
+     * Borrow an engine for the language if one is idle or can be created, without waiting for a busy one
+     * @return the engine, or null if all engines for the language are in use
+     */
+    public TesseractEngine tryBorrow(String language) throws TesseractException {
+        LanguagePool pool;
+        synchronized (this) {
+            if (closed) {
+                return null;
+            }
+            pool = pools.computeIfAbsent(language, key -> new LanguagePool());
+            IdleEngine idle = pool.idle.pollLast();
+            if (idle != null) {
+                return idle.engine;
+            }
+            if (!reserve(pool)) {
+                return null;
+            }
+        }
+        return create(pool, language);
+    }
+
+    /**
+     * Claim a slot for a new engine in the language, making room if needed
+     */
+    private boolean reserve(LanguagePool pool) {
+        if (pool.created < enginesPerLanguage && (totalEngines < maxEngines || evictOldestIdle())) {
+            pool.created++;
+            totalEngines++;
+            return true;
+        }
+        return false;
+    }
+
+    private TesseractEngine create(LanguagePool pool, String language) throws TesseractException {
+        // Load the language data outside the lock, other languages stay usable meanwhile
+        long startTime = System.nanoTime();
+        try {
+            TesseractEngine engine = engineFactory.create(language);
+            PerformanceMonitor.getInstance().recordSince("ocr.engine.init", startTime);
+            logger.info("Created Tesseract engine for '{}' in {}ms ({} of max {} engines)", language,
+                       TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), getEngineCount(), maxEngines);
+            return engine;
+        } catch (TesseractException | RuntimeException | LinkageError e) {
+            synchronized (this) {
+                pool.created--;
+                totalEngines--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Return a borrowed engine to the cache
+     */
+    public void release(TesseractEngine engine) {
+        if (engine == null) {
+            return;
+        }
+        synchronized (this) {
+            LanguagePool pool = pools.get(engine.getLanguage());
+            if (!closed && pool != null) {
+                pool.idle.addLast(new IdleEngine(engine, System.currentTimeMillis()));
+                notifyAll();
+                return;
+            }
+            if (pool != null) {
+                pool.created--;
+            }
+            totalEngines--;
+        }
+        engine.close();
+    }
+
+    /**
+     * Load an engine for the language ahead of its first use
+     */
+    public void warm(String language) {
+        try {
+            release(borrow(language));
+            logger.debug("Warmed Tesseract engine for '{}'", language);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception | LinkageError e) {
+            logger.warn("Could not warm Tesseract engine for '{}': {}", language, e.getMessage());
+        }
+    }
+
+    public int getEnginesPerLanguage() {
+        return enginesPerLanguage;
+    }
+
+    /**
+     * Get the number of engines alive, idle or borrowed
+     */
+    public synchronized int getEngineCount() {
+        return totalEngines;
+    }
+
+    /**
+     * Get the number of idle engines for a language
+     */
+    public synchronized int getIdleCount(String language) {
+        LanguagePool pool = pools.get(language);
+        return pool == null ? 0 : pool.idle.size();
+    }
+
+    /**
+     * Close engines that have been idle longer than the idle timeout
+     * @return number of engines closed
+     */
+    synchronized int evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        int evicted = 0;
+        for (Map.Entry<String, LanguagePool> entry : pools.entrySet()) {
+            LanguagePool pool = entry.getValue();
+            // The deque is ordered by release time, oldest first
+            while (!pool.idle.isEmpty() && pool.idle.peekFirst().releasedAt <= cutoff) {
+                closeIdle(pool, pool.idle.pollFirst());
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Closed {} idle Tesseract engine(s), {} left", evicted, totalEngines);
+        }
+        return evicted;
+    }
+
+    /**
+     * Make room by closing the engine that has been idle the longest, in any language
+     * @return false if every engine is in use
+     */
+    private boolean evictOldestIdle() {
+        LanguagePool oldestPool = null;
+        for (LanguagePool pool : pools.values()) {
+            IdleEngine candidate = pool.idle.peekFirst();
+            if (candidate != null && (oldestPool == null || candidate.releasedAt < oldestPool.idle.peekFirst().releasedAt)) {
+                oldestPool = pool;
+            }
+        }
+        if (oldestPool == null) {
+            return false;
+        }
+        IdleEngine oldest = oldestPool.idle.pollFirst();
+        logger.debug("Evicting idle Tesseract engine for '{}' to make room", oldest.engine.getLanguage());
+        closeIdle(oldestPool, oldest);
+        return true;
+    }
+
+    private void closeIdle(LanguagePool pool, IdleEngine idle) {
+        pool.created--;
+        totalEngines--;
+        idle.engine.close();
+    }
+
+    /**
+     * Close all idle engines. Engines still borrowed are closed when released.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        int engines = 0;
+        synchronized (this) {
+            closed = true;
+            for (LanguagePool pool : pools.values()) {
+                while (!pool.idle.isEmpty()) {
+                    closeIdle(pool, pool.idle.pollFirst());
+                    engines++;
+                }
+            }
+            notifyAll();
+        }
+        logger.info("Closed {} Tesseract engine(s)", engines);
+    }
+
+    private static class LanguagePool {
+        private final Deque<IdleEngine> idle = new ArrayDeque<>();
+        private int created;
+    }
+
+    private static class IdleEngine {
+        private final TesseractEngine engine;
+        private final long releasedAt;
+
+        IdleEngine(TesseractEngine engine, long releasedAt) {
+            this.engine = engine;
+            this.releasedAt = releasedAt;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package app.services.pdf;
+
+import app.model.PDFDocument;
+import app.utils.PerformanceMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Saves documents in the background so large saves never block the UI.
+ * Writes run on the executor that owns the document, such as the app's document worker, so they are
+ * serialized with rendering, OCR and closing; without one they run on a writer thread of their own.
+ * Save requests for the same target that arrive while an earlier one is still queued are
+ * coalesced into one write. Auto-save queues its writes the same way, so it never races a manual save
+ * or other work on the document's executor.
+ */
+public class DocumentSaveWriter {
+    private static final Logger logger = LoggerFactory.getLogger(DocumentSaveWriter.class);
+
+    private final PDFService pdfService;
+    // Runs auto-save checks, and the writes when no document executor is given
+    private final ScheduledThreadPoolExecutor writer;
+    private final Executor documentExecutor;
+    // Queued (not yet started) saves by absolute target file
+    private final Map<File, PendingSave> pending = new HashMap<>();
+    // Saves not yet finished, waited for on shutdown
+    private final Set<CompletableFuture<File>> unfinished = new HashSet<>();
+    private ScheduledFuture<?> autoSaveTask;
+
+    public DocumentSaveWriter(PDFService pdfService) {
+        this(pdfService, null);
+    }
+
+    /**
+     * @param documentExecutor single-threaded executor that does all other work on the documents,
+     *                         or null to write on a thread of this writer's own
+     */
+    public DocumentSaveWriter(PDFService pdfService, Executor documentExecutor) {
+        this.pdfService = pdfService;
+        this.writer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "save-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.documentExecutor = documentExecutor != null ? documentExecutor : writer;
+    }
+
+    /**
+     * Queue a save of the document to the target file.
+     * If a save to the same target is already queued it is reused and its future returned.
+     */
+    public synchronized CompletableFuture<File> save(PDFDocument document, File target) {
+        File key = target.getAbsoluteFile();
+        PendingSave queued = pending.get(key);
+        if (queued != null) {
+            logger.debug("save() - Coalescing with queued save: {}", key);
+            queued.document = document;
+            return queued.future;
+        }
+
+        PendingSave save = new PendingSave(document, key);
+        pending.put(key, save);
+        unfinished.add(save.future);
+        save.future.whenComplete((file, error) -> {
+            synchronized (this) {
+                unfinished.remove(save.future);
+            }
+        });
+        try {
+            documentExecutor.execute(() -> write(save));
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            save.future.completeExceptionally(e);
+        }
+        return save.future;
+    }
+
+    private void write(PendingSave save) {
+        PDFDocument document;
+        synchronized (this) {
+            pending.remove(save.target);
+            document = save.document;
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            if (document.isClosed()) {
+                // Closed while the save was queued, after an auto-save check picked it up
+                throw new IllegalStateException("Document was closed before it could be saved");
+            }
+            pdfService.save(document, save.target);
+            PerformanceMonitor.getInstance().recordSince("pdf.save", startNanos);
+            save.future.complete(save.target);
+        } catch (Throwable e) {
+            logger.error("Background save FAILED: {}", save.target, e);
+            save.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Periodically save the current document to its own file if it has unsaved changes.
+     * Replaces any previously scheduled auto-save.
+     */
+    public synchronized void startAutoSave(Supplier<PDFDocument> currentDocument, int intervalMinutes) {
+        stopAutoSave();
+        long interval = Math.max(1, intervalMinutes);
+        logger.info("Auto-save enabled every {} minute(s)", interval);
+        autoSaveTask = writer.scheduleWithFixedDelay(() -> {
+            PDFDocument document = currentDocument.get();
+            if (document != null && document.isModified() && document.getFile() != null) {
+                logger.info("Auto-saving: {}", document.getFile().getName());
+                save(document, document.getFile());
+            }
+        }, interval, interval, TimeUnit.MINUTES);
+    }
+
+    public synchronized void stopAutoSave() {
+        if (autoSaveTask != null) {
+            autoSaveTask.cancel(false);
+            autoSaveTask = null;
+        }
+    }
+
+    /**
+     * Stop auto-save and wait for queued saves to finish
+     */
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        stopAutoSave();
+        CompletableFuture<?>[] saves;
+        synchronized (this) {
+            saves = unfinished.toArray(new CompletableFuture<?>[0]);
+        }
+        try {
+            CompletableFuture.allOf(saves).get(timeout, unit);
+        } catch (TimeoutException e) {
+            logger.warn("Pending saves did not finish within {} {}", timeout, unit);
+        } catch (ExecutionException e) {
+            // Already logged by the failed save
+        }
+        writer.shutdown();
+    }
+
+    private static class PendingSave {
+        private final File target;
+        private final CompletableFuture<File> future = new CompletableFuture<>();
+        private PDFDocument document;
+
+        PendingSave(PDFDocument document, File target) {
+            this.document = document;
+            this.target = target;
+        }
+    }
+}
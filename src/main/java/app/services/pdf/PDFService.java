@@ -1,6 +1,7 @@
 package app.services.pdf;
 
 import app.model.PDFDocument;
+import app.model.PageTextIndex;
 
 import java.io.File;
 import java.util.List;
@@ -20,6 +21,12 @@ public interface PDFService {
      */
     void save(PDFDocument document, File file) throws Exception;
     
+    /**
+     * Save by appending only the changes made since the document was loaded to its original bytes.
+     * Falls back to a full save for documents that were not loaded from a file.
+     */
+    void saveIncremental(PDFDocument document, File file) throws Exception;
+    
     /**
      * Merge multiple PDF files into one
      */
@@ -65,6 +72,11 @@ public interface PDFService {
      */
     String extractText(PDFDocument document) throws Exception;
     
+    /**
+     * Extract text page by page for search and page-aware features
+     */
+    PageTextIndex buildTextIndex(PDFDocument document) throws Exception;
+    
     /**
      * Redact text in PDF
      */
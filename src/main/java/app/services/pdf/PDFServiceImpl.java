@@ -1,6 +1,7 @@
 package app.services.pdf;
 
 import app.model.PDFDocument;
+import app.model.PageTextIndex;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
@@ -14,8 +15,14 @@ import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -65,13 +72,23 @@ public class PDFServiceImpl implements PDFService {
         logger.debug("save() - START - File: {}, Pages: {}", file.getAbsolutePath(), document.getPageCount());
         
         try {
-            File parentDir = file.getParentFile();
+            File target = file.getAbsoluteFile();
+            File parentDir = target.getParentFile();
             if (parentDir != null && !parentDir.exists()) {
                 logger.debug("save() - Creating parent directory: {}", parentDir.getAbsolutePath());
                 parentDir.mkdirs();
             }
             
-            document.getPdDocument().save(file);
+            // Write to a sibling temp file and rename it into place, so a crash or error
+            // mid-write never leaves a truncated PDF behind. This also makes it safe to save
+            // over the file the document is still being read from.
+            Path tempFile = Files.createTempFile(parentDir.toPath(), "." + target.getName() + ".", ".tmp");
+            try {
+                document.getPdDocument().save(tempFile.toFile());
+                moveIntoPlace(tempFile, target.toPath());
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
             document.setModified(false);
             
             long duration = System.currentTimeMillis() - startTime;
@@ -87,6 +104,55 @@ public class PDFServiceImpl implements PDFService {
         }
     }
 
+    @Override
+    public void saveIncremental(PDFDocument document, File file) throws Exception {
+        long startTime = System.currentTimeMillis();
+        logger.debug("saveIncremental() - START - File: {}", file.getAbsolutePath());
+        
+        try {
+            File target = file.getAbsoluteFile();
+            // The update is appended to a copy of the original bytes, which are read from the
+            // document's source, so the same temp file and rename as a full save applies
+            Path tempFile = Files.createTempFile(target.getParentFile().toPath(), "." + target.getName() + ".", ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                    document.getPdDocument().saveIncremental(out);
+                } catch (IllegalStateException e) {
+                    logger.debug("saveIncremental() - Not loaded from a file, saving in full: {}", e.getMessage());
+                    save(document, target);
+                    return;
+                }
+                moveIntoPlace(tempFile, target.toPath());
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            document.setModified(false);
+            
+            long duration = System.currentTimeMillis() - startTime;
+            logger.info("saveIncremental() - SUCCESS - File: {}, Size: {} bytes, Duration: {}ms", 
+                file.getName(), file.length(), duration);
+            perfLogger.info("PDF Incremental Save: {} - {} bytes - {}ms", file.getName(), file.length(), duration);
+            
+        } catch (Exception e) {
+            long duration = System.currentTimeMillis() - startTime;
+            logger.error("saveIncremental() - FAILED - File: {}, Duration: {}ms, Error: {}", 
+                file.getAbsolutePath(), duration, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Replace the target with the fully written temp file, atomically where the file system allows
+     */
+    private void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            logger.debug("save() - Atomic move not supported, replacing: {}", target);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     @Override
     public PDFDocument merge(List<File> files) throws Exception {
         long startTime = System.currentTimeMillis();
@@ -405,6 +471,41 @@ public class PDFServiceImpl implements PDFService {
         }
     }
 
+    @Override
+    public PageTextIndex buildTextIndex(PDFDocument document) throws Exception {
+        long startTime = System.currentTimeMillis();
+        logger.debug("buildTextIndex() - START - Pages: {}", document.getPageCount());
+        
+        try {
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<String> pageTexts = new ArrayList<>(document.getPageCount());
+            long totalChars = 0;
+            
+            for (int page = 1; page <= document.getPageCount(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String pageText = stripper.getText(document.getPdDocument());
+                pageTexts.add(pageText);
+                totalChars += pageText.length();
+            }
+            
+            PageTextIndex index = new PageTextIndex(pageTexts);
+            document.setTextIndex(index);
+            
+            long duration = System.currentTimeMillis() - startTime;
+            logger.info("buildTextIndex() - SUCCESS - Characters: {}, Pages: {}, Duration: {}ms", 
+                totalChars, document.getPageCount(), duration);
+            perfLogger.info("PDF Text Index: {} chars from {} pages - {}ms", 
+                totalChars, document.getPageCount(), duration);
+            
+            return index;
+        } catch (Exception e) {
+            long duration = System.currentTimeMillis() - startTime;
+            logger.error("buildTextIndex() - FAILED - Duration: {}ms, Error: {}", duration, e.getMessage(), e);
+            throw e;
+        }
+    }
+
     @Override
     public void redact(PDFDocument document, String text) throws Exception {
         long startTime = System.currentTimeMillis();
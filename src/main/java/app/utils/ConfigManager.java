@@ -112,6 +112,84 @@ public class ConfigManager {
         save();
     }
 
+    public boolean isAutoSave() {
+        return settings.isAutoSave();
+    }
+
+    public int getAutoSaveIntervalMinutes() {
+        return settings.getAutoSaveIntervalMinutes();
+    }
+
+    /**
+     * Fast launch defers building hidden UI until first use.
+     * Can be overridden with -Dpdfstudio.fastLaunch=true|false
+     */
+    public boolean isFastLaunch() {
+        String override = System.getProperty("pdfstudio.fastLaunch");
+        if (override != null) {
+            return Boolean.parseBoolean(override);
+        }
+        return settings.isFastLaunch();
+    }
+
+    public void setFastLaunch(boolean fastLaunch) {
+        settings.setFastLaunch(fastLaunch);
+        save();
+    }
+
+    /**
+     * Model requests run in parallel, 0 for the backend's default.
+     * Can be overridden with -Dpdfstudio.aiSlots=N
+     */
+    public int getAiInferenceSlots() {
+        String override = System.getProperty("pdfstudio.aiSlots");
+        if (override != null) {
+            try {
+                return Integer.parseInt(override.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid pdfstudio.aiSlots: {}", override);
+            }
+        }
+        return settings.getAiInferenceSlots();
+    }
+
+    public void setAiInferenceSlots(int slots) {
+        settings.setAiInferenceSlots(slots);
+        save();
+    }
+
+    /**
+     * ONNX Runtime threads per operator, 0 for one per physical core.
+     * Can be overridden with -Dpdfstudio.onnxThreads=N
+     */
+    public int getOnnxIntraOpThreads() {
+        String override = System.getProperty("pdfstudio.onnxThreads");
+        if (override != null) {
+            try {
+                return Integer.parseInt(override.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring invalid pdfstudio.onnxThreads: {}", override);
+            }
+        }
+        return settings.getOnnxIntraOpThreads();
+    }
+
+    public int getOnnxInterOpThreads() {
+        return settings.getOnnxInterOpThreads();
+    }
+
+    public String getOnnxExecutionMode() {
+        return settings.getOnnxExecutionMode();
+    }
+
+    public String getOnnxOptimizationLevel() {
+        return settings.getOnnxOptimizationLevel();
+    }
+
+    public boolean isOnnxCacheOptimizedModel() {
+        return settings.isOnnxCacheOptimizedModel();
+    }
+
     public AppSettings getSettings() {
         return settings;
     }
@@ -0,0 +1,108 @@
+package app.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process metrics for timing critical operations.
+ * Every sample is also written to the "performance" log so it can be tracked release to release.
+ */
+public class PerformanceMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceMonitor.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
+    private static PerformanceMonitor instance;
+
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    private PerformanceMonitor() {
+    }
+
+    public static synchronized PerformanceMonitor getInstance() {
+        if (instance == null) {
+            instance = new PerformanceMonitor();
+        }
+        return instance;
+    }
+
+    /**
+     * Record a duration sample in milliseconds
+     */
+    public void record(String name, long durationMs) {
+        metrics.computeIfAbsent(name, Metric::new).add(durationMs);
+        perfLogger.info("Metric: {} - {}ms", name, durationMs);
+    }
+
+    /**
+     * Record the time elapsed since a System.nanoTime() start value
+     */
+    public void recordSince(String name, long startNanos) {
+        record(name, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Get a metric by name, or null if nothing was recorded yet
+     */
+    public Metric getMetric(String name) {
+        return metrics.get(name);
+    }
+
+    /**
+     * Get all metrics sorted by name
+     */
+    public Map<String, Metric> getMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<>(metrics));
+    }
+
+    /**
+     * Write a summary of all metrics to the application log
+     */
+    public void logSummary() {
+        getMetrics().values().forEach(metric -> logger.info("{}", metric));
+    }
+
+    /**
+     * Aggregated samples for a single metric
+     */
+    public static class Metric {
+        private final String name;
+        private long count;
+        private long totalMs;
+        private long minMs = Long.MAX_VALUE;
+        private long maxMs;
+        private long lastMs;
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(long durationMs) {
+            count++;
+            totalMs += durationMs;
+            minMs = Math.min(minMs, durationMs);
+            maxMs = Math.max(maxMs, durationMs);
+            lastMs = durationMs;
+        }
+
+        public String getName() { return name; }
+        public synchronized long getCount() { return count; }
+        public synchronized long getTotalMs() { return totalMs; }
+        public synchronized long getMinMs() { return count == 0 ? 0 : minMs; }
+        public synchronized long getMaxMs() { return maxMs; }
+        public synchronized long getLastMs() { return lastMs; }
+
+        public synchronized double getAverageMs() {
+            return count == 0 ? 0 : (double) totalMs / count;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s: count=%d avg=%.1fms min=%dms max=%dms last=%dms",
+                name, count, getAverageMs(), getMinMs(), maxMs, lastMs);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package app.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long each launch phase takes (JVM start, config, FXML, theme, window show)
+ * and reports them once the main window is visible.
+ */
+public class StartupProfiler {
+    private static final Logger logger = LoggerFactory.getLogger(StartupProfiler.class);
+    private static final Logger perfLogger = LoggerFactory.getLogger("performance");
+    private static StartupProfiler instance;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private long lastMarkNanos;
+    private long firstMarkNanos;
+    private boolean reported;
+
+    private StartupProfiler() {
+        lastMarkNanos = System.nanoTime();
+        firstMarkNanos = lastMarkNanos;
+    }
+
+    public static synchronized StartupProfiler getInstance() {
+        if (instance == null) {
+            instance = new StartupProfiler();
+        }
+        return instance;
+    }
+
+    /**
+     * Mark the start of the launch, accounting for JVM startup and class loading before main()
+     */
+    public synchronized void begin() {
+        long jvmUptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        phases.put("jvm", jvmUptimeMs);
+        lastMarkNanos = System.nanoTime();
+        firstMarkNanos = lastMarkNanos;
+    }
+
+    /**
+     * End the current phase, attributing the time since the previous mark to it
+     */
+    public synchronized void mark(String phase) {
+        long now = System.nanoTime();
+        phases.merge(phase, (now - lastMarkNanos) / 1_000_000, Long::sum);
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Get the recorded phases in launch order
+     */
+    public synchronized Map<String, Long> getPhases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    /**
+     * Log the phase breakdown and publish it to the performance metrics (only once per launch)
+     */
+    public synchronized void report() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+
+        long launchMs = (lastMarkNanos - firstMarkNanos) / 1_000_000;
+        long totalMs = launchMs + phases.getOrDefault("jvm", 0L);
+        int loadedClasses = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+
+        StringBuilder breakdown = new StringBuilder();
+        PerformanceMonitor monitor = PerformanceMonitor.getInstance();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            if (breakdown.length() > 0) {
+                breakdown.append(", ");
+            }
+            breakdown.append(phase.getKey()).append('=').append(phase.getValue()).append("ms");
+            monitor.record("startup." + phase.getKey(), phase.getValue());
+        }
+        monitor.record("startup.total", totalMs);
+
+        logger.info("Startup completed in {}ms ({} classes loaded): {}", totalMs, loadedClasses, breakdown);
+        perfLogger.info("Startup: {}ms - {} classes - {}", totalMs, loadedClasses, breakdown);
+    }
+}
@@ -10,6 +10,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -259,5 +260,37 @@ class AIServiceImplTest {
         // Cleanup
         document.getPdDocument().close();
     }
+    
+    @Test
+    @Order(13)
+    @DisplayName("Test chat() - Streamed chunks add up to the final reply")
+    void testChatStreaming() throws Exception {
+        // Arrange: a model served by a fake llama-server, which streams one word per chunk
+        List<FakeLlamaServer> servers = new CopyOnWriteArrayList<>();
+        LlamaServerBackend backend = new LlamaServerBackend(port -> {
+            FakeLlamaServer server = new FakeLlamaServer(port, 0);
+            servers.add(server);
+            return server;
+        }, 1, 5000, 100);
+        AIServiceImpl streamingService = new AIServiceImpl(
+            new LlamaModelManager(backend, "models/test-model.gguf", 1));
+        PDFDocument document = createMockDocument("test");
+        List<String> chunks = new CopyOnWriteArrayList<>();
+        
+        try {
+            // Act
+            String response = streamingService.chat(document, "What is this about?", chunks::add);
+            
+            // Assert
+            assertTrue(response.startsWith("echo: "), "Reply should come from the model: " + response);
+            assertTrue(response.contains("What is this about?"), "Prompt should contain the question");
+            assertTrue(chunks.size() > 1, "Reply should be streamed in several chunks");
+            assertEquals(response, String.join("", chunks), "Streamed chunks should add up to the reply");
+            assertEquals(1, servers.size());
+        } finally {
+            // Cleanup
+            streamingService.close();
+            document.getPdDocument().close();
+        }
+    }
 }
-
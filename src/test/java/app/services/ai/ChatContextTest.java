@@ -0,0 +1,45 @@
+package app.services.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatContext
+ */
+@DisplayName("ChatContext Tests")
+class ChatContextTest {
+
+    private final TextChunker.Chunk intro = new TextChunker.Chunk(0, 0, "Introduction text");
+    private final TextChunker.Chunk methods = new TextChunker.Chunk(2, 3, "Methods text");
+    private final TextChunker.Chunk results = new TextChunker.Chunk(5, 5, "Results text");
+
+    @Test
+    @DisplayName("Should extend the previous context with newly retrieved chunks")
+    void testContextIsExtended() {
+        ChatContext context = new ChatContext(TokenCounter.estimate());
+
+        String first = context.update(List.of(methods, intro), 250);
+        String second = context.update(List.of(results, methods), 250);
+
+        assertEquals("[Page 1]\nIntroduction text\n\n[Pages 3-4]\nMethods text", first);
+        assertTrue(second.startsWith(first), "The next prompt should start with the previous context");
+        assertTrue(second.endsWith("[Page 6]\nResults text"));
+        assertEquals(3, context.getChunkCount(), "Chunks already in the context should not be repeated");
+    }
+
+    @Test
+    @DisplayName("Should start over when the context would grow past its limit")
+    void testContextStartsOver() {
+        ChatContext context = new ChatContext(TokenCounter.estimate());
+
+        context.update(List.of(intro, methods), 15);
+        String next = context.update(List.of(results), 15);
+
+        assertEquals("[Page 6]\nResults text", next);
+        assertEquals(1, context.getChunkCount());
+    }
+}
@@ -0,0 +1,69 @@
+package app.services.ai;
+
+import app.model.PageTextIndex;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DocumentRetriever with the hashed bag-of-words embedder
+ */
+@DisplayName("DocumentRetriever Tests")
+class DocumentRetrieverTest {
+
+    private static final String[] TOPICS = {
+        "Quarterly revenue grew in every region, driven by subscription sales and lower churn.",
+        "The warehouse inventory audit found discrepancies in pallet counts at two sites.",
+        "Employee onboarding now includes security training and a mentoring programme.",
+        "The data centre migration moved storage clusters to the new facility over three weekends."
+    };
+
+    private static PageTextIndex report(int pages) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < pages; i++) {
+            texts.add(TOPICS[i % TOPICS.length] + " Page " + (i + 1) + " of the annual report.");
+        }
+        // One page deep in the document on a topic found nowhere else
+        texts.set(199, "Chlorophyll absorbs light so the plant can turn carbon dioxide and water into sugar.");
+        return new PageTextIndex(texts);
+    }
+
+    @Test
+    @DisplayName("Should find the relevant page anywhere in the document")
+    void testRetrieveDeepPage() throws Exception {
+        DocumentRetriever retriever = new DocumentRetriever(new HashingTextEmbedder(), 40);
+
+        List<EmbeddingIndex.Match> matches = retriever.retrieve(report(300),
+            "What does chlorophyll absorb in the plant?", 3);
+
+        assertEquals(3, matches.size());
+        assertEquals(199, matches.get(0).getChunk().getFirstPage(), "Best match should be page 200");
+        assertTrue(matches.get(0).getScore() > matches.get(1).getScore());
+    }
+
+    @Test
+    @DisplayName("Should embed a document once and again only when its text changes")
+    void testIndexReuse() throws Exception {
+        DocumentRetriever retriever = new DocumentRetriever(new HashingTextEmbedder(), 40);
+        PageTextIndex text = report(250);
+
+        EmbeddingIndex first = retriever.getIndex(text);
+        EmbeddingIndex second = retriever.getIndex(text);
+        EmbeddingIndex afterOcr = retriever.getIndex(report(250));
+
+        assertSame(first, second, "Index should be built once per text index");
+        assertNotSame(first, afterOcr, "New text should be embedded again");
+        assertEquals(250, first.size());
+    }
+
+    @Test
+    @DisplayName("Should return nothing for a document without text")
+    void testEmptyDocument() throws Exception {
+        DocumentRetriever retriever = new DocumentRetriever(new HashingTextEmbedder());
+
+        assertTrue(retriever.retrieve(new PageTextIndex(List.of("", "")), "anything", 4).isEmpty());
+    }
+}
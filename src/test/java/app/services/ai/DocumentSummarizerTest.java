@@ -0,0 +1,94 @@
+package app.services.ai;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DocumentSummarizer with a fake model
+ */
+@DisplayName("DocumentSummarizer Tests")
+class DocumentSummarizerTest {
+
+    // 100 tokens = 400 characters per call, and two partial summaries per combine step
+    private static final int CHUNK_TOKENS = 100;
+
+    private static List<String> pages(int count, int charsPerPage) {
+        List<String> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder text = new StringBuilder("page" + (i + 1));
+            while (text.length() < charsPerPage) {
+                text.append(" lorem ipsum.");
+            }
+            pages.add(text.toString());
+        }
+        return pages;
+    }
+
+    @Test
+    @DisplayName("Should summarize every chunk, combine in rounds and stream only the final step")
+    void testMapReduce() throws Exception {
+        List<String> chunkTexts = new CopyOnWriteArrayList<>();
+        List<String> finalCalls = new CopyOnWriteArrayList<>();
+        List<int[]> progress = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        DocumentSummarizer summarizer = new DocumentSummarizer((text, combine, finalStep, listener) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            if (finalStep) {
+                finalCalls.add(text);
+                assertNotNull(listener, "The final step should stream");
+                listener.onToken("final summary");
+                return "final summary";
+            }
+            assertNull(listener, "Only the final step should stream");
+            if (!combine) {
+                chunkTexts.add(text);
+            }
+            return combine ? "combined" : "partial";
+        }, 2, CHUNK_TOKENS);
+        StringBuilder streamed = new StringBuilder();
+
+        String summary = summarizer.summarize(pages(10, 300), streamed::append,
+                                              (completed, total) -> progress.add(new int[] {completed, total}));
+
+        assertEquals("final summary", summary);
+        assertEquals("final summary", streamed.toString());
+        assertEquals(10, chunkTexts.size(), "Each page should be summarized");
+        for (int page = 1; page <= 10; page++) {
+            String marker = "page" + page + " ";
+            assertTrue(chunkTexts.stream().anyMatch(text -> text.startsWith(marker)), "Missing " + marker);
+        }
+        assertEquals(1, finalCalls.size());
+        assertTrue(finalCalls.get(0).startsWith("combined"), "Final step should combine partial summaries");
+        // 10 chunks, then 5, 3, 2 and 1 combine steps
+        assertEquals(21, progress.size());
+        assertTrue(progress.stream().allMatch(step -> step[1] == 21));
+        assertEquals(2, maxRunning.get(), "Parts should run in parallel up to the limit");
+    }
+
+    @Test
+    @DisplayName("Should summarize a short document in one step")
+    void testSingleChunk() throws Exception {
+        List<Boolean> combineFlags = new ArrayList<>();
+        DocumentSummarizer summarizer = new DocumentSummarizer((text, combine, finalStep, listener) -> {
+            combineFlags.add(combine);
+            assertTrue(finalStep);
+            return "summary of " + text;
+        }, 2, CHUNK_TOKENS);
+
+        String summary = summarizer.summarize(List.of("short page"), null, null);
+
+        assertEquals("summary of short page", summary);
+        assertEquals(List.of(false), combineFlags);
+    }
+}
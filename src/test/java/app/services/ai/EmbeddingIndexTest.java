@@ -0,0 +1,68 @@
+package app.services.ai;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EmbeddingIndex
+ */
+@DisplayName("EmbeddingIndex Tests")
+class EmbeddingIndexTest {
+
+    /**
+     * Embeds "x,y" as the vector (x, y)
+     */
+    private static final TextEmbedder POINTS = new TextEmbedder() {
+        @Override
+        public int getDimension() {
+            return 2;
+        }
+
+        @Override
+        public float[][] embed(List<String> texts) {
+            float[][] vectors = new float[texts.size()][];
+            for (int i = 0; i < texts.size(); i++) {
+                String[] parts = texts.get(i).split(",");
+                vectors[i] = new float[] {Float.parseFloat(parts[0]), Float.parseFloat(parts[1])};
+            }
+            return vectors;
+        }
+
+        @Override
+        public String getName() {
+            return "points";
+        }
+    };
+
+    private static TextChunker.Chunk chunk(int page, String text) {
+        return new TextChunker.Chunk(page, page, text);
+    }
+
+    @Test
+    @DisplayName("Should return the top k chunks by dot product, best first")
+    void testSearchTopK() throws Exception {
+        EmbeddingIndex index = EmbeddingIndex.build(List.of(
+            chunk(0, "1,0"), chunk(1, "0,1"), chunk(2, "0.6,0.8"), chunk(3, "-1,0"), chunk(4, "0.8,0.6")), POINTS);
+
+        List<EmbeddingIndex.Match> matches = index.search(new float[] {1, 0}, 3);
+
+        assertEquals(3, matches.size());
+        assertEquals(0, matches.get(0).getChunk().getFirstPage());
+        assertEquals(4, matches.get(1).getChunk().getFirstPage());
+        assertEquals(2, matches.get(2).getChunk().getFirstPage());
+        assertEquals(0.8f, matches.get(1).getScore(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should return all chunks when k exceeds the index size")
+    void testSearchSmallIndex() throws Exception {
+        EmbeddingIndex index = EmbeddingIndex.build(List.of(chunk(0, "0,1"), chunk(1, "1,0")), POINTS);
+
+        assertEquals(2, index.search(new float[] {0, 1}, 10).size());
+        assertEquals(0, index.search(new float[] {0, 1}, 10).get(0).getChunk().getFirstPage());
+        assertTrue(EmbeddingIndex.build(List.of(), POINTS).search(new float[] {1, 0}, 3).isEmpty());
+    }
+}
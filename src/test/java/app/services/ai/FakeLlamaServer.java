@@ -0,0 +1,190 @@
+package app.services.ai;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for llama-server on localhost: answers /health with 503 while "loading", then 200,
+ * /completion with an echo of the prompt, and /tokenize and /detokenize with one token per word
+ */
+class FakeLlamaServer implements LlamaServerBackend.ServerProcess {
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final long readyAt;
+    private final List<JsonObject> requests = new CopyOnWriteArrayList<>();
+    private final List<String> vocabulary = new CopyOnWriteArrayList<>();
+    private final AtomicInteger tokenizeCount = new AtomicInteger();
+    private volatile boolean alive = true;
+    // Streams are cut after this many words, or -1 to send them whole
+    private volatile int streamWordLimit = -1;
+
+    /**
+     * @param loadMillis time until /health reports ready, or -1 to never become ready
+     */
+    FakeLlamaServer(int port, long loadMillis) throws IOException {
+        this.readyAt = loadMillis < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + loadMillis;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/health", exchange -> respond(exchange, isLoaded() ? 200 : 503,
+            isLoaded() ? "{\"status\":\"ok\"}" : "{\"error\":{\"message\":\"Loading model\"}}"));
+        server.createContext("/completion", this::complete);
+        server.createContext("/tokenize", this::tokenize);
+        server.createContext("/detokenize", this::detokenize);
+        server.start();
+    }
+
+    private boolean isLoaded() {
+        return System.currentTimeMillis() >= readyAt;
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        JsonObject request = gson.fromJson(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8),
+                                           JsonObject.class);
+        requests.add(request);
+        String content = "echo: " + request.get("prompt").getAsString();
+        if (request.has("stream") && request.get("stream").getAsBoolean()) {
+            stream(exchange, content, request);
+            return;
+        }
+        JsonObject response = new JsonObject();
+        response.addProperty("content", content);
+        response.addProperty("tokens_predicted", request.get("n_predict").getAsInt());
+        response.add("timings", timings(request));
+        respond(exchange, 200, gson.toJson(response));
+    }
+
+    /**
+     * Token ids are word positions in a vocabulary built as words are seen, after a start token 1
+     */
+    private void tokenize(HttpExchange exchange) throws IOException {
+        tokenizeCount.incrementAndGet();
+        JsonObject request = gson.fromJson(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8),
+                                           JsonObject.class);
+        JsonArray tokens = new JsonArray();
+        if (request.has("add_special") && request.get("add_special").getAsBoolean()) {
+            tokens.add(1);
+        }
+        String content = request.get("content").getAsString();
+        for (String word : content.split("(?<= )")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            int id = vocabulary.indexOf(word);
+            if (id < 0) {
+                vocabulary.add(word);
+                id = vocabulary.size() - 1;
+            }
+            tokens.add(id + 2);
+        }
+        JsonObject response = new JsonObject();
+        response.add("tokens", tokens);
+        respond(exchange, 200, gson.toJson(response));
+    }
+
+    private void detokenize(HttpExchange exchange) throws IOException {
+        JsonObject request = gson.fromJson(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8),
+                                           JsonObject.class);
+        StringBuilder content = new StringBuilder();
+        for (JsonElement token : request.getAsJsonArray("tokens")) {
+            int id = token.getAsInt();
+            if (id >= 2) {
+                content.append(vocabulary.get(id - 2));
+            }
+        }
+        JsonObject response = new JsonObject();
+        response.addProperty("content", content.toString());
+        respond(exchange, 200, gson.toJson(response));
+    }
+
+    /**
+     * Send the content as server-sent events, one word per event
+     */
+    private void stream(HttpExchange exchange, String content, JsonObject request) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            int words = 0;
+            for (String token : content.split("(?<= )")) {
+                if (words++ == streamWordLimit) {
+                    // Like a server that died mid-reply
+                    return;
+                }
+                JsonObject event = new JsonObject();
+                event.addProperty("content", token);
+                event.addProperty("stop", false);
+                out.write(("data: " + gson.toJson(event) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            JsonObject last = new JsonObject();
+            last.addProperty("content", "");
+            last.addProperty("stop", true);
+            last.add("timings", timings(request));
+            out.write(("data: " + gson.toJson(last) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static JsonObject timings(JsonObject request) {
+        JsonObject timings = new JsonObject();
+        timings.addProperty("prompt_n", request.get("prompt").getAsString().split(" ").length);
+        timings.addProperty("prompt_ms", 1.5);
+        return timings;
+    }
+
+    /**
+     * Get the completion requests received, oldest first
+     */
+    List<JsonObject> getRequests() {
+        return requests;
+    }
+
+    int getTokenizeCount() {
+        return tokenizeCount.get();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * End streamed replies after the given number of words, without the final event
+     */
+    void cutStreamsAfter(int words) {
+        streamWordLimit = words;
+    }
+
+    /**
+     * Simulate the process dying
+     */
+    void crash() {
+        stop();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return alive;
+    }
+
+    @Override
+    public void stop() {
+        alive = false;
+        server.stop(0);
+    }
+}
@@ -0,0 +1,56 @@
+package app.services.ai;
+
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HuggingFaceTokenCounter with a word-level tokenizer written to a model directory
+ */
+@DisplayName("HuggingFaceTokenCounter Tests")
+class HuggingFaceTokenCounterTest {
+
+    private static final String TOKENIZER_JSON = "{"
+        + "\"version\":\"1.0\",\"truncation\":null,\"padding\":null,\"added_tokens\":[],"
+        + "\"normalizer\":null,"
+        + "\"pre_tokenizer\":{\"type\":\"Whitespace\"},"
+        + "\"post_processor\":{\"type\":\"TemplateProcessing\","
+        + "\"single\":[{\"SpecialToken\":{\"id\":\"<s>\",\"type_id\":0}},{\"Sequence\":{\"id\":\"A\",\"type_id\":0}}],"
+        + "\"pair\":[{\"Sequence\":{\"id\":\"A\",\"type_id\":0}},{\"Sequence\":{\"id\":\"B\",\"type_id\":1}}],"
+        + "\"special_tokens\":{\"<s>\":{\"id\":\"<s>\",\"ids\":[1],\"tokens\":[\"<s>\"]}}},"
+        + "\"decoder\":null,"
+        + "\"model\":{\"type\":\"WordLevel\",\"unk_token\":\"<unk>\",\"vocab\":"
+        + "{\"<unk>\":0,\"<s>\":1,\"the\":2,\"quick\":3,\"brown\":4,\"fox\":5,\"jumps\":6}}"
+        + "}";
+
+    @Test
+    @DisplayName("Should return null when the model directory has no tokenizer")
+    void testMissingTokenizer(@TempDir Path modelDir) throws Exception {
+        assertNull(HuggingFaceTokenCounter.loadTokenizer(modelDir));
+    }
+
+    @Test
+    @DisplayName("Should load the tokenizer from the model directory and count its tokens")
+    void testCountAndTruncate(@TempDir Path modelDir) throws Exception {
+        Files.writeString(modelDir.resolve(HuggingFaceTokenCounter.TOKENIZER_FILE), TOKENIZER_JSON,
+                          StandardCharsets.UTF_8);
+
+        try (HuggingFaceTokenizer tokenizer = HuggingFaceTokenCounter.loadTokenizer(modelDir)) {
+            assertNotNull(tokenizer);
+            TokenCounter counter = new HuggingFaceTokenCounter(tokenizer);
+
+            assertEquals(5, counter.count("the quick brown fox"), "The start token should be counted");
+            assertEquals("the quick", counter.truncate("the quick brown fox", 3).trim());
+            assertEquals("the quick brown fox", counter.truncate("the quick brown fox", 10));
+            assertEquals("😀 the", counter.truncate("😀 the quick", 3),
+                "The cut should follow the tokens past characters outside the BMP");
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package app.services.ai;
+
+import app.utils.PerformanceMonitor;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InferenceScheduler
+ */
+@DisplayName("InferenceScheduler Tests")
+class InferenceSchedulerTest {
+
+    private InferenceScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    /**
+     * Occupy a slot until the returned latch is released
+     */
+    private CountDownLatch blockSlot() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        submitAsync(InferenceScheduler.Priority.BACKGROUND, () -> {
+            started.countDown();
+            release.await();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private Thread submitAsync(InferenceScheduler.Priority priority, Work work) {
+        Thread thread = new Thread(() -> {
+            try {
+                scheduler.submit(priority, 10_000, () -> {
+                    work.run();
+                    return null;
+                });
+            } catch (Exception e) {
+                // Checked by the test through its own state
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void awaitQueued(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getQueuedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, scheduler.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("Should serve queued interactive requests before background ones")
+    void testInteractiveFirst() throws Exception {
+        scheduler = new InferenceScheduler(1);
+        CountDownLatch release = blockSlot();
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Thread background1 = submitAsync(InferenceScheduler.Priority.BACKGROUND, () -> order.add("background-1"));
+        awaitQueued(1);
+        Thread background2 = submitAsync(InferenceScheduler.Priority.BACKGROUND, () -> order.add("background-2"));
+        awaitQueued(2);
+        Thread interactive = submitAsync(InferenceScheduler.Priority.INTERACTIVE, () -> order.add("interactive"));
+        awaitQueued(3);
+        release.countDown();
+        for (Thread thread : List.of(background1, background2, interactive)) {
+            thread.join(5000);
+        }
+
+        assertEquals(List.of("interactive", "background-1", "background-2"), order);
+        PerformanceMonitor.Metric waits = PerformanceMonitor.getInstance().getMetric("ai.queue.wait.interactive");
+        assertNotNull(waits, "Queue wait should be recorded");
+        assertTrue(waits.getCount() > 0);
+    }
+
+    @Test
+    @DisplayName("Should run requests in parallel up to the slot count")
+    void testParallelSlots() throws Exception {
+        scheduler = new InferenceScheduler(2);
+        CyclicBarrier bothRunning = new CyclicBarrier(2);
+
+        // Each request waits for the other, so this only finishes if both run at once
+        Thread first = submitAsync(InferenceScheduler.Priority.BACKGROUND, () -> bothRunning.await(5, TimeUnit.SECONDS));
+        String result = scheduler.submit(InferenceScheduler.Priority.INTERACTIVE, 5000, () -> {
+            bothRunning.await(5, TimeUnit.SECONDS);
+            return "done";
+        });
+        first.join(5000);
+
+        assertEquals("done", result);
+        assertEquals(2, scheduler.getSlots());
+    }
+
+    @Test
+    @DisplayName("Should time out queued and running requests and free the slot")
+    void testTimeouts() throws Exception {
+        scheduler = new InferenceScheduler(1);
+        CountDownLatch release = blockSlot();
+
+        // Still queued when the time is up
+        assertThrows(TimeoutException.class,
+            () -> scheduler.submit(InferenceScheduler.Priority.INTERACTIVE, 100, () -> "late"));
+        assertEquals(0, scheduler.getQueuedCount(), "Timed out request should leave the queue");
+        release.countDown();
+
+        // Running when the time is up: interrupted, and the slot serves the next request
+        assertThrows(TimeoutException.class, () -> scheduler.submit(InferenceScheduler.Priority.INTERACTIVE, 100, () -> {
+            Thread.sleep(10_000);
+            return "slow";
+        }));
+        assertEquals("next", scheduler.submit(InferenceScheduler.Priority.INTERACTIVE, 5000, () -> "next"));
+    }
+
+    @Test
+    @DisplayName("Should pass on the request's own exception")
+    void testFailure() {
+        scheduler = new InferenceScheduler(1);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+            () -> scheduler.submit(InferenceScheduler.Priority.BACKGROUND, 5000, () -> {
+                throw new IllegalStateException("model failed");
+            }));
+
+        assertEquals("model failed", exception.getMessage());
+    }
+}
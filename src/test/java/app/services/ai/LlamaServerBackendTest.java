@@ -0,0 +1,191 @@
+package app.services.ai;
+
+import app.utils.PerformanceMonitor;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LlamaServerBackend against a fake llama-server on localhost
+ */
+@DisplayName("LlamaServerBackend Tests")
+class LlamaServerBackendTest {
+
+    private final List<FakeLlamaServer> launched = new CopyOnWriteArrayList<>();
+    private LlamaServerBackend backend;
+
+    private LlamaServerBackend createBackend(long loadMillis, long startupTimeoutMillis) {
+        return new LlamaServerBackend(port -> {
+            FakeLlamaServer server = new FakeLlamaServer(port, loadMillis);
+            launched.add(server);
+            return server;
+        }, 2, startupTimeoutMillis, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should wait for the model to load and reuse one server across requests")
+    void testCompleteReusesServer() throws Exception {
+        backend = createBackend(300, 5000);
+        backend.start();
+        assertFalse(backend.isReady(), "Server should still be loading");
+
+        String first = backend.complete("Hello", 16);
+        String second = backend.complete("Again", 16);
+
+        assertEquals("echo: Hello", first);
+        assertEquals("echo: Again", second);
+        assertTrue(backend.isReady());
+        assertEquals(1, launched.size(), "The model should be loaded once");
+    }
+
+    @Test
+    @DisplayName("Should stream tokens as they arrive and record time to first token")
+    void testCompleteStreaming() throws Exception {
+        backend = createBackend(0, 5000);
+        List<String> tokens = new CopyOnWriteArrayList<>();
+        long ttftCount = ttftCount();
+
+        String text = backend.complete("one two three", 16, tokens::add);
+
+        assertEquals("echo: one two three", text);
+        assertEquals(List.of("echo: ", "one ", "two ", "three"), tokens);
+        assertEquals(ttftCount + 1, ttftCount(), "Time to first token should be recorded");
+    }
+
+    @Test
+    @DisplayName("Should ask the server to cache prompts and send a document's requests to one slot")
+    void testPromptCacheSlots() throws Exception {
+        backend = createBackend(0, 5000);
+
+        backend.complete("Context: a\n\nUser question: one", 8, null, "chat:a.pdf");
+        backend.complete("Context: b\n\nUser question: two", 8, null, "chat:b.pdf");
+        backend.complete("Context: a more\n\nUser question: three", 8, null, "chat:a.pdf");
+
+        List<com.google.gson.JsonObject> requests = launched.get(0).getRequests();
+        assertEquals(3, requests.size());
+        for (com.google.gson.JsonObject request : requests) {
+            assertTrue(request.get("cache_prompt").getAsBoolean(), "Prompts should be kept in the slot cache");
+        }
+        int firstSlot = requests.get(0).get("id_slot").getAsInt();
+        assertNotEquals(firstSlot, requests.get(1).get("id_slot").getAsInt(),
+            "Another document should not overwrite the first one's slot");
+        assertEquals(firstSlot, requests.get(2).get("id_slot").getAsInt(),
+            "The same document should return to its slot");
+    }
+
+    @Test
+    @DisplayName("Should count and truncate with the server's tokenizer")
+    void testServerTokenCounter() {
+        backend = createBackend(0, 5000);
+        TokenCounter counter = new LlamaServerTokenCounter(backend);
+
+        assertEquals(4, counter.count("one two three"), "The start token should be counted");
+        assertEquals(4, counter.count("one two three"));
+        assertEquals(1, launched.get(0).getTokenizeCount(), "A text should be sent to the server once");
+        assertEquals("one two ", counter.truncate("one two three", 2));
+        assertEquals("one two three", counter.truncate("one two three", 3));
+    }
+
+    private static long ttftCount() {
+        PerformanceMonitor.Metric metric = PerformanceMonitor.getInstance().getMetric("llm.server.ttft");
+        return metric == null ? 0 : metric.getCount();
+    }
+
+    @Test
+    @DisplayName("Should fail instead of falling back once part of a reply was streamed")
+    void testCutStreamIsNotRetried() throws Exception {
+        backend = createBackend(0, 5000);
+        backend.start();
+        LlamaModelManager manager = new LlamaModelManager(backend, "models/test-model.gguf", 2);
+        assertEquals("echo: one two", manager.generateText("one two", 8));
+        launched.get(0).cutStreamsAfter(2);
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        IOException exception = assertThrows(IOException.class,
+            () -> manager.generateText("one two three", 8, tokens::add));
+
+        assertTrue(exception.getMessage().contains("closed the stream"), exception.getMessage());
+        assertEquals(List.of("echo: ", "one "), tokens, "Nothing should be appended to the partial reply");
+    }
+
+    @Test
+    @DisplayName("Should restart the server after the process dies")
+    void testRestartAfterCrash() throws Exception {
+        backend = createBackend(0, 5000);
+        backend.complete("Before", 8);
+
+        launched.get(0).crash();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (backend.getRestartCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, backend.getRestartCount());
+        assertEquals("echo: After", backend.complete("After", 8));
+        assertEquals(2, launched.size());
+    }
+
+    @Test
+    @DisplayName("Should not hold the backend lock while a crashed server stops")
+    void testSlowStopDoesNotBlock() throws Exception {
+        CountDownLatch stopping = new CountDownLatch(1);
+        backend = new LlamaServerBackend(port -> {
+            FakeLlamaServer server = new FakeLlamaServer(port, 0);
+            launched.add(server);
+            return new LlamaServerBackend.ServerProcess() {
+                @Override
+                public boolean isAlive() {
+                    return server.isAlive();
+                }
+
+                @Override
+                public void stop() {
+                    stopping.countDown();
+                    try {
+                        Thread.sleep(2000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    server.stop();
+                }
+            };
+        }, 2, 5000, 100);
+        backend.complete("Before", 8);
+
+        launched.get(0).crash();
+        assertTrue(stopping.await(5, TimeUnit.SECONDS));
+
+        assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+            assertFalse(backend.isReady());
+            assertEquals(0, backend.getRestartCount());
+        });
+        assertEquals("echo: After", backend.complete("After", 8));
+        assertEquals(1, backend.getRestartCount());
+    }
+
+    @Test
+    @DisplayName("Should give up after repeated failed starts")
+    void testGivesUpWhenServerNeverLoads() {
+        backend = createBackend(-1, 200);
+
+        IOException exception = assertThrows(IOException.class, () -> backend.complete("Hello", 8));
+
+        assertTrue(exception.getMessage().contains("failed to start"));
+        assertEquals(3, launched.size());
+        assertTrue(launched.stream().noneMatch(FakeLlamaServer::isAlive), "Failed servers should be stopped");
+    }
+}
@@ -0,0 +1,67 @@
+package app.services.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.FloatBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LogitsSampler
+ */
+@DisplayName("LogitsSampler Tests")
+class LogitsSamplerTest {
+
+    // Two rows of logits; the second row's best tokens are 3, then 1, then 4
+    private final FloatBuffer logits = FloatBuffer.wrap(new float[]{
+        9f, 0f, 0f, 0f, 0f, 0f,
+        0f, 4f, -1f, 5f, 3.5f, -2f
+    });
+
+    @Test
+    @DisplayName("Should pick the most likely token of the given row")
+    void testGreedy() {
+        assertEquals(3, LogitsSampler.greedy().sample(logits, 6, 6));
+        assertEquals(3, new LogitsSampler(0.7f, 1, 1f, 1L).sample(logits, 6, 6), "Top-k of 1 should be greedy");
+    }
+
+    @Test
+    @DisplayName("Should only sample from the top k tokens")
+    void testTopK() {
+        LogitsSampler sampler = new LogitsSampler(1f, 2, 1f, 42L);
+        Set<Integer> sampled = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            sampled.add(sampler.sample(logits, 6, 6));
+        }
+
+        assertEquals(Set.of(3, 1), sampled);
+    }
+
+    @Test
+    @DisplayName("Should stop adding candidates once top-p of the probability is covered")
+    void testTopP() {
+        // Token 3 has about 62% of the probability, tokens 3 and 1 about 85%
+        LogitsSampler sampler = new LogitsSampler(1f, 0, 0.7f, 7L);
+        Set<Integer> sampled = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            sampled.add(sampler.sample(logits, 6, 6));
+        }
+
+        assertEquals(Set.of(3, 1), sampled);
+        assertEquals(3, new LogitsSampler(1f, 0, 0.1f, 7L).sample(logits, 6, 6));
+    }
+
+    @Test
+    @DisplayName("Should give the same tokens for the same seed")
+    void testSeeded() {
+        LogitsSampler first = new LogitsSampler(1.5f, 0, 1f, 99L);
+        LogitsSampler second = new LogitsSampler(1.5f, 0, 1f, 99L);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(first.sample(logits, 6, 6), second.sample(logits, 6, 6));
+        }
+    }
+}
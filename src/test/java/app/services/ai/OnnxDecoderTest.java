@@ -0,0 +1,98 @@
+package app.services.ai;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OnnxDecoder with a tiny decoder model whose next token is the length of its cache
+ */
+@DisplayName("OnnxDecoder Tests")
+class OnnxDecoderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private OrtSession session;
+    private OnnxDecoder decoder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        OrtEnvironment environment = OrtEnvironment.getEnvironment();
+        session = environment.createSession(TinyDecoderModel.write(tempDir).toString(),
+                                            new OrtSession.SessionOptions());
+        decoder = new OnnxDecoder(environment, session);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        session.close();
+    }
+
+    @Test
+    @DisplayName("Should feed each step's key/value cache into the next step")
+    void testGenerateWithCache() throws Exception {
+        List<Long> streamed = new ArrayList<>();
+
+        long[] tokens = decoder.generate(new long[]{9, 9, 9}, 4, Set.of(), streamed::add);
+
+        assertTrue(decoder.usesCache());
+        // The cache grows by one entry per step only if it is passed back and only the new token is fed
+        assertArrayEquals(new long[]{3, 4, 5, 6}, tokens);
+        assertEquals(List.of(3L, 4L, 5L, 6L), streamed, "Each token should be passed on as it is generated");
+    }
+
+    @Test
+    @DisplayName("Should feed a long prompt through the cache in chunks")
+    void testLongPromptInChunks() throws Exception {
+        int promptLength = OnnxDecoder.PREFILL_CHUNK * 2 + 5;
+        Path dir = tempDir.resolve("wide");
+        Files.createDirectories(dir);
+        OrtEnvironment environment = OrtEnvironment.getEnvironment();
+        try (OrtSession wide = environment.createSession(TinyDecoderModel.write(dir, promptLength + 8).toString(),
+                                                         new OrtSession.SessionOptions())) {
+            long[] prompt = new long[promptLength];
+            Arrays.fill(prompt, 9);
+
+            long[] tokens = new OnnxDecoder(environment, wide).generate(prompt, 3, Set.of(), null);
+
+            // Every chunk has to land in the cache for the first token to be the prompt length
+            assertArrayEquals(new long[]{promptLength, promptLength + 1, promptLength + 2}, tokens);
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop at a stop token without returning it")
+    void testStopToken() throws Exception {
+        long[] tokens = decoder.generate(new long[]{1, 2}, 10, Set.of(5L), null);
+
+        assertArrayEquals(new long[]{2, 3, 4}, tokens);
+    }
+
+    @Test
+    @DisplayName("Should refuse to generate with a model that has no next-token logits")
+    void testEncoderIsNotGenerative() throws Exception {
+        assertTrue(decoder.isGenerative());
+
+        Path encoderDir = tempDir.resolve("encoder");
+        Files.createDirectories(encoderDir);
+        OrtEnvironment environment = OrtEnvironment.getEnvironment();
+        try (OrtSession encoder = environment.createSession(
+                TinyDecoderModel.write(encoderDir, "last_hidden_state").toString(), new OrtSession.SessionOptions())) {
+            OnnxDecoder notDecoder = new OnnxDecoder(environment, encoder);
+
+            assertFalse(notDecoder.isGenerative());
+            assertThrows(IllegalStateException.class, () -> notDecoder.generate(new long[]{1}, 4, Set.of(), null));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package app.services.ai;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OnnxSessionFactory
+ */
+@DisplayName("OnnxSessionFactory Tests")
+class OnnxSessionFactoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final OrtEnvironment environment = OrtEnvironment.getEnvironment();
+    private OnnxSessionFactory factory;
+    private Path model;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path modelDir = Files.createDirectories(tempDir.resolve("tiny"));
+        model = TinyDecoderModel.write(modelDir);
+        factory = new OnnxSessionFactory(1, 0, OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL,
+                                         OrtSession.SessionOptions.OptLevel.ALL_OPT, tempDir.resolve("cache"));
+    }
+
+    @Test
+    @DisplayName("Should save the optimized graph on first load and load it afterwards")
+    void testOptimizedModelCache() throws Exception {
+        Path cached = factory.cacheFile(environment, model);
+        assertFalse(Files.exists(cached));
+
+        try (OrtSession session = factory.create(environment, model, "test")) {
+            assertNotNull(session);
+            assertTrue(Files.size(cached) > 0, "The optimized graph should be saved");
+        }
+        long savedAt = Files.getLastModifiedTime(cached).toMillis();
+
+        try (OrtSession session = factory.create(environment, model, "test")) {
+            long[] tokens = new OnnxDecoder(environment, session).generate(new long[]{7, 7}, 3, Set.of(), null);
+            assertArrayEquals(new long[]{2, 3, 4}, tokens, "The cached graph should behave like the original");
+        }
+        assertEquals(savedAt, Files.getLastModifiedTime(cached).toMillis(), "The cache should be read, not rewritten");
+    }
+
+    @Test
+    @DisplayName("Should replace an unreadable cache file")
+    void testCorruptCache() throws Exception {
+        Path cached = factory.cacheFile(environment, model);
+        Files.createDirectories(cached.getParent());
+        Files.write(cached, new byte[]{1, 2, 3});
+
+        try (OrtSession session = factory.create(environment, model, "test")) {
+            assertNotNull(session);
+        }
+        assertTrue(Files.size(cached) > 3, "The cache should be written again from the original model");
+    }
+
+    @Test
+    @DisplayName("Should parse settings and default to sequential execution with full optimization")
+    void testSettings() {
+        assertEquals(OrtSession.SessionOptions.OptLevel.BASIC_OPT, OnnxSessionFactory.parseOptimizationLevel("Basic"));
+        assertEquals(OrtSession.SessionOptions.OptLevel.NO_OPT, OnnxSessionFactory.parseOptimizationLevel("none"));
+        assertEquals(OrtSession.SessionOptions.OptLevel.ALL_OPT, OnnxSessionFactory.parseOptimizationLevel(null));
+        assertEquals(OrtSession.SessionOptions.ExecutionMode.PARALLEL, OnnxSessionFactory.parseExecutionMode("parallel"));
+        assertEquals(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL, OnnxSessionFactory.parseExecutionMode(""));
+
+        assertEquals(1, factory.getIntraOpThreads());
+        assertEquals(1, factory.getInterOpThreads(), "Sequential mode needs one inter-op thread");
+        assertTrue(OnnxSessionFactory.defaultIntraOpThreads() >= 1);
+    }
+}
@@ -0,0 +1,74 @@
+package app.services.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PromptPacker and TokenCounter
+ */
+@DisplayName("PromptPacker Tests")
+class PromptPackerTest {
+
+    /**
+     * One token per word, plus a start token for the whole prompt
+     */
+    private static final TokenCounter WORDS = new TokenCounter() {
+        @Override
+        public int count(String text) {
+            String trimmed = text.trim();
+            return 1 + (trimmed.isEmpty() ? 0 : trimmed.split("\\s+").length);
+        }
+
+        @Override
+        public String truncate(String text, int maxTokens) {
+            return TokenCounter.truncateByCount(this, text, maxTokens + 1);
+        }
+    };
+
+    private static final String TEXT = "one two three four five six seven eight nine ten";
+
+    @Test
+    @DisplayName("Should fill the prompt to the context less the generated tokens")
+    void testPackFillsBudget() {
+        PromptPacker packer = new PromptPacker(WORDS, 12, 4);
+
+        String prompt = packer.pack("Text: ", TEXT, " Answer:");
+
+        assertEquals(8, packer.getPromptTokens());
+        assertEquals(8, WORDS.count(prompt), "The prompt should use its whole budget");
+        assertTrue(prompt.startsWith("Text: one two three four five"));
+        assertTrue(prompt.endsWith(" Answer:"), "The instruction after the text should be kept");
+    }
+
+    @Test
+    @DisplayName("Should leave prompts that fit unchanged")
+    void testPackKeepsShortPrompt() {
+        PromptPacker packer = new PromptPacker(WORDS, 100, 10);
+
+        assertEquals("Text: " + TEXT, packer.pack("Text: ", TEXT, ""));
+    }
+
+    @Test
+    @DisplayName("Should truncate by binary search without splitting characters")
+    void testTruncateByCount() {
+        String text = "ab😀cd";
+        TokenCounter chars = new TokenCounter() {
+            @Override
+            public int count(String value) {
+                return value.length();
+            }
+
+            @Override
+            public String truncate(String value, int maxTokens) {
+                return TokenCounter.truncateByCount(this, value, maxTokens);
+            }
+        };
+
+        assertEquals("ab", chars.truncate(text, 3), "A surrogate pair should not be split");
+        assertEquals("ab😀", chars.truncate(text, 4));
+        assertEquals(text, chars.truncate(text, 100));
+        assertEquals("abcdefgh", TokenCounter.estimate().truncate("abcdefghij", 2));
+    }
+}
@@ -0,0 +1,50 @@
+package app.services.ai;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PromptSlots
+ */
+@DisplayName("PromptSlots Tests")
+class PromptSlotsTest {
+
+    @Test
+    @DisplayName("Should return a document to its slot until another prompt replaces it")
+    void testAffinity() {
+        PromptSlots slots = new PromptSlots(2);
+
+        int a = slots.acquire("a");
+        slots.release(a);
+        int b = slots.acquire("b");
+        slots.release(b);
+        assertNotEquals(a, b);
+        assertEquals(a, slots.acquire("a"));
+        slots.release(a);
+
+        // A third document takes the slot used longest ago, which was b's
+        int c = slots.acquire("c");
+        slots.release(c);
+        assertEquals(b, c);
+        assertNotEquals(c, slots.acquire("b"), "b's prompt was replaced, so it should not get c's slot");
+    }
+
+    @Test
+    @DisplayName("Should not wait for a document's slot while another slot is free")
+    void testBusySlot() {
+        PromptSlots slots = new PromptSlots(2);
+
+        int first = slots.acquire("a");
+        int second = slots.acquire("a");
+
+        assertNotEquals(-1, second);
+        assertNotEquals(first, second, "A busy slot should not be chosen");
+        assertEquals(-1, slots.acquire(null), "The server should choose when all slots are busy");
+
+        slots.release(second);
+        slots.release(first);
+        assertEquals(first, slots.acquire("a"), "The document should keep its own slot");
+    }
+}
@@ -0,0 +1,44 @@
+package app.services.ai;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TextChunker
+ */
+@DisplayName("TextChunker Tests")
+class TextChunkerTest {
+
+    @Test
+    @DisplayName("Should pack pages into chunks that fit and split long pages")
+    void testChunk() {
+        // 100 tokens = 400 characters
+        TextChunker chunker = new TextChunker(100);
+        List<String> pages = List.of("a".repeat(150), "b".repeat(150), "", "c".repeat(1000));
+
+        List<TextChunker.Chunk> chunks = chunker.chunk(pages);
+
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.getText().length() <= 400), "Chunks should fit the budget");
+        assertEquals(0, chunks.get(0).getFirstPage());
+        assertEquals(1, chunks.get(0).getLastPage(), "Short pages should share a chunk");
+        assertEquals("Pages 1-2", chunks.get(0).getPageLabel());
+        assertEquals(1000, chunks.stream().filter(chunk -> chunk.getFirstPage() == 3)
+            .mapToInt(chunk -> chunk.getText().length()).sum(), "Long page should be split without losing text");
+    }
+
+    @Test
+    @DisplayName("Should prefer sentence breaks when splitting a page")
+    void testSplitAtSentences() {
+        TextChunker chunker = new TextChunker(10);
+        String sentence = "This sentence is short. ";
+
+        List<TextChunker.Chunk> chunks = chunker.chunk(List.of(sentence.repeat(5).strip()));
+
+        assertTrue(chunks.size() > 1);
+        assertTrue(chunks.stream().allMatch(chunk -> chunk.getText().endsWith(".")), "Chunks should end at a sentence");
+        assertTrue(chunker.chunk(List.of("", " ")).isEmpty(), "Blank pages should give no chunks");
+    }
+}
@@ -0,0 +1,184 @@
+package app.services.ai;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a tiny decoder ONNX model with the inputs and outputs of an exported LLM
+ * (input_ids, attention_mask, position_ids, past_key_values.0.key/value; logits, present.0.key/value).
+ * The cache holds one entry per token seen, and the most likely next token is the cache length,
+ * so the output counts up from the prompt length only if each step's cache is fed to the next.
+ */
+final class TinyDecoderModel {
+    static final int VOCABULARY = 16;
+    static final int HEADS = 2;
+    static final int HEAD_SIZE = 4;
+
+    // ONNX TensorProto data types
+    private static final int FLOAT = 1;
+    private static final int INT64 = 7;
+
+    private TinyDecoderModel() {
+    }
+
+    static Path write(Path dir) throws IOException {
+        return write(dir, "logits", VOCABULARY);
+    }
+
+    /**
+     * @param vocabulary logits per position; the model counts up to vocabulary - 1
+     */
+    static Path write(Path dir, int vocabulary) throws IOException {
+        return write(dir, "logits", vocabulary);
+    }
+
+    /**
+     * @param outputName name of the scores output; anything but "logits" looks like an encoder's hidden states
+     */
+    static Path write(Path dir, String outputName) throws IOException {
+        return write(dir, outputName, VOCABULARY);
+    }
+
+    private static Path write(Path dir, String outputName, int vocabulary) throws IOException {
+        Proto graph = new Proto()
+            // Cache entries for the new tokens: ids as floats, broadcast to [1, heads, tokens, head size]
+            .message(1, node("Cast", new String[]{"input_ids"}, "ids_float", intAttribute("to", FLOAT)))
+            .message(1, node("Unsqueeze", new String[]{"ids_float", "axes"}, "ids_4d"))
+            .message(1, node("Expand", new String[]{"ids_4d", "cache_shape"}, "new_entries"))
+            .message(1, node("Concat", new String[]{"past_key_values.0.key", "new_entries"}, "present.0.key",
+                             intAttribute("axis", 2)))
+            .message(1, node("Concat", new String[]{"past_key_values.0.value", "new_entries"}, "present.0.value",
+                             intAttribute("axis", 2)))
+            // Next token at every position: the cache length
+            .message(1, node("Shape", new String[]{"present.0.key"}, "present_shape"))
+            .message(1, node("Gather", new String[]{"present_shape", "two"}, "cache_length",
+                             intAttribute("axis", 0)))
+            .message(1, node("Mul", new String[]{"input_ids", "zero"}, "zeros"))
+            .message(1, node("Add", new String[]{"zeros", "cache_length"}, "next"))
+            .message(1, node("OneHot", new String[]{"next", "depth", "one_hot_values"}, outputName))
+            .string(2, "tiny-decoder")
+            .message(5, longTensor("axes", new long[]{2}, 1, 3))
+            .message(5, longTensor("cache_shape", new long[]{4}, 1, HEADS, 1, HEAD_SIZE))
+            .message(5, longTensor("two", new long[0], 2))
+            .message(5, longTensor("zero", new long[0], 0))
+            .message(5, longTensor("depth", new long[0], vocabulary))
+            .message(5, floatTensor("one_hot_values", 0f, 1f))
+            .message(11, valueInfo("input_ids", INT64, "batch", "tokens"))
+            .message(11, valueInfo("attention_mask", INT64, "batch", "total"))
+            .message(11, valueInfo("position_ids", INT64, "batch", "tokens"))
+            .message(11, valueInfo("past_key_values.0.key", FLOAT, "batch", HEADS, "past", HEAD_SIZE))
+            .message(11, valueInfo("past_key_values.0.value", FLOAT, "batch", HEADS, "past", HEAD_SIZE))
+            .message(12, valueInfo(outputName, FLOAT, "batch", "tokens", vocabulary))
+            .message(12, valueInfo("present.0.key", FLOAT, "batch", HEADS, "total", HEAD_SIZE))
+            .message(12, valueInfo("present.0.value", FLOAT, "batch", HEADS, "total", HEAD_SIZE));
+
+        Proto model = new Proto()
+            .varint(1, 7)
+            .string(2, "pdf-studio-test")
+            .message(7, graph)
+            .message(8, new Proto().string(1, "").varint(2, 13));
+
+        Path file = dir.resolve("model.onnx");
+        Files.write(file, model.toByteArray());
+        return file;
+    }
+
+    private static Proto node(String op, String[] inputs, String output, Proto... attributes) {
+        Proto node = new Proto();
+        for (String input : inputs) {
+            node.string(1, input);
+        }
+        node.string(2, output).string(3, op + "_" + output).string(4, op);
+        for (Proto attribute : attributes) {
+            node.message(5, attribute);
+        }
+        return node;
+    }
+
+    private static Proto intAttribute(String name, long value) {
+        return new Proto().string(1, name).varint(3, value).varint(20, 2);
+    }
+
+    private static Proto longTensor(String name, long[] dims, long... values) {
+        ByteBuffer data = ByteBuffer.allocate(values.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (long value : values) {
+            data.putLong(value);
+        }
+        return tensor(name, INT64, dims, data.array());
+    }
+
+    private static Proto floatTensor(String name, float... values) {
+        ByteBuffer data = ByteBuffer.allocate(values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : values) {
+            data.putFloat(value);
+        }
+        return tensor(name, FLOAT, new long[]{values.length}, data.array());
+    }
+
+    private static Proto tensor(String name, int type, long[] dims, byte[] data) {
+        Proto tensor = new Proto();
+        for (long dim : dims) {
+            tensor.varint(1, dim);
+        }
+        return tensor.varint(2, type).string(8, name).bytes(9, data);
+    }
+
+    /**
+     * @param dims Integer sizes or String names of dynamic dimensions
+     */
+    private static Proto valueInfo(String name, int type, Object... dims) {
+        Proto shape = new Proto();
+        for (Object dim : dims) {
+            shape.message(1, dim instanceof String
+                ? new Proto().string(2, (String) dim)
+                : new Proto().varint(1, ((Number) dim).longValue()));
+        }
+        Proto tensorType = new Proto().varint(1, type).message(2, shape);
+        return new Proto().string(1, name).message(2, new Proto().message(1, tensorType));
+    }
+
+    /**
+     * Minimal protocol buffer writer
+     */
+    private static final class Proto {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Proto varint(int field, long value) {
+            writeVarint((long) field << 3);
+            writeVarint(value);
+            return this;
+        }
+
+        Proto bytes(int field, byte[] value) {
+            writeVarint((long) field << 3 | 2);
+            writeVarint(value.length);
+            out.write(value, 0, value.length);
+            return this;
+        }
+
+        Proto string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Proto message(int field, Proto value) {
+            return bytes(field, value.toByteArray());
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package app.services.ocr;
+
+import app.model.OCRWord;
+import org.junit.jupiter.api.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LargePageRecognizer. Words are black boxes whose text is their width,
+ * "recognized" by a fake that finds the boxes in each strip.
+ */
+@DisplayName("LargePageRecognizer Tests")
+class LargePageRecognizerTest {
+
+    private static final int LINES = 30;
+    private static final int WORDS_PER_LINE = 3;
+    private static final int LINE_HEIGHT = 40;
+
+    private TesseractPool pool;
+    private ExecutorService helpers;
+
+    @BeforeEach
+    void setUp() {
+        pool = new TesseractPool(TesseractEngine::new, 4, 4, 60_000);
+        helpers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        helpers.shutdownNow();
+        pool.close();
+    }
+
+    private static BufferedImage poster() {
+        BufferedImage image = new BufferedImage(1000, 3000, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 1000, 3000);
+        g.setColor(Color.BLACK);
+        for (int line = 0; line < LINES; line++) {
+            for (int word = 0; word < WORDS_PER_LINE; word++) {
+                g.fillRect(50 + word * 300, 50 + line * 95, 100 + line * WORDS_PER_LINE + word, LINE_HEIGHT);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Report every black box in the strip as a word named after its width
+     */
+    private static TesseractEngine.Recognition findBoxes(TesseractEngine engine, BufferedImage strip) {
+        List<OCRWord> words = new ArrayList<>();
+        boolean[] seen = new boolean[strip.getWidth() * strip.getHeight()];
+        for (int y = 0; y < strip.getHeight(); y++) {
+            for (int x = 0; x < strip.getWidth(); x++) {
+                if (seen[y * strip.getWidth() + x] || (strip.getRGB(x, y) & 0xFF) > 128) {
+                    continue;
+                }
+                int width = 0;
+                while (x + width < strip.getWidth() && (strip.getRGB(x + width, y) & 0xFF) <= 128) {
+                    width++;
+                }
+                int height = 0;
+                while (y + height < strip.getHeight() && (strip.getRGB(x, y + height) & 0xFF) <= 128) {
+                    height++;
+                }
+                for (int dy = 0; dy < height; dy++) {
+                    for (int dx = 0; dx < width; dx++) {
+                        seen[(y + dy) * strip.getWidth() + x + dx] = true;
+                    }
+                }
+                words.add(new OCRWord("w" + width, 90, x, y, width, height));
+            }
+        }
+        return new TesseractEngine.Recognition("", 90, words);
+    }
+
+    private LargePageRecognizer createRecognizer() {
+        return new LargePageRecognizer(pool, helpers, 3, 1_000_000, 500_000, 100,
+                                       LargePageRecognizerTest::findBoxes);
+    }
+
+    @Test
+    @DisplayName("Should cover the page with overlapping strips")
+    void testSplit() {
+        List<LargePageRecognizer.Strip> strips = createRecognizer().split(1000, 3000);
+
+        assertEquals(6, strips.size());
+        assertEquals(0, strips.get(0).coreTop);
+        assertEquals(3000, strips.get(strips.size() - 1).coreBottom);
+        for (int i = 1; i < strips.size(); i++) {
+            assertEquals(strips.get(i - 1).coreBottom, strips.get(i).coreTop, "Cores should tile the page");
+            assertEquals(100, strips.get(i - 1).bottom - strips.get(i).top, "Neighbours should overlap");
+        }
+    }
+
+    @Test
+    @DisplayName("Should find every word once, whole and in reading order")
+    void testRecognizeMergesStrips() throws Exception {
+        LargePageRecognizer recognizer = createRecognizer();
+        BufferedImage image = poster();
+        assertTrue(recognizer.isOversized(image));
+
+        TesseractEngine.Recognition recognition = recognizer.recognize(image, "eng");
+
+        List<OCRWord> words = recognition.getWords();
+        assertEquals(LINES * WORDS_PER_LINE, words.size(), "Words in overlaps should not be duplicated");
+        Set<String> texts = new HashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            OCRWord word = words.get(i);
+            assertTrue(texts.add(word.getText()), "Duplicate word " + word.getText());
+            assertEquals(LINE_HEIGHT, word.getHeight(), 0.001, "Words cut by a strip edge should be dropped");
+            int line = i / WORDS_PER_LINE;
+            assertEquals(50 + line * 95, word.getY(), 0.001, "Words should be in page coordinates and reading order");
+        }
+        assertEquals(LINES, recognition.getText().strip().split("\n").length, "Text should keep one line per text line");
+    }
+}
@@ -0,0 +1,148 @@
+package app.services.ocr;
+
+import app.model.OCRPageResult;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.rendering.ImageType;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OCRCache
+ */
+@DisplayName("OCRCache Tests")
+class OCRCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PDDocument createDocument(String text) throws IOException {
+        PDDocument doc = new PDDocument();
+        PDPage page = new PDPage();
+        doc.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+            content.beginText();
+            content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+            content.newLineAtOffset(72, 700);
+            content.showText(text);
+            content.endText();
+        }
+        return doc;
+    }
+
+    @Test
+    @DisplayName("Should key pages by content, language and render settings")
+    void testKeyFor() throws IOException {
+        OCRCache cache = new OCRCache(tempDir, 1024 * 1024);
+        try (PDDocument first = createDocument("Same content");
+             PDDocument copy = createDocument("Same content");
+             PDDocument other = createDocument("Other content")) {
+            OCRRenderProfile.RenderSettings gray300 = new OCRRenderProfile.RenderSettings(300, ImageType.GRAY);
+            PreprocessOptions defaults = PreprocessOptions.defaults();
+            String key = cache.keyFor(first.getPage(0), "eng", gray300, defaults);
+
+            assertEquals(key, cache.keyFor(copy.getPage(0), "eng", gray300, defaults), "Identical pages should share a key");
+            assertNotEquals(key, cache.keyFor(other.getPage(0), "eng", gray300, defaults));
+            assertNotEquals(key, cache.keyFor(first.getPage(0), "deu", gray300, defaults));
+            assertNotEquals(key, cache.keyFor(first.getPage(0), "eng",
+                new OCRRenderProfile.RenderSettings(200, ImageType.GRAY), defaults));
+            assertNotEquals(key, cache.keyFor(first.getPage(0), "eng",
+                new OCRRenderProfile.RenderSettings(300, ImageType.BINARY), defaults));
+            assertNotEquals(key, cache.keyFor(first.getPage(0), "eng", gray300, PreprocessOptions.none()));
+        }
+    }
+
+    /**
+     * A page that draws an image from resources inherited from the page tree, with no resources of its own
+     */
+    private PDDocument createInheritedImageDocument(int gray) throws IOException {
+        PDDocument doc = new PDDocument();
+        PDPage page = new PDPage();
+        doc.addPage(page);
+
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(gray, gray, gray));
+        graphics.fillRect(0, 0, 8, 8);
+        graphics.dispose();
+        PDResources resources = new PDResources();
+        resources.put(COSName.getPDFName("Im0"), LosslessFactory.createFromImage(doc, image));
+        doc.getPages().getCOSObject().setItem(COSName.RESOURCES, resources.getCOSObject());
+        page.getCOSObject().removeItem(COSName.RESOURCES);
+
+        PDStream contents = new PDStream(doc);
+        try (OutputStream out = contents.createOutputStream()) {
+            out.write("q 400 0 0 400 100 200 cm /Im0 Do Q".getBytes(StandardCharsets.US_ASCII));
+        }
+        page.setContents(contents);
+        return doc;
+    }
+
+    @Test
+    @DisplayName("Should include inherited resources in the key")
+    void testKeyForInheritedResources() throws IOException {
+        OCRCache cache = new OCRCache(tempDir, 1024 * 1024);
+        try (PDDocument dark = createInheritedImageDocument(20);
+             PDDocument light = createInheritedImageDocument(230)) {
+            OCRRenderProfile.RenderSettings gray300 = new OCRRenderProfile.RenderSettings(300, ImageType.GRAY);
+            PreprocessOptions defaults = PreprocessOptions.defaults();
+
+            assertNotEquals(cache.keyFor(dark.getPage(0), "eng", gray300, defaults),
+                            cache.keyFor(light.getPage(0), "eng", gray300, defaults),
+                            "Scans with the same content stream but different images should not share a key");
+        }
+    }
+
+    @Test
+    @DisplayName("Should persist results across cache instances")
+    void testPutAndGet() {
+        new OCRCache(tempDir, 1024 * 1024).put("abc", new OCRPageResult(0, "Recognized text", 91.5));
+
+        OCRPageResult cached = new OCRCache(tempDir, 1024 * 1024).get("abc", 7);
+
+        assertNotNull(cached, "Entry should be read back from disk");
+        assertEquals(7, cached.getPageNumber(), "Page number should come from the caller");
+        assertEquals("Recognized text", cached.getText());
+        assertEquals(91.5, cached.getConfidence(), 0.001);
+        assertNull(new OCRCache(tempDir, 1024 * 1024).get("missing", 0));
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entries over the size limit")
+    void testEviction() throws Exception {
+        OCRCache cache = new OCRCache(tempDir, 2000);
+        String text = "x".repeat(400);
+
+        for (int i = 0; i < 4; i++) {
+            cache.put("entry" + i, new OCRPageResult(i, text, 90));
+            // File times have coarse resolution on some file systems
+            Thread.sleep(20);
+        }
+        cache.get("entry0", 0);
+        Thread.sleep(20);
+        cache.put("entry4", new OCRPageResult(4, text, 90));
+        cache.put("entry5", new OCRPageResult(5, text, 90));
+
+        assertTrue(cache.getTotalBytes() <= 2000, "Cache should stay within its limit");
+        assertNotNull(cache.get("entry0", 0), "Recently used entry should survive");
+        assertNotNull(cache.get("entry5", 5), "Newest entry should survive");
+        assertNull(cache.get("entry1", 1), "Least recently used entry should be evicted");
+    }
+}
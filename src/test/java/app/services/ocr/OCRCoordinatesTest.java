@@ -0,0 +1,67 @@
+package app.services.ocr;
+
+import app.model.OCRWord;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.*;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OCRCoordinates
+ */
+@DisplayName("OCRCoordinates Tests")
+class OCRCoordinatesTest {
+
+    private static void assertMapsTo(AffineTransform transform, double px, double py, double x, double y) {
+        Point2D mapped = transform.transform(new Point2D.Double(px, py), null);
+        assertEquals(x, mapped.getX(), 0.01, "x of pixel (" + px + ", " + py + ")");
+        assertEquals(y, mapped.getY(), 0.01, "y of pixel (" + px + ", " + py + ")");
+    }
+
+    @Test
+    @DisplayName("Should map rendered pixels to user space")
+    void testUnrotatedPage() {
+        PDPage page = new PDPage(new PDRectangle(10, 20, 600, 800));
+
+        AffineTransform transform = OCRCoordinates.renderedPageToUserSpace(page, 144);
+
+        // Top left pixel is the top left of the crop box; two pixels per point at 144 DPI
+        assertMapsTo(transform, 0, 0, 10, 820);
+        assertMapsTo(transform, 1200, 1600, 610, 20);
+    }
+
+    @Test
+    @DisplayName("Should undo the page rotation")
+    void testRotatedPage() {
+        PDPage page = new PDPage(new PDRectangle(600, 800));
+        page.setRotation(90);
+
+        AffineTransform transform = OCRCoordinates.renderedPageToUserSpace(page, 72);
+
+        // Rendered landscape: the top left pixel shows the lower left of the page
+        assertMapsTo(transform, 0, 0, 0, 0);
+        assertMapsTo(transform, 800, 0, 0, 800);
+        assertMapsTo(transform, 0, 600, 600, 0);
+    }
+
+    @Test
+    @DisplayName("Should turn pixel boxes into user space boxes")
+    void testToUserSpace() {
+        AffineTransform transform = OCRCoordinates.renderedPageToUserSpace(new PDPage(new PDRectangle(600, 800)), 144);
+
+        List<OCRWord> words = OCRCoordinates.toUserSpace(List.of(new OCRWord("Hello", 91, 200, 100, 80, 20)), transform);
+
+        OCRWord word = words.get(0);
+        assertEquals("Hello", word.getText());
+        assertEquals(91, word.getConfidence(), 0.001);
+        assertEquals(100, word.getX(), 0.01);
+        assertEquals(740, word.getY(), 0.01, "Bottom edge of the word");
+        assertEquals(40, word.getWidth(), 0.01);
+        assertEquals(10, word.getHeight(), 0.01);
+    }
+}
@@ -0,0 +1,85 @@
+package app.services.ocr;
+
+import app.model.OCRPageResult;
+import org.junit.jupiter.api.*;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OCRPipeline
+ */
+@DisplayName("OCRPipeline Tests")
+class OCRPipelineTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should return results in page order and bound live bitmaps")
+    void testOrderAndBitmapLimit() throws Exception {
+        int maxBitmaps = 3;
+        AtomicInteger liveBitmaps = new AtomicInteger();
+        AtomicInteger peakBitmaps = new AtomicInteger();
+        OCRPipeline pipeline = new OCRPipeline(executor, 4, maxBitmaps);
+
+        int[] pages = {5, 3, 8, 0, 1, 2, 7, 6, 4, 9};
+        List<OCRPageResult> results = pipeline.run(pages,
+            pageNum -> {
+                peakBitmaps.accumulateAndGet(liveBitmaps.incrementAndGet(), Math::max);
+                return new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_GRAY);
+            },
+            (pageNum, image) -> {
+                // Recognize later pages faster so workers finish out of order
+                Thread.sleep(10 - pageNum);
+                liveBitmaps.decrementAndGet();
+                return new OCRPageResult(pageNum, "page " + pageNum, 90.0);
+            });
+
+        assertEquals(pages.length, results.size());
+        for (int i = 0; i < pages.length; i++) {
+            assertEquals(pages[i], results.get(i).getPageNumber(), "Results should follow request order");
+            assertEquals("page " + pages[i], results.get(i).getText());
+        }
+        assertTrue(peakBitmaps.get() <= maxBitmaps,
+                  "At most " + maxBitmaps + " bitmaps should be alive, saw " + peakBitmaps.get());
+    }
+
+    @Test
+    @DisplayName("Should report render and recognition failures per page")
+    void testFailuresPerPage() throws Exception {
+        OCRPipeline pipeline = new OCRPipeline(executor, 2, 3);
+
+        List<OCRPageResult> results = pipeline.run(new int[] {0, 1, 2},
+            pageNum -> {
+                if (pageNum == 1) {
+                    throw new IllegalStateException("Render failed");
+                }
+                return new BufferedImage(10, 10, BufferedImage.TYPE_BYTE_GRAY);
+            },
+            (pageNum, image) -> {
+                if (pageNum == 2) {
+                    throw new IllegalStateException("OCR failed");
+                }
+                return new OCRPageResult(pageNum, "ok", 90.0);
+            });
+
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals("Render failed", results.get(1).getError());
+        assertEquals("OCR failed", results.get(2).getError());
+    }
+}
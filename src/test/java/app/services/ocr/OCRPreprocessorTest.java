@@ -0,0 +1,148 @@
+package app.services.ocr;
+
+import org.junit.jupiter.api.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OCRPreprocessor
+ */
+@DisplayName("OCRPreprocessor Tests")
+class OCRPreprocessorTest {
+
+    private final OCRPreprocessor preprocessor = new OCRPreprocessor();
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    @DisplayName("Should estimate the skew of rotated text lines")
+    void testEstimateSkew() {
+        for (double skew : new double[] {-3.0, 0.0, 2.0}) {
+            BufferedImage page = SyntheticPages.scannedPage(1200, 1600, skew, 0);
+
+            double estimate = preprocessor.estimateSkew(pixels(page), 1200, 1600, 5.0);
+
+            assertEquals(skew, estimate, 0.3, "Estimated skew for a page rotated by " + skew + " degrees");
+        }
+    }
+
+    @Test
+    @DisplayName("Should straighten a skewed page")
+    void testDeskew() {
+        BufferedImage page = SyntheticPages.scannedPage(1200, 1600, 2.5, 0);
+        byte[] pixels = pixels(page);
+
+        preprocessor.deskew(pixels, 1200, 1600, preprocessor.estimateSkew(pixels, 1200, 1600, 5.0));
+
+        assertEquals(0.0, preprocessor.estimateSkew(pixels, 1200, 1600, 5.0), 0.3,
+                    "Text lines should be horizontal after deskew");
+    }
+
+    @Test
+    @DisplayName("Should binarize despite uneven lighting")
+    void testBinarize() {
+        // Dark background on the right is lighter than the ink but darker than mid-gray
+        BufferedImage page = SyntheticPages.scannedPage(800, 1000, 0, 0);
+        byte[] pixels = pixels(page);
+
+        preprocessor.binarize(pixels, 800, 1000, 0, 0.15);
+
+        int ink = 0;
+        for (byte value : pixels) {
+            assertTrue(value == 0 || value == (byte) 255, "Output should be black or white");
+            if (value == 0) {
+                ink++;
+            }
+        }
+        double inkRatio = (double) ink / pixels.length;
+        assertTrue(inkRatio > 0.005 && inkRatio < 0.2,
+                  "Only the text should turn black, ink ratio was " + inkRatio);
+    }
+
+    @Test
+    @DisplayName("Should remove speckles but keep larger marks")
+    void testRemoveSpeckles() {
+        int width = 50;
+        int height = 50;
+        byte[] pixels = new byte[width * height];
+        java.util.Arrays.fill(pixels, (byte) 255);
+        // Two isolated dots and a 4x4 block
+        pixels[5 * width + 5] = 0;
+        pixels[20 * width + 30] = 0;
+        pixels[20 * width + 31] = 0;
+        for (int y = 40; y < 44; y++) {
+            for (int x = 10; x < 14; x++) {
+                pixels[y * width + x] = 0;
+            }
+        }
+
+        int removed = preprocessor.removeSpeckles(pixels, width, height, 3);
+
+        assertEquals(2, removed);
+        assertEquals((byte) 255, pixels[5 * width + 5]);
+        assertEquals((byte) 255, pixels[20 * width + 30]);
+        assertEquals(0, pixels[41 * width + 11], "Block larger than the speckle size should be kept");
+    }
+
+    @Test
+    @DisplayName("Should straighten a 1-bit page without expanding it to gray")
+    void testPreparePacked() {
+        BufferedImage page = new BufferedImage(1200, 1600, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D g = page.createGraphics();
+        g.drawImage(SyntheticPages.scannedPage(1200, 1600, 2.5, 0), 0, 0, null);
+        g.dispose();
+        assertEquals(2.5, preprocessor.estimateSkewPacked(pixels(page), 1200, 1600, 5.0), 0.3);
+
+        OCRPreprocessor.PreparedImage prepared = preprocessor.prepare(page, PreprocessOptions.defaults());
+
+        assertSame(page, prepared.getImage(), "The packed image should be processed in place");
+        assertEquals(BufferedImage.TYPE_BYTE_BINARY, prepared.getImage().getType());
+        assertEquals(0.0, preprocessor.estimateSkewPacked(pixels(page), 1200, 1600, 5.0), 0.3,
+                    "Text lines should be horizontal after deskew");
+    }
+
+    @Test
+    @DisplayName("Should remove speckles from packed 1-bit rows")
+    void testRemoveSpecklesPacked() {
+        int width = 50;
+        int height = 50;
+        BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        WritableRaster raster = page.getRaster();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, 1);
+            }
+        }
+        // Two isolated dots, one across a byte boundary, and a 4x4 block
+        raster.setSample(5, 5, 0, 0);
+        raster.setSample(7, 20, 0, 0);
+        raster.setSample(8, 20, 0, 0);
+        for (int y = 40; y < 44; y++) {
+            for (int x = 10; x < 14; x++) {
+                raster.setSample(x, y, 0, 0);
+            }
+        }
+
+        int removed = preprocessor.removeSpecklesPacked(pixels(page), width, height, 3);
+
+        assertEquals(2, removed);
+        assertEquals(1, raster.getSample(5, 5, 0));
+        assertEquals(1, raster.getSample(8, 20, 0));
+        assertEquals(0, raster.getSample(11, 41, 0), "Block larger than the speckle size should be kept");
+    }
+
+    @Test
+    @DisplayName("Should leave the image untouched when preprocessing is disabled")
+    void testDisabled() {
+        BufferedImage page = SyntheticPages.scannedPage(200, 200, 1.0, 10);
+
+        assertSame(page, preprocessor.process(page, PreprocessOptions.none()));
+    }
+}
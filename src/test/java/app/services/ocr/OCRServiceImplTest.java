@@ -1,9 +1,14 @@
 package app.services.ocr;
 
+import app.model.OCRPageResult;
 import app.model.OCRResult;
 import app.model.PDFDocument;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -14,6 +19,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -330,6 +341,198 @@ class OCRServiceImplTest {
         document.getPdDocument().close();
     }
     
+    @Test
+    @Order(12)
+    @DisplayName("Test performOCR() - Many pages keep page order")
+    void testPerformOCRManyPagesInOrder() throws Exception {
+        // Arrange
+        PDDocument doc = new PDDocument();
+        for (int i = 0; i < 8; i++) {
+            doc.addPage(new PDPage());
+        }
+        PDFDocument document = new PDFDocument(tempDir.resolve("many.pdf").toFile(), doc);
+        
+        // Act
+        OCRResult result = ocrService.performOCR(document, "eng");
+        
+        // Assert
+        assertEquals(8, result.getMetadata().get("pages_processed"));
+        int previousIndex = -1;
+        for (int page = 1; page <= 8; page++) {
+            int index = result.getText().indexOf("=== Page " + page + " ===");
+            assertTrue(index > previousIndex, "Page " + page + " should follow the previous page");
+            previousIndex = index;
+        }
+        
+        // Cleanup
+        doc.close();
+    }
+    
+    @Test
+    @Order(13)
+    @DisplayName("Test performOCR() - Pages with a text layer skip OCR")
+    void testPerformOCRUsesTextLayer() throws Exception {
+        // Arrange
+        PDDocument doc = new PDDocument();
+        PDPage textPage = new PDPage();
+        doc.addPage(textPage);
+        try (PDPageContentStream content = new PDPageContentStream(doc, textPage)) {
+            content.beginText();
+            content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+            content.newLineAtOffset(72, 700);
+            content.showText("This page was produced digitally and already has a complete text layer.");
+            content.endText();
+        }
+        doc.addPage(new PDPage());
+        PDFDocument document = new PDFDocument(tempDir.resolve("mixed.pdf").toFile(), doc);
+        
+        // Act
+        OCRResult result = ocrService.performOCR(document, "eng");
+        
+        // Assert
+        assertEquals(1, result.getMetadata().get("pages_from_text_layer"));
+        assertTrue(result.getText().contains("already has a complete text layer"),
+                  "Text layer content should be returned");
+        
+        // Cleanup
+        doc.close();
+    }
+    
+    @Test
+    @Order(14)
+    @DisplayName("Test performOCR() - Each page is reported to the listener")
+    void testPerformOCRStreamsPages() throws Exception {
+        // Arrange
+        PDDocument doc = new PDDocument();
+        for (int i = 0; i < 6; i++) {
+            doc.addPage(new PDPage());
+        }
+        PDFDocument document = new PDFDocument(tempDir.resolve("streamed.pdf").toFile(), doc);
+        Set<Integer> reportedPages = ConcurrentHashMap.newKeySet();
+        AtomicInteger lastCompleted = new AtomicInteger();
+        
+        // Act
+        OCRResult result = ocrService.performOCR(document, "eng", new int[] {0, 1, 2, 3, 4, 5},
+            PreprocessOptions.defaults(), (page, completed, total) -> {
+                reportedPages.add(page.getPageNumber());
+                lastCompleted.accumulateAndGet(completed, Math::max);
+                assertEquals(6, total);
+            });
+        
+        // Assert
+        assertEquals(Set.of(0, 1, 2, 3, 4, 5), reportedPages, "Every page should be reported once done");
+        assertEquals(6, lastCompleted.get());
+        List<OCRPageResult> pages = result.getPages();
+        assertEquals(6, pages.size(), "Per-page results should be kept");
+        for (int i = 0; i < pages.size(); i++) {
+            assertEquals(i, pages.get(i).getPageNumber(), "Pages should be in request order");
+            assertTrue(pages.get(i).isSuccessful());
+        }
+        
+        // Cleanup
+        doc.close();
+    }
+    
+    @Test
+    @Order(15)
+    @DisplayName("Test makeSearchable() - Reports every page, leaves pages without words unchanged and does not save")
+    void testMakeSearchable() throws Exception {
+        // Arrange
+        File imageFile = createTestImage("Searchable", "PNG");
+        PDFDocument document = createPDFFromImage(imageFile);
+        long sizeBefore = document.getFile().length();
+        AtomicInteger reported = new AtomicInteger();
+        
+        // Act
+        OCRResult result = ocrService.makeSearchable(document, "eng", new int[] {0}, PreprocessOptions.defaults(),
+            (page, completed, total) -> reported.incrementAndGet());
+        
+        // Assert
+        assertEquals(1, reported.get());
+        assertNotNull(result.getMetadata().get("text_layer_pages"));
+        assertEquals(sizeBefore, document.getFile().length(), "Saving the text layer is left to the caller");
+        if (!ocrService.isTesseractAvailable()) {
+            assertEquals(0, result.getMetadata().get("text_layer_pages"), "Stub results have no words to write");
+            assertFalse(document.isModified(), "Nothing changes without a text layer");
+        }
+        
+        // Cleanup
+        document.close();
+    }
+    
+    @Test
+    @Order(16)
+    @DisplayName("Test language resolution - Names, codes and combinations")
+    void testResolveLanguage() {
+        OCRServiceImpl service = (OCRServiceImpl) ocrService;
+        
+        assertEquals("deu", service.resolveLanguage("German"));
+        assertEquals("fra", service.resolveLanguage("fra"));
+        assertEquals("eng+deu", service.resolveLanguage("English+deu"));
+        assertEquals("eng", service.resolveLanguage(""));
+    }
+    
+    @Test
+    @Order(17)
+    @DisplayName("Test performOCR() - Scanned pages are OCRed from their embedded image")
+    void testPerformOCREmbeddedScan() throws Exception {
+        // Arrange
+        PDDocument doc = new PDDocument();
+        PDPage page = new PDPage();
+        doc.addPage(page);
+        BufferedImage scan = new BufferedImage(1700, 2200, BufferedImage.TYPE_BYTE_GRAY);
+        try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+            content.drawImage(LosslessFactory.createFromImage(doc, scan), 0, 0,
+                              page.getMediaBox().getWidth(), page.getMediaBox().getHeight());
+        }
+        PDFDocument document = new PDFDocument(tempDir.resolve("scan.pdf").toFile(), doc);
+        
+        // Act
+        OCRResult result = ocrService.performOCR(document, "eng");
+        
+        // Assert
+        assertEquals(1, result.getMetadata().get("pages_from_embedded_image"));
+        assertTrue(result.getPages().get(0).isSuccessful());
+        
+        // Cleanup
+        doc.close();
+    }
+    
+    @Test
+    @Order(18)
+    @DisplayName("Test performOCR() - Reads the document on its executor one page at a time")
+    void testPerformOCROnDocumentExecutor() throws Exception {
+        // Arrange
+        PDDocument doc = new PDDocument();
+        for (int i = 0; i < 3; i++) {
+            doc.addPage(new PDPage());
+        }
+        PDFDocument document = new PDFDocument(tempDir.resolve("blank.pdf").toFile(), doc);
+        ExecutorService documentExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-document"));
+        Set<String> documentThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger documentTasks = new AtomicInteger();
+        Executor countingExecutor = task -> documentExecutor.execute(() -> {
+            documentTasks.incrementAndGet();
+            documentThreads.add(Thread.currentThread().getName());
+            task.run();
+        });
+        
+        try {
+            // Act
+            OCRResult result = ocrService.performOCR(document, "eng", new int[] {0, 1, 2}, PreprocessOptions.defaults(),
+                (page, completed, total) -> { }, countingExecutor);
+            
+            // Assert
+            assertEquals(3, result.getPages().size());
+            assertEquals(Set.of("test-document"), documentThreads);
+            assertTrue(documentTasks.get() >= 3, "Each page should be a task of its own");
+        } finally {
+            // Cleanup
+            documentExecutor.shutdown();
+            doc.close();
+        }
+    }
+    
     /**
      * Helper to create a PDF from an image
      */
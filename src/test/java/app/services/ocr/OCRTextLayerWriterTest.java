@@ -0,0 +1,106 @@
+package app.services.ocr;
+
+import app.model.OCRPageResult;
+import app.model.OCRWord;
+import app.model.PDFDocument;
+import app.services.pdf.PDFService;
+import app.services.pdf.PDFServiceImpl;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OCRTextLayerWriter
+ */
+@DisplayName("OCRTextLayerWriter Tests")
+class OCRTextLayerWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final PDFService pdfService = new PDFServiceImpl();
+
+    private File createBlankPDF(int pages) throws IOException {
+        File file = tempDir.resolve("scan.pdf").toFile();
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                doc.addPage(new PDPage());
+            }
+            doc.save(file);
+        }
+        return file;
+    }
+
+    private static String pageText(PDDocument doc, int pageNumber) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage(pageNumber + 1);
+        stripper.setEndPage(pageNumber + 1);
+        return stripper.getText(doc);
+    }
+
+    @Test
+    @DisplayName("Should make pages searchable across incremental saves")
+    void testIncrementalTextLayer() throws Exception {
+        File file = createBlankPDF(2);
+        PDFDocument document = pdfService.load(file);
+        OCRTextLayerWriter writer = new OCRTextLayerWriter(document.getPdDocument());
+
+        writer.addPage(new OCRPageResult(0, "Invoice 2024", 90, List.of(
+            new OCRWord("Invoice", 92, 72, 700, 60, 14),
+            new OCRWord("2024", 88, 140, 700, 35, 14))));
+        pdfService.saveIncremental(document, file);
+        long firstSize = file.length();
+
+        writer.addPage(new OCRPageResult(1, "Привет", 90, List.of(new OCRWord("Привет", 90, 72, 500, 70, 14))));
+        pdfService.saveIncremental(document, file);
+        document.close();
+
+        try (PDDocument reloaded = Loader.loadPDF(file)) {
+            assertTrue(pageText(reloaded, 0).contains("Invoice 2024"), "First page text should survive the second save");
+            assertTrue(pageText(reloaded, 1).contains("Привет"), "Non-Latin words should be written too");
+        }
+        assertTrue(file.length() > firstSize, "Second save should append to the first");
+    }
+
+    @Test
+    @DisplayName("Should place invisible words at their boxes")
+    void testWordPosition() throws Exception {
+        File file = createBlankPDF(1);
+        try (PDDocument doc = Loader.loadPDF(file)) {
+            new OCRTextLayerWriter(doc).addPage(new OCRPageResult(0, "Scanned", 90,
+                List.of(new OCRWord("Scanned", 90, 100, 600, 120, 20))));
+
+            List<TextPosition> positions = new ArrayList<>();
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void processTextPosition(TextPosition text) {
+                    positions.add(text);
+                }
+            };
+            stripper.writeText(doc, new StringWriter());
+
+            assertFalse(positions.isEmpty());
+            TextPosition first = positions.get(0);
+            TextPosition last = positions.get(6);
+            float pageHeight = doc.getPage(0).getMediaBox().getHeight();
+            assertEquals(100, first.getXDirAdj(), 1.0, "Word should start at the left of its box");
+            assertEquals(220, last.getXDirAdj() + last.getWidthDirAdj(), 2.0, "Word should end at the right of its box");
+            // Baseline sits above the bottom of the box by the font's descent
+            float baseline = pageHeight - first.getYDirAdj();
+            assertTrue(baseline > 600 && baseline < 610, "Baseline was " + baseline);
+        }
+    }
+}
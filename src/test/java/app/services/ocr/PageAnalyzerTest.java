@@ -0,0 +1,192 @@
+package app.services.ocr;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.junit.jupiter.api.*;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PageAnalyzer
+ */
+@DisplayName("PageAnalyzer Tests")
+class PageAnalyzerTest {
+
+    private PDDocument document;
+    private PageAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        document = new PDDocument();
+        analyzer = new PageAnalyzer();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Test
+    @DisplayName("Should use the text layer of a born-digital page")
+    void testTextPageSkipsOCR() throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.beginText();
+            content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+            content.newLineAtOffset(72, 700);
+            content.showText("The quick brown fox jumps over the lazy dog. Pack my box with five dozen jugs.");
+            content.endText();
+        }
+
+        PageAnalyzer.PageAnalysis analysis = analyzer.analyze(document, 0);
+
+        assertFalse(analysis.needsOCR(), "Page with a clean text layer should not need OCR");
+        assertTrue(analysis.getText().contains("quick brown fox"));
+        assertEquals(1.0, analysis.getValidGlyphRatio(), 0.001);
+        assertEquals(0.0, analysis.getImageFraction(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should OCR a page covered by a scanned image")
+    void testScannedPageNeedsOCR() throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        PDImageXObject image = LosslessFactory.createFromImage(document,
+            new BufferedImage(85, 110, BufferedImage.TYPE_BYTE_GRAY));
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawImage(image, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+        }
+
+        PageAnalyzer.PageAnalysis analysis = analyzer.analyze(document, 0);
+
+        assertTrue(analysis.needsOCR(), "Scanned page should need OCR");
+        assertEquals(0, analysis.getCharCount());
+        assertEquals(1.0, analysis.getImageFraction(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Should OCR a blank page")
+    void testBlankPageNeedsOCR() throws IOException {
+        document.addPage(new PDPage());
+
+        assertTrue(analyzer.analyze(document, 0).needsOCR(), "Blank page should still go to OCR");
+    }
+
+    @Test
+    @DisplayName("Should choose render settings from scan resolution and text size")
+    void testRenderSettings() throws IOException {
+        // Bilevel scan drawn over a letter page at 200 DPI
+        PDPage scanPage = new PDPage(PDRectangle.LETTER);
+        document.addPage(scanPage);
+        PDImageXObject scan = LosslessFactory.createFromImage(document,
+            new BufferedImage(1700, 2200, BufferedImage.TYPE_BYTE_BINARY));
+        try (PDPageContentStream content = new PDPageContentStream(document, scanPage)) {
+            content.drawImage(scan, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+        }
+
+        // Vector page with 10pt text
+        PDPage textPage = new PDPage();
+        document.addPage(textPage);
+        try (PDPageContentStream content = new PDPageContentStream(document, textPage)) {
+            content.beginText();
+            content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 10);
+            content.newLineAtOffset(72, 700);
+            content.showText("Small print");
+            content.endText();
+        }
+
+        OCRRenderProfile.RenderSettings scanSettings = OCRRenderProfile.DEFAULT.settingsFor(analyzer.analyze(document, 0));
+        assertEquals(200, scanSettings.getDpi(), "Scans should render at their native resolution");
+        assertEquals(ImageType.BINARY, scanSettings.getImageType(), "Bilevel scans should render to 1 bit");
+        assertTrue(scanSettings.isEmbeddedImage(), "Single scans should be OCRed without rendering");
+
+        OCRRenderProfile.RenderSettings textSettings = OCRRenderProfile.DEFAULT.settingsFor(analyzer.analyze(document, 1));
+        assertEquals(288, textSettings.getDpi(), "10pt text should render at 40px font size");
+        assertEquals(ImageType.GRAY, textSettings.getImageType());
+    }
+
+    @Test
+    @DisplayName("Should expose a lone scan with its placement on the page")
+    void testScanImage() throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        PDImageXObject scan = LosslessFactory.createFromImage(document,
+            new BufferedImage(850, 1100, BufferedImage.TYPE_BYTE_GRAY));
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawImage(scan, 36, 36, 306, 396);
+        }
+
+        PageAnalyzer.ScanImage scanImage = analyzer.analyze(document, 0).getScanImage();
+
+        assertNotNull(scanImage, "A page with one image and nothing else is a scan");
+        assertEquals(850, scanImage.getWidth());
+        AffineTransform imageToUser = scanImage.getImageToUser();
+        Point2D topLeft = imageToUser.transform(new Point2D.Double(0, 0), null);
+        Point2D bottomRight = imageToUser.transform(new Point2D.Double(850, 1100), null);
+        assertEquals(36, topLeft.getX(), 0.01);
+        assertEquals(432, topLeft.getY(), 0.01, "First pixel row is the top of the image");
+        assertEquals(342, bottomRight.getX(), 0.01);
+        assertEquals(36, bottomRight.getY(), 0.01);
+        assertEquals(1100, scanImage.decode().getHeight(), "Image should decode at its native size");
+    }
+
+    @Test
+    @DisplayName("Should decode a scan into a copy that can be preprocessed in place")
+    void testDecodeCopiesScan() throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        BufferedImage white = new BufferedImage(850, 1100, BufferedImage.TYPE_BYTE_BINARY);
+        for (int y = 0; y < white.getHeight(); y++) {
+            for (int x = 0; x < white.getWidth(); x++) {
+                white.getRaster().setSample(x, y, 0, 1);
+            }
+        }
+        PDImageXObject scan = LosslessFactory.createFromImage(document, white);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawImage(scan, 0, 0, page.getMediaBox().getWidth(), page.getMediaBox().getHeight());
+        }
+        PageAnalyzer.ScanImage scanImage = analyzer.analyze(document, 0).getScanImage();
+
+        BufferedImage decoded = scanImage.decode();
+        assertEquals(BufferedImage.TYPE_BYTE_BINARY, decoded.getType(), "A 1-bit scan should stay 1-bit");
+        new OCRPreprocessor().prepare(decoded, PreprocessOptions.defaults());
+        decoded.getRaster().setSample(0, 0, 0, 0);
+
+        assertNotSame(scan.getImage(), decoded);
+        assertEquals(0xFFFFFFFF, scan.getImage().getRGB(0, 0), "The document's cached image should be unchanged");
+        assertEquals(0xFFFFFFFF, scanImage.decode().getRGB(0, 0));
+    }
+
+    @Test
+    @DisplayName("Should render pages that mix a scan with vector content")
+    void testMixedPageIsRendered() throws IOException {
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+        PDImageXObject scan = LosslessFactory.createFromImage(document,
+            new BufferedImage(1700, 2200, BufferedImage.TYPE_BYTE_GRAY));
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawImage(scan, 0, 0, PDRectangle.LETTER.getWidth(), PDRectangle.LETTER.getHeight());
+            content.moveTo(72, 72);
+            content.lineTo(540, 72);
+            content.stroke();
+        }
+
+        PageAnalyzer.PageAnalysis analysis = analyzer.analyze(document, 0);
+
+        assertNull(analysis.getScanImage(), "Vector drawing on top of the scan needs the full rendering");
+        assertFalse(OCRRenderProfile.DEFAULT.settingsFor(analysis).isEmbeddedImage());
+    }
+}
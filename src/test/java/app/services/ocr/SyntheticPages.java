@@ -0,0 +1,51 @@
+package app.services.ocr;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Generates scan-like page images for preprocessing tests and benchmarks
+ */
+final class SyntheticPages {
+    private static final String LINE = "The quick brown fox jumps over the lazy dog 0123456789";
+
+    private SyntheticPages() {
+    }
+
+    /**
+     * A grayscale page of text lines rotated by the given angle, with uneven lighting and salt noise
+     * @param skewDegrees slope of the text lines (positive descends to the right)
+     * @param noiseDots number of isolated dark pixels to scatter over the page
+     */
+    static BufferedImage scannedPage(int width, int height, double skewDegrees, int noiseDots) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        // Background darkening from left to right, like a page curling away from the glass
+        for (int x = 0; x < width; x++) {
+            int shade = 250 - 90 * x / width;
+            g.setColor(new Color(shade, shade, shade));
+            g.drawLine(x, 0, x, height);
+        }
+
+        g.rotate(Math.toRadians(skewDegrees), width / 2.0, height / 2.0);
+        g.setColor(Color.BLACK);
+        int fontSize = Math.max(12, height / 70);
+        g.setFont(new Font(Font.SERIF, Font.PLAIN, fontSize));
+        for (int y = fontSize * 3; y < height - fontSize * 2; y += fontSize * 2) {
+            g.drawString(LINE, width / 12, y);
+        }
+        g.dispose();
+
+        Random random = new Random(42);
+        for (int i = 0; i < noiseDots; i++) {
+            image.getRaster().setSample(random.nextInt(width), random.nextInt(height), 0, 0);
+        }
+        return image;
+    }
+}
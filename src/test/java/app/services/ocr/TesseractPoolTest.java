@@ -0,0 +1,100 @@
+package app.services.ocr;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TesseractPool, using engines without a native handle
+ */
+@DisplayName("TesseractPool Tests")
+class TesseractPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private TesseractPool pool;
+
+    private TesseractPool createPool(int perLanguage, int maxEngines, long idleTimeoutMillis) {
+        pool = new TesseractPool(language -> {
+            created.incrementAndGet();
+            return new TesseractEngine(language);
+        }, perLanguage, maxEngines, idleTimeoutMillis);
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Should reuse engines per language")
+    void testReuse() throws Exception {
+        createPool(2, 4, 60_000);
+
+        TesseractEngine first = pool.borrow("eng");
+        pool.release(first);
+        TesseractEngine second = pool.borrow("eng");
+        pool.release(second);
+        pool.release(pool.borrow("eng+deu"));
+
+        assertSame(first, second, "Released engine should be handed out again");
+        assertEquals(2, created.get(), "One engine per language should have been loaded");
+        assertEquals(1, pool.getIdleCount("eng+deu"));
+    }
+
+    @Test
+    @DisplayName("Should evict the longest idle engine when a new language needs room")
+    void testBoundedAcrossLanguages() throws Exception {
+        createPool(2, 2, 60_000);
+        TesseractEngine eng1 = pool.borrow("eng");
+        TesseractEngine eng2 = pool.borrow("eng");
+        pool.release(eng1);
+        pool.release(eng2);
+
+        TesseractEngine deu = pool.borrow("deu");
+
+        assertEquals("deu", deu.getLanguage());
+        assertEquals(2, pool.getEngineCount(), "Total engines should stay within the limit");
+        assertEquals(1, pool.getIdleCount("eng"), "Only one English engine should have been closed");
+        pool.release(deu);
+    }
+
+    @Test
+    @DisplayName("Should close engines that stay idle past the timeout")
+    void testIdleEviction() throws Exception {
+        createPool(2, 4, 50);
+        pool.release(pool.borrow("eng"));
+        Thread.sleep(100);
+
+        pool.evictIdle();
+
+        assertEquals(0, pool.getEngineCount());
+        pool.release(pool.borrow("eng"));
+        assertEquals(2, created.get(), "Evicted language should be loaded again on demand");
+    }
+
+    @Test
+    @DisplayName("Should make borrowers wait for a busy language")
+    void testWaitForEngine() throws Exception {
+        createPool(1, 4, 60_000);
+        TesseractEngine busy = pool.borrow("eng");
+
+        CompletableFuture<TesseractEngine> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow("eng");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+        pool.release(busy);
+        assertSame(busy, waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(1, created.get());
+    }
+}
@@ -0,0 +1,163 @@
+package app.services.pdf;
+
+import app.model.PDFDocument;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DocumentSaveWriter and the atomic replace in PDFServiceImpl.save()
+ */
+@DisplayName("DocumentSaveWriter Tests")
+class DocumentSaveWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File createTestPDF(String filename, int pageCount) throws IOException {
+        File file = tempDir.resolve(filename).toFile();
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pageCount; i++) {
+                doc.addPage(new PDPage());
+            }
+            doc.save(file);
+        }
+        return file;
+    }
+
+    @Test
+    @DisplayName("Should save over the document's own file and leave no temp files")
+    void testSaveOverSourceFile() throws Exception {
+        PDFService pdfService = new PDFServiceImpl();
+        DocumentSaveWriter writer = new DocumentSaveWriter(pdfService);
+        File file = createTestPDF("source.pdf", 2);
+
+        PDFDocument document = pdfService.load(file);
+        document.getPdDocument().addPage(new PDPage());
+        document.setModified(true);
+
+        File saved = writer.save(document, file).get(30, TimeUnit.SECONDS);
+        assertEquals(file.getAbsoluteFile(), saved);
+        assertFalse(document.isModified(), "Document should be marked as saved");
+        document.close();
+
+        try (PDDocument reloaded = Loader.loadPDF(file)) {
+            assertEquals(3, reloaded.getNumberOfPages(), "Saved file should contain the new page");
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count(), "Temp file should have been renamed into place");
+        }
+        writer.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Should coalesce repeated saves queued behind a running save")
+    void testCoalescesQueuedSaves() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger saveCount = new AtomicInteger();
+        PDFService blockingService = new PDFServiceImpl() {
+            @Override
+            public void save(PDFDocument document, File file) throws Exception {
+                release.await(10, TimeUnit.SECONDS);
+                saveCount.incrementAndGet();
+            }
+        };
+        DocumentSaveWriter writer = new DocumentSaveWriter(blockingService);
+        PDFDocument document = new PDFDocument(tempDir.resolve("doc.pdf").toFile(), new PDDocument());
+        File first = tempDir.resolve("first.pdf").toFile();
+        File second = tempDir.resolve("second.pdf").toFile();
+
+        CompletableFuture<File> running = writer.save(document, first);
+        CompletableFuture<File> queued = writer.save(document, second);
+        CompletableFuture<File> repeated = writer.save(document, second);
+        assertSame(queued, repeated, "Repeated save should reuse the queued request");
+
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+        assertEquals(2, saveCount.get(), "Queued duplicates should be written once");
+
+        document.close();
+        writer.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Should write on the document executor, after work queued before it and before a close")
+    void testSavesRunOnDocumentExecutor() throws Exception {
+        ExecutorService documentExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "test-document"));
+        List<String> events = new CopyOnWriteArrayList<>();
+        PDFService recordingService = new PDFServiceImpl() {
+            @Override
+            public void save(PDFDocument document, File file) throws Exception {
+                events.add("save on " + Thread.currentThread().getName());
+            }
+        };
+        DocumentSaveWriter writer = new DocumentSaveWriter(recordingService, documentExecutor);
+        PDFDocument document = new PDFDocument(tempDir.resolve("doc.pdf").toFile(), new PDDocument());
+
+        CountDownLatch release = new CountDownLatch(1);
+        documentExecutor.submit(() -> {
+            release.await(10, TimeUnit.SECONDS);
+            events.add("render");
+            return null;
+        });
+        CompletableFuture<File> saved = writer.save(document, tempDir.resolve("out.pdf").toFile());
+        documentExecutor.submit(() -> {
+            document.close();
+            events.add("close");
+        });
+        release.countDown();
+
+        saved.get(10, TimeUnit.SECONDS);
+        writer.shutdown(5, TimeUnit.SECONDS);
+        documentExecutor.shutdown();
+        assertTrue(documentExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(List.of("render", "save on test-document", "close"), events);
+
+        // A save queued after the document was closed fails instead of writing a closed document
+        DocumentSaveWriter lateWriter = new DocumentSaveWriter(recordingService);
+        CompletableFuture<File> late = lateWriter.save(document, tempDir.resolve("late.pdf").toFile());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        lateWriter.shutdown(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Should report save failures through the future")
+    void testSaveFailure() throws Exception {
+        PDFService failingService = new PDFServiceImpl() {
+            @Override
+            public void save(PDFDocument document, File file) throws Exception {
+                throw new IOException("Disk full");
+            }
+        };
+        DocumentSaveWriter writer = new DocumentSaveWriter(failingService);
+        PDFDocument document = new PDFDocument(tempDir.resolve("doc.pdf").toFile(), new PDDocument());
+
+        CompletableFuture<File> future = writer.save(document, tempDir.resolve("out.pdf").toFile());
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertEquals("Disk full", e.getCause().getMessage());
+
+        document.close();
+        writer.shutdown(5, TimeUnit.SECONDS);
+    }
+}
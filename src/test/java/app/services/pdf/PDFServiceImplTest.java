@@ -1,8 +1,12 @@
 package app.services.pdf;
 
 import app.model.PDFDocument;
+import app.model.PageTextIndex;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -48,6 +52,28 @@ class PDFServiceImplTest {
         return file;
     }
     
+    /**
+     * Helper method to create a PDF with one line of text per page
+     */
+    private File createTextPDF(String filename, String... pageTexts) throws IOException {
+        File file = tempDir.resolve(filename).toFile();
+        try (PDDocument doc = new PDDocument()) {
+            for (String text : pageTexts) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                    content.beginText();
+                    content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(text);
+                    content.endText();
+                }
+            }
+            doc.save(file);
+        }
+        return file;
+    }
+    
     @Test
     @Order(1)
     @DisplayName("Test load() - Success with valid PDF")
@@ -474,4 +500,27 @@ class PDFServiceImplTest {
         // Cleanup
         document.getPdDocument().close();
     }
+    
+    @Test
+    @Order(24)
+    @DisplayName("Test buildTextIndex() - Per-page text and search")
+    void testBuildTextIndex() throws Exception {
+        // Arrange
+        File sourceFile = createTextPDF("indexed.pdf", "Quarterly revenue report", "Appendix with revenue tables", "Contact details");
+        PDFDocument document = pdfService.load(sourceFile);
+        
+        // Act
+        PageTextIndex index = pdfService.buildTextIndex(document);
+        
+        // Assert
+        assertEquals(3, index.getPageCount(), "Index should have one entry per page");
+        assertSame(index, document.getTextIndex(), "Index should be attached to the document");
+        assertTrue(index.getPageText(0).contains("Quarterly"), "First page text should be extracted");
+        assertEquals(List.of(0, 1), index.search("REVENUE"), "Search should be case-insensitive");
+        assertEquals(List.of(2), index.search("contact  details"), "Search should ignore extra whitespace");
+        assertTrue(index.search("missing").isEmpty(), "Unknown text should not match");
+        
+        // Cleanup
+        document.getPdDocument().close();
+    }
 }
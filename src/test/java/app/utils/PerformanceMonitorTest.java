@@ -0,0 +1,64 @@
+package app.utils;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+/**
+ * Unit tests for PerformanceMonitor and StartupProfiler
+ */
+@DisplayName("PerformanceMonitor Tests")
+class PerformanceMonitorTest {
+
+    @Test
+    @DisplayName("Should get singleton instance")
+    void testGetInstance() {
+        assertSame(PerformanceMonitor.getInstance(), PerformanceMonitor.getInstance(),
+                  "Should return same singleton instance");
+    }
+
+    @Test
+    @DisplayName("Should aggregate recorded samples")
+    void testRecordAggregates() {
+        PerformanceMonitor monitor = PerformanceMonitor.getInstance();
+        String name = "test.aggregate." + System.nanoTime();
+
+        monitor.record(name, 10);
+        monitor.record(name, 30);
+        monitor.record(name, 20);
+
+        PerformanceMonitor.Metric metric = monitor.getMetric(name);
+        assertNotNull(metric, "Metric should exist after recording");
+        assertEquals(3, metric.getCount());
+        assertEquals(60, metric.getTotalMs());
+        assertEquals(10, metric.getMinMs());
+        assertEquals(30, metric.getMaxMs());
+        assertEquals(20, metric.getLastMs());
+        assertEquals(20.0, metric.getAverageMs(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should return null for unknown metric")
+    void testUnknownMetric() {
+        assertNull(PerformanceMonitor.getInstance().getMetric("test.unknown." + System.nanoTime()));
+    }
+
+    @Test
+    @DisplayName("Should report startup phases in order")
+    void testStartupPhases() {
+        StartupProfiler profiler = StartupProfiler.getInstance();
+        profiler.begin();
+        profiler.mark("config");
+        profiler.mark("fxml");
+
+        Map<String, Long> phases = profiler.getPhases();
+        assertTrue(phases.containsKey("jvm"), "JVM phase should be recorded");
+        assertTrue(phases.containsKey("config"), "Config phase should be recorded");
+        assertTrue(phases.containsKey("fxml"), "FXML phase should be recorded");
+
+        profiler.report();
+        assertNotNull(PerformanceMonitor.getInstance().getMetric("startup.total"),
+                     "Startup total should be published as a metric");
+    }
+}